@@ -0,0 +1,72 @@
+package com.codeforcommunity;
+
+import static com.codeforcommunity.rest.ApiRouter.end;
+
+import com.codeforcommunity.rest.ApiRouter;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.CorsHandler;
+
+/**
+ * A single instance of the HTTP API. Each deployed instance runs on its own event loop with its own
+ * server and router, while the {@link ApiRouter} (and the processors behind it) are shared between
+ * every instance. All instances listen on the same port, and Vert.x balances incoming connections
+ * between them.
+ */
+public class ApiVerticle extends AbstractVerticle {
+  public static final int PORT = 8081;
+
+  private final ApiRouter apiRouter;
+
+  public ApiVerticle(ApiRouter apiRouter) {
+    this.apiRouter = apiRouter;
+  }
+
+  @Override
+  public void start(Promise<Void> startPromise) {
+    Router router = Router.router(vertx);
+    router
+        .route()
+        .handler(
+            CorsHandler.create("*")
+                .allowedMethod(HttpMethod.GET)
+                .allowedMethod(HttpMethod.POST)
+                .allowedMethod(HttpMethod.PUT)
+                .allowedMethod(HttpMethod.DELETE)
+                .allowedMethod(HttpMethod.OPTIONS)
+                .allowedHeader("Content-Type")
+                .allowedHeader("origin")
+                .allowedHeader("Access-Control-Allow-Origin")
+                .allowedHeader("Access-Control-Allow-Credentials")
+                .allowedHeader("Access-Control-Allow-Headers")
+                .allowedHeader("Access-Control-Request-Method")
+                .allowedHeader("X-Access-Token")
+                .allowedHeader("X-Refresh-Token"));
+
+    Route homeRoute = router.route("/");
+    homeRoute.handler(this::handleHealthCheck);
+
+    router.mountSubRouter("/api/v1", apiRouter.initializeRouter(vertx));
+
+    vertx
+        .createHttpServer()
+        .requestHandler(router)
+        .listen(
+            PORT,
+            ar -> {
+              if (ar.succeeded()) {
+                startPromise.complete();
+              } else {
+                startPromise.fail(ar.cause());
+              }
+            });
+  }
+
+  private void handleHealthCheck(RoutingContext ctx) {
+    end(ctx.response(), 200);
+  }
+}
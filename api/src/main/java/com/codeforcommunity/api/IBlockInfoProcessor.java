@@ -2,9 +2,22 @@ package com.codeforcommunity.api;
 
 import com.codeforcommunity.dto.blockInfo.BlockInfoResponse;
 import com.codeforcommunity.dto.blockInfo.BlockLeaderboardResponse;
+import com.codeforcommunity.dto.blockInfo.LeaderboardPosition;
+import com.codeforcommunity.dto.map.EncodedResource;
+import java.time.LocalDate;
 
 public interface IBlockInfoProcessor {
   BlockInfoResponse getBlocks();
 
+  EncodedResource getEncodedBlocks();
+
   BlockLeaderboardResponse getBlockLeaderboards();
+
+  BlockLeaderboardResponse getBlockLeaderboards(LocalDate from, LocalDate to);
+
+  BlockLeaderboardResponse getBlockLeaderboards(int days);
+
+  LeaderboardPosition getUserPosition(int userId);
+
+  LeaderboardPosition getTeamPosition(int teamId);
 }
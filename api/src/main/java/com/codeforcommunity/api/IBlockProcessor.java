@@ -3,7 +3,9 @@ package com.codeforcommunity.api;
 import com.codeforcommunity.auth.JWTData;
 import com.codeforcommunity.dto.blocks.BlockResponse;
 import com.codeforcommunity.dto.blocks.BlockSeedingInfo;
+import com.codeforcommunity.dto.blocks.BlockStatsDrift;
 import com.codeforcommunity.dto.blocks.GetAssignedBlocksResponse;
+import com.codeforcommunity.dto.blocks.MapReconcileStatus;
 import java.util.List;
 
 public interface IBlockProcessor {
@@ -23,9 +25,15 @@ public interface IBlockProcessor {
 
   void resetAllBlocks(JWTData jwtData);
 
-  void setMapToDatabase(JWTData jwtData);
+  MapReconcileStatus setMapToDatabase(JWTData jwtData);
+
+  MapReconcileStatus getMapReconcileStatus(JWTData jwtData);
 
   void seedBlockCompletions(JWTData jwtData, List<BlockSeedingInfo> blockSeedingInfos);
 
   String getBlockExportCSV(JWTData jwtData);
+
+  BlockStatsDrift checkBlockStats(JWTData jwtData);
+
+  BlockStatsDrift rebuildBlockStats(JWTData jwtData);
 }
@@ -0,0 +1,24 @@
+package com.codeforcommunity.api;
+
+import com.codeforcommunity.dto.map.BlockChanges;
+import com.codeforcommunity.dto.map.BoundingBox;
+import com.codeforcommunity.dto.map.EncodedResource;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+
+public interface IMapProcessor {
+  /** The event bus address every block status change is published to as it is applied. */
+  String BLOCK_CHANGES_ADDRESS = "map.block_changes";
+
+  EncodedResource getPrivateStreets(int zoom);
+
+  Buffer getPrivateStreetsInBounds(BoundingBox bounds, int zoom);
+
+  EncodedResource getTile(int z, int x, int y);
+
+  EncodedResource getBlockIds();
+
+  EncodedResource getBlockStatuses();
+
+  Future<BlockChanges> getBlockChanges(String since, long waitMs);
+}
@@ -31,7 +31,7 @@ public interface ITeamsProcessor {
 
   void inviteToTeam(JWTData userData, InviteMembersRequest inviteMembersRequest);
 
-  GetAllTeamsResponse getAllTeams(JWTData userData);
+  GetAllTeamsResponse getAllTeams(JWTData userData, String query, String after, int limit);
 
   GetAllTeamsAdminResponse getAllTeamsAdmin(JWTData userData);
 
@@ -0,0 +1,41 @@
+package com.codeforcommunity.dto.blockInfo;
+
+/** Where a user or team stands on its leaderboard. */
+public class LeaderboardPosition {
+  private final int id;
+  private final int rank;
+  private final int rankedCount;
+  private final int blocksCompleted;
+  private final int blocksReserved;
+
+  public LeaderboardPosition(
+      int id, int rank, int rankedCount, int blocksCompleted, int blocksReserved) {
+    this.id = id;
+    this.rank = rank;
+    this.rankedCount = rankedCount;
+    this.blocksCompleted = blocksCompleted;
+    this.blocksReserved = blocksReserved;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  /** @return the position on the leaderboard, starting from 1, or 0 if not on it. */
+  public int getRank() {
+    return rank;
+  }
+
+  /** @return the number of users or teams on the leaderboard. */
+  public int getRankedCount() {
+    return rankedCount;
+  }
+
+  public int getBlocksCompleted() {
+    return blocksCompleted;
+  }
+
+  public int getBlocksReserved() {
+    return blocksReserved;
+  }
+}
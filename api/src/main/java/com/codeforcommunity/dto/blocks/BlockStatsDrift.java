@@ -0,0 +1,20 @@
+package com.codeforcommunity.dto.blocks;
+
+/** How many users and teams had block counts that differed from a recount of the blocks. */
+public class BlockStatsDrift {
+  private final int usersDiffering;
+  private final int teamsDiffering;
+
+  public BlockStatsDrift(int usersDiffering, int teamsDiffering) {
+    this.usersDiffering = usersDiffering;
+    this.teamsDiffering = teamsDiffering;
+  }
+
+  public int getUsersDiffering() {
+    return usersDiffering;
+  }
+
+  public int getTeamsDiffering() {
+    return teamsDiffering;
+  }
+}
@@ -0,0 +1,95 @@
+package com.codeforcommunity.dto.blocks;
+
+import java.sql.Timestamp;
+
+/** The progress of a reconcile of the ArcGIS map against the database. */
+public class MapReconcileStatus {
+
+  private String state;
+  private Timestamp started;
+  private Timestamp finished;
+  private int pagesScanned;
+  private int featuresScanned;
+  private int blocksInDatabase;
+  private int blocksDiffering;
+  private int blocksPushed;
+  private int blocksFailed;
+  private int blocksMissingFromMap;
+  private String error;
+
+  public MapReconcileStatus() {}
+
+  public MapReconcileStatus(
+      String state,
+      Timestamp started,
+      Timestamp finished,
+      int pagesScanned,
+      int featuresScanned,
+      int blocksInDatabase,
+      int blocksDiffering,
+      int blocksPushed,
+      int blocksFailed,
+      int blocksMissingFromMap,
+      String error) {
+    this.state = state;
+    this.started = started;
+    this.finished = finished;
+    this.pagesScanned = pagesScanned;
+    this.featuresScanned = featuresScanned;
+    this.blocksInDatabase = blocksInDatabase;
+    this.blocksDiffering = blocksDiffering;
+    this.blocksPushed = blocksPushed;
+    this.blocksFailed = blocksFailed;
+    this.blocksMissingFromMap = blocksMissingFromMap;
+    this.error = error;
+  }
+
+  /** @return one of SCANNING, PUSHING, SUCCEEDED or FAILED. */
+  public String getState() {
+    return state;
+  }
+
+  public Timestamp getStarted() {
+    return started;
+  }
+
+  /** @return when the reconcile finished, or null if it is still running. */
+  public Timestamp getFinished() {
+    return finished;
+  }
+
+  public int getPagesScanned() {
+    return pagesScanned;
+  }
+
+  public int getFeaturesScanned() {
+    return featuresScanned;
+  }
+
+  public int getBlocksInDatabase() {
+    return blocksInDatabase;
+  }
+
+  /** @return the number of blocks whose status on the map differs from the database. */
+  public int getBlocksDiffering() {
+    return blocksDiffering;
+  }
+
+  public int getBlocksPushed() {
+    return blocksPushed;
+  }
+
+  public int getBlocksFailed() {
+    return blocksFailed;
+  }
+
+  /** @return the number of blocks in the database that have no feature on the map. */
+  public int getBlocksMissingFromMap() {
+    return blocksMissingFromMap;
+  }
+
+  /** @return why the reconcile failed, or null if it did not. */
+  public String getError() {
+    return error;
+  }
+}
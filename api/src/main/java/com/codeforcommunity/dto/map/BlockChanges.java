@@ -0,0 +1,39 @@
+package com.codeforcommunity.dto.map;
+
+import java.util.List;
+
+/** The block status changes after a cursor, and the cursor to ask for the next changes with. */
+public class BlockChanges {
+  private String cursor;
+  private boolean reset;
+  private boolean more;
+  private List<BlockStatusChange> changes;
+
+  public BlockChanges(String cursor, boolean reset, boolean more, List<BlockStatusChange> changes) {
+    this.cursor = cursor;
+    this.reset = reset;
+    this.more = more;
+    this.changes = changes;
+  }
+
+  public String getCursor() {
+    return cursor;
+  }
+
+  /**
+   * @return whether the changes after the given cursor are no longer known, in which case the
+   *     client must fetch every block's status again.
+   */
+  public boolean isReset() {
+    return reset;
+  }
+
+  /** @return whether there are more changes after the returned cursor. */
+  public boolean isMore() {
+    return more;
+  }
+
+  public List<BlockStatusChange> getChanges() {
+    return changes;
+  }
+}
@@ -0,0 +1,22 @@
+package com.codeforcommunity.dto.map;
+
+import com.codeforcommunity.enums.BlockStatus;
+
+/** The latest status of a block that changed. */
+public class BlockStatusChange {
+  private String blockId;
+  private BlockStatus status;
+
+  public BlockStatusChange(String blockId, BlockStatus status) {
+    this.blockId = blockId;
+    this.status = status;
+  }
+
+  public String getBlockId() {
+    return blockId;
+  }
+
+  public BlockStatus getStatus() {
+    return status;
+  }
+}
@@ -0,0 +1,94 @@
+package com.codeforcommunity.dto.map;
+
+/** An axis-aligned rectangle in longitude (x) and latitude (y) coordinates. */
+public class BoundingBox {
+  private final double minX;
+  private final double minY;
+  private final double maxX;
+  private final double maxY;
+
+  public BoundingBox(double minX, double minY, double maxX, double maxY) {
+    if (minX > maxX || minY > maxY) {
+      throw new IllegalArgumentException("The minimum of a box must not exceed its maximum");
+    }
+    this.minX = minX;
+    this.minY = minY;
+    this.maxX = maxX;
+    this.maxY = maxY;
+  }
+
+  public double getMinX() {
+    return minX;
+  }
+
+  public double getMinY() {
+    return minY;
+  }
+
+  public double getMaxX() {
+    return maxX;
+  }
+
+  public double getMaxY() {
+    return maxY;
+  }
+
+  /** @return the x coordinate of the center of this box. */
+  public double getCenterX() {
+    return (minX + maxX) / 2;
+  }
+
+  /** @return the y coordinate of the center of this box. */
+  public double getCenterY() {
+    return (minY + maxY) / 2;
+  }
+
+  /** @return true if this box and the given box share at least one point. */
+  public boolean intersects(BoundingBox other) {
+    return minX <= other.maxX && other.minX <= maxX && minY <= other.maxY && other.minY <= maxY;
+  }
+
+  /** @return the smallest box that contains both this box and the given box. */
+  public BoundingBox union(BoundingBox other) {
+    return new BoundingBox(
+        Math.min(minX, other.minX),
+        Math.min(minY, other.minY),
+        Math.max(maxX, other.maxX),
+        Math.max(maxY, other.maxY));
+  }
+
+  /**
+   * Check whether the line segment between the given points passes through this box, by clipping
+   * the segment to the box (the Liang-Barsky algorithm).
+   *
+   * @return true if any point of the segment is inside this box.
+   */
+  public boolean intersectsSegment(double x1, double y1, double x2, double y2) {
+    double dx = x2 - x1;
+    double dy = y2 - y1;
+    double[] p = {-dx, dx, -dy, dy};
+    double[] q = {x1 - minX, maxX - x1, y1 - minY, maxY - y1};
+
+    double enter = 0;
+    double exit = 1;
+    for (int i = 0; i < 4; i++) {
+      if (p[i] == 0) {
+        // The segment is parallel to this edge, so it must be on the inside of it
+        if (q[i] < 0) {
+          return false;
+        }
+      } else {
+        double t = q[i] / p[i];
+        if (p[i] < 0) {
+          enter = Math.max(enter, t);
+        } else {
+          exit = Math.min(exit, t);
+        }
+        if (enter > exit) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,80 @@
+package com.codeforcommunity.dto.map;
+
+import io.vertx.core.buffer.Buffer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A response body that is encoded once and then served as is. Both the identity and gzip encodings
+ * are kept, along with a strong ETag computed from the content, so serving the resource only writes
+ * bytes that already exist.
+ */
+public class EncodedResource {
+  private final Buffer identity;
+  private final Buffer gzip;
+  private final String etag;
+  private final String contentType;
+
+  private EncodedResource(Buffer identity, Buffer gzip, String etag, String contentType) {
+    this.identity = identity;
+    this.gzip = gzip;
+    this.etag = etag;
+    this.contentType = contentType;
+  }
+
+  /**
+   * Encode the given content.
+   *
+   * @param content the unencoded bytes of the resource.
+   * @param contentType the media type of the resource.
+   * @return the encoded resource.
+   */
+  public static EncodedResource of(byte[] content, String contentType) {
+    return new EncodedResource(
+        Buffer.buffer(content), Buffer.buffer(gzip(content)), hash(content), contentType);
+  }
+
+  private static byte[] gzip(byte[] content) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(content.length / 4);
+    try (GZIPOutputStream gzipOutput = new GZIPOutputStream(output)) {
+      gzipOutput.write(content);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return output.toByteArray();
+  }
+
+  private static String hash(byte[] content) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < 16; i++) {
+        builder.append(String.format("%02x", digest[i]));
+      }
+      return builder.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public Buffer getIdentity() {
+    return identity;
+  }
+
+  public Buffer getGzip() {
+    return gzip;
+  }
+
+  /** @return the strong ETag of the identity encoding, without quotes. */
+  public String getEtag() {
+    return etag;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+}
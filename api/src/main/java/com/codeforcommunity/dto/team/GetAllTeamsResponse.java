@@ -5,12 +5,14 @@ import java.util.List;
 public class GetAllTeamsResponse {
   private List<TeamSummary> teams;
   private int rowCount;
+  private String nextCursor;
 
   private GetAllTeamsResponse() {}
 
-  public GetAllTeamsResponse(List<TeamSummary> teams, int rowCount) {
+  public GetAllTeamsResponse(List<TeamSummary> teams, int rowCount, String nextCursor) {
     this.teams = teams;
     this.rowCount = rowCount;
+    this.nextCursor = nextCursor;
   }
 
   public List<TeamSummary> getTeams() {
@@ -20,4 +22,9 @@ public class GetAllTeamsResponse {
   public int getRowCount() {
     return rowCount;
   }
+
+  /** @return the cursor to get the next page of teams with, or null if this is the last page. */
+  public String getNextCursor() {
+    return nextCursor;
+  }
 }
@@ -0,0 +1,16 @@
+package com.codeforcommunity.exceptions;
+
+import com.codeforcommunity.rest.FailureHandler;
+import io.vertx.ext.web.RoutingContext;
+
+public class ServerOverloadedException extends HandledException {
+
+  public ServerOverloadedException() {
+    super();
+  }
+
+  @Override
+  public void callHandler(FailureHandler handler, RoutingContext ctx) {
+    handler.handleServerOverloaded(ctx);
+  }
+}
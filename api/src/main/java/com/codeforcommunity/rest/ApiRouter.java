@@ -3,18 +3,24 @@ package com.codeforcommunity.rest;
 import com.codeforcommunity.api.IAuthProcessor;
 import com.codeforcommunity.api.IBlockInfoProcessor;
 import com.codeforcommunity.api.IBlockProcessor;
+import com.codeforcommunity.api.IMapProcessor;
 import com.codeforcommunity.api.IProtectedUserProcessor;
 import com.codeforcommunity.api.ITeamsProcessor;
 import com.codeforcommunity.auth.JWTAuthorizer;
+import com.codeforcommunity.dto.map.EncodedResource;
 import com.codeforcommunity.rest.subrouter.AuthRouter;
 import com.codeforcommunity.rest.subrouter.BlockInfoRouter;
 import com.codeforcommunity.rest.subrouter.BlocksRouter;
 import com.codeforcommunity.rest.subrouter.CommonRouter;
+import com.codeforcommunity.rest.subrouter.MapRouter;
+import com.codeforcommunity.rest.subrouter.MetricsRouter;
 import com.codeforcommunity.rest.subrouter.ProtectedUserRouter;
 import com.codeforcommunity.rest.subrouter.TeamsRouter;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
 
 public class ApiRouter implements IRouter {
   private final CommonRouter commonRouter;
@@ -23,6 +29,8 @@ public class ApiRouter implements IRouter {
   private final AuthRouter authRouter;
   private final ProtectedUserRouter protectedUserRouter;
   private final BlockInfoRouter blockInfoRouter;
+  private final MetricsRouter metricsRouter;
+  private final MapRouter mapRouter;
 
   public ApiRouter(
       IAuthProcessor authProcessor,
@@ -30,13 +38,17 @@ public class ApiRouter implements IRouter {
       IBlockProcessor blockProcessor,
       IBlockInfoProcessor blockInfoProcessor,
       ITeamsProcessor teamsProcessor,
-      JWTAuthorizer jwtAuthorizer) {
+      IMapProcessor mapProcessor,
+      JWTAuthorizer jwtAuthorizer,
+      WorkerDispatcher dispatcher) {
     this.commonRouter = new CommonRouter(jwtAuthorizer);
-    this.authRouter = new AuthRouter(authProcessor);
-    this.blocksRouter = new BlocksRouter(blockProcessor);
-    this.teamsRouter = new TeamsRouter(teamsProcessor);
-    this.protectedUserRouter = new ProtectedUserRouter(protectedUserProcessor);
-    this.blockInfoRouter = new BlockInfoRouter(blockInfoProcessor);
+    this.authRouter = new AuthRouter(authProcessor, dispatcher);
+    this.blocksRouter = new BlocksRouter(blockProcessor, dispatcher);
+    this.teamsRouter = new TeamsRouter(teamsProcessor, dispatcher);
+    this.protectedUserRouter = new ProtectedUserRouter(protectedUserProcessor, dispatcher);
+    this.blockInfoRouter = new BlockInfoRouter(blockInfoProcessor, dispatcher);
+    this.metricsRouter = new MetricsRouter();
+    this.mapRouter = new MapRouter(mapProcessor, dispatcher);
   }
 
   /** Initialize a router and register all route handlers on it. */
@@ -45,6 +57,7 @@ public class ApiRouter implements IRouter {
 
     router.mountSubRouter("/user", authRouter.initializeRouter(vertx));
     router.mountSubRouter("/blocks", blockInfoRouter.initializeRouter(vertx));
+    router.mountSubRouter("/map", mapRouter.initializeRouter(vertx));
     router.mountSubRouter("/protected", defineProtectedRoutes(vertx));
 
     return router;
@@ -60,6 +73,7 @@ public class ApiRouter implements IRouter {
     router.mountSubRouter("/user", protectedUserRouter.initializeRouter(vertx));
     router.mountSubRouter("/blocks", blocksRouter.initializeRouter(vertx));
     router.mountSubRouter("/teams", teamsRouter.initializeRouter(vertx));
+    router.mountSubRouter("/metrics", metricsRouter.initializeRouter(vertx));
 
     return router;
   }
@@ -74,6 +88,21 @@ public class ApiRouter implements IRouter {
 
   public static void end(
       HttpServerResponse response, int statusCode, String jsonBody, String contentType) {
+    putHeaders(response, statusCode, contentType);
+    if (jsonBody == null || jsonBody.equals("")) {
+      response.end();
+    } else {
+      response.end(jsonBody);
+    }
+  }
+
+  public static void end(
+      HttpServerResponse response, int statusCode, Buffer body, String contentType) {
+    putHeaders(response, statusCode, contentType);
+    response.end(body);
+  }
+
+  private static void putHeaders(HttpServerResponse response, int statusCode, String contentType) {
     response
         .setStatusCode(statusCode)
         .putHeader("Content-Type", contentType)
@@ -82,10 +111,55 @@ public class ApiRouter implements IRouter {
         .putHeader(
             "Access-Control-Allow-Headers",
             "Content-Type, Access-Control-Allow-Headers, Authorization, X-Requested-With");
-    if (jsonBody == null || jsonBody.equals("")) {
-      response.end();
+  }
+
+  /**
+   * End the request with the given pre-encoded resource. The gzip encoding is sent if the client
+   * accepts it, and an empty 304 is sent instead if the client already has the same representation
+   * cached.
+   *
+   * @param ctx the routing context of the request.
+   * @param resource the resource to send.
+   * @param cacheControl the value of the Cache-Control header.
+   */
+  public static void endEncoded(RoutingContext ctx, EncodedResource resource, String cacheControl) {
+    boolean gzip = acceptsGzip(ctx.request().getHeader("Accept-Encoding"));
+    // Each encoding is a different representation, so it needs its own strong ETag
+    String etag = "\"" + resource.getEtag() + (gzip ? "-gzip" : "") + "\"";
+
+    HttpServerResponse response =
+        ctx.response()
+            .putHeader("ETag", etag)
+            .putHeader("Cache-Control", cacheControl)
+            .putHeader("Vary", "Accept-Encoding")
+            .putHeader("Access-Control-Allow-Origin", "*");
+
+    String ifNoneMatch = ctx.request().getHeader("If-None-Match");
+    if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+      response.setStatusCode(304).end();
+      return;
+    }
+
+    response.setStatusCode(200).putHeader("Content-Type", resource.getContentType());
+    if (gzip) {
+      response.putHeader("Content-Encoding", "gzip").end(resource.getGzip());
     } else {
-      response.end(jsonBody);
+      response.end(resource.getIdentity());
+    }
+  }
+
+  /** @return true if the given Accept-Encoding header allows a gzip encoded response. */
+  private static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      String name = parts[0].trim();
+      if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+        return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+      }
     }
+    return false;
   }
 }
@@ -0,0 +1,169 @@
+package com.codeforcommunity.rest;
+
+import com.codeforcommunity.api.IMapProcessor;
+import com.codeforcommunity.exceptions.MissingHeaderException;
+import com.codeforcommunity.metrics.Metrics;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes block status changes to clients over WebSockets, as they are published on the event bus by
+ * the change log.
+ *
+ * <p>Each message to a client is a JSON object with the changed blocks and the change log cursor
+ * after them, the same as a response from {@code GET /map/blocks/changes}, so a client that
+ * reconnects can catch up on what it missed from that cursor. A client may send {@code {"blocks":
+ * [...]}} at any time to only receive changes to those blocks, or {@code {"blocks": null}} to
+ * receive every change again.
+ *
+ * <p>A client that reads too slowly to keep up has its changes coalesced instead of queued: only
+ * the latest status of each block waits to be written, and it is written once the client catches
+ * up. A client that falls so far behind that too many blocks are waiting is disconnected.
+ */
+public class BlockChangeStream {
+  private final int maxPendingBlocks;
+
+  private final AtomicInteger connections = new AtomicInteger();
+  private final LongAdder coalesced = Metrics.counter("block_stream.coalesced");
+  private final LongAdder dropped = Metrics.counter("block_stream.dropped");
+
+  /**
+   * @param maxPendingBlocks the largest number of blocks that may wait to be written to a slow
+   *     client before it is disconnected.
+   */
+  public BlockChangeStream(int maxPendingBlocks) {
+    this.maxPendingBlocks = maxPendingBlocks;
+    Metrics.gauge("block_stream.connections", connections::get);
+  }
+
+  /**
+   * Create a handler that upgrades requests to WebSockets and streams changes to them. Each API
+   * instance creates its own, so its connections are only ever touched by its own event loop.
+   *
+   * @param vertx the Vertx instance of the API instance the handler is for.
+   */
+  public Handler<RoutingContext> createHandler(Vertx vertx) {
+    Set<Connection> local = new HashSet<>();
+    vertx
+        .eventBus()
+        .<JsonObject>consumer(
+            IMapProcessor.BLOCK_CHANGES_ADDRESS,
+            message -> {
+              String cursor = message.body().getString("cursor");
+              JsonArray changes = message.body().getJsonArray("changes");
+              for (Connection connection : local) {
+                connection.send(cursor, changes);
+              }
+            });
+
+    return ctx -> {
+      if (!"websocket".equalsIgnoreCase(ctx.request().getHeader("Upgrade"))) {
+        throw new MissingHeaderException("Upgrade");
+      }
+
+      Connection connection = new Connection(ctx.request().upgrade());
+      local.add(connection);
+      connections.incrementAndGet();
+      connection.socket.closeHandler(
+          v -> {
+            local.remove(connection);
+            connections.decrementAndGet();
+          });
+    };
+  }
+
+  /** A single client's WebSocket and the changes waiting to be written to it. */
+  private class Connection {
+    private final ServerWebSocket socket;
+    // The blocks the client wants changes for, or null for every block
+    private Set<String> filter;
+    // The latest status of each block waiting for the client to catch up, in order of change
+    private final Map<String, String> pending = new LinkedHashMap<>();
+    private String pendingCursor;
+    private boolean closed;
+
+    private Connection(ServerWebSocket socket) {
+      this.socket = socket;
+      socket.textMessageHandler(this::handleMessage);
+      socket.drainHandler(v -> flush());
+    }
+
+    /** Update the filter from a client's message, ignoring anything that cannot be understood. */
+    private void handleMessage(String text) {
+      try {
+        JsonObject message = new JsonObject(text);
+        if (!message.containsKey("blocks")) {
+          return;
+        }
+
+        JsonArray blocks = message.getJsonArray("blocks");
+        if (blocks == null) {
+          filter = null;
+        } else {
+          Set<String> blockIds = new HashSet<>();
+          for (int i = 0; i < blocks.size(); i++) {
+            blockIds.add(blocks.getString(i));
+          }
+          filter = blockIds;
+        }
+      } catch (DecodeException | ClassCastException e) {
+        // A malformed subscription leaves the filter as it was
+      }
+    }
+
+    private void send(String cursor, JsonArray changes) {
+      if (closed) {
+        return;
+      }
+
+      for (int i = 0; i < changes.size(); i++) {
+        JsonObject change = changes.getJsonObject(i);
+        String blockId = change.getString("blockId");
+        if (filter == null || filter.contains(blockId)) {
+          if (pending.remove(blockId) != null) {
+            coalesced.increment();
+          }
+          pending.put(blockId, change.getString("status"));
+        }
+      }
+      // Moved on even if none of the changes passed the filter, so the client's cursor is current
+      pendingCursor = cursor;
+
+      if (pending.size() > maxPendingBlocks) {
+        dropped.increment();
+        closed = true;
+        socket.close((short) 1008, "Too far behind");
+        return;
+      }
+      if (!socket.writeQueueFull()) {
+        flush();
+      }
+    }
+
+    /** Write every waiting change, if there are any. */
+    private void flush() {
+      if (closed || pending.isEmpty()) {
+        return;
+      }
+
+      JsonArray changes = new JsonArray();
+      pending.forEach(
+          (blockId, status) ->
+              changes.add(new JsonObject().put("blockId", blockId).put("status", status)));
+      pending.clear();
+      socket.writeTextMessage(
+          new JsonObject().put("cursor", pendingCursor).put("changes", changes).encode());
+    }
+  }
+}
@@ -175,6 +175,11 @@ public class FailureHandler {
     end(ctx, message, 503);
   }
 
+  public void handleServerOverloaded(RoutingContext ctx) {
+    String message = "The server is handling too many requests, please try again shortly";
+    end(ctx, message, 503);
+  }
+
   /** A general handler for all exceptions not explicitly handled above. */
   private void handleUncaughtError(RoutingContext ctx, Throwable throwable) {
     String message = String.format("Internal server error caused by: %s", throwable.getMessage());
@@ -9,6 +9,8 @@ import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Optional;
 
 public interface RestFunctions {
@@ -51,6 +53,16 @@ public interface RestFunctions {
     }
   }
 
+  /** Gets the given parameter as an ISO date, such as 2021-04-30. */
+  static LocalDate getRequestParameterAsDate(HttpServerRequest req, String name) {
+    String paramValue = getRequestParameterAsString(req, name);
+    try {
+      return LocalDate.parse(paramValue);
+    } catch (DateTimeParseException ex) {
+      throw new MalformedParameterException(name);
+    }
+  }
+
   static String getRequestParameterAsString(HttpServerRequest req, String name) {
     String paramValue = req.getParam(name);
     if (paramValue != null && !paramValue.isEmpty()) {
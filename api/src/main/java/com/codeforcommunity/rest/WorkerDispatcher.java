@@ -0,0 +1,123 @@
+package com.codeforcommunity.rest;
+
+import com.codeforcommunity.exceptions.ServerOverloadedException;
+import com.codeforcommunity.metrics.Metrics;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.ext.web.RoutingContext;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking processor work (anything that talks to the database) on a named, fixed size worker
+ * pool instead of the Vert.x event loop, and completes the request back on the event loop once the
+ * work is done. Failures, whether of the work or of handling its result, are passed to the router's
+ * failure handler exactly as if they had been thrown from the route handler itself.
+ *
+ * <p>Work that cannot start because too many requests are already waiting for a worker is rejected
+ * with a {@link ServerOverloadedException} rather than being queued without limit.
+ */
+public class WorkerDispatcher {
+  private static final String POOL_NAME = "sftt-processor-pool";
+
+  private final WorkerExecutor executor;
+  private final int queueLimit;
+
+  // The number of submitted tasks that have not yet started running on a worker
+  private final AtomicInteger queued = new AtomicInteger();
+  // The number of tasks that are currently running on a worker
+  private final AtomicInteger active = new AtomicInteger();
+  private final LongAdder rejected = Metrics.counter("worker_pool.rejected");
+  private final Metrics.Summary waitTime = Metrics.summary("worker_pool.wait_ms");
+  private final Metrics.Summary executeTime = Metrics.summary("worker_pool.execute_ms");
+
+  /**
+   * Create a dispatcher backed by a shared worker pool.
+   *
+   * @param vertx the Vertx instance to create the worker pool on.
+   * @param poolSize the number of worker threads.
+   * @param queueLimit the maximum number of tasks that may wait for a worker at once.
+   * @param maxExecuteSeconds the time after which a running task is logged as blocked.
+   */
+  public WorkerDispatcher(Vertx vertx, int poolSize, int queueLimit, long maxExecuteSeconds) {
+    this.executor =
+        vertx.createSharedWorkerExecutor(
+            POOL_NAME, poolSize, TimeUnit.SECONDS.toNanos(maxExecuteSeconds));
+    this.queueLimit = queueLimit;
+
+    Metrics.gauge("worker_pool.size", () -> poolSize);
+    Metrics.gauge("worker_pool.queued", queued::get);
+    Metrics.gauge("worker_pool.active", active::get);
+  }
+
+  /**
+   * Run the given work on the worker pool and pass its result to the given handler on the event
+   * loop that received the request.
+   *
+   * @param ctx the routing context of the request being handled.
+   * @param work the blocking work to run.
+   * @param onSuccess called with the result of the work if it completed without throwing.
+   * @param <T> the type of the work's result.
+   */
+  public <T> void dispatch(RoutingContext ctx, Supplier<T> work, Handler<T> onSuccess) {
+    // Counted before the check, so that requests arriving together cannot all pass it
+    if (queued.incrementAndGet() > queueLimit) {
+      queued.decrementAndGet();
+      rejected.increment();
+      throw new ServerOverloadedException();
+    }
+
+    long submittedNanos = System.nanoTime();
+
+    executor.<T>executeBlocking(
+        promise -> {
+          queued.decrementAndGet();
+          active.incrementAndGet();
+          waitTime.recordSince(submittedNanos);
+
+          long startNanos = System.nanoTime();
+          try {
+            promise.complete(work.get());
+          } finally {
+            executeTime.recordSince(startNanos);
+            active.decrementAndGet();
+          }
+        },
+        false,
+        ar -> {
+          if (ctx.response().closed()) {
+            return;
+          }
+          if (ar.failed()) {
+            ctx.fail(ar.cause());
+            return;
+          }
+          try {
+            onSuccess.handle(ar.result());
+          } catch (Exception e) {
+            ctx.fail(e);
+          }
+        });
+  }
+
+  /**
+   * Run the given work that has no result on the worker pool and call the given handler on the
+   * event loop that received the request.
+   *
+   * @param ctx the routing context of the request being handled.
+   * @param work the blocking work to run.
+   * @param onSuccess called if the work completed without throwing.
+   */
+  public void dispatchVoid(RoutingContext ctx, Runnable work, Handler<Void> onSuccess) {
+    this.<Void>dispatch(
+        ctx,
+        () -> {
+          work.run();
+          return null;
+        },
+        onSuccess);
+  }
+}
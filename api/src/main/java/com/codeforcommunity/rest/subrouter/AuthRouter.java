@@ -7,11 +7,10 @@ import com.codeforcommunity.dto.auth.ForgotPasswordRequest;
 import com.codeforcommunity.dto.auth.LoginRequest;
 import com.codeforcommunity.dto.auth.NewUserRequest;
 import com.codeforcommunity.dto.auth.RefreshSessionRequest;
-import com.codeforcommunity.dto.auth.RefreshSessionResponse;
 import com.codeforcommunity.dto.auth.ResetPasswordRequest;
-import com.codeforcommunity.dto.auth.SessionResponse;
 import com.codeforcommunity.rest.IRouter;
 import com.codeforcommunity.rest.RestFunctions;
+import com.codeforcommunity.rest.WorkerDispatcher;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Route;
@@ -20,9 +19,11 @@ import io.vertx.ext.web.RoutingContext;
 
 public class AuthRouter implements IRouter {
   private final IAuthProcessor authProcessor;
+  private final WorkerDispatcher dispatcher;
 
-  public AuthRouter(IAuthProcessor authProcessor) {
+  public AuthRouter(IAuthProcessor authProcessor, WorkerDispatcher dispatcher) {
     this.authProcessor = authProcessor;
+    this.dispatcher = dispatcher;
   }
 
   @Override
@@ -79,54 +80,56 @@ public class AuthRouter implements IRouter {
   private void handlePostUserLoginRoute(RoutingContext ctx) {
     LoginRequest userRequest = RestFunctions.getJsonBodyAsClass(ctx, LoginRequest.class);
 
-    SessionResponse response = authProcessor.login(userRequest);
-
-    end(ctx.response(), 200, JsonObject.mapFrom(response).encode());
+    dispatcher.dispatch(
+        ctx,
+        () -> authProcessor.login(userRequest),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).encode()));
   }
 
   private void handlePostRefreshUser(RoutingContext ctx) {
     String refreshToken = RestFunctions.getRequestHeader(ctx.request(), "X-Refresh-Token");
     RefreshSessionRequest request = new RefreshSessionRequest(refreshToken);
 
-    RefreshSessionResponse response = authProcessor.refreshSession(request);
-
-    end(ctx.response(), 201, JsonObject.mapFrom(response).toString());
+    dispatcher.dispatch(
+        ctx,
+        () -> authProcessor.refreshSession(request),
+        response -> end(ctx.response(), 201, JsonObject.mapFrom(response).toString()));
   }
 
   private void handleDeleteLogoutUser(RoutingContext ctx) {
     String refreshToken = RestFunctions.getRequestHeader(ctx.request(), "X-Refresh-Token");
-    authProcessor.logout(refreshToken);
-    end(ctx.response(), 204);
+    dispatcher.dispatchVoid(
+        ctx, () -> authProcessor.logout(refreshToken), v -> end(ctx.response(), 204));
   }
 
   private void handlePostNewUser(RoutingContext ctx) {
     NewUserRequest request = RestFunctions.getJsonBodyAsClass(ctx, NewUserRequest.class);
-    SessionResponse response = authProcessor.signUp(request);
 
-    end(ctx.response(), 201, JsonObject.mapFrom(response).toString());
+    dispatcher.dispatch(
+        ctx,
+        () -> authProcessor.signUp(request),
+        response -> end(ctx.response(), 201, JsonObject.mapFrom(response).toString()));
   }
 
   private void handleForgotPasswordRequest(RoutingContext ctx) {
     ForgotPasswordRequest request =
         RestFunctions.getJsonBodyAsClass(ctx, ForgotPasswordRequest.class);
 
-    authProcessor.requestPasswordReset(request);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx, () -> authProcessor.requestPasswordReset(request), v -> end(ctx.response(), 200));
   }
 
   private void handleResetPassword(RoutingContext ctx) {
     ResetPasswordRequest request =
         RestFunctions.getJsonBodyAsClass(ctx, ResetPasswordRequest.class);
 
-    authProcessor.resetPassword(request);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx, () -> authProcessor.resetPassword(request), v -> end(ctx.response(), 200));
   }
 
   private void handleVerifySecretKey(RoutingContext ctx) {
     String secret = ctx.pathParam("secret_key");
-    authProcessor.verifyEmail(secret);
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx, () -> authProcessor.verifyEmail(secret), v -> end(ctx.response(), 200));
   }
 }
@@ -1,22 +1,32 @@
 package com.codeforcommunity.rest.subrouter;
 
 import static com.codeforcommunity.rest.ApiRouter.end;
+import static com.codeforcommunity.rest.ApiRouter.endEncoded;
 
 import com.codeforcommunity.api.IBlockInfoProcessor;
-import com.codeforcommunity.dto.blockInfo.BlockInfoResponse;
-import com.codeforcommunity.dto.blockInfo.BlockLeaderboardResponse;
+import com.codeforcommunity.exceptions.MalformedParameterException;
 import com.codeforcommunity.rest.IRouter;
+import com.codeforcommunity.rest.RestFunctions;
+import com.codeforcommunity.rest.WorkerDispatcher;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Route;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
+import java.time.LocalDate;
 
 public class BlockInfoRouter implements IRouter {
+  // The longest custom window, which keeps the rollups summed for one request bounded
+  private static final int MAX_WINDOW_DAYS = 366;
+  // The counts change often, so clients must revalidate them, which their ETag makes cheap
+  private static final String BLOCKS_CACHE_CONTROL = "no-cache";
+
   private final IBlockInfoProcessor processor;
+  private final WorkerDispatcher dispatcher;
 
-  public BlockInfoRouter(IBlockInfoProcessor processor) {
+  public BlockInfoRouter(IBlockInfoProcessor processor, WorkerDispatcher dispatcher) {
     this.processor = processor;
+    this.dispatcher = dispatcher;
   }
 
   @Override
@@ -25,6 +35,8 @@ public class BlockInfoRouter implements IRouter {
 
     registerGet(router);
     registerGetLeaderboard(router);
+    registerGetUserPosition(router);
+    registerGetTeamPosition(router);
 
     return router;
   }
@@ -41,15 +53,76 @@ public class BlockInfoRouter implements IRouter {
     getLeaderboardRoute.handler(this::handleGetLeaderboardBlocks);
   }
 
-  private void handleGetBlocks(RoutingContext ctx) {
-    BlockInfoResponse response = processor.getBlocks();
+  private void registerGetUserPosition(Router router) {
+    Route getUserPositionRoute = router.get("/leaderboard/users/:user_id");
+
+    getUserPositionRoute.handler(this::handleGetUserPosition);
+  }
 
-    end(ctx.response(), 200, JsonObject.mapFrom(response).encode());
+  private void registerGetTeamPosition(Router router) {
+    Route getTeamPositionRoute = router.get("/leaderboard/teams/:team_id");
+
+    getTeamPositionRoute.handler(this::handleGetTeamPosition);
+  }
+
+  private void handleGetBlocks(RoutingContext ctx) {
+    // The counts are encoded from memory, so this does not need a worker
+    endEncoded(ctx, processor.getEncodedBlocks(), BLOCKS_CACHE_CONTROL);
   }
 
   private void handleGetLeaderboardBlocks(RoutingContext ctx) {
-    BlockLeaderboardResponse response = processor.getBlockLeaderboards();
+    String window = ctx.request().getParam("window");
+    if (window == null || window.equals("all")) {
+      dispatcher.dispatch(
+          ctx,
+          processor::getBlockLeaderboards,
+          response -> end(ctx.response(), 200, JsonObject.mapFrom(response).encode()));
+      return;
+    }
+
+    if (!window.equals("range")) {
+      // Today is the database's, as that is the day completions are counted on
+      int days = getWindowDays(window);
+      dispatcher.dispatch(
+          ctx,
+          () -> processor.getBlockLeaderboards(days),
+          response -> end(ctx.response(), 200, JsonObject.mapFrom(response).encode()));
+      return;
+    }
+
+    LocalDate from = RestFunctions.getRequestParameterAsDate(ctx.request(), "from");
+    LocalDate to = RestFunctions.getRequestParameterAsDate(ctx.request(), "to");
+    if (from.isAfter(to) || from.plusDays(MAX_WINDOW_DAYS).isBefore(to)) {
+      throw new MalformedParameterException("from");
+    }
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.getBlockLeaderboards(from, to),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).encode()));
+  }
+
+  /** @return the number of days, ending today, in the given leaderboard window. */
+  private int getWindowDays(String window) {
+    switch (window) {
+      case "day":
+        return 1;
+      case "week":
+        return 7;
+      case "month":
+        return 30;
+      default:
+        throw new MalformedParameterException("window");
+    }
+  }
+
+  // The leaderboards are kept in memory, so positions are looked up on the event loop
+  private void handleGetUserPosition(RoutingContext ctx) {
+    int userId = RestFunctions.getRequestParameterAsInt(ctx.request(), "user_id");
+    end(ctx.response(), 200, JsonObject.mapFrom(processor.getUserPosition(userId)).encode());
+  }
 
-    end(ctx.response(), 200, JsonObject.mapFrom(response).encode());
+  private void handleGetTeamPosition(RoutingContext ctx) {
+    int teamId = RestFunctions.getRequestParameterAsInt(ctx.request(), "team_id");
+    end(ctx.response(), 200, JsonObject.mapFrom(processor.getTeamPosition(teamId)).encode());
   }
 }
@@ -4,26 +4,26 @@ import static com.codeforcommunity.rest.ApiRouter.end;
 
 import com.codeforcommunity.api.IBlockProcessor;
 import com.codeforcommunity.auth.JWTData;
-import com.codeforcommunity.dto.blocks.BlockResponse;
 import com.codeforcommunity.dto.blocks.BlocksSeedingRequest;
-import com.codeforcommunity.dto.blocks.GetAssignedBlocksResponse;
 import com.codeforcommunity.dto.blocks.StandardBlockRequest;
 import com.codeforcommunity.rest.IRouter;
 import com.codeforcommunity.rest.RestFunctions;
+import com.codeforcommunity.rest.WorkerDispatcher;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Route;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
-import java.util.List;
 
 public class BlocksRouter implements IRouter {
 
   private final IBlockProcessor processor;
+  private final WorkerDispatcher dispatcher;
 
-  public BlocksRouter(IBlockProcessor processor) {
+  public BlocksRouter(IBlockProcessor processor, WorkerDispatcher dispatcher) {
     this.processor = processor;
+    this.dispatcher = dispatcher;
   }
 
   @Override
@@ -37,10 +37,13 @@ public class BlocksRouter implements IRouter {
     registerGetReserved(router);
     registerResetAllBlocks(router);
     registerSetMapToFeatureLayer(router);
+    registerGetMapReconcileStatus(router);
     registerSeedBlockCompletions(router);
     registerGetReservedAdmin(router);
     registerGetDoneAdmin(router);
     registerGetBlocksCSV(router);
+    registerCheckBlockStats(router);
+    registerRebuildBlockStats(router);
 
     return router;
   }
@@ -90,6 +93,11 @@ public class BlocksRouter implements IRouter {
     resetAllRoute.handler(this::handleMapToFeatureLayer);
   }
 
+  private void registerGetMapReconcileStatus(Router router) {
+    Route reconcileStatusRoute = router.get("/reset/map/status");
+    reconcileStatusRoute.handler(this::handleGetMapReconcileStatus);
+  }
+
   private void registerSeedBlockCompletions(Router router) {
     Route resetAllRoute = router.post("/seed");
     resetAllRoute.handler(this::handleSeedBlockCompletions);
@@ -100,14 +108,25 @@ public class BlocksRouter implements IRouter {
     resetAllRoute.handler(this::handleExportCSV);
   }
 
+  private void registerCheckBlockStats(Router router) {
+    Route checkStatsRoute = router.get("/stats/check");
+    checkStatsRoute.handler(this::handleCheckBlockStats);
+  }
+
+  private void registerRebuildBlockStats(Router router) {
+    Route rebuildStatsRoute = router.post("/stats/rebuild");
+    rebuildStatsRoute.handler(this::handleRebuildBlockStats);
+  }
+
   private void handleReserveRoute(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
     StandardBlockRequest blockRequest =
         RestFunctions.getJsonBodyAsClass(ctx, StandardBlockRequest.class);
 
-    BlockResponse response = processor.reserveBlocks(userData, blockRequest.getBlocks());
-
-    end(ctx.response(), 200, JsonObject.mapFrom(response).encode());
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.reserveBlocks(userData, blockRequest.getBlocks()),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).encode()));
   }
 
   private void handleFinishRoute(RoutingContext ctx) {
@@ -115,9 +134,10 @@ public class BlocksRouter implements IRouter {
     StandardBlockRequest blockRequest =
         RestFunctions.getJsonBodyAsClass(ctx, StandardBlockRequest.class);
 
-    BlockResponse response = processor.finishBlocks(userData, blockRequest.getBlocks());
-
-    end(ctx.response(), 200, JsonObject.mapFrom(response).encode());
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.finishBlocks(userData, blockRequest.getBlocks()),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).encode()));
   }
 
   private void handleReleaseRoute(RoutingContext ctx) {
@@ -125,9 +145,10 @@ public class BlocksRouter implements IRouter {
     StandardBlockRequest blockRequest =
         RestFunctions.getJsonBodyAsClass(ctx, StandardBlockRequest.class);
 
-    BlockResponse response = processor.releaseBlocks(userData, blockRequest.getBlocks());
-
-    end(ctx.response(), 200, JsonObject.mapFrom(response).encode());
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.releaseBlocks(userData, blockRequest.getBlocks()),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).encode()));
   }
 
   private void handleResetRoute(RoutingContext ctx) {
@@ -135,50 +156,69 @@ public class BlocksRouter implements IRouter {
     StandardBlockRequest blockRequest =
         RestFunctions.getJsonBodyAsClass(ctx, StandardBlockRequest.class);
 
-    BlockResponse response = processor.resetBlocks(userData, blockRequest.getBlocks());
-
-    end(ctx.response(), 200, JsonObject.mapFrom(response).encode());
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.resetBlocks(userData, blockRequest.getBlocks()),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).encode()));
   }
 
   private void handleGetReserved(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
     boolean includeDone = RestFunctions.getRequestParameterAsBoolean(ctx.request(), "done");
 
-    List<String> response = processor.getUserReservedBlocks(userData, includeDone);
-
-    end(ctx.response(), 200, new JsonArray(response).encode());
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.getUserReservedBlocks(userData, includeDone),
+        response -> end(ctx.response(), 200, new JsonArray(response).encode()));
   }
 
   private void handleGetReservedAdmin(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
 
-    GetAssignedBlocksResponse response = processor.getAllReservedBlocks(userData);
-
-    end(ctx.response(), 200, JsonObject.mapFrom(response).encode());
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.getAllReservedBlocks(userData),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).encode()));
   }
 
   private void handleGetDoneAdmin(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
 
-    GetAssignedBlocksResponse response = processor.getAllDoneBlocks(userData);
-
-    end(ctx.response(), 200, JsonObject.mapFrom(response).encode());
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.getAllDoneBlocks(userData),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).encode()));
   }
 
   private void handleResetAll(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
 
-    processor.resetAllBlocks(userData);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx, () -> processor.resetAllBlocks(userData), v -> end(ctx.response(), 200));
   }
 
   private void handleMapToFeatureLayer(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
 
-    processor.setMapToDatabase(userData);
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.setMapToDatabase(userData),
+        status -> end(ctx.response(), 202, JsonObject.mapFrom(status).encode()));
+  }
+
+  private void handleGetMapReconcileStatus(RoutingContext ctx) {
+    JWTData userData = ctx.get("jwt_data");
 
-    end(ctx.response(), 200);
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.getMapReconcileStatus(userData),
+        status -> {
+          if (status == null) {
+            end(ctx.response(), 204);
+          } else {
+            end(ctx.response(), 200, JsonObject.mapFrom(status).encode());
+          }
+        });
   }
 
   private void handleSeedBlockCompletions(RoutingContext ctx) {
@@ -186,16 +226,36 @@ public class BlocksRouter implements IRouter {
     BlocksSeedingRequest request =
         RestFunctions.getJsonBodyAsClass(ctx, BlocksSeedingRequest.class);
 
-    processor.seedBlockCompletions(userData, request.getBlocks());
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx,
+        () -> processor.seedBlockCompletions(userData, request.getBlocks()),
+        v -> end(ctx.response(), 200));
   }
 
   private void handleExportCSV(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
 
-    String csv = processor.getBlockExportCSV(userData);
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.getBlockExportCSV(userData),
+        csv -> end(ctx.response(), 200, csv, "text/csv"));
+  }
+
+  private void handleCheckBlockStats(RoutingContext ctx) {
+    JWTData userData = ctx.get("jwt_data");
+
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.checkBlockStats(userData),
+        drift -> end(ctx.response(), 200, JsonObject.mapFrom(drift).encode()));
+  }
+
+  private void handleRebuildBlockStats(RoutingContext ctx) {
+    JWTData userData = ctx.get("jwt_data");
 
-    end(ctx.response(), 200, csv, "text/csv");
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.rebuildBlockStats(userData),
+        drift -> end(ctx.response(), 200, JsonObject.mapFrom(drift).encode()));
   }
 }
@@ -0,0 +1,166 @@
+package com.codeforcommunity.rest.subrouter;
+
+import static com.codeforcommunity.rest.ApiRouter.end;
+import static com.codeforcommunity.rest.ApiRouter.endEncoded;
+
+import com.codeforcommunity.api.IMapProcessor;
+import com.codeforcommunity.dto.map.BoundingBox;
+import com.codeforcommunity.exceptions.MalformedParameterException;
+import com.codeforcommunity.rest.BlockChangeStream;
+import com.codeforcommunity.rest.IRouter;
+import com.codeforcommunity.rest.RestFunctions;
+import com.codeforcommunity.rest.WorkerDispatcher;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+
+public class MapRouter implements IRouter {
+  // Map layers and tiles only change when the server is redeployed, and the ETag changes with them
+  private static final String MAP_CACHE_CONTROL = "public, max-age=86400";
+  // The deepest zoom of a web map, which always gets full detail
+  private static final int MAX_ZOOM = 22;
+
+  // Block statuses change at any time, so clients revalidate with the ETag on every use
+  private static final String BLOCKS_CACHE_CONTROL = "no-cache";
+  // The longest a request for block changes waits for one
+  private static final int MAX_WAIT_SECONDS = 30;
+  // A streaming client with more blocks than this waiting to be written to it is disconnected
+  private static final int MAX_PENDING_BLOCKS = 5000;
+
+  private final IMapProcessor processor;
+  private final WorkerDispatcher dispatcher;
+  private final BlockChangeStream blockChangeStream = new BlockChangeStream(MAX_PENDING_BLOCKS);
+
+  public MapRouter(IMapProcessor processor, WorkerDispatcher dispatcher) {
+    this.processor = processor;
+    this.dispatcher = dispatcher;
+  }
+
+  @Override
+  public Router initializeRouter(Vertx vertx) {
+    Router router = Router.router(vertx);
+
+    registerGetPrivateStreets(router);
+    registerGetTile(router);
+    registerGetBlockIds(router);
+    registerGetBlockStatuses(router);
+    registerGetBlockChanges(router);
+    registerStreamBlockChanges(router, vertx);
+
+    return router;
+  }
+
+  private void registerGetPrivateStreets(Router router) {
+    Route getPrivateStreetsRoute = router.get("/private_streets");
+    getPrivateStreetsRoute.handler(this::handleGetPrivateStreets);
+  }
+
+  private void registerGetTile(Router router) {
+    // The path parameters are the regex groups param0, param1 and param2
+    Route getTileRoute = router.getWithRegex("/tiles/(\\d+)/(\\d+)/(\\d+)\\.mvt");
+    getTileRoute.handler(this::handleGetTile);
+  }
+
+  private void registerGetBlockIds(Router router) {
+    Route getBlockIdsRoute = router.get("/blocks/ids");
+    getBlockIdsRoute.handler(this::handleGetBlockIds);
+  }
+
+  private void registerGetBlockStatuses(Router router) {
+    Route getBlockStatusesRoute = router.get("/blocks/status");
+    getBlockStatusesRoute.handler(this::handleGetBlockStatuses);
+  }
+
+  private void registerGetBlockChanges(Router router) {
+    Route getBlockChangesRoute = router.get("/blocks/changes");
+    getBlockChangesRoute.handler(this::handleGetBlockChanges);
+  }
+
+  private void registerStreamBlockChanges(Router router, Vertx vertx) {
+    Route streamBlockChangesRoute = router.get("/blocks/stream");
+    streamBlockChangesRoute.handler(blockChangeStream.createHandler(vertx));
+  }
+
+  private void handleGetPrivateStreets(RoutingContext ctx) {
+    // The layer is already encoded and indexed in memory, so this does not need a worker
+    String bbox = ctx.request().getParam("bbox");
+    int zoom =
+        ctx.request().getParam("zoom") == null
+            ? MAX_ZOOM
+            : RestFunctions.getRequestParameterAsInt(ctx.request(), "zoom");
+    if (bbox == null) {
+      endEncoded(ctx, processor.getPrivateStreets(zoom), MAP_CACHE_CONTROL);
+    } else {
+      ctx.response().putHeader("Cache-Control", MAP_CACHE_CONTROL);
+      end(
+          ctx.response(),
+          200,
+          processor.getPrivateStreetsInBounds(parseBoundingBox(bbox), zoom),
+          "application/geo+json");
+    }
+  }
+
+  private void handleGetTile(RoutingContext ctx) {
+    int z = RestFunctions.getRequestParameterAsInt(ctx.request(), "param0");
+    int x = RestFunctions.getRequestParameterAsInt(ctx.request(), "param1");
+    int y = RestFunctions.getRequestParameterAsInt(ctx.request(), "param2");
+
+    // Tiles that are not cached yet are generated, which is too slow for the event loop
+    dispatcher.dispatch(
+        ctx, () -> processor.getTile(z, x, y), tile -> endEncoded(ctx, tile, MAP_CACHE_CONTROL));
+  }
+
+  private void handleGetBlockIds(RoutingContext ctx) {
+    endEncoded(ctx, processor.getBlockIds(), BLOCKS_CACHE_CONTROL);
+  }
+
+  private void handleGetBlockStatuses(RoutingContext ctx) {
+    // The snapshot is kept in memory, so this does not need a worker
+    endEncoded(ctx, processor.getBlockStatuses(), BLOCKS_CACHE_CONTROL);
+  }
+
+  private void handleGetBlockChanges(RoutingContext ctx) {
+    String since = ctx.request().getParam("since");
+    int waitSeconds =
+        ctx.request().getParam("wait") == null
+            ? 0
+            : RestFunctions.getRequestParameterAsInt(ctx.request(), "wait");
+    if (waitSeconds < 0) {
+      throw new MalformedParameterException("wait");
+    }
+
+    // The change log is kept in memory, and waiting for a change is done with a timer
+    processor
+        .getBlockChanges(since, Math.min(waitSeconds, MAX_WAIT_SECONDS) * 1000L)
+        .setHandler(
+            ar -> {
+              if (ar.failed()) {
+                ctx.fail(ar.cause());
+              } else if (!ctx.response().closed()) {
+                ctx.response().putHeader("Cache-Control", "no-store");
+                end(ctx.response(), 200, JsonObject.mapFrom(ar.result()).encode());
+              }
+            });
+  }
+
+  /** Parse a bounding box given as "minLon,minLat,maxLon,maxLat". */
+  private BoundingBox parseBoundingBox(String bbox) {
+    String[] values = bbox.split(",");
+    if (values.length != 4) {
+      throw new MalformedParameterException("bbox");
+    }
+
+    try {
+      return new BoundingBox(
+          Double.parseDouble(values[0]),
+          Double.parseDouble(values[1]),
+          Double.parseDouble(values[2]),
+          Double.parseDouble(values[3]));
+    } catch (IllegalArgumentException e) {
+      // Also thrown for numbers that cannot be parsed
+      throw new MalformedParameterException("bbox");
+    }
+  }
+}
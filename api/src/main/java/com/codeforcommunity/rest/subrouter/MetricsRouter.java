@@ -0,0 +1,40 @@
+package com.codeforcommunity.rest.subrouter;
+
+import static com.codeforcommunity.rest.ApiRouter.end;
+
+import com.codeforcommunity.auth.JWTData;
+import com.codeforcommunity.enums.PrivilegeLevel;
+import com.codeforcommunity.exceptions.AdminOnlyRouteException;
+import com.codeforcommunity.metrics.Metrics;
+import com.codeforcommunity.rest.IRouter;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+
+public class MetricsRouter implements IRouter {
+
+  @Override
+  public Router initializeRouter(Vertx vertx) {
+    Router router = Router.router(vertx);
+
+    registerGetMetrics(router);
+
+    return router;
+  }
+
+  private void registerGetMetrics(Router router) {
+    Route getMetricsRoute = router.get("/");
+    getMetricsRoute.handler(this::handleGetMetrics);
+  }
+
+  private void handleGetMetrics(RoutingContext ctx) {
+    JWTData userData = ctx.get("jwt_data");
+    if (userData.getPrivilegeLevel() != PrivilegeLevel.ADMIN) {
+      throw new AdminOnlyRouteException();
+    }
+
+    end(ctx.response(), 200, new JsonObject(Metrics.snapshot()).encode());
+  }
+}
@@ -7,9 +7,9 @@ import com.codeforcommunity.auth.JWTData;
 import com.codeforcommunity.dto.user.ChangeEmailRequest;
 import com.codeforcommunity.dto.user.ChangePasswordRequest;
 import com.codeforcommunity.dto.user.ChangeUsernameRequest;
-import com.codeforcommunity.dto.user.UserDataResponse;
 import com.codeforcommunity.rest.IRouter;
 import com.codeforcommunity.rest.RestFunctions;
+import com.codeforcommunity.rest.WorkerDispatcher;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Route;
@@ -19,9 +19,11 @@ import io.vertx.ext.web.RoutingContext;
 public class ProtectedUserRouter implements IRouter {
 
   private final IProtectedUserProcessor processor;
+  private final WorkerDispatcher dispatcher;
 
-  public ProtectedUserRouter(IProtectedUserProcessor processor) {
+  public ProtectedUserRouter(IProtectedUserProcessor processor, WorkerDispatcher dispatcher) {
     this.processor = processor;
+    this.dispatcher = dispatcher;
   }
 
   @Override
@@ -65,9 +67,8 @@ public class ProtectedUserRouter implements IRouter {
   private void handleDeleteUserRoute(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
 
-    processor.deleteUser(userData);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx, () -> processor.deleteUser(userData), v -> end(ctx.response(), 200));
   }
 
   private void handleChangePasswordRoute(RoutingContext ctx) {
@@ -75,17 +76,19 @@ public class ProtectedUserRouter implements IRouter {
     ChangePasswordRequest changePasswordRequest =
         RestFunctions.getJsonBodyAsClass(ctx, ChangePasswordRequest.class);
 
-    processor.changePassword(userData, changePasswordRequest);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx,
+        () -> processor.changePassword(userData, changePasswordRequest),
+        v -> end(ctx.response(), 200));
   }
 
   private void handleGetUserDataRoute(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
 
-    UserDataResponse response = processor.getUserData(userData);
-
-    end(ctx.response(), 200, JsonObject.mapFrom(response).toString());
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.getUserData(userData),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).toString()));
   }
 
   private void handleChangeEmailRoute(RoutingContext ctx) {
@@ -93,9 +96,10 @@ public class ProtectedUserRouter implements IRouter {
     ChangeEmailRequest changeEmailRequest =
         RestFunctions.getJsonBodyAsClass(ctx, ChangeEmailRequest.class);
 
-    processor.changeEmail(userData, changeEmailRequest);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx,
+        () -> processor.changeEmail(userData, changeEmailRequest),
+        v -> end(ctx.response(), 200));
   }
 
   private void handleChangeUsernameRoute(RoutingContext ctx) {
@@ -103,8 +107,9 @@ public class ProtectedUserRouter implements IRouter {
     ChangeUsernameRequest changeUsernameRequest =
         RestFunctions.getJsonBodyAsClass(ctx, ChangeUsernameRequest.class);
 
-    processor.changeUsername(userData, changeUsernameRequest);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx,
+        () -> processor.changeUsername(userData, changeUsernameRequest),
+        v -> end(ctx.response(), 200));
   }
 }
@@ -5,29 +5,30 @@ import static com.codeforcommunity.rest.ApiRouter.end;
 import com.codeforcommunity.api.ITeamsProcessor;
 import com.codeforcommunity.auth.JWTData;
 import com.codeforcommunity.dto.team.CreateTeamRequest;
-import com.codeforcommunity.dto.team.GetAllTeamsAdminResponse;
-import com.codeforcommunity.dto.team.GetAllTeamsResponse;
-import com.codeforcommunity.dto.team.GetUserTeamsResponse;
 import com.codeforcommunity.dto.team.InviteMembersRequest;
-import com.codeforcommunity.dto.team.TeamApplicant;
 import com.codeforcommunity.dto.team.TeamApplicantsResponse;
-import com.codeforcommunity.dto.team.TeamResponse;
 import com.codeforcommunity.dto.team.TransferOwnershipRequest;
+import com.codeforcommunity.exceptions.MalformedParameterException;
 import com.codeforcommunity.rest.IRouter;
 import com.codeforcommunity.rest.RestFunctions;
+import com.codeforcommunity.rest.WorkerDispatcher;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Route;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
-import java.util.List;
 
 public class TeamsRouter implements IRouter {
+  // The number of teams on a page of the team directory if none is asked for, and the most allowed
+  private static final int DEFAULT_PAGE_SIZE = 50;
+  private static final int MAX_PAGE_SIZE = 100;
 
   private final ITeamsProcessor processor;
+  private final WorkerDispatcher dispatcher;
 
-  public TeamsRouter(ITeamsProcessor processor) {
+  public TeamsRouter(ITeamsProcessor processor, WorkerDispatcher dispatcher) {
     this.processor = processor;
+    this.dispatcher = dispatcher;
   }
 
   @Override
@@ -130,27 +131,45 @@ public class TeamsRouter implements IRouter {
 
   private void handleGetUserTeams(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
-    GetUserTeamsResponse response = processor.getUserTeams(userData);
-    end(ctx.response(), 200, JsonObject.mapFrom(response).toString());
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.getUserTeams(userData),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).toString()));
   }
 
   private void handleGetAllTeams(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
-    GetAllTeamsResponse response = processor.getAllTeams(userData);
-    end(ctx.response(), 200, JsonObject.mapFrom(response).toString());
+    String query = ctx.request().getParam("q");
+    String after = ctx.request().getParam("after");
+    int limit =
+        ctx.request().getParam("limit") == null
+            ? DEFAULT_PAGE_SIZE
+            : RestFunctions.getRequestParameterAsInt(ctx.request(), "limit");
+    if (limit < 1) {
+      throw new MalformedParameterException("limit");
+    }
+
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.getAllTeams(userData, query, after, Math.min(limit, MAX_PAGE_SIZE)),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).toString()));
   }
 
   private void handleGetAllTeamsAdmin(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
-    GetAllTeamsAdminResponse response = processor.getAllTeamsAdmin(userData);
-    end(ctx.response(), 200, JsonObject.mapFrom(response).toString());
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.getAllTeamsAdmin(userData),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).toString()));
   }
 
   private void handleGetSingleTeam(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
     int teamId = RestFunctions.getRequestParameterAsInt(ctx.request(), "team_id");
-    TeamResponse response = processor.getSingleTeam(userData, teamId);
-    end(ctx.response(), 200, JsonObject.mapFrom(response).toString());
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.getSingleTeam(userData, teamId),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).toString()));
   }
 
   private void handleCreateRoute(RoutingContext ctx) {
@@ -158,28 +177,28 @@ public class TeamsRouter implements IRouter {
     CreateTeamRequest createTeamRequest =
         RestFunctions.getJsonBodyAsClass(ctx, CreateTeamRequest.class);
 
-    TeamResponse response = processor.createTeam(userData, createTeamRequest);
-
-    end(ctx.response(), 200, JsonObject.mapFrom(response).toString());
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.createTeam(userData, createTeamRequest),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).toString()));
   }
 
   private void handleApply(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
     int teamId = RestFunctions.getRequestParameterAsInt(ctx.request(), "team_id");
 
-    processor.applyForTeam(userData, teamId);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx, () -> processor.applyForTeam(userData, teamId), v -> end(ctx.response(), 200));
   }
 
   private void handleGetApplicants(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
     int teamId = RestFunctions.getRequestParameterAsInt(ctx.request(), "team_id");
 
-    List<TeamApplicant> applicants = processor.getTeamApplicants(userData, teamId);
-    TeamApplicantsResponse response = new TeamApplicantsResponse(applicants);
-
-    end(ctx.response(), 200, JsonObject.mapFrom(response).encode());
+    dispatcher.dispatch(
+        ctx,
+        () -> new TeamApplicantsResponse(processor.getTeamApplicants(userData, teamId)),
+        response -> end(ctx.response(), 200, JsonObject.mapFrom(response).encode()));
   }
 
   private void handleApproveApplicant(RoutingContext ctx) {
@@ -187,9 +206,10 @@ public class TeamsRouter implements IRouter {
     int teamId = RestFunctions.getRequestParameterAsInt(ctx.request(), "team_id");
     int requestId = RestFunctions.getRequestParameterAsInt(ctx.request(), "request_id");
 
-    processor.approveTeamRequest(userData, teamId, requestId);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx,
+        () -> processor.approveTeamRequest(userData, teamId, requestId),
+        v -> end(ctx.response(), 200));
   }
 
   private void handleRejectApplicant(RoutingContext ctx) {
@@ -197,27 +217,26 @@ public class TeamsRouter implements IRouter {
     int teamId = RestFunctions.getRequestParameterAsInt(ctx.request(), "team_id");
     int requestId = RestFunctions.getRequestParameterAsInt(ctx.request(), "request_id");
 
-    processor.rejectTeamRequest(userData, teamId, requestId);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx,
+        () -> processor.rejectTeamRequest(userData, teamId, requestId),
+        v -> end(ctx.response(), 200));
   }
 
   private void handleLeaveRoute(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
     int teamId = RestFunctions.getRequestParameterAsInt(ctx.request(), "team_id");
 
-    processor.leaveTeam(userData, teamId);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx, () -> processor.leaveTeam(userData, teamId), v -> end(ctx.response(), 200));
   }
 
   private void handleDisbandRoute(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
     int teamId = RestFunctions.getRequestParameterAsInt(ctx.request(), "team_id");
 
-    processor.disbandTeam(userData, teamId);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx, () -> processor.disbandTeam(userData, teamId), v -> end(ctx.response(), 200));
   }
 
   private void handleKickRoute(RoutingContext ctx) {
@@ -225,9 +244,10 @@ public class TeamsRouter implements IRouter {
     int teamId = RestFunctions.getRequestParameterAsInt(ctx.request(), "team_id");
     int kickUserId = RestFunctions.getRequestParameterAsInt(ctx.request(), "member_id");
 
-    processor.kickFromTeam(userData, teamId, kickUserId);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx,
+        () -> processor.kickFromTeam(userData, teamId, kickUserId),
+        v -> end(ctx.response(), 200));
   }
 
   private void handleInviteRoute(RoutingContext ctx) {
@@ -237,9 +257,10 @@ public class TeamsRouter implements IRouter {
         RestFunctions.getJsonBodyAsClass(ctx, InviteMembersRequest.class);
     inviteMembersRequest.setTeamId(teamId);
 
-    processor.inviteToTeam(userData, inviteMembersRequest);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx,
+        () -> processor.inviteToTeam(userData, inviteMembersRequest),
+        v -> end(ctx.response(), 200));
   }
 
   private void transferOwnershipRoute(RoutingContext ctx) {
@@ -249,16 +270,18 @@ public class TeamsRouter implements IRouter {
         RestFunctions.getJsonBodyAsClass(ctx, TransferOwnershipRequest.class);
     transferOwnershipRequest.setTeamId(teamId);
 
-    processor.transferOwnership(userData, transferOwnershipRequest);
-
-    end(ctx.response(), 200);
+    dispatcher.dispatchVoid(
+        ctx,
+        () -> processor.transferOwnership(userData, transferOwnershipRequest),
+        v -> end(ctx.response(), 200));
   }
 
   private void handleExportTeams(RoutingContext ctx) {
     JWTData userData = ctx.get("jwt_data");
 
-    String csvResults = processor.getAllTeamsForExport(userData);
-
-    end(ctx.response(), 200, csvResults, "text/csv");
+    dispatcher.dispatch(
+        ctx,
+        () -> processor.getAllTeamsForExport(userData),
+        csvResults -> end(ctx.response(), 200, csvResults, "text/csv"));
   }
 }
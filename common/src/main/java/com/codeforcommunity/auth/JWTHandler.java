@@ -1,6 +1,7 @@
 package com.codeforcommunity.auth;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
@@ -16,13 +17,14 @@ public class JWTHandler {
   private static final String C4C_ISSUER = "c4c";
 
   private final Algorithm algorithm;
-  private final Verification verification;
+  // Built once, as a JWTVerifier is immutable and can be shared between threads
+  private final JWTVerifier verifier;
   private final Long MS_REFRESH_EXPIRATION;
   private final Long MS_ACCESS_EXPIRATION;
 
   public JWTHandler(String secretKey) {
     this.algorithm = Algorithm.HMAC256(secretKey);
-    this.verification = getDefaultClaimVerification(this.algorithm);
+    this.verifier = getDefaultClaimVerification(this.algorithm).build();
 
     this.MS_REFRESH_EXPIRATION =
         Long.valueOf(
@@ -87,7 +89,7 @@ public class JWTHandler {
     if (jwt == null) {
       throw new JWTVerificationException("Given a null jwt string");
     }
-    return verification.build().verify(jwt);
+    return verifier.verify(jwt);
   }
 
   private Date getTokenExpiration(boolean isRefresh) {
@@ -0,0 +1,106 @@
+package com.codeforcommunity.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A process-wide registry of named metrics. Components register gauges (values read on demand),
+ * counters (monotonically increasing totals), and summaries (distributions of recorded values such
+ * as latencies or batch sizes). The whole registry can be read at once with {@link #snapshot()}.
+ */
+public class Metrics {
+  private static final Map<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+  private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+  private static final Map<String, Summary> summaries = new ConcurrentHashMap<>();
+
+  private Metrics() {}
+
+  /**
+   * Register a gauge whose value is read from the given supplier every time a snapshot is taken.
+   * Registering a gauge under an existing name replaces the previous gauge.
+   *
+   * @param name the name of the gauge.
+   * @param supplier the supplier of the gauge's current value.
+   */
+  public static void gauge(String name, Supplier<? extends Number> supplier) {
+    gauges.put(name, supplier);
+  }
+
+  /**
+   * Get the counter with the given name, creating it if it does not exist yet.
+   *
+   * @param name the name of the counter.
+   * @return the counter.
+   */
+  public static LongAdder counter(String name) {
+    return counters.computeIfAbsent(name, n -> new LongAdder());
+  }
+
+  /**
+   * Get the summary with the given name, creating it if it does not exist yet.
+   *
+   * @param name the name of the summary.
+   * @return the summary.
+   */
+  public static Summary summary(String name) {
+    return summaries.computeIfAbsent(name, n -> new Summary());
+  }
+
+  /**
+   * Read the current value of every registered metric.
+   *
+   * @return a map of metric names (sorted) to their current values.
+   */
+  public static Map<String, Object> snapshot() {
+    Map<String, Object> snapshot = new TreeMap<>();
+    gauges.forEach((name, supplier) -> snapshot.put(name, supplier.get()));
+    counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+    summaries.forEach((name, summary) -> snapshot.put(name, summary.snapshot()));
+    return snapshot;
+  }
+
+  /** A distribution of recorded values, keeping the count, total and maximum of the values. */
+  public static class Summary {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    private Summary() {}
+
+    /**
+     * Record a single value.
+     *
+     * @param value the value to record.
+     */
+    public void record(long value) {
+      count.increment();
+      total.add(value);
+      max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Record the time elapsed since the given {@link System#nanoTime()} reading, in milliseconds.
+     *
+     * @param startNanos the nano time the timed operation started at.
+     */
+    public void recordSince(long startNanos) {
+      record((System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    private Map<String, Long> snapshot() {
+      long count = this.count.sum();
+      long total = this.total.sum();
+
+      Map<String, Long> snapshot = new TreeMap<>();
+      snapshot.put("count", count);
+      snapshot.put("total", total);
+      snapshot.put("mean", count == 0 ? 0 : total / count);
+      snapshot.put("max", max.get());
+      return snapshot;
+    }
+  }
+}
@@ -57,4 +57,8 @@ public class PropertiesLoader {
   public static Properties getSlackProperties() {
     return getProperties("slack.properties");
   }
+
+  public static Properties getServerProperties() {
+    return getProperties("server.properties");
+  }
 }
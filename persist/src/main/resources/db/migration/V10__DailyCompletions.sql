@@ -0,0 +1,84 @@
+CREATE TABLE IF NOT EXISTS user_daily_completions (
+    user_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    completed_on DATE NOT NULL,
+    completed INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, completed_on)
+);
+
+CREATE TABLE IF NOT EXISTS team_daily_completions (
+    team_id INTEGER NOT NULL REFERENCES team(id) ON DELETE CASCADE,
+    completed_on DATE NOT NULL,
+    completed INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (team_id, completed_on)
+);
+
+CREATE INDEX IF NOT EXISTS user_daily_completions_day ON user_daily_completions (completed_on);
+CREATE INDEX IF NOT EXISTS team_daily_completions_day ON team_daily_completions (completed_on);
+
+/* [jooq ignore start] */
+
+-- Hold off block changes until the completions so far are counted
+LOCK TABLE block IN SHARE ROW EXCLUSIVE MODE;
+
+-- Add to the completions on a day of a user, and of every team they lead or are a member of. Unlike
+-- the block stats, completions stay with the teams the user was on when they completed the block.
+CREATE OR REPLACE FUNCTION add_daily_completions(completions_user_id INTEGER, completions_day DATE, delta INTEGER)
+RETURNS VOID AS $$
+BEGIN
+    IF completions_user_id IS NULL THEN
+        RETURN;
+    END IF;
+
+    INSERT INTO user_daily_completions AS c (user_id, completed_on, completed)
+    VALUES (completions_user_id, completions_day, delta)
+    ON CONFLICT (user_id, completed_on) DO UPDATE SET completed = c.completed + delta;
+
+    INSERT INTO team_daily_completions AS c (team_id, completed_on, completed)
+    SELECT team_id, completions_day, delta
+    FROM user_team
+    WHERE user_id = completions_user_id AND team_role IN (1, 2)
+    ON CONFLICT (team_id, completed_on) DO UPDATE SET completed = c.completed + delta;
+END;
+$$ LANGUAGE plpgsql;
+
+-- A block counts as completed on the day it was last completed. A completed block that is reset or
+-- reassigned no longer counts.
+CREATE OR REPLACE FUNCTION count_daily_completions() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' AND OLD.status = NEW.status
+            AND OLD.assigned_to IS NOT DISTINCT FROM NEW.assigned_to
+            AND OLD.last_completed IS NOT DISTINCT FROM NEW.last_completed THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP <> 'INSERT' AND OLD.status = 2 THEN
+        PERFORM add_daily_completions(
+            OLD.assigned_to, COALESCE(OLD.last_completed::DATE, CURRENT_DATE), -1);
+    END IF;
+    IF TG_OP <> 'DELETE' AND NEW.status = 2 THEN
+        PERFORM add_daily_completions(
+            NEW.assigned_to, COALESCE(NEW.last_completed::DATE, CURRENT_DATE), 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER daily_completions
+AFTER INSERT OR DELETE OR UPDATE OF status, assigned_to, last_completed ON block
+FOR EACH ROW EXECUTE PROCEDURE count_daily_completions();
+
+-- Count the blocks completed so far
+INSERT INTO user_daily_completions (user_id, completed_on, completed)
+SELECT assigned_to, COALESCE(last_completed::DATE, CURRENT_DATE), COUNT(*)
+FROM block
+WHERE status = 2 AND assigned_to IS NOT NULL
+GROUP BY 1, 2;
+
+INSERT INTO team_daily_completions (team_id, completed_on, completed)
+SELECT user_team.team_id, COALESCE(block.last_completed::DATE, CURRENT_DATE), COUNT(*)
+FROM block
+JOIN user_team ON user_team.user_id = block.assigned_to AND user_team.team_role IN (1, 2)
+WHERE block.status = 2
+GROUP BY 1, 2;
+
+/* [jooq ignore stop] */
@@ -0,0 +1,19 @@
+ALTER TABLE block
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+/* [jooq ignore start] */
+
+-- Count every change to a block's status or assignee. Changes to a block commit one at a time, as
+-- each holds the block's row lock until it commits, so a higher version is always a later change.
+CREATE OR REPLACE FUNCTION count_block_version() RETURNS TRIGGER AS $$
+BEGIN
+    NEW.version := OLD.version + 1;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER block_version
+BEFORE UPDATE OF status, assigned_to ON block
+FOR EACH ROW EXECUTE PROCEDURE count_block_version();
+
+/* [jooq ignore stop] */
@@ -0,0 +1,99 @@
+-- The teams each completed block was counted for, so that it stops counting for those same teams
+-- even if its user has since joined or left teams
+CREATE TABLE IF NOT EXISTS block_completion_teams (
+    block_id VARCHAR(8) NOT NULL,
+    team_id INTEGER NOT NULL REFERENCES team(id) ON DELETE CASCADE,
+    PRIMARY KEY (block_id, team_id)
+);
+
+/* [jooq ignore start] */
+
+-- Hold off block changes until the completions so far are counted again
+LOCK TABLE block IN SHARE ROW EXCLUSIVE MODE;
+
+DROP TRIGGER daily_completions ON block;
+DROP FUNCTION count_daily_completions();
+DROP FUNCTION add_daily_completions(INTEGER, DATE, INTEGER);
+
+-- Count a completion of a block on a day for its user, and for every team they lead or are a member
+-- of, or stop counting it for the user and the teams it was counted for.
+CREATE OR REPLACE FUNCTION add_daily_completions(
+    completions_block_id VARCHAR, completions_user_id INTEGER, completions_day DATE, delta INTEGER)
+RETURNS VOID AS $$
+BEGIN
+    IF completions_user_id IS NULL THEN
+        RETURN;
+    END IF;
+
+    INSERT INTO user_daily_completions AS c (user_id, completed_on, completed)
+    VALUES (completions_user_id, completions_day, delta)
+    ON CONFLICT (user_id, completed_on) DO UPDATE SET completed = c.completed + delta;
+
+    IF delta > 0 THEN
+        WITH credited AS (
+            INSERT INTO block_completion_teams (block_id, team_id)
+            SELECT completions_block_id, team_id
+            FROM user_team
+            WHERE user_id = completions_user_id AND team_role IN (1, 2)
+            ON CONFLICT DO NOTHING
+            RETURNING team_id
+        )
+        INSERT INTO team_daily_completions AS c (team_id, completed_on, completed)
+        SELECT team_id, completions_day, delta FROM credited
+        ON CONFLICT (team_id, completed_on) DO UPDATE SET completed = c.completed + delta;
+    ELSE
+        WITH credited AS (
+            DELETE FROM block_completion_teams
+            WHERE block_id = completions_block_id
+            RETURNING team_id
+        )
+        INSERT INTO team_daily_completions AS c (team_id, completed_on, completed)
+        SELECT team_id, completions_day, delta FROM credited
+        ON CONFLICT (team_id, completed_on) DO UPDATE SET completed = c.completed + delta;
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+-- A block counts as completed on the day it was last completed. A completed block that is reset or
+-- reassigned no longer counts.
+CREATE OR REPLACE FUNCTION count_daily_completions() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' AND OLD.status = NEW.status
+            AND OLD.assigned_to IS NOT DISTINCT FROM NEW.assigned_to
+            AND OLD.last_completed IS NOT DISTINCT FROM NEW.last_completed THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP <> 'INSERT' AND OLD.status = 2 THEN
+        PERFORM add_daily_completions(
+            OLD.id, OLD.assigned_to, COALESCE(OLD.last_completed::DATE, CURRENT_DATE), -1);
+    END IF;
+    IF TG_OP <> 'DELETE' AND NEW.status = 2 THEN
+        PERFORM add_daily_completions(
+            NEW.id, NEW.assigned_to, COALESCE(NEW.last_completed::DATE, CURRENT_DATE), 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER daily_completions
+AFTER INSERT OR DELETE OR UPDATE OF status, assigned_to, last_completed ON block
+FOR EACH ROW EXECUTE PROCEDURE count_daily_completions();
+
+-- Count the blocks completed so far for the teams their users are on now, and the teams' daily
+-- completions again from them, so that the two agree
+INSERT INTO block_completion_teams (block_id, team_id)
+SELECT block.id, user_team.team_id
+FROM block
+JOIN user_team ON user_team.user_id = block.assigned_to AND user_team.team_role IN (1, 2)
+WHERE block.status = 2;
+
+DELETE FROM team_daily_completions;
+
+INSERT INTO team_daily_completions (team_id, completed_on, completed)
+SELECT block_completion_teams.team_id, COALESCE(block.last_completed::DATE, CURRENT_DATE), COUNT(*)
+FROM block_completion_teams
+JOIN block ON block.id = block_completion_teams.block_id
+GROUP BY 1, 2;
+
+/* [jooq ignore stop] */
@@ -0,0 +1,2 @@
+-- Finds the newer entries for the same block, which replace an entry before each batch is read
+CREATE INDEX IF NOT EXISTS map_outbox_block ON map_outbox (block_id, id);
@@ -0,0 +1,4 @@
+CREATE TABLE IF NOT EXISTS block_fid (
+    block_id VARCHAR(8) PRIMARY KEY,
+    fid INTEGER NOT NULL
+);
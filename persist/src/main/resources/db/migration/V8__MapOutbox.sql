@@ -0,0 +1,12 @@
+CREATE TABLE IF NOT EXISTS map_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    block_id VARCHAR(8) NOT NULL,
+    status INTEGER NOT NULL,
+    created_timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error TEXT,
+    dead_lettered BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+CREATE INDEX IF NOT EXISTS map_outbox_due ON map_outbox (dead_lettered, next_attempt_timestamp);
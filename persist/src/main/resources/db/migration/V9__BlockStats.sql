@@ -0,0 +1,130 @@
+CREATE TABLE IF NOT EXISTS user_block_stats (
+    user_id INTEGER PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+    completed INTEGER NOT NULL DEFAULT 0,
+    reserved INTEGER NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS team_block_stats (
+    team_id INTEGER PRIMARY KEY REFERENCES team(id) ON DELETE CASCADE,
+    completed INTEGER NOT NULL DEFAULT 0,
+    reserved INTEGER NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS user_block_stats_rank ON user_block_stats (completed DESC, reserved DESC);
+CREATE INDEX IF NOT EXISTS team_block_stats_rank ON team_block_stats (completed DESC, reserved DESC);
+
+/* [jooq ignore start] */
+
+-- Hold off block and membership changes until the counts below are in place
+LOCK TABLE block, user_team IN SHARE ROW EXCLUSIVE MODE;
+
+-- Add to the counts of a user and of every team they lead or are a member of. The user's row is
+-- locked first, which orders this against membership changes for the same user.
+CREATE OR REPLACE FUNCTION add_block_stats(stats_user_id INTEGER, block_status INTEGER, delta INTEGER)
+RETURNS VOID AS $$
+DECLARE
+    completed_delta INTEGER := CASE WHEN block_status = 2 THEN delta ELSE 0 END;
+    reserved_delta INTEGER := CASE WHEN block_status = 1 THEN delta ELSE 0 END;
+BEGIN
+    IF stats_user_id IS NULL OR (completed_delta = 0 AND reserved_delta = 0) THEN
+        RETURN;
+    END IF;
+
+    INSERT INTO user_block_stats AS s (user_id, completed, reserved)
+    VALUES (stats_user_id, completed_delta, reserved_delta)
+    ON CONFLICT (user_id) DO UPDATE
+    SET completed = s.completed + completed_delta, reserved = s.reserved + reserved_delta;
+
+    INSERT INTO team_block_stats AS s (team_id, completed, reserved)
+    SELECT team_id, completed_delta, reserved_delta
+    FROM user_team
+    WHERE user_id = stats_user_id AND team_role IN (1, 2)
+    ON CONFLICT (team_id) DO UPDATE
+    SET completed = s.completed + completed_delta, reserved = s.reserved + reserved_delta;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION count_block_stats() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' AND OLD.status = NEW.status
+            AND OLD.assigned_to IS NOT DISTINCT FROM NEW.assigned_to THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP <> 'INSERT' THEN
+        PERFORM add_block_stats(OLD.assigned_to, OLD.status, -1);
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        PERFORM add_block_stats(NEW.assigned_to, NEW.status, 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Add a user's counts to a team they joined, or take them away from a team they left. Leaders and
+-- members count towards a team, pending applicants do not.
+CREATE OR REPLACE FUNCTION add_member_block_stats(stats_team_id INTEGER, stats_user_id INTEGER, sign INTEGER)
+RETURNS VOID AS $$
+DECLARE
+    user_completed INTEGER;
+    user_reserved INTEGER;
+BEGIN
+    INSERT INTO user_block_stats (user_id) VALUES (stats_user_id) ON CONFLICT (user_id) DO NOTHING;
+    SELECT completed, reserved INTO user_completed, user_reserved
+    FROM user_block_stats
+    WHERE user_id = stats_user_id
+    FOR UPDATE;
+
+    IF sign > 0 THEN
+        INSERT INTO team_block_stats AS s (team_id, completed, reserved)
+        VALUES (stats_team_id, user_completed, user_reserved)
+        ON CONFLICT (team_id) DO UPDATE
+        SET completed = s.completed + user_completed, reserved = s.reserved + user_reserved;
+    ELSE
+        -- Only ever updated, as the team may be being deleted
+        UPDATE team_block_stats
+        SET completed = completed - user_completed, reserved = reserved - user_reserved
+        WHERE team_id = stats_team_id;
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION count_member_block_stats() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' AND OLD.user_id = NEW.user_id AND OLD.team_id = NEW.team_id
+            AND (OLD.team_role IN (1, 2)) = (NEW.team_role IN (1, 2)) THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP <> 'INSERT' AND OLD.team_role IN (1, 2) THEN
+        PERFORM add_member_block_stats(OLD.team_id, OLD.user_id, -1);
+    END IF;
+    IF TG_OP <> 'DELETE' AND NEW.team_role IN (1, 2) THEN
+        PERFORM add_member_block_stats(NEW.team_id, NEW.user_id, 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER block_stats
+AFTER INSERT OR DELETE OR UPDATE OF status, assigned_to ON block
+FOR EACH ROW EXECUTE PROCEDURE count_block_stats();
+
+CREATE TRIGGER member_block_stats
+AFTER INSERT OR DELETE OR UPDATE OF user_id, team_id, team_role ON user_team
+FOR EACH ROW EXECUTE PROCEDURE count_member_block_stats();
+
+-- Count the blocks assigned so far
+INSERT INTO user_block_stats (user_id, completed, reserved)
+SELECT assigned_to, COUNT(*) FILTER (WHERE status = 2), COUNT(*) FILTER (WHERE status = 1)
+FROM block
+WHERE assigned_to IS NOT NULL
+GROUP BY assigned_to;
+
+INSERT INTO team_block_stats (team_id, completed, reserved)
+SELECT user_team.team_id, COUNT(*) FILTER (WHERE block.status = 2), COUNT(*) FILTER (WHERE block.status = 1)
+FROM block
+JOIN user_team ON user_team.user_id = block.assigned_to AND user_team.team_role IN (1, 2)
+GROUP BY user_team.team_id;
+
+/* [jooq ignore stop] */
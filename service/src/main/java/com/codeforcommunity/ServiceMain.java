@@ -3,29 +3,47 @@ package com.codeforcommunity;
 import com.codeforcommunity.api.IAuthProcessor;
 import com.codeforcommunity.api.IBlockInfoProcessor;
 import com.codeforcommunity.api.IBlockProcessor;
+import com.codeforcommunity.api.IMapProcessor;
 import com.codeforcommunity.api.IProtectedUserProcessor;
 import com.codeforcommunity.api.ITeamsProcessor;
 import com.codeforcommunity.auth.JWTAuthorizer;
 import com.codeforcommunity.auth.JWTCreator;
 import com.codeforcommunity.auth.JWTHandler;
+import com.codeforcommunity.dataaccess.BlockChangeLog;
+import com.codeforcommunity.dataaccess.BlockCountsSnapshot;
+import com.codeforcommunity.dataaccess.BlockStateIndex;
+import com.codeforcommunity.dataaccess.BlockStats;
+import com.codeforcommunity.dataaccess.BlockStatusSnapshot;
+import com.codeforcommunity.dataaccess.ConnectionPool;
+import com.codeforcommunity.dataaccess.Leaderboards;
+import com.codeforcommunity.dataaccess.TeamCache;
+import com.codeforcommunity.dataaccess.TeamDirectory;
+import com.codeforcommunity.dataaccess.TeamRoleCache;
 import com.codeforcommunity.logger.SLogger;
 import com.codeforcommunity.processor.AuthProcessorImpl;
 import com.codeforcommunity.processor.BlockInfoProcessorImpl;
 import com.codeforcommunity.processor.BlocksProcessorImpl;
+import com.codeforcommunity.processor.MapProcessorImpl;
 import com.codeforcommunity.processor.ProtectedUserProcessorImpl;
 import com.codeforcommunity.processor.TeamsProcessorImpl;
 import com.codeforcommunity.propertiesLoader.PropertiesLoader;
+import com.codeforcommunity.requester.BlockFidCache;
 import com.codeforcommunity.requester.Emailer;
+import com.codeforcommunity.requester.MapOutboxDispatcher;
+import com.codeforcommunity.requester.MapReconciler;
 import com.codeforcommunity.requester.MapRequester;
 import com.codeforcommunity.rest.ApiRouter;
+import com.codeforcommunity.rest.WorkerDispatcher;
 import io.vertx.core.Vertx;
 import java.util.Properties;
 import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
 
 public class ServiceMain {
   private DSLContext db;
   private final Properties dbProperties = PropertiesLoader.getDbProperties();
+  private final Properties serverProperties = PropertiesLoader.getServerProperties();
 
   public static void main(String[] args) {
     try {
@@ -52,7 +70,10 @@ public class ServiceMain {
     System.setProperties(systemProperties);
   }
 
-  /** Connect to the database and create a DSLContext so jOOQ can interact with it. */
+  /**
+   * Connect to the database and create a DSLContext so jOOQ can interact with it. Unless the pool
+   * is disabled in db.properties, the DSLContext is backed by a connection pool.
+   */
   private void connectDb() {
     // This block ensures that the Postgres driver is loaded in the classpath
     try {
@@ -61,6 +82,11 @@ public class ServiceMain {
       e.printStackTrace();
     }
 
+    if (Boolean.parseBoolean(dbProperties.getProperty("database.pool.enabled", "true").trim())) {
+      this.db = DSL.using(ConnectionPool.create(dbProperties), SQLDialect.POSTGRES);
+      return;
+    }
+
     DSLContext db =
         DSL.using(
             dbProperties.getProperty("database.url"),
@@ -80,7 +106,45 @@ public class ServiceMain {
 
     Vertx vertx = Vertx.vertx();
     SLogger.initializeLogger(vertx, productName);
-    MapRequester mapRequester = new MapRequester(vertx);
+    BlockFidCache blockFidCache = new BlockFidCache(this.db);
+    MapRequester mapRequester = new MapRequester(vertx, blockFidCache);
+    new MapOutboxDispatcher(vertx, this.db, mapRequester).start();
+    MapReconciler mapReconciler = new MapReconciler(vertx, this.db, mapRequester, blockFidCache);
+    BlockStatusSnapshot statusSnapshot = new BlockStatusSnapshot(vertx, this.db);
+    BlockStateIndex blockStateIndex = new BlockStateIndex(this.db);
+    BlockChangeLog changeLog =
+        new BlockChangeLog(
+            vertx,
+            Integer.parseInt(
+                PropertiesLoader.getMapProperties().getProperty("change_log_capacity", "100000")));
+    blockStateIndex.addListener(statusSnapshot);
+    blockStateIndex.addListener(changeLog);
+    BlockCountsSnapshot countsSnapshot = new BlockCountsSnapshot(blockStateIndex);
+    blockStateIndex.addListener(countsSnapshot);
+    blockStateIndex.startConsistencyChecks(
+        vertx,
+        Long.parseLong(serverProperties.getProperty("block_index_check_interval_ms", "300000")));
+    BlockStats blockStats = new BlockStats(this.db);
+    blockStats.startDriftChecks(
+        vertx,
+        Long.parseLong(serverProperties.getProperty("block_stats_check_interval_ms", "3600000")));
+    Leaderboards leaderboards = new Leaderboards(this.db);
+    blockStateIndex.addListener(leaderboards);
+    leaderboards.startReloads(
+        vertx,
+        Long.parseLong(serverProperties.getProperty("leaderboard_reload_interval_ms", "300000")));
+    TeamCache teamCache =
+        new TeamCache(Integer.parseInt(serverProperties.getProperty("team_cache_size", "1000")));
+    blockStateIndex.addListener(teamCache);
+    TeamDirectory teamDirectory = new TeamDirectory(this.db);
+    teamDirectory.startReloads(
+        vertx,
+        Long.parseLong(
+            serverProperties.getProperty("team_directory_reload_interval_ms", "300000")));
+    TeamRoleCache teamRoles =
+        new TeamRoleCache(
+            this.db,
+            Integer.parseInt(serverProperties.getProperty("team_role_cache_size", "100000")));
     Emailer emailer = new Emailer();
 
     // Log uncaught exceptions to Slack
@@ -88,10 +152,21 @@ public class ServiceMain {
 
     IAuthProcessor authProcessor = new AuthProcessorImpl(this.db, emailer, jwtCreator);
     IProtectedUserProcessor protectedUserProcessor =
-        new ProtectedUserProcessorImpl(this.db, emailer);
-    IBlockProcessor blockProcessor = new BlocksProcessorImpl(this.db, mapRequester);
-    IBlockInfoProcessor blockInfoProcessor = new BlockInfoProcessorImpl(this.db);
-    ITeamsProcessor teamsProcessor = new TeamsProcessorImpl(this.db, emailer);
+        new ProtectedUserProcessorImpl(
+            this.db, emailer, leaderboards, teamCache, teamDirectory, teamRoles);
+    IBlockProcessor blockProcessor =
+        new BlocksProcessorImpl(this.db, mapReconciler, blockStateIndex, blockStats);
+    IBlockInfoProcessor blockInfoProcessor =
+        new BlockInfoProcessorImpl(this.db, blockStateIndex, countsSnapshot, leaderboards);
+    ITeamsProcessor teamsProcessor =
+        new TeamsProcessorImpl(this.db, emailer, leaderboards, teamCache, teamDirectory, teamRoles);
+    IMapProcessor mapProcessor =
+        new MapProcessorImpl(
+            statusSnapshot,
+            changeLog,
+            Integer.parseInt(
+                PropertiesLoader.getMapProperties().getProperty("tile_cache_size", "5000")));
+    WorkerDispatcher dispatcher = createWorkerDispatcher(vertx);
     ApiRouter router =
         new ApiRouter(
             authProcessor,
@@ -99,14 +174,30 @@ public class ServiceMain {
             blockProcessor,
             blockInfoProcessor,
             teamsProcessor,
-            jwtAuthorizer);
+            mapProcessor,
+            jwtAuthorizer,
+            dispatcher);
 
     startApiServer(router, vertx);
   }
 
-  /** Start up the actual API server that will listen for requests. */
+  /** Create the worker pool that route handlers run their blocking processor calls on. */
+  private WorkerDispatcher createWorkerDispatcher(Vertx vertx) {
+    int poolSize = Integer.parseInt(serverProperties.getProperty("worker_pool_size", "20"));
+    int queueLimit = Integer.parseInt(serverProperties.getProperty("worker_queue_limit", "500"));
+    long maxExecuteSeconds =
+        Long.parseLong(serverProperties.getProperty("worker_max_execute_seconds", "60"));
+
+    return new WorkerDispatcher(vertx, poolSize, queueLimit, maxExecuteSeconds);
+  }
+
+  /**
+   * Start up the actual API server that will listen for requests, deploying as many instances of it
+   * as configured in server.properties.
+   */
   private void startApiServer(ApiRouter router, Vertx vertx) {
-    ApiMain apiMain = new ApiMain(router);
+    int instances = Integer.parseInt(serverProperties.getProperty("verticle_instances", "0"));
+    ApiMain apiMain = new ApiMain(router, instances);
     apiMain.startApi(vertx);
   }
 }
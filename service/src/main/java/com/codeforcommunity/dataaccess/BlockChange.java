@@ -0,0 +1,48 @@
+package com.codeforcommunity.dataaccess;
+
+import com.codeforcommunity.enums.BlockStatus;
+
+/** A committed change to the status or assignee of a single block. */
+public class BlockChange {
+  private final String blockId;
+  private final BlockStatus oldStatus;
+  private final BlockStatus newStatus;
+  private final Integer oldAssignee;
+  private final Integer newAssignee;
+
+  public BlockChange(
+      String blockId,
+      BlockStatus oldStatus,
+      BlockStatus newStatus,
+      Integer oldAssignee,
+      Integer newAssignee) {
+    this.blockId = blockId;
+    this.oldStatus = oldStatus;
+    this.newStatus = newStatus;
+    this.oldAssignee = oldAssignee;
+    this.newAssignee = newAssignee;
+  }
+
+  public String getBlockId() {
+    return blockId;
+  }
+
+  /** @return the status before the change, or null if the block was not known before. */
+  public BlockStatus getOldStatus() {
+    return oldStatus;
+  }
+
+  public BlockStatus getNewStatus() {
+    return newStatus;
+  }
+
+  /** @return the user the block was assigned to before the change, or null if none. */
+  public Integer getOldAssignee() {
+    return oldAssignee;
+  }
+
+  /** @return the user the block is assigned to after the change, or null if none. */
+  public Integer getNewAssignee() {
+    return newAssignee;
+  }
+}
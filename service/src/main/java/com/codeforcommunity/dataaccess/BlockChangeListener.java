@@ -0,0 +1,15 @@
+package com.codeforcommunity.dataaccess;
+
+import java.util.List;
+
+/**
+ * Notified by the {@link BlockStateIndex} of every committed block change, in the order the changes
+ * were applied. Listeners are called one batch of changes at a time, after the index's lock is
+ * released, so they may read the index. They hold up the thread that applied the changes and every
+ * later batch, so they must be quick.
+ */
+public interface BlockChangeListener {
+
+  /** @param changes the blocks that changed, none of which is listed twice. */
+  void onBlocksChanged(List<BlockChange> changes);
+}
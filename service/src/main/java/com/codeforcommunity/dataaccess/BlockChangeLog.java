@@ -0,0 +1,204 @@
+package com.codeforcommunity.dataaccess;
+
+import com.codeforcommunity.api.IMapProcessor;
+import com.codeforcommunity.dto.map.BlockChanges;
+import com.codeforcommunity.dto.map.BlockStatusChange;
+import com.codeforcommunity.enums.BlockStatus;
+import com.codeforcommunity.exceptions.MalformedParameterException;
+import com.codeforcommunity.metrics.Metrics;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The most recent block status changes, numbered in the order they were applied, so that clients
+ * can ask for only what changed since they last looked.
+ *
+ * <p>Changes are kept in a ring buffer of a fixed number of entries. A cursor names a position in
+ * the log, prefixed with the epoch of the log so that cursors from before a restart are not
+ * mistaken for current ones. A client whose cursor is from another epoch, or so old that the
+ * changes after it were overwritten, is told to reset: fetch every block's status again and carry
+ * on from the returned cursor.
+ *
+ * <p>A client that is up to date can wait for the next change rather than polling. Waiting requests
+ * are completed on the context they were made on. Every change is also published on the event bus
+ * as it is logged, for clients that have changes pushed to them.
+ */
+public class BlockChangeLog implements BlockChangeListener {
+  // Bounds the size of a response for a client that is far behind
+  private static final int MAX_CHANGES_PER_RESPONSE = 1000;
+
+  private final Vertx vertx;
+  private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+  // All guarded by this
+  private final String[] blockIds;
+  private final BlockStatus[] statuses;
+  // The position of the latest change, the first change is at position 1
+  private long latest;
+  private List<Waiter> waiters = new ArrayList<>();
+
+  private final LongAdder resets = Metrics.counter("block_changes.resets");
+  private final LongAdder timedOutWaits = Metrics.counter("block_changes.timed_out_waits");
+
+  /** @param capacity the number of changes to keep. */
+  public BlockChangeLog(Vertx vertx, int capacity) {
+    this.vertx = vertx;
+    this.blockIds = new String[capacity];
+    this.statuses = new BlockStatus[capacity];
+    Metrics.gauge("block_changes.waiting", this::waiting);
+  }
+
+  @Override
+  public void onBlocksChanged(List<BlockChange> changes) {
+    List<Waiter> waiting;
+    String cursor;
+    synchronized (this) {
+      for (BlockChange change : changes) {
+        latest++;
+        int slot = (int) ((latest - 1) % blockIds.length);
+        blockIds[slot] = change.getBlockId();
+        statuses[slot] = change.getNewStatus();
+      }
+      cursor = toCursor(latest);
+      waiting = waiters;
+      waiters = new ArrayList<>();
+    }
+
+    for (Waiter waiter : waiting) {
+      waiter.context.runOnContext(v -> waiter.complete(getChanges(waiter.cursor)));
+    }
+
+    JsonArray published = new JsonArray();
+    for (BlockChange change : changes) {
+      published.add(
+          new JsonObject()
+              .put("blockId", change.getBlockId())
+              .put("status", change.getNewStatus().name()));
+    }
+    vertx
+        .eventBus()
+        .publish(
+            IMapProcessor.BLOCK_CHANGES_ADDRESS,
+            new JsonObject().put("cursor", cursor).put("changes", published));
+  }
+
+  /**
+   * Get the changes after the given cursor. If there are none yet, wait up to {@code waitMs} for
+   * one before responding.
+   *
+   * @param since a cursor returned earlier, or null to get the current cursor without any changes.
+   * @param waitMs how long to wait for a change, or 0 to respond straight away.
+   * @return a future of the changes, which completes on the caller's context.
+   * @throws MalformedParameterException if the cursor is not one the log could have returned.
+   */
+  public Future<BlockChanges> getChanges(String since, long waitMs) {
+    long cursor = parseCursor(since);
+    synchronized (this) {
+      if (waitMs <= 0 || cursor != latest) {
+        return Future.succeededFuture(getChanges(cursor));
+      }
+
+      Waiter waiter = new Waiter(vertx.getOrCreateContext(), cursor);
+      waiter.timerId =
+          vertx.setTimer(
+              waitMs,
+              timerId -> {
+                synchronized (this) {
+                  waiters.remove(waiter);
+                }
+                if (waiter.complete(getChanges(waiter.cursor))) {
+                  timedOutWaits.increment();
+                }
+              });
+      waiters.add(waiter);
+      return waiter.promise.future();
+    }
+  }
+
+  /** @return the position in the log that the given cursor names, or -1 if there is none. */
+  private long parseCursor(String since) {
+    if (since == null) {
+      return -1;
+    }
+
+    int separator = since.indexOf('-');
+    if (separator < 0) {
+      throw new MalformedParameterException("since");
+    }
+    try {
+      long position = Long.parseLong(since.substring(separator + 1));
+      if (position < 0) {
+        throw new MalformedParameterException("since");
+      }
+      // A cursor from before a restart is valid, but its position means nothing now
+      return since.substring(0, separator).equals(epoch) ? position : -1;
+    } catch (NumberFormatException e) {
+      throw new MalformedParameterException("since");
+    }
+  }
+
+  /**
+   * Get the changes after the given position, keeping only the latest change of each block. Unknown
+   * positions, including -1, reset the client to the latest position.
+   */
+  private synchronized BlockChanges getChanges(long cursor) {
+    if (cursor < 0 || cursor > latest || cursor < latest - blockIds.length) {
+      resets.increment();
+      return new BlockChanges(toCursor(latest), true, false, Collections.emptyList());
+    }
+
+    long end = Math.min(latest, cursor + MAX_CHANGES_PER_RESPONSE);
+    Map<String, BlockStatusChange> changes = new LinkedHashMap<>();
+    for (long position = cursor + 1; position <= end; position++) {
+      int slot = (int) ((position - 1) % blockIds.length);
+      // Removed first so that the order is that of each block's latest change
+      changes.remove(blockIds[slot]);
+      changes.put(blockIds[slot], new BlockStatusChange(blockIds[slot], statuses[slot]));
+    }
+    return new BlockChanges(toCursor(end), false, end < latest, new ArrayList<>(changes.values()));
+  }
+
+  private String toCursor(long position) {
+    return epoch + "-" + position;
+  }
+
+  private synchronized int waiting() {
+    return waiters.size();
+  }
+
+  /** A request waiting for the next change. */
+  private class Waiter {
+    private final Context context;
+    private final long cursor;
+    private final Promise<BlockChanges> promise = Promise.promise();
+    private long timerId;
+
+    private Waiter(Context context, long cursor) {
+      this.context = context;
+      this.cursor = cursor;
+    }
+
+    /**
+     * Respond to the request, unless it was already answered by a change or its timeout.
+     *
+     * @return whether this call responded to the request.
+     */
+    private boolean complete(BlockChanges changes) {
+      if (!promise.tryComplete(changes)) {
+        return false;
+      }
+      vertx.cancelTimer(timerId);
+      return true;
+    }
+  }
+}
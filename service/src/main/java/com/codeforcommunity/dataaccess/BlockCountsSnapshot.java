@@ -0,0 +1,87 @@
+package com.codeforcommunity.dataaccess;
+
+import com.codeforcommunity.dto.blockInfo.BlockInfoResponse;
+import com.codeforcommunity.dto.map.EncodedResource;
+import com.codeforcommunity.enums.BlockStatus;
+import com.codeforcommunity.metrics.Metrics;
+import io.vertx.core.json.JsonObject;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The number of blocks with each status, encoded as the response to the public blocks route.
+ *
+ * <p>The counts are read from the {@link BlockStateIndex} in one pass and encoded on read. The
+ * encoding is kept until a block changes, including a change the index's consistency check finds.
+ * When the encoding is out of date, the first reader encodes it again while any others wait for it,
+ * rather than every reader encoding its own.
+ */
+public class BlockCountsSnapshot implements BlockChangeListener {
+  private final BlockStateIndex blockStateIndex;
+
+  // Incremented by every change, so an encoding can tell whether a change happened since it
+  private final AtomicLong version = new AtomicLong();
+  private volatile Encoded encoded;
+  private final Object encodeLock = new Object();
+
+  private final LongAdder encodes = Metrics.counter("block_counts.encodes");
+
+  public BlockCountsSnapshot(BlockStateIndex blockStateIndex) {
+    this.blockStateIndex = blockStateIndex;
+  }
+
+  /**
+   * This only marks the encoding as out of date, so that publishing a change never waits for an
+   * encoding.
+   */
+  @Override
+  public void onBlocksChanged(List<BlockChange> changes) {
+    version.incrementAndGet();
+  }
+
+  /** @return the encoded counts of blocks with each status. */
+  public EncodedResource getCounts() {
+    Encoded current = encoded;
+    if (isCurrent(current)) {
+      return current.resource;
+    }
+
+    synchronized (encodeLock) {
+      current = encoded;
+      if (isCurrent(current)) {
+        return current.resource;
+      }
+      // Read before the counts, so a change made while encoding makes this encoding out of date
+      long encodedVersion = version.get();
+      int[] counts = blockStateIndex.getStatusCounts();
+      BlockInfoResponse response =
+          new BlockInfoResponse(
+              counts[BlockStatus.DONE.getVal()],
+              counts[BlockStatus.RESERVED.getVal()],
+              counts[BlockStatus.OPEN.getVal()]);
+      current =
+          new Encoded(
+              EncodedResource.of(
+                  JsonObject.mapFrom(response).toBuffer().getBytes(), "application/json"),
+              encodedVersion);
+      encoded = current;
+      encodes.increment();
+      return current.resource;
+    }
+  }
+
+  private boolean isCurrent(Encoded current) {
+    return current != null && current.version == version.get();
+  }
+
+  private static class Encoded {
+    private final EncodedResource resource;
+    private final long version;
+
+    private Encoded(EncodedResource resource, long version) {
+      this.resource = resource;
+      this.version = version;
+    }
+  }
+}
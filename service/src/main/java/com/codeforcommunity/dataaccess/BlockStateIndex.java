@@ -0,0 +1,432 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.jooq.generated.Tables.BLOCK;
+
+import com.codeforcommunity.enums.BlockStatus;
+import com.codeforcommunity.logger.SLogger;
+import com.codeforcommunity.metrics.Metrics;
+import io.vertx.core.Vertx;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.jooq.DSLContext;
+import org.jooq.Record4;
+import org.jooq.Result;
+import org.jooq.generated.tables.records.BlockRecord;
+
+/**
+ * The status and assignee of every block, held in memory so that status counts and a user's blocks
+ * can be read without querying the block table.
+ *
+ * <p>Blocks are numbered by their position in ID order, and the status and assignee of each block
+ * are kept in primitive arrays indexed by that number, along with the number of blocks in each
+ * status and the numbers of the blocks assigned to each user. The index is loaded from the table
+ * once and then updated write-through as block changes commit; every change is passed on to the
+ * registered {@link BlockChangeListener}s, in the order the changes were applied. The listeners are
+ * called after the lock is released, and the table is only ever read without holding it, so that
+ * readers of the index, some of which run on the event loop, never wait on the database.
+ *
+ * <p>Each block also has the version the table gave its last change. Threads can apply their
+ * changes in a different order than the changes committed, so a change to a block is only applied
+ * if its version is newer than the one the index has, and an older change that arrives late is
+ * dropped.
+ *
+ * <p>A consistency check periodically compares the index with the table. Any block that differs is
+ * corrected as if it had changed, so that the listeners are corrected as well.
+ */
+public class BlockStateIndex {
+  private static final int NO_ASSIGNEE = 0;
+  private static final BlockStatus[] STATUSES = new BlockStatus[3];
+
+  static {
+    for (BlockStatus status : BlockStatus.values()) {
+      STATUSES[status.getVal()] = status;
+    }
+  }
+
+  private final SLogger logger = new SLogger(BlockStateIndex.class);
+  private final DSLContext db;
+  private final List<BlockChangeListener> listeners = new CopyOnWriteArrayList<>();
+  // Changes waiting to be passed to the listeners, queued with the lock held so they stay in order
+  private final Queue<List<BlockChange>> unpublished = new ConcurrentLinkedQueue<>();
+  // Held by the one thread passing changes to the listeners, so that they get them in order
+  private final AtomicBoolean publishing = new AtomicBoolean(false);
+
+  // All guarded by this
+  private Map<String, Integer> blockIndexes;
+  private String[] blockIds;
+  private byte[] statuses;
+  private int[] assignees;
+  private long[] versions;
+  private final int[] statusCounts = new int[STATUSES.length];
+  private final Map<Integer, IntList> userBlocks = new HashMap<>();
+  // Incremented by every change, so a check can tell whether the index changed while it ran
+  private long modCount;
+
+  private final LongAdder checks = Metrics.counter("block_index.checks");
+  private final LongAdder skippedChecks = Metrics.counter("block_index.skipped_checks");
+  private final LongAdder drift = Metrics.counter("block_index.drift");
+  private final LongAdder staleUpdates = Metrics.counter("block_index.stale_updates");
+  private final Metrics.Summary checkLatency = Metrics.summary("block_index.check_ms");
+
+  public BlockStateIndex(DSLContext db) {
+    this.db = db;
+    Result<Record4<String, BlockStatus, Integer, Long>> blocks = fetchBlocks();
+    synchronized (this) {
+      rebuild(blocks);
+    }
+    Metrics.gauge("block_index.blocks", this::size);
+  }
+
+  /** Register a listener for every change applied to the index from now on. */
+  public void addListener(BlockChangeListener listener) {
+    listeners.add(listener);
+  }
+
+  /** Check the index against the block table every {@code intervalMs}, off of the event loop. */
+  public void startConsistencyChecks(Vertx vertx, long intervalMs) {
+    vertx.setPeriodic(
+        intervalMs,
+        timerId ->
+            vertx.executeBlocking(
+                promise -> {
+                  check();
+                  promise.complete();
+                },
+                false,
+                ar -> {
+                  if (ar.failed()) {
+                    logger.error("Failed to check the block index", ar.cause());
+                  }
+                }));
+  }
+
+  /**
+   * Record that the given blocks changed to the given status. This must only be called once the
+   * change has been committed. A block whose version is not newer than the index's was changed
+   * again since, and is left as it is.
+   *
+   * @param blocks the changed blocks as the change returned them, with their ID, the user they are
+   *     now assigned to, and their new version.
+   * @param status the status the blocks changed to.
+   */
+  public void update(List<BlockRecord> blocks, BlockStatus status) {
+    // Blocks added to the table since the index was built are read in first, without the lock
+    Result<Record4<String, BlockStatus, Integer, Long>> table =
+        containsAll(blocks) ? null : fetchBlocks();
+
+    synchronized (this) {
+      if (table != null) {
+        queue(merge(table));
+      }
+      List<BlockChange> changes = new ArrayList<>(blocks.size());
+      for (BlockRecord block : blocks) {
+        BlockChange change =
+            set(block.getId(), status, block.getAssignedTo(), block.getVersion(), false);
+        if (change != null) {
+          changes.add(change);
+        }
+      }
+      queue(changes);
+    }
+    publish();
+  }
+
+  private synchronized boolean containsAll(List<BlockRecord> blocks) {
+    return blocks.stream().allMatch(block -> blockIndexes.containsKey(block.getId()));
+  }
+
+  /** @return the number of blocks in the index. */
+  public synchronized int size() {
+    return blockIds.length;
+  }
+
+  /** @return the number of blocks with the given status. */
+  public synchronized int getStatusCount(BlockStatus status) {
+    return statusCounts[status.getVal()];
+  }
+
+  /** @return the number of blocks with each status, indexed by the value of the status. */
+  public synchronized int[] getStatusCounts() {
+    return statusCounts.clone();
+  }
+
+  /**
+   * @param blockId the ID of a block.
+   * @return the status of the block, or null if it is not in the index.
+   */
+  public synchronized BlockStatus getStatus(String blockId) {
+    Integer index = blockIndexes.get(blockId);
+    return index == null ? null : STATUSES[statuses[index]];
+  }
+
+  /**
+   * @param userId the ID of a user.
+   * @param includeDone whether to include the user's DONE blocks as well as their RESERVED ones.
+   * @return the IDs of the blocks assigned to the user, in ID order.
+   */
+  public synchronized List<String> getUserBlocks(int userId, boolean includeDone) {
+    IntList blocks = userBlocks.get(userId);
+    if (blocks == null) {
+      return Collections.emptyList();
+    }
+
+    int[] sorted = Arrays.copyOf(blocks.values, blocks.size);
+    Arrays.sort(sorted);
+    List<String> ids = new ArrayList<>(sorted.length);
+    for (int index : sorted) {
+      byte status = statuses[index];
+      if (status == BlockStatus.RESERVED.getVal()
+          || (includeDone && status == BlockStatus.DONE.getVal())) {
+        ids.add(blockIds[index]);
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Compare the index with the block table and correct every block that differs. The table is read
+   * without holding the lock, so if the index changes while it is read the comparison could be
+   * wrong in either direction, and the check is skipped until next time.
+   *
+   * @return the number of blocks that were corrected, or -1 if the check was skipped.
+   */
+  public int check() {
+    long startNanos = System.nanoTime();
+    long startModCount;
+    synchronized (this) {
+      startModCount = modCount;
+    }
+    Result<Record4<String, BlockStatus, Integer, Long>> blocks = fetchBlocks();
+
+    int corrected;
+    synchronized (this) {
+      checks.increment();
+      checkLatency.recordSince(startNanos);
+      if (modCount != startModCount) {
+        skippedChecks.increment();
+        return -1;
+      }
+
+      boolean sameBlocks = blocks.size() == blockIds.length;
+      for (int i = 0; sameBlocks && i < blockIds.length; i++) {
+        sameBlocks = blockIds[i].equals(blocks.get(i).value1());
+      }
+
+      List<BlockChange> changes = new ArrayList<>();
+      if (sameBlocks) {
+        for (Record4<String, BlockStatus, Integer, Long> block : blocks) {
+          BlockChange change =
+              set(block.value1(), block.value2(), block.value3(), block.value4(), true);
+          if (change != null) {
+            changes.add(change);
+          }
+        }
+      } else {
+        // Blocks were added or removed, so the numbering changes and the index is rebuilt
+        changes = merge(blocks);
+      }
+
+      if (!changes.isEmpty()) {
+        drift.add(changes.size());
+        logger.error(
+            String.format(
+                "The block index differed from the block table for %d blocks", changes.size()));
+        queue(changes);
+      }
+      corrected = changes.size();
+    }
+    publish();
+    return corrected;
+  }
+
+  private Result<Record4<String, BlockStatus, Integer, Long>> fetchBlocks() {
+    return db.select(BLOCK.ID, BLOCK.STATUS, BLOCK.ASSIGNED_TO, BLOCK.VERSION)
+        .from(BLOCK)
+        .orderBy(BLOCK.ID)
+        .fetch();
+  }
+
+  /** Replace the whole index with the given blocks, which must be in ID order. */
+  private void rebuild(Result<Record4<String, BlockStatus, Integer, Long>> blocks) {
+    int size = blocks.size();
+    blockIndexes = new HashMap<>(size * 2);
+    blockIds = new String[size];
+    statuses = new byte[size];
+    assignees = new int[size];
+    versions = new long[size];
+    Arrays.fill(statusCounts, 0);
+    userBlocks.clear();
+
+    for (int i = 0; i < size; i++) {
+      Record4<String, BlockStatus, Integer, Long> block = blocks.get(i);
+      blockIndexes.put(block.value1(), i);
+      blockIds[i] = block.value1();
+      statuses[i] = (byte) block.value2().getVal();
+      statusCounts[statuses[i]]++;
+      assignees[i] = block.value3() == null ? NO_ASSIGNEE : block.value3();
+      versions[i] = block.value4();
+      if (assignees[i] != NO_ASSIGNEE) {
+        userBlocks.computeIfAbsent(assignees[i], userId -> new IntList()).add(i);
+      }
+    }
+    modCount++;
+  }
+
+  /**
+   * Rebuild the index from the given blocks, which were read from the table without holding the
+   * lock. A block whose change was applied to the index after the table was read keeps the state
+   * the change gave it.
+   *
+   * @return a change for every block whose state differs from the one the index had.
+   */
+  private List<BlockChange> merge(Result<Record4<String, BlockStatus, Integer, Long>> blocks) {
+    Map<String, Integer> oldIndexes = blockIndexes;
+    byte[] oldStatuses = statuses;
+    int[] oldAssignees = assignees;
+    long[] oldVersions = versions;
+    rebuild(blocks);
+
+    List<BlockChange> changes = new ArrayList<>();
+    for (int i = 0; i < blockIds.length; i++) {
+      Integer old = oldIndexes.get(blockIds[i]);
+      if (old == null) {
+        changes.add(
+            new BlockChange(
+                blockIds[i], null, STATUSES[statuses[i]], null, toAssignee(assignees[i])));
+      } else if (oldVersions[old] > versions[i]) {
+        // The listeners already have this state, so the change back to it is not published
+        set(
+            blockIds[i],
+            STATUSES[oldStatuses[old]],
+            toAssignee(oldAssignees[old]),
+            oldVersions[old],
+            false);
+      } else if (oldStatuses[old] != statuses[i] || oldAssignees[old] != assignees[i]) {
+        changes.add(
+            new BlockChange(
+                blockIds[i],
+                STATUSES[oldStatuses[old]],
+                STATUSES[statuses[i]],
+                toAssignee(oldAssignees[old]),
+                toAssignee(assignees[i])));
+      }
+    }
+    return changes;
+  }
+
+  /**
+   * Set the status and assignee of a block, keeping the counts and user lists in step.
+   *
+   * @param version the version of the block after the change.
+   * @param fromTable whether the change was read from the table, in which case it replaces the
+   *     index's state even at the same version, rather than coming from a committed change.
+   * @return the change, or null if the block is not in the index, already had that status and
+   *     assignee, or the index already has a later change to it.
+   */
+  private BlockChange set(
+      String blockId, BlockStatus status, Integer assignee, long version, boolean fromTable) {
+    Integer index = blockIndexes.get(blockId);
+    if (index == null) {
+      return null;
+    }
+
+    if (version < versions[index] || (version == versions[index] && !fromTable)) {
+      staleUpdates.increment();
+      return null;
+    }
+    versions[index] = version;
+
+    BlockStatus oldStatus = STATUSES[statuses[index]];
+    int oldAssignee = assignees[index];
+    int newAssignee = assignee == null ? NO_ASSIGNEE : assignee;
+    if (oldStatus == status && oldAssignee == newAssignee) {
+      return null;
+    }
+
+    statusCounts[oldStatus.getVal()]--;
+    statusCounts[status.getVal()]++;
+    statuses[index] = (byte) status.getVal();
+    if (oldAssignee != newAssignee) {
+      if (oldAssignee != NO_ASSIGNEE) {
+        IntList blocks = userBlocks.get(oldAssignee);
+        blocks.remove(index);
+        if (blocks.size == 0) {
+          userBlocks.remove(oldAssignee);
+        }
+      }
+      if (newAssignee != NO_ASSIGNEE) {
+        userBlocks.computeIfAbsent(newAssignee, userId -> new IntList()).add(index);
+      }
+      assignees[index] = newAssignee;
+    }
+    modCount++;
+
+    return new BlockChange(blockId, oldStatus, status, toAssignee(oldAssignee), assignee);
+  }
+
+  /** Queue the given changes to be published, which must be done with the lock held. */
+  private void queue(List<BlockChange> changes) {
+    if (!changes.isEmpty()) {
+      unpublished.add(Collections.unmodifiableList(changes));
+    }
+  }
+
+  /**
+   * Pass the queued changes to the listeners, without holding the lock. If another thread is
+   * already publishing, it publishes these changes as well, after the ones queued before them.
+   */
+  private void publish() {
+    while (!unpublished.isEmpty() && publishing.compareAndSet(false, true)) {
+      try {
+        List<BlockChange> changes;
+        while ((changes = unpublished.poll()) != null) {
+          for (BlockChangeListener listener : listeners) {
+            try {
+              listener.onBlocksChanged(changes);
+            } catch (RuntimeException e) {
+              logger.error("A block change listener failed", e);
+            }
+          }
+        }
+      } finally {
+        publishing.set(false);
+      }
+    }
+  }
+
+  private static Integer toAssignee(int assignee) {
+    return assignee == NO_ASSIGNEE ? null : assignee;
+  }
+
+  /** A growable list of block numbers, without boxing each one. */
+  private static class IntList {
+    private int[] values = new int[4];
+    private int size;
+
+    private void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    /** Remove the given value by moving the last value into its place. */
+    private void remove(int value) {
+      for (int i = 0; i < size; i++) {
+        if (values[i] == value) {
+          values[i] = values[--size];
+          return;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.jooq.generated.Tables.BLOCK;
+import static org.jooq.generated.Tables.TEAM_BLOCK_STATS;
+import static org.jooq.generated.Tables.USER_BLOCK_STATS;
+import static org.jooq.generated.Tables.USER_TEAM;
+
+import com.codeforcommunity.dto.blocks.BlockStatsDrift;
+import com.codeforcommunity.enums.BlockStatus;
+import com.codeforcommunity.enums.TeamRole;
+import com.codeforcommunity.logger.SLogger;
+import com.codeforcommunity.metrics.Metrics;
+import io.vertx.core.Vertx;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record3;
+import org.jooq.Result;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+
+/**
+ * The number of completed and reserved blocks of every user and team, as counted in the
+ * user_block_stats and team_block_stats tables.
+ *
+ * <p>The counts are kept by triggers on the block and user_team tables, so they change in the same
+ * transaction as the blocks and memberships they count, whichever code makes the change. A team's
+ * counts are the sum of those of its leader and members. This checks the counts against a recount
+ * of the block table, which reads every assigned block, and rebuilds them from it if they drift.
+ */
+public class BlockStats {
+  private final SLogger logger = new SLogger(BlockStats.class);
+  private final DSLContext db;
+
+  private final LongAdder checks = Metrics.counter("block_stats.checks");
+  private final LongAdder drift = Metrics.counter("block_stats.drift");
+  private final LongAdder rebuilds = Metrics.counter("block_stats.rebuilds");
+  private final Metrics.Summary checkLatency = Metrics.summary("block_stats.check_ms");
+
+  public BlockStats(DSLContext db) {
+    this.db = db;
+  }
+
+  /** Check the counts against the block table every {@code intervalMs}, off of the event loop. */
+  public void startDriftChecks(Vertx vertx, long intervalMs) {
+    vertx.setPeriodic(
+        intervalMs,
+        timerId ->
+            vertx.executeBlocking(
+                promise -> {
+                  check();
+                  promise.complete();
+                },
+                false,
+                ar -> {
+                  if (ar.failed()) {
+                    logger.error("Failed to check the block stats", ar.cause());
+                  }
+                }));
+  }
+
+  /**
+   * Compare the counts with a recount of the block table. Both are read from the same snapshot, so
+   * changes made while checking are not mistaken for drift.
+   *
+   * @return how many users and teams have counts that differ from the recount.
+   */
+  public BlockStatsDrift check() {
+    long startNanos = System.nanoTime();
+    BlockStatsDrift result =
+        db.transactionResult(
+            config -> {
+              DSLContext ctx = DSL.using(config);
+              ctx.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ");
+              return compare(ctx);
+            });
+
+    checks.increment();
+    checkLatency.recordSince(startNanos);
+    if (result.getUsersDiffering() > 0 || result.getTeamsDiffering() > 0) {
+      drift.add(result.getUsersDiffering() + result.getTeamsDiffering());
+      logger.error(
+          String.format(
+              "The block stats differed from the block table for %d users and %d teams",
+              result.getUsersDiffering(), result.getTeamsDiffering()));
+    }
+    return result;
+  }
+
+  /**
+   * Replace every count with a recount of the block table. Block and membership changes wait until
+   * the rebuild is committed, so that none are lost from the new counts.
+   *
+   * @return how many users and teams had counts that differed from the recount before the rebuild.
+   */
+  public BlockStatsDrift rebuild() {
+    BlockStatsDrift result =
+        db.transactionResult(
+            config -> {
+              DSLContext ctx = DSL.using(config);
+              ctx.execute("LOCK TABLE block, user_team IN SHARE ROW EXCLUSIVE MODE");
+              BlockStatsDrift differing = compare(ctx);
+
+              ctx.deleteFrom(USER_BLOCK_STATS).execute();
+              ctx.insertInto(
+                      USER_BLOCK_STATS,
+                      USER_BLOCK_STATS.USER_ID,
+                      USER_BLOCK_STATS.COMPLETED,
+                      USER_BLOCK_STATS.RESERVED)
+                  .select(countUserBlocks(ctx))
+                  .execute();
+              ctx.deleteFrom(TEAM_BLOCK_STATS).execute();
+              ctx.insertInto(
+                      TEAM_BLOCK_STATS,
+                      TEAM_BLOCK_STATS.TEAM_ID,
+                      TEAM_BLOCK_STATS.COMPLETED,
+                      TEAM_BLOCK_STATS.RESERVED)
+                  .select(countTeamBlocks(ctx))
+                  .execute();
+              return differing;
+            });
+
+    rebuilds.increment();
+    logger.info(
+        String.format(
+            "Rebuilt the block stats, which differed for %d users and %d teams",
+            result.getUsersDiffering(), result.getTeamsDiffering()));
+    return result;
+  }
+
+  private BlockStatsDrift compare(DSLContext ctx) {
+    int users =
+        countDiffering(
+            countUserBlocks(ctx).fetch(),
+            ctx.select(
+                    USER_BLOCK_STATS.USER_ID, USER_BLOCK_STATS.COMPLETED, USER_BLOCK_STATS.RESERVED)
+                .from(USER_BLOCK_STATS)
+                .fetch());
+    int teams =
+        countDiffering(
+            countTeamBlocks(ctx).fetch(),
+            ctx.select(
+                    TEAM_BLOCK_STATS.TEAM_ID, TEAM_BLOCK_STATS.COMPLETED, TEAM_BLOCK_STATS.RESERVED)
+                .from(TEAM_BLOCK_STATS)
+                .fetch());
+    return new BlockStatsDrift(users, teams);
+  }
+
+  /** Count the completed and reserved blocks assigned to each user. */
+  private static Select<Record3<Integer, Integer, Integer>> countUserBlocks(DSLContext ctx) {
+    return ctx.select(
+            BLOCK.ASSIGNED_TO,
+            countWithStatus(BlockStatus.DONE),
+            countWithStatus(BlockStatus.RESERVED))
+        .from(BLOCK)
+        .where(BLOCK.ASSIGNED_TO.isNotNull())
+        .groupBy(BLOCK.ASSIGNED_TO);
+  }
+
+  /** Count the completed and reserved blocks assigned to the leader and members of each team. */
+  private static Select<Record3<Integer, Integer, Integer>> countTeamBlocks(DSLContext ctx) {
+    return ctx.select(
+            USER_TEAM.TEAM_ID,
+            countWithStatus(BlockStatus.DONE),
+            countWithStatus(BlockStatus.RESERVED))
+        .from(BLOCK)
+        .join(USER_TEAM)
+        .on(USER_TEAM.USER_ID.eq(BLOCK.ASSIGNED_TO))
+        .and(USER_TEAM.TEAM_ROLE.in(TeamRole.LEADER, TeamRole.MEMBER))
+        .groupBy(USER_TEAM.TEAM_ID);
+  }
+
+  private static Field<Integer> countWithStatus(BlockStatus status) {
+    return DSL.count().filterWhere(BLOCK.STATUS.eq(status));
+  }
+
+  /**
+   * @param counted the recounted completed and reserved blocks, keyed by the first field.
+   * @param stored the stored counts, in the same form.
+   * @return the number of keys whose counts differ, where a missing key counts as no blocks.
+   */
+  private static int countDiffering(
+      Result<Record3<Integer, Integer, Integer>> counted,
+      Result<Record3<Integer, Integer, Integer>> stored) {
+    Map<Integer, List<Integer>> expected = toCounts(counted);
+    Map<Integer, List<Integer>> actual = toCounts(stored);
+
+    Set<Integer> ids = new HashSet<>(expected.keySet());
+    ids.addAll(actual.keySet());
+    int differing = 0;
+    for (Integer id : ids) {
+      if (!Objects.equals(expected.get(id), actual.get(id))) {
+        differing++;
+      }
+    }
+    return differing;
+  }
+
+  private static Map<Integer, List<Integer>> toCounts(
+      Result<Record3<Integer, Integer, Integer>> records) {
+    Map<Integer, List<Integer>> counts = new HashMap<>();
+    for (Record3<Integer, Integer, Integer> record : records) {
+      if (record.value2() != 0 || record.value3() != 0) {
+        counts.put(record.value1(), Arrays.asList(record.value2(), record.value3()));
+      }
+    }
+    return counts;
+  }
+}
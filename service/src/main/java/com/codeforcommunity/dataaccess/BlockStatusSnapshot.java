@@ -0,0 +1,208 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.jooq.generated.Tables.BLOCK;
+
+import com.codeforcommunity.dto.map.EncodedResource;
+import com.codeforcommunity.enums.BlockStatus;
+import com.codeforcommunity.logger.SLogger;
+import com.codeforcommunity.metrics.Metrics;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.jooq.DSLContext;
+import org.jooq.Record2;
+import org.jooq.Result;
+
+/**
+ * The status of every block packed into 2 bits per block, for clients that paint the whole map.
+ *
+ * <p>Blocks are ordered by ID, and that order is published separately as a dictionary of block IDs
+ * with a version, which is a digest of the IDs, so it is the same on every server and changes only
+ * when the IDs do. A snapshot starts with the version of the dictionary it was built against and
+ * the number of blocks (both 4 byte big-endian integers), followed by the statuses: the status of
+ * block {@code i} is in bits {@code 2 * (i % 4)} and {@code 2 * (i % 4) + 1} of byte {@code i / 4}.
+ *
+ * <p>The snapshot is loaded from the block table once and then updated in place with the changes
+ * published by the {@link BlockStateIndex}. A change to a block that is not in the dictionary, such
+ * as a newly added block, reloads both on a worker thread. Changes published while the table is
+ * read are applied again to what was read, so none of them are lost.
+ */
+public class BlockStatusSnapshot implements BlockChangeListener {
+  private static final int HEADER_BYTES = 8;
+  private static final int BLOCKS_PER_BYTE = 4;
+
+  private final SLogger logger = new SLogger(BlockStatusSnapshot.class);
+
+  private final Vertx vertx;
+  private final DSLContext db;
+
+  // All guarded by this
+  private Map<String, Integer> blockIndexes;
+  private EncodedResource encodedDictionary;
+  private byte[] statuses;
+  private EncodedResource encodedStatuses;
+  // The changes published since a reload started reading the table, or null if none is running
+  private List<BlockChange> changesDuringReload;
+
+  private final AtomicBoolean reloadScheduled = new AtomicBoolean();
+  private final LongAdder reloads = Metrics.counter("block_snapshot.reloads");
+
+  public BlockStatusSnapshot(Vertx vertx, DSLContext db) {
+    this.vertx = vertx;
+    this.db = db;
+    reload();
+    Metrics.gauge("block_snapshot.blocks", this::size);
+  }
+
+  @Override
+  public synchronized void onBlocksChanged(List<BlockChange> changes) {
+    if (changesDuringReload != null) {
+      changesDuringReload.addAll(changes);
+    }
+    if (!apply(changes)) {
+      // A block that was added to the table since the dictionary was built
+      scheduleReload();
+    }
+  }
+
+  /**
+   * Set the status of each changed block in the snapshot.
+   *
+   * @return false if any of the blocks is not in the dictionary.
+   */
+  private boolean apply(List<BlockChange> changes) {
+    boolean allKnown = true;
+    for (BlockChange change : changes) {
+      Integer index = blockIndexes.get(change.getBlockId());
+      if (index == null) {
+        allKnown = false;
+        continue;
+      }
+
+      int shift = 2 * (index % BLOCKS_PER_BYTE);
+      int position = HEADER_BYTES + index / BLOCKS_PER_BYTE;
+      statuses[position] =
+          (byte)
+              ((statuses[position] & ~(0b11 << shift)) | (change.getNewStatus().getVal() << shift));
+    }
+    if (!changes.isEmpty()) {
+      encodedStatuses = null;
+    }
+    return allKnown;
+  }
+
+  /** Reload on a worker thread, unless a reload is already waiting to run. */
+  private void scheduleReload() {
+    if (!reloadScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    vertx.executeBlocking(
+        promise -> {
+          reloadScheduled.set(false);
+          reload();
+          promise.complete();
+        },
+        false,
+        ar -> {
+          if (ar.failed()) {
+            logger.error("Failed to reload the block status snapshot", ar.cause());
+          }
+        });
+  }
+
+  /** @return the number of blocks in the snapshot. */
+  public synchronized int size() {
+    return blockIndexes.size();
+  }
+
+  /** @return the dictionary of block IDs, as JSON with its version. */
+  public synchronized EncodedResource getDictionary() {
+    return encodedDictionary;
+  }
+
+  /** @return the packed statuses of every block. */
+  public synchronized EncodedResource getStatuses() {
+    // Encoded on read, so a burst of changes is only encoded once
+    if (encodedStatuses == null) {
+      encodedStatuses = EncodedResource.of(statuses.clone(), "application/octet-stream");
+    }
+    return encodedStatuses;
+  }
+
+  /**
+   * Rebuild the dictionary and the snapshot from the block table. The table is read without holding
+   * the lock, so changes keep being applied while it is read.
+   */
+  public void reload() {
+    reloads.increment();
+    synchronized (this) {
+      changesDuringReload = new ArrayList<>();
+    }
+    Result<Record2<String, BlockStatus>> blocks;
+    try {
+      blocks = db.select(BLOCK.ID, BLOCK.STATUS).from(BLOCK).orderBy(BLOCK.ID).fetch();
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        changesDuringReload = null;
+      }
+      throw e;
+    }
+
+    List<String> ids = blocks.getValues(BLOCK.ID);
+    Map<String, Integer> indexes = new HashMap<>();
+    for (int i = 0; i < ids.size(); i++) {
+      indexes.put(ids.get(i), i);
+    }
+    int version = version(ids);
+
+    byte[] packed = new byte[HEADER_BYTES + (ids.size() + BLOCKS_PER_BYTE - 1) / BLOCKS_PER_BYTE];
+    ByteBuffer.wrap(packed).putInt(version).putInt(ids.size());
+    for (int i = 0; i < ids.size(); i++) {
+      int shift = 2 * (i % BLOCKS_PER_BYTE);
+      packed[HEADER_BYTES + i / BLOCKS_PER_BYTE] |= blocks.get(i).value2().getVal() << shift;
+    }
+    EncodedResource dictionary =
+        EncodedResource.of(
+            new JsonObject()
+                .put("version", version)
+                .put("ids", new JsonArray(ids))
+                .toBuffer()
+                .getBytes(),
+            "application/json");
+
+    synchronized (this) {
+      this.blockIndexes = indexes;
+      this.encodedDictionary = dictionary;
+      this.statuses = packed;
+      this.encodedStatuses = null;
+      // Applied in the order they were published, so the last one for each block wins whether or
+      // not the table read already saw it
+      apply(changesDuringReload);
+      changesDuringReload = null;
+    }
+  }
+
+  /** @return the first 4 bytes of the SHA-256 digest of the block IDs, in order. */
+  private static int version(List<String> ids) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (String id : ids) {
+        digest.update(id.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+      }
+      return ByteBuffer.wrap(digest.digest()).getInt();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.codeforcommunity.dataaccess;
+
+import com.codeforcommunity.metrics.Metrics;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+
+/**
+ * Creates the pooled {@link DataSource} that the application's {@link org.jooq.DSLContext} runs on,
+ * configured from the {@code database.pool.*} keys of db.properties. The pool's utilization, the
+ * time spent waiting for a connection and acquisition timeouts are published to {@link Metrics}.
+ */
+public class ConnectionPool {
+  private static final String POOL_NAME = "sftt-db-pool";
+
+  private ConnectionPool() {}
+
+  /**
+   * Create a connection pool from the given database properties.
+   *
+   * @param dbProperties the contents of db.properties.
+   * @return the pooled data source.
+   */
+  public static DataSource create(Properties dbProperties) {
+    HikariConfig config = new HikariConfig();
+    config.setPoolName(POOL_NAME);
+    config.setDriverClassName(dbProperties.getProperty("database.driver"));
+    config.setJdbcUrl(dbProperties.getProperty("database.url"));
+    config.setUsername(dbProperties.getProperty("database.username"));
+    config.setPassword(dbProperties.getProperty("database.password"));
+
+    config.setMinimumIdle(getInt(dbProperties, "database.pool.min_idle", 2));
+    config.setMaximumPoolSize(getInt(dbProperties, "database.pool.max_size", 20));
+    config.setConnectionTimeout(getLong(dbProperties, "database.pool.connection_timeout_ms", 5000));
+    config.setIdleTimeout(getLong(dbProperties, "database.pool.idle_timeout_ms", 600000));
+    config.setMaxLifetime(getLong(dbProperties, "database.pool.max_lifetime_ms", 1800000));
+    // Connections are validated with Connection.isValid before being handed out
+    config.setValidationTimeout(getLong(dbProperties, "database.pool.validation_timeout_ms", 3000));
+    config.setLeakDetectionThreshold(
+        getLong(dbProperties, "database.pool.leak_detection_threshold_ms", 30000));
+
+    config.setMetricsTrackerFactory(new PoolMetricsTrackerFactory());
+
+    return new HikariDataSource(config);
+  }
+
+  private static int getInt(Properties properties, String key, int defaultValue) {
+    return Integer.parseInt(properties.getProperty(key, String.valueOf(defaultValue)).trim());
+  }
+
+  private static long getLong(Properties properties, String key, long defaultValue) {
+    return Long.parseLong(properties.getProperty(key, String.valueOf(defaultValue)).trim());
+  }
+
+  /** Registers the pool's statistics as gauges and its timings as summaries. */
+  private static class PoolMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+      Metrics.gauge("db_pool.total", poolStats::getTotalConnections);
+      Metrics.gauge("db_pool.active", poolStats::getActiveConnections);
+      Metrics.gauge("db_pool.idle", poolStats::getIdleConnections);
+      Metrics.gauge("db_pool.pending", poolStats::getPendingThreads);
+      Metrics.gauge("db_pool.max", poolStats::getMaxConnections);
+
+      return new PoolMetricsTracker();
+    }
+  }
+
+  private static class PoolMetricsTracker implements IMetricsTracker {
+    private final Metrics.Summary acquireTime = Metrics.summary("db_pool.acquire_us");
+    private final Metrics.Summary usageTime = Metrics.summary("db_pool.usage_ms");
+    private final LongAdder timeouts = Metrics.counter("db_pool.timeouts");
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+      acquireTime.record(TimeUnit.NANOSECONDS.toMicros(elapsedAcquiredNanos));
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+      usageTime.record(elapsedBorrowedMillis);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+      timeouts.increment();
+    }
+  }
+}
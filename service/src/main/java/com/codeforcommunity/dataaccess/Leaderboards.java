@@ -0,0 +1,278 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.jooq.generated.Tables.USER_BLOCK_STATS;
+import static org.jooq.generated.Tables.USER_TEAM;
+
+import com.codeforcommunity.enums.BlockStatus;
+import com.codeforcommunity.enums.TeamRole;
+import com.codeforcommunity.logger.SLogger;
+import com.codeforcommunity.metrics.Metrics;
+import io.vertx.core.Vertx;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import org.jooq.DSLContext;
+import org.jooq.Record2;
+import org.jooq.Record3;
+import org.jooq.Result;
+
+/**
+ * The user and team leaderboards, held in memory as {@link Ranking}s so that the top users and
+ * teams, and the rank of any one of them, are found without querying the database.
+ *
+ * <p>The rankings are loaded from the block stats and team memberships, and then updated as block
+ * changes are applied to the {@link BlockStateIndex}. A team's counts are the sum of the counts of
+ * its leader and members, so a team must be refreshed whenever its membership changes. The rankings
+ * are periodically reloaded to correct anything that was missed.
+ */
+public class Leaderboards implements BlockChangeListener {
+  // The number of times a reload reads the database without the lock before reading it with the
+  // lock
+  private static final int UNLOCKED_RELOAD_ATTEMPTS = 3;
+
+  private final SLogger logger = new SLogger(Leaderboards.class);
+  private final DSLContext db;
+
+  // All guarded by this
+  private final Ranking users = new Ranking();
+  private final Ranking teams = new Ranking();
+  // The teams each user counts towards, and the users counting towards each team
+  private final Map<Integer, Set<Integer>> userTeams = new HashMap<>();
+  private final Map<Integer, Set<Integer>> teamMembers = new HashMap<>();
+  // Incremented by every change, so a reload can tell whether the rankings changed while it ran
+  private long modCount;
+
+  private final LongAdder reloads = Metrics.counter("leaderboards.reloads");
+  private final LongAdder retriedReloads = Metrics.counter("leaderboards.retried_reloads");
+
+  public Leaderboards(DSLContext db) {
+    this.db = db;
+    Result<Record3<Integer, Integer, Integer>> stats = fetchUserStats();
+    Result<Record2<Integer, Integer>> memberships = fetchMemberships();
+    synchronized (this) {
+      rebuild(stats, memberships);
+    }
+    Metrics.gauge("leaderboards.users", this::getUserCount);
+    Metrics.gauge("leaderboards.teams", this::getTeamCount);
+  }
+
+  /** Reload the rankings from the database every {@code intervalMs}, off of the event loop. */
+  public void startReloads(Vertx vertx, long intervalMs) {
+    vertx.setPeriodic(
+        intervalMs,
+        timerId ->
+            vertx.executeBlocking(
+                promise -> {
+                  reload();
+                  promise.complete();
+                },
+                false,
+                ar -> {
+                  if (ar.failed()) {
+                    logger.error("Failed to reload the leaderboards", ar.cause());
+                  }
+                }));
+  }
+
+  @Override
+  public synchronized void onBlocksChanged(List<BlockChange> changes) {
+    for (BlockChange change : changes) {
+      count(change.getOldAssignee(), change.getOldStatus(), -1);
+      count(change.getNewAssignee(), change.getNewStatus(), 1);
+    }
+    modCount++;
+  }
+
+  /** @return up to the given number of users with the most blocks, in rank order. */
+  public synchronized List<Ranking.Entry> getTopUsers(int count) {
+    return users.getTop(count);
+  }
+
+  /** @return up to the given number of teams with the most blocks, in rank order. */
+  public synchronized List<Ranking.Entry> getTopTeams(int count) {
+    return teams.getTop(count);
+  }
+
+  /** @return the user's counts, or null if they have no completed or reserved blocks. */
+  public synchronized Ranking.Entry getUser(int userId) {
+    return users.get(userId);
+  }
+
+  /** @return the team's counts, or null if it has no completed or reserved blocks. */
+  public synchronized Ranking.Entry getTeam(int teamId) {
+    return teams.get(teamId);
+  }
+
+  /** @return the user's position on the leaderboard, starting from 1, or 0 if not on it. */
+  public synchronized int getUserRank(int userId) {
+    return users.getRank(userId);
+  }
+
+  /** @return the team's position on the leaderboard, starting from 1, or 0 if not on it. */
+  public synchronized int getTeamRank(int teamId) {
+    return teams.getRank(teamId);
+  }
+
+  /** @return the number of users on the leaderboard. */
+  public synchronized int getUserCount() {
+    return users.size();
+  }
+
+  /** @return the number of teams on the leaderboard. */
+  public synchronized int getTeamCount() {
+    return teams.size();
+  }
+
+  /**
+   * Reload the leader and members of the given team and recount it. This must be called once a
+   * change to the team's membership has been committed, including when the team is deleted.
+   */
+  public void refreshTeam(int teamId) {
+    Set<Integer> members =
+        new HashSet<>(
+            db.select(USER_TEAM.USER_ID)
+                .from(USER_TEAM)
+                .where(USER_TEAM.TEAM_ID.eq(teamId))
+                .and(USER_TEAM.TEAM_ROLE.in(TeamRole.LEADER, TeamRole.MEMBER))
+                .fetch(USER_TEAM.USER_ID));
+
+    synchronized (this) {
+      Set<Integer> oldMembers = teamMembers.getOrDefault(teamId, Collections.emptySet());
+      for (Integer userId : oldMembers) {
+        if (!members.contains(userId)) {
+          removeFrom(userTeams, userId, teamId);
+        }
+      }
+      for (Integer userId : members) {
+        userTeams.computeIfAbsent(userId, id -> new HashSet<>()).add(teamId);
+      }
+      if (members.isEmpty()) {
+        teamMembers.remove(teamId);
+      } else {
+        teamMembers.put(teamId, members);
+      }
+
+      int completed = 0;
+      int reserved = 0;
+      for (Integer userId : members) {
+        Ranking.Entry user = users.get(userId);
+        if (user != null) {
+          completed += user.getCompleted();
+          reserved += user.getReserved();
+        }
+      }
+      teams.set(teamId, completed, reserved);
+      modCount++;
+    }
+  }
+
+  /**
+   * Remove a deleted user from the leaderboard. The teams they were on must be refreshed
+   * separately.
+   */
+  public synchronized void removeUser(int userId) {
+    users.set(userId, 0, 0);
+    modCount++;
+  }
+
+  /**
+   * Replace the rankings with the block stats and memberships in the database. They are read
+   * without holding the lock, and read again if the rankings changed meanwhile, as the read may or
+   * may not include the change. After {@link #UNLOCKED_RELOAD_ATTEMPTS} such reads they are read
+   * with the lock held, holding back changes for that one read, so that a reload is always applied
+   * however busy the rankings are.
+   */
+  public void reload() {
+    for (int attempt = 0; attempt < UNLOCKED_RELOAD_ATTEMPTS; attempt++) {
+      long startModCount;
+      synchronized (this) {
+        startModCount = modCount;
+      }
+      Result<Record3<Integer, Integer, Integer>> stats = fetchUserStats();
+      Result<Record2<Integer, Integer>> memberships = fetchMemberships();
+
+      synchronized (this) {
+        if (modCount == startModCount) {
+          rebuild(stats, memberships);
+          reloads.increment();
+          return;
+        }
+      }
+      retriedReloads.increment();
+    }
+
+    synchronized (this) {
+      rebuild(fetchUserStats(), fetchMemberships());
+      reloads.increment();
+    }
+  }
+
+  Result<Record3<Integer, Integer, Integer>> fetchUserStats() {
+    return db.select(
+            USER_BLOCK_STATS.USER_ID, USER_BLOCK_STATS.COMPLETED, USER_BLOCK_STATS.RESERVED)
+        .from(USER_BLOCK_STATS)
+        .fetch();
+  }
+
+  Result<Record2<Integer, Integer>> fetchMemberships() {
+    return db.select(USER_TEAM.USER_ID, USER_TEAM.TEAM_ID)
+        .from(USER_TEAM)
+        .where(USER_TEAM.TEAM_ROLE.in(TeamRole.LEADER, TeamRole.MEMBER))
+        .fetch();
+  }
+
+  private void rebuild(
+      Result<Record3<Integer, Integer, Integer>> stats,
+      Result<Record2<Integer, Integer>> memberships) {
+    users.clear();
+    teams.clear();
+    userTeams.clear();
+    teamMembers.clear();
+
+    for (Record3<Integer, Integer, Integer> user : stats) {
+      users.set(user.value1(), user.value2(), user.value3());
+    }
+    for (Record2<Integer, Integer> membership : memberships) {
+      int userId = membership.value1();
+      int teamId = membership.value2();
+      userTeams.computeIfAbsent(userId, id -> new HashSet<>()).add(teamId);
+      teamMembers.computeIfAbsent(teamId, id -> new HashSet<>()).add(userId);
+      Ranking.Entry user = users.get(userId);
+      if (user != null) {
+        teams.add(teamId, user.getCompleted(), user.getReserved());
+      }
+    }
+    modCount++;
+  }
+
+  /** Add one block with the given status to the counts of a user and of their teams. */
+  private void count(Integer userId, BlockStatus status, int delta) {
+    if (userId == null || status == null) {
+      return;
+    }
+    int completed = status == BlockStatus.DONE ? delta : 0;
+    int reserved = status == BlockStatus.RESERVED ? delta : 0;
+    if (completed == 0 && reserved == 0) {
+      return;
+    }
+
+    users.add(userId, completed, reserved);
+    for (Integer teamId : userTeams.getOrDefault(userId, Collections.emptySet())) {
+      teams.add(teamId, completed, reserved);
+    }
+  }
+
+  private static void removeFrom(Map<Integer, Set<Integer>> sets, int key, int value) {
+    Set<Integer> set = sets.get(key);
+    if (set != null) {
+      set.remove(value);
+      if (set.isEmpty()) {
+        sets.remove(key);
+      }
+    }
+  }
+}
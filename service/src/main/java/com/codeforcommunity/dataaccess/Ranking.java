@@ -0,0 +1,218 @@
+package com.codeforcommunity.dataaccess;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Users or teams ranked by their number of completed blocks, then their number of reserved blocks.
+ * Entries without any completed or reserved blocks are not ranked.
+ *
+ * <p>Ranked entries are kept in a treap ordered by most completed, most reserved and then lowest
+ * ID, in which every node knows the size of its subtree. Changing an entry, finding its rank and
+ * finding the top k entries all take O(log n) expected time, plus O(k) to list the entries.
+ *
+ * <p>This is not thread safe.
+ */
+public class Ranking {
+  private final Random random = new Random();
+  private final Map<Integer, Entry> entries = new HashMap<>();
+  private Entry root;
+
+  /** @return the number of ranked entries. */
+  public int size() {
+    return size(root);
+  }
+
+  /** @return the entry with the given ID, or null if it is not ranked. */
+  public Entry get(int id) {
+    return entries.get(id);
+  }
+
+  /**
+   * @return the position of the entry with the given ID, where entries with the same counts share a
+   *     position, starting from 1, or 0 if it is not ranked.
+   */
+  public int getRank(int id) {
+    Entry entry = entries.get(id);
+    if (entry == null) {
+      return 0;
+    }
+    return countBefore(entry.completed, entry.reserved, Integer.MIN_VALUE) + 1;
+  }
+
+  /** @return up to the first {@code count} entries, in rank order. */
+  public List<Entry> getTop(int count) {
+    List<Entry> top = new ArrayList<>(Math.min(count, size()));
+    Deque<Entry> path = new ArrayDeque<>();
+    Entry node = root;
+    while (top.size() < count && (node != null || !path.isEmpty())) {
+      if (node != null) {
+        path.push(node);
+        node = node.left;
+      } else {
+        node = path.pop();
+        top.add(node);
+        node = node.right;
+      }
+    }
+    return top;
+  }
+
+  /** Set the counts of the entry with the given ID, ranking or unranking it as needed. */
+  public void set(int id, int completed, int reserved) {
+    Entry old = entries.get(id);
+    if (old != null) {
+      if (old.completed == completed && old.reserved == reserved) {
+        return;
+      }
+      remove(old);
+    }
+    if (completed != 0 || reserved != 0) {
+      insert(new Entry(id, completed, reserved, random.nextInt()));
+    }
+  }
+
+  /** Add to the counts of the entry with the given ID. */
+  public void add(int id, int completed, int reserved) {
+    Entry old = entries.get(id);
+    if (old == null) {
+      set(id, completed, reserved);
+    } else {
+      set(id, old.completed + completed, old.reserved + reserved);
+    }
+  }
+
+  /** Remove every entry. */
+  public void clear() {
+    entries.clear();
+    root = null;
+  }
+
+  private void insert(Entry entry) {
+    Entry[] parts = split(root, entry.completed, entry.reserved, entry.id);
+    root = merge(merge(parts[0], entry), parts[1]);
+    entries.put(entry.id, entry);
+  }
+
+  private void remove(Entry entry) {
+    Entry[] parts = split(root, entry.completed, entry.reserved, entry.id);
+    Entry[] rest = split(parts[1], entry.completed, entry.reserved, entry.id + 1);
+    root = merge(parts[0], rest[1]);
+    entries.remove(entry.id);
+  }
+
+  /** @return the number of entries ordered before the given counts and ID. */
+  private int countBefore(int completed, int reserved, int id) {
+    int count = 0;
+    Entry node = root;
+    while (node != null) {
+      if (isBefore(node, completed, reserved, id)) {
+        count += size(node.left) + 1;
+        node = node.right;
+      } else {
+        node = node.left;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Split a subtree into the entries ordered before the given counts and ID, and the rest.
+   *
+   * @return the two subtrees, either of which may be null.
+   */
+  private static Entry[] split(Entry node, int completed, int reserved, int id) {
+    if (node == null) {
+      return new Entry[2];
+    }
+    if (isBefore(node, completed, reserved, id)) {
+      Entry[] parts = split(node.right, completed, reserved, id);
+      node.right = parts[0];
+      update(node);
+      parts[0] = node;
+      return parts;
+    } else {
+      Entry[] parts = split(node.left, completed, reserved, id);
+      node.left = parts[1];
+      update(node);
+      parts[1] = node;
+      return parts;
+    }
+  }
+
+  /** Join two subtrees, where every entry of the first is ordered before those of the second. */
+  private static Entry merge(Entry first, Entry second) {
+    if (first == null) {
+      return second;
+    }
+    if (second == null) {
+      return first;
+    }
+    if (first.priority > second.priority) {
+      first.right = merge(first.right, second);
+      update(first);
+      return first;
+    } else {
+      second.left = merge(first, second.left);
+      update(second);
+      return second;
+    }
+  }
+
+  private static boolean isBefore(Entry node, int completed, int reserved, int id) {
+    if (node.completed != completed) {
+      return node.completed > completed;
+    }
+    if (node.reserved != reserved) {
+      return node.reserved > reserved;
+    }
+    return node.id < id;
+  }
+
+  private static void update(Entry node) {
+    node.size = size(node.left) + size(node.right) + 1;
+  }
+
+  private static int size(Entry node) {
+    return node == null ? 0 : node.size;
+  }
+
+  /** A ranked user or team and its counts. */
+  public static class Entry {
+    private final int id;
+    private final int completed;
+    private final int reserved;
+    private final int priority;
+    private Entry left;
+    private Entry right;
+    private int size = 1;
+
+    public Entry(int id, int completed, int reserved) {
+      this(id, completed, reserved, 0);
+    }
+
+    private Entry(int id, int completed, int reserved, int priority) {
+      this.id = id;
+      this.completed = completed;
+      this.reserved = reserved;
+      this.priority = priority;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public int getCompleted() {
+      return completed;
+    }
+
+    public int getReserved() {
+      return reserved;
+    }
+  }
+}
@@ -0,0 +1,224 @@
+package com.codeforcommunity.dataaccess;
+
+import com.codeforcommunity.dto.team.TeamMember;
+import com.codeforcommunity.enums.TeamRole;
+import com.codeforcommunity.metrics.Metrics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.jooq.generated.tables.pojos.Team;
+
+/**
+ * A bounded cache of teams with their members and block counts, which evicts the least recently
+ * used team once it is full. Nothing in it depends on who is asking, so it is shared by every user.
+ *
+ * <p>A team must be invalidated whenever its membership changes. A user must be invalidated
+ * whenever anything shown for them on a team page changes, which invalidates every cached team they
+ * are on, and is done for every user whose blocks change.
+ *
+ * <p>Teams are loaded outside of the cache's lock. A team that was loaded while anything was
+ * invalidated is returned but not cached, since it may have been read before the change.
+ */
+public class TeamCache implements BlockChangeListener {
+  private final int maxSize;
+
+  // All guarded by teams
+  private final Map<Integer, CachedTeam> teams;
+  // The cached teams each user is a leader, member or applicant of
+  private final Map<Integer, Set<Integer>> userTeams = new HashMap<>();
+  // Incremented by every invalidation, so a load can tell whether it may be out of date
+  private long modCount;
+
+  private final LongAdder hits = Metrics.counter("teams.cache_hits");
+  private final LongAdder misses = Metrics.counter("teams.cache_misses");
+  private final LongAdder invalidations = Metrics.counter("teams.cache_invalidations");
+
+  /** @param maxSize the largest number of teams to keep. */
+  public TeamCache(int maxSize) {
+    this.maxSize = maxSize;
+    this.teams =
+        new LinkedHashMap<Integer, CachedTeam>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Integer, CachedTeam> eldest) {
+            if (size() > TeamCache.this.maxSize) {
+              unindex(eldest.getValue());
+              return true;
+            }
+            return false;
+          }
+        };
+
+    Metrics.gauge("teams.cache_size", this::size);
+  }
+
+  /**
+   * Get a team from the cache, loading and caching it if it is not there.
+   *
+   * @param teamId the ID of the team.
+   * @param load loads the team, or returns null if it does not exist.
+   * @return the team, or null if it does not exist.
+   */
+  public CachedTeam get(int teamId, Supplier<CachedTeam> load) {
+    long startModCount;
+    synchronized (teams) {
+      CachedTeam team = teams.get(teamId);
+      if (team != null) {
+        hits.increment();
+        return team;
+      }
+      startModCount = modCount;
+    }
+
+    misses.increment();
+    CachedTeam team = load.get();
+    if (team == null) {
+      return null;
+    }
+
+    synchronized (teams) {
+      if (modCount == startModCount) {
+        unindex(teams.put(teamId, team));
+        for (TeamMember member : team.getMembers()) {
+          userTeams.computeIfAbsent(member.getId(), id -> new HashSet<>()).add(teamId);
+        }
+      }
+    }
+    return team;
+  }
+
+  /** Drop a team whose membership changed, or that was deleted. */
+  public void invalidate(int teamId) {
+    synchronized (teams) {
+      modCount++;
+      unindex(teams.remove(teamId));
+    }
+    invalidations.increment();
+  }
+
+  /** Drop every team the given user is on, as their username or block counts changed. */
+  public void invalidateUser(int userId) {
+    synchronized (teams) {
+      modCount++;
+      Set<Integer> teamIds = userTeams.getOrDefault(userId, Collections.emptySet());
+      for (Integer teamId : new ArrayList<>(teamIds)) {
+        unindex(teams.remove(teamId));
+      }
+    }
+    invalidations.increment();
+  }
+
+  @Override
+  public void onBlocksChanged(List<BlockChange> changes) {
+    Set<Integer> users = new HashSet<>();
+    for (BlockChange change : changes) {
+      if (change.getOldAssignee() != null) {
+        users.add(change.getOldAssignee());
+      }
+      if (change.getNewAssignee() != null) {
+        users.add(change.getNewAssignee());
+      }
+    }
+    for (Integer userId : users) {
+      invalidateUser(userId);
+    }
+  }
+
+  /** @return the number of cached teams. */
+  public int size() {
+    synchronized (teams) {
+      return teams.size();
+    }
+  }
+
+  private void unindex(CachedTeam team) {
+    if (team == null) {
+      return;
+    }
+    int teamId = team.getTeam().getId();
+    for (TeamMember member : team.getMembers()) {
+      Set<Integer> memberTeams = userTeams.get(member.getId());
+      if (memberTeams != null) {
+        memberTeams.remove(teamId);
+        if (memberTeams.isEmpty()) {
+          userTeams.remove(member.getId());
+        }
+      }
+    }
+  }
+
+  /** A team with its leader, members and applicants, and the totals of its leader and members. */
+  public static class CachedTeam {
+    private final Team team;
+    private final List<TeamMember> members;
+    private final List<TeamMember> activeMembers;
+    private final int blocksCompleted;
+    private final int blocksReserved;
+    private final boolean hasApplicants;
+
+    /** @param members the leader, members and applicants of the team, in display order. */
+    public CachedTeam(Team team, List<TeamMember> members) {
+      this.team = team;
+      this.members = Collections.unmodifiableList(new ArrayList<>(members));
+
+      List<TeamMember> active = new ArrayList<>();
+      int completed = 0;
+      int reserved = 0;
+      boolean applicants = false;
+      for (TeamMember member : members) {
+        if (member.getRole() == TeamRole.LEADER || member.getRole() == TeamRole.MEMBER) {
+          active.add(member);
+          completed += member.getBlocksCompleted();
+          reserved += member.getBlocksReserved();
+        } else if (member.getRole() == TeamRole.PENDING) {
+          applicants = true;
+        }
+      }
+      this.activeMembers = Collections.unmodifiableList(active);
+      this.blocksCompleted = completed;
+      this.blocksReserved = reserved;
+      this.hasApplicants = applicants;
+    }
+
+    public Team getTeam() {
+      return team;
+    }
+
+    public List<TeamMember> getMembers() {
+      return members;
+    }
+
+    /** @return the leader and members of the team. */
+    public List<TeamMember> getActiveMembers() {
+      return activeMembers;
+    }
+
+    public int getBlocksCompleted() {
+      return blocksCompleted;
+    }
+
+    public int getBlocksReserved() {
+      return blocksReserved;
+    }
+
+    public boolean hasApplicants() {
+      return hasApplicants;
+    }
+
+    /** @return the given user's role on the team, which is NONE if they are not on it. */
+    public TeamRole getRole(int userId) {
+      for (TeamMember member : members) {
+        if (member.getId() == userId) {
+          return member.getRole();
+        }
+      }
+      return TeamRole.NONE;
+    }
+  }
+}
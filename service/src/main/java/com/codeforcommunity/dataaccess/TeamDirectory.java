@@ -0,0 +1,339 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.jooq.generated.Tables.TEAM;
+import static org.jooq.generated.Tables.USER_TEAM;
+
+import com.codeforcommunity.enums.TeamRole;
+import com.codeforcommunity.exceptions.MalformedParameterException;
+import com.codeforcommunity.logger.SLogger;
+import com.codeforcommunity.metrics.Metrics;
+import io.vertx.core.Vertx;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import org.jooq.DSLContext;
+import org.jooq.Record3;
+import org.jooq.Result;
+import org.jooq.impl.DSL;
+
+/**
+ * Every team with a leader or members, with how many it has, held in memory in name order so that
+ * the teams can be browsed a page at a time and searched by name without querying the database.
+ *
+ * <p>Teams are ordered by name ignoring case, and then by ID. A page ends with a cursor naming the
+ * last team on it, and the next page starts after that team, so teams created or deleted between
+ * pages do not shift the pages after them. A search of one or two characters finds the teams whose
+ * names start with them. A longer search finds the teams whose names contain it, looked up by the
+ * three character sequences of their names.
+ *
+ * <p>A team must be refreshed whenever it is created or deleted, or its membership changes. The
+ * directory is periodically reloaded to correct anything that was missed.
+ */
+public class TeamDirectory {
+  private static final Comparator<Entry> BY_NAME =
+      Comparator.comparing((Entry entry) -> entry.key).thenComparingInt(entry -> entry.id);
+  private static final int TRIGRAM = 3;
+
+  private final SLogger logger = new SLogger(TeamDirectory.class);
+  private final DSLContext db;
+
+  // All guarded by this
+  private final Map<Integer, Entry> teams = new HashMap<>();
+  private final TreeSet<Entry> byName = new TreeSet<>(BY_NAME);
+  // The teams whose names contain each three character sequence
+  private final Map<String, Set<Integer>> trigrams = new HashMap<>();
+  // Incremented by every change, so a reload can tell whether the directory changed while it ran
+  private long modCount;
+
+  private final LongAdder reloads = Metrics.counter("team_directory.reloads");
+  private final LongAdder skippedReloads = Metrics.counter("team_directory.skipped_reloads");
+
+  public TeamDirectory(DSLContext db) {
+    this.db = db;
+    Result<Record3<Integer, String, Integer>> teams = fetchTeams();
+    synchronized (this) {
+      rebuild(teams);
+    }
+    Metrics.gauge("team_directory.teams", this::size);
+  }
+
+  /** Reload the directory from the database every {@code intervalMs}, off of the event loop. */
+  public void startReloads(Vertx vertx, long intervalMs) {
+    vertx.setPeriodic(
+        intervalMs,
+        timerId ->
+            vertx.executeBlocking(
+                promise -> {
+                  reload();
+                  promise.complete();
+                },
+                false,
+                ar -> {
+                  if (ar.failed()) {
+                    logger.error("Failed to reload the team directory", ar.cause());
+                  }
+                }));
+  }
+
+  /**
+   * Get a page of teams in name order.
+   *
+   * @param query only find teams whose names match this, ignoring case, or null to find every team.
+   * @param after the cursor ending the previous page, or null to get the first page.
+   * @param limit the largest number of teams to return.
+   * @throws MalformedParameterException if the cursor is not one the directory could have returned.
+   */
+  public Page find(String query, String after, int limit) {
+    Entry start = parseCursor(after);
+    String search = query == null ? "" : normalize(query.trim());
+
+    synchronized (this) {
+      if (search.length() >= TRIGRAM) {
+        return page(matchesOf(search, start).iterator(), limit, entry -> true);
+      }
+
+      // Names that start with the search are next to each other in name order
+      Entry searchStart = new Entry(Integer.MIN_VALUE, search, 0);
+      if (start == null || BY_NAME.compare(start, searchStart) < 0) {
+        start = searchStart;
+      }
+      return page(
+          byName.tailSet(start, false).iterator(), limit, entry -> entry.key.startsWith(search));
+    }
+  }
+
+  /** @return the number of teams in the directory. */
+  public synchronized int size() {
+    return teams.size();
+  }
+
+  /**
+   * Reload the name and number of leaders and members of the given team. This must be called once
+   * the team's creation, deletion or a change to its membership has been committed.
+   */
+  public void refreshTeam(int teamId) {
+    String name = db.select(TEAM.NAME).from(TEAM).where(TEAM.ID.eq(teamId)).fetchOne(TEAM.NAME);
+    int memberCount =
+        name == null
+            ? 0
+            : db.fetchCount(
+                USER_TEAM,
+                USER_TEAM
+                    .TEAM_ID
+                    .eq(teamId)
+                    .and(USER_TEAM.TEAM_ROLE.in(TeamRole.LEADER, TeamRole.MEMBER)));
+
+    synchronized (this) {
+      remove(teamId);
+      if (memberCount > 0) {
+        add(new Entry(teamId, name, memberCount));
+      }
+      modCount++;
+    }
+  }
+
+  /**
+   * Replace the directory with the teams in the database. They are read without holding the lock,
+   * so if the directory changes while they are read the reload is skipped until next time.
+   *
+   * @return whether the directory was reloaded.
+   */
+  public boolean reload() {
+    long startModCount;
+    synchronized (this) {
+      startModCount = modCount;
+    }
+    Result<Record3<Integer, String, Integer>> teams = fetchTeams();
+
+    synchronized (this) {
+      if (modCount != startModCount) {
+        skippedReloads.increment();
+        return false;
+      }
+      rebuild(teams);
+      reloads.increment();
+      return true;
+    }
+  }
+
+  private Result<Record3<Integer, String, Integer>> fetchTeams() {
+    return db.select(TEAM.ID, TEAM.NAME, DSL.count())
+        .from(TEAM)
+        .join(USER_TEAM)
+        .on(USER_TEAM.TEAM_ID.eq(TEAM.ID))
+        .where(USER_TEAM.TEAM_ROLE.in(TeamRole.LEADER, TeamRole.MEMBER))
+        .groupBy(TEAM.ID, TEAM.NAME)
+        .fetch();
+  }
+
+  private void rebuild(Result<Record3<Integer, String, Integer>> teams) {
+    this.teams.clear();
+    byName.clear();
+    trigrams.clear();
+    for (Record3<Integer, String, Integer> team : teams) {
+      add(new Entry(team.value1(), team.value2(), team.value3()));
+    }
+    modCount++;
+  }
+
+  private void add(Entry entry) {
+    teams.put(entry.id, entry);
+    byName.add(entry);
+    for (String trigram : trigramsOf(entry.key)) {
+      trigrams.computeIfAbsent(trigram, t -> new HashSet<>()).add(entry.id);
+    }
+  }
+
+  private void remove(int teamId) {
+    Entry entry = teams.remove(teamId);
+    if (entry == null) {
+      return;
+    }
+    byName.remove(entry);
+    for (String trigram : trigramsOf(entry.key)) {
+      Set<Integer> teamIds = trigrams.get(trigram);
+      teamIds.remove(teamId);
+      if (teamIds.isEmpty()) {
+        trigrams.remove(trigram);
+      }
+    }
+  }
+
+  /** @return the teams after the given one whose names contain the search, in name order. */
+  private List<Entry> matchesOf(String search, Entry start) {
+    // Every match is among the teams with the search's rarest sequence
+    Set<Integer> candidates = null;
+    for (String trigram : trigramsOf(search)) {
+      Set<Integer> teamIds = trigrams.getOrDefault(trigram, Collections.emptySet());
+      if (candidates == null || teamIds.size() < candidates.size()) {
+        candidates = teamIds;
+      }
+    }
+
+    List<Entry> matches = new ArrayList<>();
+    for (Integer teamId : candidates) {
+      Entry entry = teams.get(teamId);
+      if (entry.key.contains(search) && (start == null || BY_NAME.compare(entry, start) > 0)) {
+        matches.add(entry);
+      }
+    }
+    matches.sort(BY_NAME);
+    return matches;
+  }
+
+  private static Page page(Iterator<Entry> entries, int limit, Predicate<Entry> matches) {
+    List<Entry> page = new ArrayList<>();
+    while (entries.hasNext()) {
+      Entry entry = entries.next();
+      if (!matches.test(entry)) {
+        break;
+      }
+      if (page.size() == limit) {
+        // There is at least one more team, so the page ends with a cursor
+        return new Page(page, toCursor(page.get(page.size() - 1)));
+      }
+      page.add(entry);
+    }
+    return new Page(page, null);
+  }
+
+  private static Set<String> trigramsOf(String key) {
+    Set<String> trigramSet = new HashSet<>();
+    for (int i = 0; i + TRIGRAM <= key.length(); i++) {
+      trigramSet.add(key.substring(i, i + TRIGRAM));
+    }
+    return trigramSet;
+  }
+
+  private static String normalize(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+
+  private static String toCursor(Entry entry) {
+    String position = entry.id + ":" + entry.key;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** @return a team positioned where the given cursor names, or null if there is no cursor. */
+  private static Entry parseCursor(String after) {
+    if (after == null) {
+      return null;
+    }
+
+    try {
+      String position = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+      int separator = position.indexOf(':');
+      if (separator < 0) {
+        throw new MalformedParameterException("after");
+      }
+      return new Entry(
+          Integer.parseInt(position.substring(0, separator)), position.substring(separator + 1), 0);
+    } catch (IllegalArgumentException e) {
+      // Also thrown for cursors that are not base 64 or do not start with a number
+      throw new MalformedParameterException("after");
+    }
+  }
+
+  /** A team in the directory. */
+  public static class Entry {
+    private final int id;
+    private final String name;
+    // The name as it is ordered and searched
+    private final String key;
+    private final int memberCount;
+
+    public Entry(int id, String name, int memberCount) {
+      this.id = id;
+      this.name = name;
+      this.key = normalize(name);
+      this.memberCount = memberCount;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /** @return the number of leaders and members of the team. */
+    public int getMemberCount() {
+      return memberCount;
+    }
+  }
+
+  /** A page of teams, with the cursor to get the next page after it. */
+  public static class Page {
+    private final List<Entry> teams;
+    private final String nextCursor;
+
+    public Page(List<Entry> teams, String nextCursor) {
+      this.teams = Collections.unmodifiableList(teams);
+      this.nextCursor = nextCursor;
+    }
+
+    public List<Entry> getTeams() {
+      return teams;
+    }
+
+    /** @return the cursor to get the next page with, or null if this is the last page. */
+    public String getNextCursor() {
+      return nextCursor;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.jooq.generated.Tables.USER_TEAM;
+
+import com.codeforcommunity.enums.TeamRole;
+import com.codeforcommunity.metrics.Metrics;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.jooq.DSLContext;
+
+/**
+ * The role of each user on each team, so that checking what a user may do on a team does not query
+ * the database every time.
+ *
+ * <p>A role is loaded the first time it is asked for, including {@link TeamRole#NONE} for a user
+ * who is not on the team. Every change to a membership must be written through to the cache once it
+ * has been committed. Once the cache holds more than its maximum number of roles, arbitrary roles
+ * are dropped to make room, and are loaded again when next asked for.
+ *
+ * <p>Roles are loaded without holding any lock. A role that was loaded while anything was written
+ * through is not kept, since it may have been read before the write.
+ */
+public class TeamRoleCache {
+  private final DSLContext db;
+  private final int maxSize;
+
+  // Keyed by the user and team IDs packed into one long, see key
+  private final Map<Long, TeamRole> roles = new ConcurrentHashMap<>();
+  // Incremented before every write through, so a load can tell whether it may be out of date
+  private final AtomicLong writes = new AtomicLong();
+
+  private final LongAdder hits = Metrics.counter("team_roles.cache_hits");
+  private final LongAdder misses = Metrics.counter("team_roles.cache_misses");
+
+  /**
+   * @param db the database to load roles from.
+   * @param maxSize the largest number of roles to keep.
+   */
+  public TeamRoleCache(DSLContext db, int maxSize) {
+    this.db = db;
+    this.maxSize = maxSize;
+    Metrics.gauge("team_roles.cache_size", roles::size);
+  }
+
+  /** @return the user's role on the team, which is NONE if they are not on it. */
+  public TeamRole getRole(int userId, int teamId) {
+    long key = key(userId, teamId);
+    TeamRole role = roles.get(key);
+    if (role != null) {
+      hits.increment();
+      return role;
+    }
+
+    misses.increment();
+    long startWrites = writes.get();
+    role =
+        db.select(USER_TEAM.TEAM_ROLE)
+            .from(USER_TEAM)
+            .where(USER_TEAM.USER_ID.eq(userId))
+            .and(USER_TEAM.TEAM_ID.eq(teamId))
+            .fetchOne(USER_TEAM.TEAM_ROLE);
+    if (role == null) {
+      role = TeamRole.NONE;
+    }
+
+    if (writes.get() == startWrites && roles.putIfAbsent(key, role) == null) {
+      // A write that ran between the check and the put may have been overwritten by this role
+      if (writes.get() != startWrites) {
+        roles.remove(key, role);
+      }
+      evict();
+    }
+    return role;
+  }
+
+  /** Write through a user's new role on a team, which is NONE if they were removed from it. */
+  public void setRole(int userId, int teamId, TeamRole role) {
+    writes.incrementAndGet();
+    roles.put(key(userId, teamId), role);
+    evict();
+  }
+
+  /** Drop every role on a team, as it was deleted. */
+  public void removeTeam(int teamId) {
+    writes.incrementAndGet();
+    roles.keySet().removeIf(key -> key.intValue() == teamId);
+  }
+
+  /** Drop every role of a user, as they were deleted. */
+  public void removeUser(int userId) {
+    writes.incrementAndGet();
+    roles.keySet().removeIf(key -> (int) (key >>> 32) == userId);
+  }
+
+  /** @return the number of cached roles. */
+  public int size() {
+    return roles.size();
+  }
+
+  private void evict() {
+    Iterator<Long> keys = roles.keySet().iterator();
+    while (roles.size() > maxSize && keys.hasNext()) {
+      keys.next();
+      keys.remove();
+    }
+  }
+
+  private static long key(int userId, int teamId) {
+    return ((long) userId << 32) | (teamId & 0xFFFFFFFFL);
+  }
+}
@@ -0,0 +1,103 @@
+package com.codeforcommunity.geo;
+
+import com.codeforcommunity.dto.map.BoundingBox;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/** A GeoJSON LineString feature, kept both as coordinates and as its encoded JSON. */
+public class LineFeature {
+  private final JsonObject json;
+  private final Buffer encoded;
+  // The x and y of each point, one after another
+  private final double[] coordinates;
+  private final BoundingBox bounds;
+
+  /**
+   * Read the given GeoJSON feature.
+   *
+   * @param feature a feature whose geometry is a LineString.
+   * @throws IllegalArgumentException if the feature's geometry is not a LineString.
+   */
+  public LineFeature(JsonObject feature) {
+    JsonObject geometry = feature.getJsonObject("geometry");
+    if (geometry == null || !"LineString".equals(geometry.getString("type"))) {
+      throw new IllegalArgumentException("Expected a LineString feature but found " + geometry);
+    }
+
+    JsonArray points = geometry.getJsonArray("coordinates");
+    double[] coordinates = new double[points.size() * 2];
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < points.size(); i++) {
+      JsonArray point = points.getJsonArray(i);
+      double x = point.getDouble(0);
+      double y = point.getDouble(1);
+      coordinates[2 * i] = x;
+      coordinates[2 * i + 1] = y;
+      minX = Math.min(minX, x);
+      minY = Math.min(minY, y);
+      maxX = Math.max(maxX, x);
+      maxY = Math.max(maxY, y);
+    }
+
+    this.json = feature;
+    this.encoded = feature.toBuffer();
+    this.coordinates = coordinates;
+    this.bounds = new BoundingBox(minX, minY, maxX, maxY);
+  }
+
+  public JsonObject getJson() {
+    return json;
+  }
+
+  /** @return the feature encoded as compact JSON. */
+  public Buffer getEncoded() {
+    return encoded;
+  }
+
+  /** @return the x and y of each point of the line, one after another. */
+  public double[] getCoordinates() {
+    return coordinates;
+  }
+
+  public BoundingBox getBounds() {
+    return bounds;
+  }
+
+  /**
+   * Encode this feature with its line replaced by the given points, such as a simplified copy.
+   *
+   * @param newCoordinates the x and y of each point of the new line, one after another.
+   * @return the feature encoded as compact JSON.
+   */
+  public Buffer encodeWith(double[] newCoordinates) {
+    JsonArray points = new JsonArray();
+    for (int i = 0; i < newCoordinates.length; i += 2) {
+      points.add(new JsonArray().add(newCoordinates[i]).add(newCoordinates[i + 1]));
+    }
+
+    JsonObject copy = json.copy();
+    copy.getJsonObject("geometry").put("coordinates", points);
+    return copy.toBuffer();
+  }
+
+  /** @return true if any part of the line passes through the given box. */
+  public boolean intersects(BoundingBox box) {
+    if (!bounds.intersects(box)) {
+      return false;
+    }
+    if (coordinates.length == 2) {
+      return box.intersectsSegment(coordinates[0], coordinates[1], coordinates[0], coordinates[1]);
+    }
+    for (int i = 2; i < coordinates.length; i += 2) {
+      if (box.intersectsSegment(
+          coordinates[i - 2], coordinates[i - 1], coordinates[i], coordinates[i + 1])) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,124 @@
+package com.codeforcommunity.geo;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/** Reduces the number of points in a line while keeping its shape within a tolerance. */
+public class Simplifier {
+  // The width in degrees of the whole world at zoom level 0, which is one 256 pixel tile
+  private static final double DEGREES_PER_TILE = 360.0;
+  private static final int TILE_SIZE = 256;
+
+  private Simplifier() {}
+
+  /**
+   * @param zoom a web map zoom level.
+   * @return the width of one pixel at the given zoom level, in degrees of longitude.
+   */
+  public static double pixelSize(int zoom) {
+    return DEGREES_PER_TILE / (TILE_SIZE * Math.pow(2, zoom));
+  }
+
+  /**
+   * Simplify a line with the Douglas-Peucker algorithm: keep the endpoints, then keep the point
+   * furthest from the segment between them if it is further than the tolerance, and repeat on the
+   * two halves.
+   *
+   * @param coordinates the x and y of each point of the line, one after another.
+   * @param tolerance the largest distance a removed point may be from the simplified line.
+   * @return the x and y of each kept point, one after another.
+   */
+  public static double[] simplify(double[] coordinates, double tolerance) {
+    int pointCount = coordinates.length / 2;
+    if (pointCount <= 2) {
+      return coordinates;
+    }
+
+    boolean[] keep = new boolean[pointCount];
+    keep[0] = true;
+    keep[pointCount - 1] = true;
+
+    // Ranges of points to simplify, as pairs of first and last point, without recursing
+    Deque<int[]> ranges = new ArrayDeque<>();
+    ranges.push(new int[] {0, pointCount - 1});
+    double toleranceSquared = tolerance * tolerance;
+    while (!ranges.isEmpty()) {
+      int[] range = ranges.pop();
+      int first = range[0];
+      int last = range[1];
+
+      int furthest = -1;
+      double furthestDistance = toleranceSquared;
+      for (int i = first + 1; i < last; i++) {
+        double distance =
+            segmentDistanceSquared(
+                coordinates[2 * i],
+                coordinates[2 * i + 1],
+                coordinates[2 * first],
+                coordinates[2 * first + 1],
+                coordinates[2 * last],
+                coordinates[2 * last + 1]);
+        if (distance > furthestDistance) {
+          furthest = i;
+          furthestDistance = distance;
+        }
+      }
+
+      if (furthest != -1) {
+        keep[furthest] = true;
+        ranges.push(new int[] {first, furthest});
+        ranges.push(new int[] {furthest, last});
+      }
+    }
+
+    double[] simplified = new double[coordinates.length];
+    int length = 0;
+    for (int i = 0; i < pointCount; i++) {
+      if (keep[i]) {
+        simplified[length++] = coordinates[2 * i];
+        simplified[length++] = coordinates[2 * i + 1];
+      }
+    }
+    return Arrays.copyOf(simplified, length);
+  }
+
+  /**
+   * Round every coordinate of a line to the given number of decimal places, dropping points that
+   * become equal to the point before them.
+   *
+   * @param coordinates the x and y of each point of the line, one after another.
+   * @param decimals the number of decimal places to keep.
+   * @return the x and y of each rounded point, one after another.
+   */
+  public static double[] quantize(double[] coordinates, int decimals) {
+    double scale = Math.pow(10, decimals);
+    double[] quantized = new double[coordinates.length];
+    int length = 0;
+    for (int i = 0; i < coordinates.length; i += 2) {
+      double x = Math.round(coordinates[i] * scale) / scale;
+      double y = Math.round(coordinates[i + 1] * scale) / scale;
+      if (length == 0 || x != quantized[length - 2] || y != quantized[length - 1]) {
+        quantized[length++] = x;
+        quantized[length++] = y;
+      }
+    }
+    return Arrays.copyOf(quantized, length);
+  }
+
+  /** @return the squared distance from point p to the segment between points a and b. */
+  private static double segmentDistanceSquared(
+      double px, double py, double ax, double ay, double bx, double by) {
+    double dx = bx - ax;
+    double dy = by - ay;
+    double lengthSquared = dx * dx + dy * dy;
+
+    double t = 0;
+    if (lengthSquared > 0) {
+      t = Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSquared));
+    }
+    double nearestX = ax + t * dx - px;
+    double nearestY = ay + t * dy - py;
+    return nearestX * nearestX + nearestY * nearestY;
+  }
+}
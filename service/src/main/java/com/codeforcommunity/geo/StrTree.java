@@ -0,0 +1,114 @@
+package com.codeforcommunity.geo;
+
+import com.codeforcommunity.dto.map.BoundingBox;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A read-only R-tree of items with bounding boxes, bulk loaded with the Sort-Tile-Recursive
+ * algorithm. Packing the tree up front keeps every node full and neighbouring items in the same
+ * nodes, so a query only visits the few nodes around the queried area.
+ *
+ * @param <T> the type of the indexed items.
+ */
+public class StrTree<T> {
+  private static final int NODE_CAPACITY = 16;
+
+  private final Node<T> root;
+  private final int size;
+
+  /**
+   * Build a tree over the given items.
+   *
+   * @param items the items to index.
+   * @param bounds gets the bounding box of an item.
+   */
+  public StrTree(List<T> items, Function<T, BoundingBox> bounds) {
+    List<Node<T>> nodes = new ArrayList<>(items.size());
+    for (T item : items) {
+      nodes.add(new Node<>(bounds.apply(item), item, Collections.emptyList()));
+    }
+    while (nodes.size() > 1) {
+      nodes = pack(nodes);
+    }
+
+    this.root = nodes.isEmpty() ? null : nodes.get(0);
+    this.size = items.size();
+  }
+
+  /** @return the number of indexed items. */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Find every item whose bounding box intersects the given box.
+   *
+   * @param box the box to search.
+   * @return the matching items, in no particular order.
+   */
+  public List<T> query(BoundingBox box) {
+    List<T> results = new ArrayList<>();
+    if (root != null) {
+      query(root, box, results);
+    }
+    return results;
+  }
+
+  private void query(Node<T> node, BoundingBox box, List<T> results) {
+    if (!node.bounds.intersects(box)) {
+      return;
+    }
+    if (node.item != null) {
+      results.add(node.item);
+    }
+    for (Node<T> child : node.children) {
+      query(child, box, results);
+    }
+  }
+
+  /**
+   * Group one level of nodes into parent nodes: sort the nodes into vertical slices by x, then
+   * group each slice into runs by y.
+   */
+  private static <T> List<Node<T>> pack(List<Node<T>> nodes) {
+    int parentCount = (nodes.size() + NODE_CAPACITY - 1) / NODE_CAPACITY;
+    int sliceCount = (int) Math.ceil(Math.sqrt(parentCount));
+    int sliceSize = sliceCount * NODE_CAPACITY;
+
+    List<Node<T>> sorted = new ArrayList<>(nodes);
+    sorted.sort(Comparator.comparingDouble(node -> node.bounds.getCenterX()));
+
+    List<Node<T>> parents = new ArrayList<>(parentCount);
+    for (int i = 0; i < sorted.size(); i += sliceSize) {
+      List<Node<T>> slice =
+          new ArrayList<>(sorted.subList(i, Math.min(sorted.size(), i + sliceSize)));
+      slice.sort(Comparator.comparingDouble(node -> node.bounds.getCenterY()));
+
+      for (int j = 0; j < slice.size(); j += NODE_CAPACITY) {
+        List<Node<T>> children = slice.subList(j, Math.min(slice.size(), j + NODE_CAPACITY));
+        BoundingBox bounds = children.get(0).bounds;
+        for (Node<T> child : children) {
+          bounds = bounds.union(child.bounds);
+        }
+        parents.add(new Node<>(bounds, null, new ArrayList<>(children)));
+      }
+    }
+    return parents;
+  }
+
+  private static class Node<T> {
+    private final BoundingBox bounds;
+    private final T item;
+    private final List<Node<T>> children;
+
+    private Node(BoundingBox bounds, T item, List<Node<T>> children) {
+      this.bounds = bounds;
+      this.item = item;
+      this.children = children;
+    }
+  }
+}
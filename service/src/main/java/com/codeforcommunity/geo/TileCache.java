@@ -0,0 +1,79 @@
+package com.codeforcommunity.geo;
+
+import com.codeforcommunity.dto.map.EncodedResource;
+import com.codeforcommunity.metrics.Metrics;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of encoded map tiles that evicts the least recently used tile once it is full.
+ * Tiles are generated outside of the cache's lock, so a slow tile never holds up requests for tiles
+ * that are already cached.
+ */
+public class TileCache {
+  private final int maxSize;
+  private final Map<String, EncodedResource> tiles;
+
+  private final LongAdder hits = Metrics.counter("tiles.cache_hits");
+  private final LongAdder misses = Metrics.counter("tiles.cache_misses");
+  private final LongAdder evictions = Metrics.counter("tiles.cache_evictions");
+  private final Metrics.Summary generateLatency = Metrics.summary("tiles.generate_ms");
+
+  /** @param maxSize the largest number of tiles to keep. */
+  public TileCache(int maxSize) {
+    this.maxSize = maxSize;
+    this.tiles =
+        new LinkedHashMap<String, EncodedResource>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, EncodedResource> eldest) {
+            if (size() > TileCache.this.maxSize) {
+              evictions.increment();
+              return true;
+            }
+            return false;
+          }
+        };
+
+    Metrics.gauge("tiles.cache_size", this::size);
+  }
+
+  /**
+   * Get a tile from the cache, generating and caching it if it is not there. Two requests that miss
+   * the same tile at once may both generate it.
+   *
+   * @param z the zoom of the tile.
+   * @param x the column of the tile.
+   * @param y the row of the tile.
+   * @param generate generates the tile.
+   * @return the tile.
+   */
+  public EncodedResource get(int z, int x, int y, Supplier<EncodedResource> generate) {
+    String key = z + "/" + x + "/" + y;
+    synchronized (tiles) {
+      EncodedResource tile = tiles.get(key);
+      if (tile != null) {
+        hits.increment();
+        return tile;
+      }
+    }
+
+    misses.increment();
+    long startNanos = System.nanoTime();
+    EncodedResource tile = generate.get();
+    generateLatency.recordSince(startNanos);
+
+    synchronized (tiles) {
+      tiles.put(key, tile);
+    }
+    return tile;
+  }
+
+  /** @return the number of cached tiles. */
+  public int size() {
+    synchronized (tiles) {
+      return tiles.size();
+    }
+  }
+}
@@ -0,0 +1,337 @@
+package com.codeforcommunity.geo;
+
+import com.codeforcommunity.dto.map.BoundingBox;
+import io.vertx.core.json.JsonObject;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes line features into a single Mapbox Vector Tile (version 2 of the specification). Points
+ * are projected to Web Mercator, clipped to the tile plus a small buffer so lines join up across
+ * tile edges, and written as protocol buffers without depending on a protobuf library.
+ */
+public class VectorTileEncoder {
+  /** The number of units across a tile. */
+  public static final int EXTENT = 4096;
+  // How far past the tile's edges lines are kept, in tile units
+  private static final int BUFFER = 64;
+  private static final double MAX_LATITUDE = 85.05112878;
+
+  private static final int MOVE_TO = 1;
+  private static final int LINE_TO = 2;
+  private static final int LINESTRING = 2;
+
+  private final int z;
+  private final int x;
+  private final int y;
+  private final Map<String, Layer> layers = new LinkedHashMap<>();
+
+  public VectorTileEncoder(int z, int x, int y) {
+    this.z = z;
+    this.x = x;
+    this.y = y;
+  }
+
+  /**
+   * Get the area covered by a tile, including the buffer kept around it.
+   *
+   * @return the bounds of the tile in longitude and latitude.
+   */
+  public static BoundingBox tileBounds(int z, int x, int y) {
+    double tiles = Math.pow(2, z);
+    double buffer = (double) BUFFER / EXTENT;
+    return new BoundingBox(
+        tileToLongitude(x - buffer, tiles),
+        tileToLatitude(y + 1 + buffer, tiles),
+        tileToLongitude(x + 1 + buffer, tiles),
+        tileToLatitude(y - buffer, tiles));
+  }
+
+  private static double tileToLongitude(double tileX, double tiles) {
+    return tileX / tiles * 360 - 180;
+  }
+
+  private static double tileToLatitude(double tileY, double tiles) {
+    return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * tileY / tiles))));
+  }
+
+  /**
+   * Add a line to the given layer of the tile. The parts of the line outside of the tile are
+   * dropped, and a line with nothing left inside the tile is not added.
+   *
+   * @param layerName the name of the layer.
+   * @param coordinates the longitude and latitude of each point, one after another.
+   * @param properties the properties of the feature, only numbers, strings and booleans are kept.
+   */
+  public void addLine(String layerName, double[] coordinates, JsonObject properties) {
+    List<int[]> parts = clip(project(coordinates));
+    if (parts.isEmpty()) {
+      return;
+    }
+    layers.computeIfAbsent(layerName, Layer::new).addFeature(parts, properties);
+  }
+
+  /** @return true if no features were added to the tile. */
+  public boolean isEmpty() {
+    return layers.isEmpty();
+  }
+
+  /** @return the encoded tile. */
+  public byte[] encode() {
+    ByteArrayOutputStream tile = new ByteArrayOutputStream();
+    for (Layer layer : layers.values()) {
+      writeBytes(tile, 3, layer.encode());
+    }
+    return tile.toByteArray();
+  }
+
+  /** Project longitude and latitude pairs into this tile's coordinates. */
+  private double[] project(double[] coordinates) {
+    double tiles = Math.pow(2, z);
+    double[] projected = new double[coordinates.length];
+    for (int i = 0; i < coordinates.length; i += 2) {
+      double latitude =
+          Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, coordinates[i + 1])));
+      double worldX = (coordinates[i] + 180) / 360;
+      double worldY = (1 - Math.log(Math.tan(latitude) + 1 / Math.cos(latitude)) / Math.PI) / 2;
+      projected[i] = (worldX * tiles - x) * EXTENT;
+      projected[i + 1] = (worldY * tiles - y) * EXTENT;
+    }
+    return projected;
+  }
+
+  /**
+   * Clip a projected line to the tile and its buffer, splitting it wherever it leaves the tile.
+   *
+   * @return the parts of the line inside the tile, each as rounded x and y pairs.
+   */
+  private List<int[]> clip(double[] line) {
+    List<int[]> parts = new ArrayList<>();
+    IntLine part = null;
+    for (int i = 2; i < line.length; i += 2) {
+      double x1 = line[i - 2];
+      double y1 = line[i - 1];
+      double dx = line[i] - x1;
+      double dy = line[i + 1] - y1;
+      double[] range = clipSegment(x1, y1, dx, dy);
+      if (range == null) {
+        part = finish(part, parts);
+        continue;
+      }
+
+      if (part == null || range[0] > 0) {
+        part = finish(part, parts);
+        part = new IntLine();
+        part.add(x1 + range[0] * dx, y1 + range[0] * dy);
+      }
+      part.add(x1 + range[1] * dx, y1 + range[1] * dy);
+      if (range[1] < 1) {
+        part = finish(part, parts);
+      }
+    }
+    finish(part, parts);
+    return parts;
+  }
+
+  /** Keep the given part if it is still a line after rounding, and return null. */
+  private IntLine finish(IntLine part, List<int[]> parts) {
+    if (part != null && part.length >= 4) {
+      parts.add(part.toArray());
+    }
+    return null;
+  }
+
+  /**
+   * Clip the segment from (x1, y1) moving by (dx, dy) to the tile and its buffer.
+   *
+   * @return the start and end of the part inside the tile as fractions of the segment, or null if
+   *     no part of it is inside.
+   */
+  private double[] clipSegment(double x1, double y1, double dx, double dy) {
+    double[] p = {-dx, dx, -dy, dy};
+    double[] q = {x1 + BUFFER, EXTENT + BUFFER - x1, y1 + BUFFER, EXTENT + BUFFER - y1};
+    double enter = 0;
+    double exit = 1;
+    for (int i = 0; i < 4; i++) {
+      if (p[i] == 0) {
+        if (q[i] < 0) {
+          return null;
+        }
+      } else {
+        double t = q[i] / p[i];
+        if (p[i] < 0) {
+          enter = Math.max(enter, t);
+        } else {
+          exit = Math.min(exit, t);
+        }
+        if (enter > exit) {
+          return null;
+        }
+      }
+    }
+    return new double[] {enter, exit};
+  }
+
+  /** A growing line of rounded points that skips points equal to the one before. */
+  private static class IntLine {
+    private int[] points = new int[16];
+    private int length = 0;
+
+    private void add(double pointX, double pointY) {
+      int roundedX = (int) Math.round(pointX);
+      int roundedY = (int) Math.round(pointY);
+      if (length > 0 && points[length - 2] == roundedX && points[length - 1] == roundedY) {
+        return;
+      }
+      if (length == points.length) {
+        int[] grown = new int[points.length * 2];
+        System.arraycopy(points, 0, grown, 0, length);
+        points = grown;
+      }
+      points[length++] = roundedX;
+      points[length++] = roundedY;
+    }
+
+    private int[] toArray() {
+      int[] array = new int[length];
+      System.arraycopy(points, 0, array, 0, length);
+      return array;
+    }
+  }
+
+  /** A layer of the tile, with its property keys and values shared by all of its features. */
+  private static class Layer {
+    private final String name;
+    private final List<byte[]> features = new ArrayList<>();
+    private final Map<String, Integer> keys = new LinkedHashMap<>();
+    private final Map<Object, Integer> values = new HashMap<>();
+    private final List<byte[]> encodedValues = new ArrayList<>();
+
+    private Layer(String name) {
+      this.name = name;
+    }
+
+    private void addFeature(List<int[]> parts, JsonObject properties) {
+      ByteArrayOutputStream tags = new ByteArrayOutputStream();
+      if (properties != null) {
+        for (Map.Entry<String, Object> property : properties) {
+          byte[] value = encodeValue(property.getValue());
+          if (value == null) {
+            continue;
+          }
+          writeVarint(tags, keys.computeIfAbsent(property.getKey(), key -> keys.size()));
+          writeVarint(tags, valueIndex(property.getValue(), value));
+        }
+      }
+
+      ByteArrayOutputStream geometry = new ByteArrayOutputStream();
+      int cursorX = 0;
+      int cursorY = 0;
+      for (int[] part : parts) {
+        writeVarint(geometry, command(MOVE_TO, 1));
+        writeVarint(geometry, zigZag(part[0] - cursorX));
+        writeVarint(geometry, zigZag(part[1] - cursorY));
+        writeVarint(geometry, command(LINE_TO, part.length / 2 - 1));
+        for (int i = 2; i < part.length; i += 2) {
+          writeVarint(geometry, zigZag(part[i] - part[i - 2]));
+          writeVarint(geometry, zigZag(part[i + 1] - part[i - 1]));
+        }
+        cursorX = part[part.length - 2];
+        cursorY = part[part.length - 1];
+      }
+
+      ByteArrayOutputStream feature = new ByteArrayOutputStream();
+      if (tags.size() > 0) {
+        writeBytes(feature, 2, tags.toByteArray());
+      }
+      writeTag(feature, 3, 0);
+      writeVarint(feature, LINESTRING);
+      writeBytes(feature, 4, geometry.toByteArray());
+      features.add(feature.toByteArray());
+    }
+
+    private int valueIndex(Object value, byte[] encoded) {
+      // Numbers are keyed with their type, so that 1 and 1.0 stay different values
+      Object key = value instanceof Number ? value.getClass().getName() + ":" + value : value;
+      return values.computeIfAbsent(
+          key,
+          k -> {
+            encodedValues.add(encoded);
+            return encodedValues.size() - 1;
+          });
+    }
+
+    private byte[] encode() {
+      ByteArrayOutputStream layer = new ByteArrayOutputStream();
+      writeTag(layer, 15, 0);
+      writeVarint(layer, 2);
+      writeBytes(layer, 1, name.getBytes(StandardCharsets.UTF_8));
+      for (byte[] feature : features) {
+        writeBytes(layer, 2, feature);
+      }
+      for (String key : keys.keySet()) {
+        writeBytes(layer, 3, key.getBytes(StandardCharsets.UTF_8));
+      }
+      for (byte[] value : encodedValues) {
+        writeBytes(layer, 4, value);
+      }
+      writeTag(layer, 5, 0);
+      writeVarint(layer, EXTENT);
+      return layer.toByteArray();
+    }
+  }
+
+  /** @return the given property value as a tile Value message, or null if it can't be encoded. */
+  private static byte[] encodeValue(Object value) {
+    ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    if (value instanceof String) {
+      writeBytes(encoded, 1, ((String) value).getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof Integer || value instanceof Long) {
+      writeTag(encoded, 6, 0);
+      writeVarint(encoded, zigZag(((Number) value).longValue()));
+    } else if (value instanceof Number) {
+      writeTag(encoded, 3, 1);
+      long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+      for (int i = 0; i < 8; i++) {
+        encoded.write((int) (bits >>> (8 * i)) & 0xFF);
+      }
+    } else if (value instanceof Boolean) {
+      writeTag(encoded, 7, 0);
+      writeVarint(encoded, (Boolean) value ? 1 : 0);
+    } else {
+      return null;
+    }
+    return encoded.toByteArray();
+  }
+
+  private static int command(int id, int count) {
+    return (id & 0x7) | (count << 3);
+  }
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static void writeTag(ByteArrayOutputStream output, int field, int wireType) {
+    writeVarint(output, (field << 3) | wireType);
+  }
+
+  private static void writeBytes(ByteArrayOutputStream output, int field, byte[] bytes) {
+    writeTag(output, field, 2);
+    writeVarint(output, bytes.length);
+    output.write(bytes, 0, bytes.length);
+  }
+
+  private static void writeVarint(ByteArrayOutputStream output, long value) {
+    while ((value & ~0x7FL) != 0) {
+      output.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    output.write((int) value);
+  }
+}
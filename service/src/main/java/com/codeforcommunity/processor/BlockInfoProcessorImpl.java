@@ -1,57 +1,65 @@
 package com.codeforcommunity.processor;
 
-import static org.jooq.generated.Tables.BLOCK;
 import static org.jooq.generated.Tables.TEAM;
+import static org.jooq.generated.Tables.TEAM_DAILY_COMPLETIONS;
 import static org.jooq.generated.Tables.USERS;
-import static org.jooq.generated.Tables.USER_TEAM;
-import static org.jooq.impl.DSL.count;
-import static org.jooq.impl.DSL.inline;
-import static org.jooq.impl.DSL.select;
+import static org.jooq.generated.Tables.USER_DAILY_COMPLETIONS;
 
 import com.codeforcommunity.api.IBlockInfoProcessor;
+import com.codeforcommunity.dataaccess.BlockCountsSnapshot;
+import com.codeforcommunity.dataaccess.BlockStateIndex;
+import com.codeforcommunity.dataaccess.Leaderboards;
+import com.codeforcommunity.dataaccess.Ranking;
 import com.codeforcommunity.dto.blockInfo.BlockInfoResponse;
 import com.codeforcommunity.dto.blockInfo.BlockLeaderboardResponse;
 import com.codeforcommunity.dto.blockInfo.Individual;
+import com.codeforcommunity.dto.blockInfo.LeaderboardPosition;
 import com.codeforcommunity.dto.blockInfo.Team;
+import com.codeforcommunity.dto.map.EncodedResource;
 import com.codeforcommunity.enums.BlockStatus;
-import com.codeforcommunity.enums.TeamRole;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import org.jooq.DSLContext;
 import org.jooq.Field;
-import org.jooq.Record;
-import org.jooq.Record4;
-import org.jooq.Select;
-import org.jooq.SelectConnectByStep;
-import org.jooq.SelectJoinStep;
-import org.jooq.SelectLimitStep;
-import org.jooq.SelectSelectStep;
-import org.jooq.Table;
+import org.jooq.Record3;
+import org.jooq.impl.DSL;
 
 public class BlockInfoProcessorImpl implements IBlockInfoProcessor {
+  private static final int LEADERBOARD_SIZE = 10;
+
   private final DSLContext db;
+  private final BlockStateIndex blockStateIndex;
+  private final BlockCountsSnapshot countsSnapshot;
+  private final Leaderboards leaderboards;
 
-  public BlockInfoProcessorImpl(DSLContext db) {
+  public BlockInfoProcessorImpl(
+      DSLContext db,
+      BlockStateIndex blockStateIndex,
+      BlockCountsSnapshot countsSnapshot,
+      Leaderboards leaderboards) {
     this.db = db;
+    this.blockStateIndex = blockStateIndex;
+    this.countsSnapshot = countsSnapshot;
+    this.leaderboards = leaderboards;
   }
 
   @Override
   public BlockInfoResponse getBlocks() {
-    Integer openBlocks =
-        db.select(count(BLOCK.STATUS))
-            .from(BLOCK)
-            .where(BLOCK.STATUS.eq(BlockStatus.OPEN))
-            .fetchOneInto(Integer.class);
-    Integer doneBlocks =
-        db.select(count(BLOCK.STATUS))
-            .from(BLOCK)
-            .where(BLOCK.STATUS.eq(BlockStatus.DONE))
-            .fetchOneInto(Integer.class);
-    Integer assignedBlocks =
-        db.select(count(BLOCK.STATUS))
-            .from(BLOCK)
-            .where(BLOCK.STATUS.eq(BlockStatus.RESERVED))
-            .fetchOneInto(Integer.class);
-    return new BlockInfoResponse(doneBlocks, assignedBlocks, openBlocks);
+    int[] counts = blockStateIndex.getStatusCounts();
+    return new BlockInfoResponse(
+        counts[BlockStatus.DONE.getVal()],
+        counts[BlockStatus.RESERVED.getVal()],
+        counts[BlockStatus.OPEN.getVal()]);
+  }
+
+  @Override
+  public EncodedResource getEncodedBlocks() {
+    return countsSnapshot.getCounts();
   }
 
   @Override
@@ -62,306 +70,196 @@ public class BlockInfoProcessorImpl implements IBlockInfoProcessor {
     return new BlockLeaderboardResponse(teams, users);
   }
 
-  /**
-   * Builds the main parts of the subquery. Specifically the
-   *
-   * <pre>
-   * SELECT <strong>id</strong>, <strong>name</strong>, ? AS completed, ? AS reserved
-   * FROM <strong>table</strong>
-   * (optional) JOIN user_team ON user_team.team_id = <strong>id</strong>
-   * JOIN block ON block.id = <strong>table</strong>.assigned_to AND block.status = <strong>blockStatus</strong>
-   * AND user_team.team_role in (TeamRole.MEMBER, TeamRole.LEADER)
-   * (optional) WHERE <strong>id</strong> = <strong>itemId</strong>
-   * </pre>
-   *
-   * where ? AS [completed, reserved] matches <strong>blockStatus</strong>.
-   *
-   * @param table the table to select from (should be USERS or TEAM)
-   * @param blockStatus the BlockStatus to search for
-   * @param isTeam if the record being selected is for a TEAM or USERS table
-   * @param itemId the optional item id to select items by
-   * @return the part of the query as represented above
-   */
-  SelectConnectByStep<Record4<Integer, String, String, String>> buildSubQueryParts(
-      Table<? extends Record> table, BlockStatus blockStatus, boolean isTeam, Integer itemId) {
-    if (!table.equals(TEAM) && !table.equals(USERS)) {
-      throw new IllegalArgumentException("Table must be TEAM or USERS, was: " + table.getName());
-    }
-
-    org.jooq.generated.tables.Block reserved = BLOCK.as("reserved");
-    org.jooq.generated.tables.Block completed = BLOCK.as("completed");
-    org.jooq.generated.tables.Block selectedBlock;
-    String nameName = isTeam ? "name" : "username";
-
-    Field<Integer> id = table.field(0, Integer.class);
-    Field<String> name = table.field(nameName, String.class);
-
-    SelectSelectStep<Record4<Integer, String, String, String>> selectBase;
-
-    // create select fields depending on desired block status
-    if (blockStatus == BlockStatus.DONE) {
-      selectBase =
-          select(
-              id,
-              name,
-              completed.ID.as("isCompleted"),
-              inline(null, completed.ID).as("isReserved"));
-      selectedBlock = completed;
-    } else {
-      selectBase =
-          select(
-              id, name, inline(null, reserved.ID).as("isCompleted"), reserved.ID.as("isReserved"));
-      selectedBlock = reserved;
-    }
-
-    SelectJoinStep<Record4<Integer, String, String, String>> joinStep = selectBase.from(table);
-
-    // join on USER_TEAM table and optionally the block table if querying for a team
-    if (isTeam) {
-      joinStep =
-          joinStep
-              .join(USER_TEAM)
-              .on(USER_TEAM.TEAM_ID.eq(id))
-              .join(selectedBlock)
-              .on(USER_TEAM.USER_ID.eq(selectedBlock.ASSIGNED_TO))
-              .and(selectedBlock.STATUS.eq(blockStatus))
-              .and(USER_TEAM.TEAM_ROLE.in(TeamRole.LEADER, TeamRole.MEMBER));
-    } else {
-      joinStep =
-          joinStep
-              .join(selectedBlock)
-              .on(id.eq(selectedBlock.ASSIGNED_TO))
-              .and(selectedBlock.STATUS.eq(blockStatus));
-    }
-
-    // add where step for selecting where the ID = itemId
-    SelectConnectByStep<Record4<Integer, String, String, String>> whereStep;
-    if (itemId != null) {
-      whereStep = joinStep.where(id.eq(itemId));
-    } else {
-      whereStep = joinStep;
-    }
-
-    return whereStep;
+  @Override
+  public BlockLeaderboardResponse getBlockLeaderboards(LocalDate from, LocalDate to) {
+    return getBlockLeaderboards(DSL.val(Date.valueOf(from)), DSL.val(Date.valueOf(to)));
   }
 
   /**
-   * Builds the subquery. Specifically the
-   *
-   * <pre>
-   *   SELECT <strong>id</strong>, <strong>name</strong>, id as completed_raw, null as reserved_raw
-   *   FROM <strong>table</strong>
-   *   (optional) JOIN user_team ON user_team.team_id = <strong>id</strong>
-   *   JOIN block ON block.id = <strong>table</strong>.assigned_to AND block.status = 2
-   *   AND user_team.team_role in (TeamRole.MEMBER, TeamRole.LEADER)
-   *   (optional) WHERE <strong>id</strong> = <strong>itemId</strong>
-   *   UNION
-   *   SELECT <strong>id</strong>, <strong>name</strong>, null as completed_raw, id as reserved_raw
-   *   FROM <strong>table</strong>
-   *   (optional) JOIN user_team ON user_team.team_id = <strong>id</strong>
-   *   AND user_team.team_role in (TeamRole.MEMBER, TeamRole.LEADER)
-   *   JOIN block ON block.id = <strong>table</strong>.assigned_to AND block.status = 1
-   *   (optional) WHERE <strong>id</strong> = <strong>itemId</strong>
-   * </pre>
-   *
-   * @param table the table to select from (should be USERS or TEAM)
-   * @param isTeam if the record being selected is for a TEAM or USERS table
-   * @param itemId the optional item id to select items by
-   * @return the part of the query as represented above
+   * The days are counted back from the database's current date, as that is the date the daily
+   * completions are counted on, so that the window is the same whatever time zone the server is in.
    */
-  Select<Record4<Integer, String, String, String>> buildSubQuery(
-      Table<? extends Record> table, boolean isTeam, Integer itemId) {
-    if (!table.equals(TEAM) && !table.equals(USERS)) {
-      throw new IllegalArgumentException("Table must be TEAM or USERS, was: " + table.getName());
-    }
+  @Override
+  public BlockLeaderboardResponse getBlockLeaderboards(int days) {
+    Field<Date> today = DSL.currentDate();
+    return getBlockLeaderboards(today.minus(days - 1), today);
+  }
 
-    // Gets each part of the union, and unions them together
-    SelectConnectByStep<Record4<Integer, String, String, String>> done =
-        buildSubQueryParts(table, BlockStatus.DONE, isTeam, itemId);
+  private BlockLeaderboardResponse getBlockLeaderboards(Field<Date> from, Field<Date> to) {
+    List<Individual> users = getUsersLeaderboard(from, to);
+    List<Team> teams = getTeamLeaderboard(from, to);
 
-    SelectConnectByStep<Record4<Integer, String, String, String>> reserved =
-        buildSubQueryParts(table, BlockStatus.RESERVED, isTeam, itemId);
+    return new BlockLeaderboardResponse(teams, users);
+  }
 
-    return done.union(reserved);
+  @Override
+  public LeaderboardPosition getUserPosition(int userId) {
+    return toPosition(
+        userId,
+        leaderboards.getUser(userId),
+        leaderboards.getUserRank(userId),
+        leaderboards.getUserCount());
   }
 
-  /**
-   * Compose the entire query after building the subquery. Specifically performs
-   *
-   * <pre>
-   *   SELECT <strong>id</strong>, <strong>name</strong>,
-   *     COUNT(completed_raw) AS completed, COUNT(reserved_raw) AS reserved
-   *   FROM subquery
-   *   GROUP BY <strong>id</strong>, <strong>name</strong>
-   *   ORDER BY completed DESC, reserved DESC;
-   * </pre>
-   *
-   * where subquery is what is returned from {@code buildSubQuery}. To run, just call {@code fetch}
-   * on the returned object.
-   *
-   * @param table the table to select from (should be USERS or TEAM)
-   * @param isTeam if the record being selected is for a TEAM or USERS table
-   * @param itemId the optional item id to select items by
-   * @return a List of the what is requested and returned from the query represented above
-   */
-  SelectLimitStep<Record4<Integer, String, Integer, Integer>> composeFullQuery(
-      Table<? extends Record> table, boolean isTeam, Integer itemId) {
-    if (!table.equals(TEAM) && !table.equals(USERS)) {
-      throw new IllegalArgumentException("Table must be TEAM or USERS, was: " + table.getName());
-    }
-    Table<Record4<Integer, String, String, String>> subQuery =
-        buildSubQuery(table, isTeam, itemId).asTable("subQuery");
+  @Override
+  public LeaderboardPosition getTeamPosition(int teamId) {
+    return toPosition(
+        teamId,
+        leaderboards.getTeam(teamId),
+        leaderboards.getTeamRank(teamId),
+        leaderboards.getTeamCount());
+  }
 
-    String nameName = isTeam ? "name" : "username";
-    Field<Integer> subQueryId = subQuery.field("id").as("id").coerce(Integer.class);
-    Field<String> subQueryName =
-        subQuery.field(1).as(table.field(nameName).getName()).coerce(String.class);
-    Field<Integer> subQueryCompleted = count(subQuery.field("isCompleted")).as("blocksCompleted");
-    Field<Integer> subQueryReserved = count(subQuery.field("isReserved")).as("blocksReserved");
+  /** @return the users with the most completed blocks, then the most reserved. */
+  public List<Individual> getUsersLeaderboard() {
+    return toIndividuals(leaderboards.getTopUsers(LEADERBOARD_SIZE));
+  }
 
-    return db.select(subQueryId, subQueryName, subQueryCompleted, subQueryReserved)
-        .from(subQuery)
-        .groupBy(subQueryId, subQueryName)
-        .orderBy(subQueryCompleted.desc(), subQueryReserved.desc());
+  /** @return the teams with the most completed blocks, then the most reserved. */
+  public List<Team> getTeamLeaderboard() {
+    return toTeams(leaderboards.getTopTeams(LEADERBOARD_SIZE));
   }
 
   /**
-   * Performs the following query:
-   *
-   * <pre>
-   * SELECT id, username, COUNT(completed_raw) AS completed, COUNT(reserved_raw) AS reserved
-   * FROM (SELECT uc.id, uc.username, c.id AS completed_raw, null AS reserved_raw
-   * FROM team uc
-   * JOIN block c ON uc.id = c.assigned_to AND c.status = 2
-   * UNION
-   * SELECT ur.id, ur.username, null AS completed_raw, r.id AS reserved_raw
-   * FROM users ur
-   * JOIN block r ON ur.id = r.assigned_to AND r.status = 1) s
-   * GROUP BY id, username
-   * ORDER BY completed DESC, reserved DESC
-   * LIMIT 10;
-   * </pre>
-   *
-   * @return a List of {@link Individual} as represented by the query above
+   * @return the users who completed the most blocks between the given days, summed from their daily
+   *     completions. Only completions are counted by day, so their reserved counts are always 0.
    */
-  public List<Individual> getUsersLeaderboard() {
-    return composeFullQuery(USERS, false, null).limit(10).fetchInto(Individual.class);
+  public List<Individual> getUsersLeaderboard(Field<Date> from, Field<Date> to) {
+    Field<BigDecimal> completed = DSL.sum(USER_DAILY_COMPLETIONS.COMPLETED);
+    List<Individual> individuals = new ArrayList<>();
+    for (Record3<Integer, String, BigDecimal> user :
+        db.select(USERS.ID, USERS.USERNAME, completed)
+            .from(USER_DAILY_COMPLETIONS)
+            .join(USERS)
+            .on(USERS.ID.eq(USER_DAILY_COMPLETIONS.USER_ID))
+            .where(USER_DAILY_COMPLETIONS.COMPLETED_ON.between(from, to))
+            .groupBy(USERS.ID)
+            .having(completed.gt(BigDecimal.ZERO))
+            .orderBy(completed.desc(), USERS.ID)
+            .limit(LEADERBOARD_SIZE)
+            .fetch()) {
+      individuals.add(new Individual(user.value1(), user.value2(), user.value3().intValue(), 0));
+    }
+    return individuals;
   }
 
   /**
-   * Performs the following query:
-   *
-   * <pre>
-   * SELECT id, name, COUNT(completed_raw) AS completed, COUNT(reserved_raw) AS reserved
-   * FROM (SELECT tc.id, tc.name, c.id AS completed_raw, null AS reserved_raw
-   * FROM team tc
-   * JOIN block c ON uc.id = c.assigned_to AND c.status = 2
-   * AND user_team.team_role in (TeamRole.MEMBER, TeamRole.LEADER)
-   * UNION
-   * SELECT tr.id, tr.name, null AS completed_raw, r.id AS reserved_raw
-   * FROM users tr
-   * JOIN block r ON tr.id = r.assigned_to AND r.status = 1) s
-   * AND user_team.team_role in (TeamRole.MEMBER, TeamRole.LEADER)
-   * GROUP BY id, name
-   * ORDER BY completed DESC, reserved DESC
-   * LIMIT 10;
-   * </pre>
-   *
-   * @return a List of {@link Team} as represented by the above query
+   * @return the teams whose leaders and members completed the most blocks between the given days,
+   *     summed from the teams' daily completions. Their reserved counts are always 0.
    */
-  public List<Team> getTeamLeaderboard() {
-    return composeFullQuery(TEAM, true, null).limit(10).fetchInto(Team.class);
+  public List<Team> getTeamLeaderboard(Field<Date> from, Field<Date> to) {
+    Field<BigDecimal> completed = DSL.sum(TEAM_DAILY_COMPLETIONS.COMPLETED);
+    List<Team> teams = new ArrayList<>();
+    for (Record3<Integer, String, BigDecimal> team :
+        db.select(TEAM.ID, TEAM.NAME, completed)
+            .from(TEAM_DAILY_COMPLETIONS)
+            .join(TEAM)
+            .on(TEAM.ID.eq(TEAM_DAILY_COMPLETIONS.TEAM_ID))
+            .where(TEAM_DAILY_COMPLETIONS.COMPLETED_ON.between(from, to))
+            .groupBy(TEAM.ID)
+            .having(completed.gt(BigDecimal.ZERO))
+            .orderBy(completed.desc(), TEAM.ID)
+            .limit(LEADERBOARD_SIZE)
+            .fetch()) {
+      teams.add(new Team(team.value1(), team.value2(), team.value3().intValue(), 0));
+    }
+    return teams;
   }
 
-  /**
-   * Performs the following query:
-   *
-   * <pre>
-   * SELECT id, username, COUNT(completed_raw) AS completed, COUNT(reserved_raw) AS reserved
-   * FROM (SELECT uc.id, uc.username, c.id AS completed_raw, null AS reserved_raw
-   * FROM team uc
-   * JOIN block c ON uc.id = c.assigned_to AND c.status = 2
-   * UNION
-   * SELECT ur.id, ur.username, null AS completed_raw, r.id AS reserved_raw
-   * FROM users ur
-   * JOIN block r ON ur.id = r.assigned_to AND r.status = 1) s
-   * GROUP BY id, username
-   * ORDER BY completed DESC, reserved DESC
-   * LIMIT 10;
-   * </pre>
-   *
-   * @return a List of {@link Individual} as represented by the query above
-   */
+  /** @return every user with a completed or reserved block, in leaderboard order. */
   public List<Individual> getUsersStats() {
-    return composeFullQuery(USERS, false, null).fetchInto(Individual.class);
+    return toIndividuals(leaderboards.getTopUsers(Integer.MAX_VALUE));
   }
 
-  /**
-   * Performs the following query:
-   *
-   * <pre>
-   * SELECT id, name, COUNT(completed_raw) AS completed, COUNT(reserved_raw) AS reserved
-   * FROM (SELECT tc.id, tc.name, c.id AS completed_raw, null AS reserved_raw
-   * FROM team tc
-   * JOIN block c ON uc.id = c.assigned_to AND c.status = 2
-   * UNION
-   * SELECT tr.id, tr.name, null AS completed_raw, r.id AS reserved_raw
-   * FROM users tr
-   * JOIN block r ON tr.id = r.assigned_to AND r.status = 1) s
-   * GROUP BY id, name
-   * ORDER BY completed DESC, reserved DESC;
-   * </pre>
-   *
-   * @return a List of {@link Team} as represented by the above query
-   */
+  /** @return every team with a completed or reserved block, in leaderboard order. */
   public List<Team> getTeamStats() {
-    return composeFullQuery(TEAM, true, null).fetchInto(Team.class);
+    return toTeams(leaderboards.getTopTeams(Integer.MAX_VALUE));
   }
 
   /**
-   * Performs the following query:
-   *
-   * <pre>
-   * SELECT id, username, COUNT(completed_raw) AS completed, COUNT(reserved_raw) AS reserved
-   * FROM (SELECT uc.id, uc.username, c.id AS completed_raw, null AS reserved_raw
-   * FROM team uc
-   * JOIN block c ON uc.id = c.assigned_to AND c.status = 2
-   * UNION
-   * SELECT ur.id, ur.username, null AS completed_raw, r.id AS reserved_raw
-   * FROM users ur
-   * JOIN block r ON ur.id = r.assigned_to AND r.status = 1) s
-   * GROUP BY id, username
-   * ORDER BY completed DESC, reserved DESC
-   * LIMIT 10;
-   * </pre>
-   *
    * @param userId the userId to select info for
-   * @return a List of {@link Individual} as represented by the query above
+   * @return the user's block counts, or null if they have no completed or reserved blocks
    */
   public Individual getUsersStats(int userId) {
-    return composeFullQuery(USERS, false, userId).fetchOneInto(Individual.class);
+    Ranking.Entry user = leaderboards.getUser(userId);
+    if (user == null) {
+      return null;
+    }
+    List<Individual> individuals = toIndividuals(Collections.singletonList(user));
+    return individuals.isEmpty() ? null : individuals.get(0);
   }
 
   /**
-   * Performs the following query:
-   *
-   * <pre>
-   * SELECT id, name, COUNT(completed_raw) AS completed, COUNT(reserved_raw) AS reserved
-   * FROM (SELECT tc.id, tc.name, c.id AS completed_raw, null AS reserved_raw
-   * FROM team tc
-   * JOIN block c ON uc.id = c.assigned_to AND c.status = 2
-   * UNION
-   * SELECT tr.id, tr.name, null AS completed_raw, r.id AS reserved_raw
-   * FROM users tr
-   * JOIN block r ON tr.id = r.assigned_to AND r.status = 1) s
-   * GROUP BY id, name
-   * ORDER BY completed DESC, reserved DESC;
-   * </pre>
-   *
    * @param teamId the id of the team to select info for
-   * @return a List of {@link Team} as represented by the above query
+   * @return the team's block counts, or null if it has no completed or reserved blocks
    */
   public Team getTeamStats(int teamId) {
-    return composeFullQuery(TEAM, true, teamId).fetchOneInto(Team.class);
+    Ranking.Entry team = leaderboards.getTeam(teamId);
+    if (team == null) {
+      return null;
+    }
+    List<Team> teams = toTeams(Collections.singletonList(team));
+    return teams.isEmpty() ? null : teams.get(0);
+  }
+
+  private static LeaderboardPosition toPosition(
+      int id, Ranking.Entry entry, int rank, int rankedCount) {
+    if (entry == null) {
+      return new LeaderboardPosition(id, 0, rankedCount, 0, 0);
+    }
+    return new LeaderboardPosition(
+        id, rank, rankedCount, entry.getCompleted(), entry.getReserved());
+  }
+
+  /** Look up the usernames of the given users, skipping any user that no longer exists. */
+  private List<Individual> toIndividuals(List<Ranking.Entry> entries) {
+    Map<Integer, String> usernames =
+        entries.isEmpty()
+            ? Collections.emptyMap()
+            : db.select(USERS.ID, USERS.USERNAME)
+                .from(USERS)
+                .where(USERS.ID.eq(DSL.any(toIds(entries))))
+                .fetchMap(USERS.ID, USERS.USERNAME);
+
+    List<Individual> individuals = new ArrayList<>(entries.size());
+    for (Ranking.Entry entry : entries) {
+      if (usernames.containsKey(entry.getId())) {
+        individuals.add(
+            new Individual(
+                entry.getId(),
+                usernames.get(entry.getId()),
+                entry.getCompleted(),
+                entry.getReserved()));
+      }
+    }
+    return individuals;
+  }
+
+  /** Look up the names of the given teams, skipping any team that no longer exists. */
+  private List<Team> toTeams(List<Ranking.Entry> entries) {
+    Map<Integer, String> names =
+        entries.isEmpty()
+            ? Collections.emptyMap()
+            : db.select(TEAM.ID, TEAM.NAME)
+                .from(TEAM)
+                .where(TEAM.ID.eq(DSL.any(toIds(entries))))
+                .fetchMap(TEAM.ID, TEAM.NAME);
+
+    List<Team> teams = new ArrayList<>(entries.size());
+    for (Ranking.Entry entry : entries) {
+      if (names.containsKey(entry.getId())) {
+        teams.add(
+            new Team(
+                entry.getId(),
+                names.get(entry.getId()),
+                entry.getCompleted(),
+                entry.getReserved()));
+      }
+    }
+    return teams;
+  }
+
+  private static Integer[] toIds(List<Ranking.Entry> entries) {
+    return entries.stream().map(Ranking.Entry::getId).toArray(Integer[]::new);
   }
 }
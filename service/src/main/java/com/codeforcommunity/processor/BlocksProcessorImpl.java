@@ -1,121 +1,83 @@
 package com.codeforcommunity.processor;
 
 import static org.jooq.generated.Tables.BLOCK;
+import static org.jooq.generated.Tables.MAP_OUTBOX;
 import static org.jooq.generated.Tables.USERS;
 import static org.jooq.generated.Tables.USER_TEAM;
 import static org.jooq.generated.tables.Team.TEAM;
 
 import com.codeforcommunity.api.IBlockProcessor;
 import com.codeforcommunity.auth.JWTData;
+import com.codeforcommunity.dataaccess.BlockStateIndex;
+import com.codeforcommunity.dataaccess.BlockStats;
 import com.codeforcommunity.dto.blocks.AssignedBlock;
 import com.codeforcommunity.dto.blocks.BlockExport;
 import com.codeforcommunity.dto.blocks.BlockResponse;
 import com.codeforcommunity.dto.blocks.BlockSeedingInfo;
+import com.codeforcommunity.dto.blocks.BlockStatsDrift;
 import com.codeforcommunity.dto.blocks.GetAssignedBlocksResponse;
+import com.codeforcommunity.dto.blocks.MapReconcileStatus;
 import com.codeforcommunity.enums.BlockStatus;
 import com.codeforcommunity.enums.PrivilegeLevel;
 import com.codeforcommunity.exceptions.AdminOnlyRouteException;
-import com.codeforcommunity.requester.MapRequester;
+import com.codeforcommunity.requester.MapReconciler;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
-import org.jooq.Result;
+import org.jooq.InsertValuesStep2;
+import org.jooq.UpdateSetMoreStep;
 import org.jooq.generated.tables.records.BlockRecord;
+import org.jooq.generated.tables.records.MapOutboxRecord;
+import org.jooq.impl.DSL;
 
 public class BlocksProcessorImpl implements IBlockProcessor {
 
-  private DSLContext db;
-  private MapRequester mapRequester;
+  private final DSLContext db;
+  private final MapReconciler mapReconciler;
+  private final BlockStateIndex blockStateIndex;
+  private final BlockStats blockStats;
   private final int UPDATE_BATCH_SIZE = 1000;
 
-  public BlocksProcessorImpl(DSLContext db, MapRequester mapRequester) {
+  public BlocksProcessorImpl(
+      DSLContext db,
+      MapReconciler mapReconciler,
+      BlockStateIndex blockStateIndex,
+      BlockStats blockStats) {
     this.db = db;
-    this.mapRequester = mapRequester;
+    this.mapReconciler = mapReconciler;
+    this.blockStateIndex = blockStateIndex;
+    this.blockStats = blockStats;
   }
 
   @Override
   public BlockResponse reserveBlocks(JWTData jwtData, List<String> blockIds) {
-    Map<BlockStatus, Result<BlockRecord>> brs = getBlocksByStatus(blockIds);
-
-    List<String> failures = getInvalidBlockStatusIds(brs, BlockStatus.OPEN);
-
-    List<BlockRecord> eligibleBlocks =
-        brs.getOrDefault(BlockStatus.OPEN, db.newResult(BLOCK)).into(BlockRecord.class);
-
-    updateDatabaseBlocks(eligibleBlocks, BlockStatus.RESERVED, jwtData.getUserId());
-
-    List<String> successfulBlockIds =
-        brs.getOrDefault(BlockStatus.OPEN, db.newResult(BLOCK)).map(BlockRecord::getId);
-    mapRequester.updateBlocks(successfulBlockIds, BlockStatus.RESERVED);
-
-    return new BlockResponse(successfulBlockIds, failures);
+    return transitionBlocks(jwtData, blockIds, BlockStatus.OPEN, BlockStatus.RESERVED, false);
   }
 
   @Override
   public BlockResponse finishBlocks(JWTData jwtData, List<String> blockIds) {
-    Map<BlockStatus, Result<BlockRecord>> brs = getBlocksByStatus(blockIds);
-
-    List<String> failures = getInvalidBlockStatusIds(brs, BlockStatus.RESERVED);
-
-    List<BlockRecord> eligibleBlocks =
-        getBlocksEditableByUser(
-            brs.getOrDefault(BlockStatus.RESERVED, db.newResult(BLOCK)), jwtData, failures);
-
-    updateDatabaseBlocks(eligibleBlocks, BlockStatus.DONE, jwtData.getUserId());
-
-    List<String> successfulBlockIds =
-        eligibleBlocks.stream().map(BlockRecord::getId).collect(Collectors.toList());
-    mapRequester.updateBlocks(successfulBlockIds, BlockStatus.DONE);
-
-    return new BlockResponse(successfulBlockIds, failures);
+    return transitionBlocks(jwtData, blockIds, BlockStatus.RESERVED, BlockStatus.DONE, true);
   }
 
   @Override
   public BlockResponse releaseBlocks(JWTData jwtData, List<String> blockIds) {
-    Map<BlockStatus, Result<BlockRecord>> brs = getBlocksByStatus(blockIds);
-
-    List<String> failures = getInvalidBlockStatusIds(brs, BlockStatus.RESERVED);
-
-    List<BlockRecord> eligibleBlocks =
-        getBlocksEditableByUser(
-            brs.getOrDefault(BlockStatus.RESERVED, db.newResult(BLOCK)), jwtData, failures);
-
-    updateDatabaseBlocks(eligibleBlocks, BlockStatus.OPEN, jwtData.getUserId());
-
-    List<String> successfulBlockIds =
-        eligibleBlocks.stream().map(BlockRecord::getId).collect(Collectors.toList());
-    mapRequester.updateBlocks(successfulBlockIds, BlockStatus.OPEN);
-
-    return new BlockResponse(successfulBlockIds, failures);
+    return transitionBlocks(jwtData, blockIds, BlockStatus.RESERVED, BlockStatus.OPEN, true);
   }
 
   @Override
   public BlockResponse resetBlocks(JWTData jwtData, List<String> blockIds) {
-    Map<BlockStatus, Result<BlockRecord>> brs = getBlocksByStatus(blockIds);
-
-    List<String> failures = getInvalidBlockStatusIds(brs, BlockStatus.DONE);
-
-    List<BlockRecord> eligibleBlocks =
-        getBlocksEditableByUser(
-            brs.getOrDefault(BlockStatus.DONE, db.newResult(BLOCK)), jwtData, failures);
-
-    updateDatabaseBlocks(eligibleBlocks, BlockStatus.OPEN, jwtData.getUserId());
-
-    List<String> successfulBlockIds =
-        eligibleBlocks.stream().map(BlockRecord::getId).collect(Collectors.toList());
-    mapRequester.updateBlocks(successfulBlockIds, BlockStatus.OPEN);
-
-    return new BlockResponse(successfulBlockIds, failures);
+    return transitionBlocks(jwtData, blockIds, BlockStatus.DONE, BlockStatus.OPEN, true);
   }
 
   @Override
   public List<String> getUserReservedBlocks(JWTData jwtData, boolean includeDone) {
-    return getUserReservedBlocks(jwtData.getUserId(), includeDone).stream()
-        .map(BlockRecord::getId)
-        .collect(Collectors.toList());
+    return blockStateIndex.getUserBlocks(jwtData.getUserId(), includeDone);
   }
 
   @Override
@@ -163,21 +125,21 @@ public class BlocksProcessorImpl implements IBlockProcessor {
   }
 
   @Override
-  public void setMapToDatabase(JWTData jwtData) {
+  public MapReconcileStatus setMapToDatabase(JWTData jwtData) {
     if (jwtData.getPrivilegeLevel() != PrivilegeLevel.ADMIN) {
       throw new AdminOnlyRouteException();
     }
 
-    Map<BlockStatus, List<String>> blockStatuses =
-        db.selectFrom(BLOCK).fetchGroups(BLOCK.STATUS, BLOCK.ID);
-    for (BlockStatus status : blockStatuses.keySet()) {
-      List<String> blockIds = blockStatuses.get(status);
-      for (int i = 0; i < blockIds.size(); i += this.UPDATE_BATCH_SIZE) {
-        List<String> sublist =
-            blockIds.subList(i, Math.min(blockIds.size(), i + this.UPDATE_BATCH_SIZE));
-        mapRequester.updateBlocks(sublist, status);
-      }
+    // Only the blocks whose status on the map differs are pushed, in the background
+    return mapReconciler.start();
+  }
+
+  @Override
+  public MapReconcileStatus getMapReconcileStatus(JWTData jwtData) {
+    if (jwtData.getPrivilegeLevel() != PrivilegeLevel.ADMIN) {
+      throw new AdminOnlyRouteException();
     }
+    return mapReconciler.getStatus();
   }
 
   @Override
@@ -186,24 +148,28 @@ public class BlocksProcessorImpl implements IBlockProcessor {
       throw new AdminOnlyRouteException();
     }
 
-    blockSeedingInfos.forEach(
-        (bsi) -> {
-          db.update(BLOCK)
-              .set(BLOCK.STATUS, BlockStatus.DONE)
-              .set(BLOCK.LAST_COMPLETED, bsi.getDateCompleted())
-              .setNull(BLOCK.ASSIGNED_TO)
-              .where(BLOCK.ID.eq(bsi.getId()))
-              .execute();
-        });
-
     List<String> blockIds =
         blockSeedingInfos.stream().map(BlockSeedingInfo::getId).collect(Collectors.toList());
-    // TODO: Make this a reusable function
-    for (int i = 0; i < blockIds.size(); i += this.UPDATE_BATCH_SIZE) {
-      List<String> sublist =
-          blockIds.subList(i, Math.min(blockIds.size(), i + this.UPDATE_BATCH_SIZE));
-      mapRequester.updateBlocks(sublist, BlockStatus.DONE);
-    }
+    // Seeded blocks are not assigned to anyone, and are returned with their new versions
+    List<BlockRecord> seeded =
+        db.transactionResult(
+            config -> {
+              DSLContext ctx = DSL.using(config);
+              List<BlockRecord> updated = new ArrayList<>();
+              blockSeedingInfos.forEach(
+                  (bsi) ->
+                      updated.addAll(
+                          ctx.update(BLOCK)
+                              .set(BLOCK.STATUS, BlockStatus.DONE)
+                              .set(BLOCK.LAST_COMPLETED, bsi.getDateCompleted())
+                              .setNull(BLOCK.ASSIGNED_TO)
+                              .where(BLOCK.ID.eq(bsi.getId()))
+                              .returning(BLOCK.ID, BLOCK.ASSIGNED_TO, BLOCK.VERSION)
+                              .fetch()));
+              queueMapUpdates(ctx, blockIds, BlockStatus.DONE);
+              return updated;
+            });
+    blockStateIndex.update(seeded, BlockStatus.DONE);
   }
 
   @Override
@@ -246,99 +212,118 @@ public class BlocksProcessorImpl implements IBlockProcessor {
     return builder.toString();
   }
 
-  /**
-   * Given a list of block ids, return the corresponding block records separated by block status.
-   */
-  private Map<BlockStatus, Result<BlockRecord>> getBlocksByStatus(List<String> blockIds) {
-    return db.selectFrom(BLOCK).where(BLOCK.ID.in(blockIds)).fetchGroups(BLOCK.STATUS);
+  @Override
+  public BlockStatsDrift checkBlockStats(JWTData jwtData) {
+    if (jwtData.getPrivilegeLevel() != PrivilegeLevel.ADMIN) {
+      throw new AdminOnlyRouteException();
+    }
+    return blockStats.check();
   }
 
-  /** Get the list of block ids from the given Map that are not in the correct state. */
-  private List<String> getInvalidBlockStatusIds(
-      Map<BlockStatus, Result<BlockRecord>> blocks, BlockStatus validBlockStatus) {
-    List<String> failures = new ArrayList<>();
-    blocks.forEach(
-        (blockStatus, blockRecordResult) -> {
-          if (!blockStatus.equals(validBlockStatus)) {
-            failures.addAll(blockRecordResult.map(BlockRecord::getId));
-          }
-        });
-    return failures;
+  @Override
+  public BlockStatsDrift rebuildBlockStats(JWTData jwtData) {
+    if (jwtData.getPrivilegeLevel() != PrivilegeLevel.ADMIN) {
+      throw new AdminOnlyRouteException();
+    }
+    return blockStats.rebuild();
   }
 
   /**
-   * From the given Collection of blocks, return the list of blocks that the given user has the
-   * privilege level to modify.
+   * Move the given blocks from one status to another with a single conditional update, so that
+   * concurrent requests for the same block cannot both succeed. A block is only updated if it
+   * currently has the expected status and, if required, is assigned to the requesting user (admins
+   * may modify any user's blocks). The map updates for the changed blocks are queued in the same
+   * transaction, and the block state index is updated once it commits.
+   *
+   * @param jwtData the user making the request.
+   * @param blockIds the ids of the blocks to update.
+   * @param fromStatus the status a block must have to be updated.
+   * @param toStatus the status to update the blocks to.
+   * @param requireAssignee whether a block must be assigned to the requesting user to be updated.
+   * @return the ids of the blocks that were updated and the ids of the blocks that were not.
    */
-  private List<BlockRecord> getBlocksEditableByUser(
-      Result<BlockRecord> blocks, JWTData userData, List<String> failures) {
-    if (userData.getPrivilegeLevel() == PrivilegeLevel.ADMIN) {
-      return blocks.into(BlockRecord.class);
-    }
-
-    List<BlockRecord> eligibleBlocks = new ArrayList<>();
-    blocks.forEach(
-        blockRecord -> {
-          if (blockRecord.getAssignedTo().equals(userData.getUserId())) {
-            eligibleBlocks.add(blockRecord);
-          } else {
-            failures.add(blockRecord.getId());
-          }
-        });
-    return eligibleBlocks;
+  private BlockResponse transitionBlocks(
+      JWTData jwtData,
+      List<String> blockIds,
+      BlockStatus fromStatus,
+      BlockStatus toStatus,
+      boolean requireAssignee) {
+    List<BlockRecord> updated =
+        db.transactionResult(
+            config -> {
+              DSLContext ctx = DSL.using(config);
+              List<BlockRecord> blocks =
+                  updateBlockStatuses(
+                      ctx, jwtData, blockIds, fromStatus, toStatus, requireAssignee);
+              queueMapUpdates(
+                  ctx,
+                  blocks.stream().map(BlockRecord::getId).collect(Collectors.toList()),
+                  toStatus);
+              return blocks;
+            });
+    blockStateIndex.update(updated, toStatus);
+
+    List<String> successes = updated.stream().map(BlockRecord::getId).collect(Collectors.toList());
+    Set<String> succeeded = new HashSet<>(successes);
+    List<String> failures =
+        blockIds.stream().filter(id -> !succeeded.contains(id)).collect(Collectors.toList());
+
+    return new BlockResponse(successes, failures);
   }
 
   /**
-   * Update the database records of the given blocks to the new status with the appropriate
-   * assignedTo value.
+   * Update the status of each of the given blocks that is eligible for the transition.
+   *
+   * @return the updated blocks, with their id, the user they are now assigned to and their version.
    */
-  private void updateDatabaseBlocks(
-      List<BlockRecord> eligibleBlocks, BlockStatus newStatus, int userId) {
-    eligibleBlocks.forEach(
-        br -> {
-          Integer setToId;
-          switch (newStatus) {
-            case OPEN:
-              setToId = null;
-              break;
-            case RESERVED:
-              setToId = userId;
-              br.setLastReserved(new Timestamp(System.currentTimeMillis()));
-              break;
-            case DONE:
-              setToId = br.getAssignedTo();
-              br.setLastCompleted(new Timestamp(System.currentTimeMillis()));
-              break;
-            default:
-              throw new UnsupportedOperationException("BlockStatus " + newStatus + " is unhandled");
-          }
-
-          br.setAssignedTo(setToId);
-          br.setStatus(newStatus);
-          br.setUpdatedTimestamp(new Timestamp(System.currentTimeMillis()));
-          br.store();
-        });
+  private List<BlockRecord> updateBlockStatuses(
+      DSLContext ctx,
+      JWTData jwtData,
+      List<String> blockIds,
+      BlockStatus fromStatus,
+      BlockStatus toStatus,
+      boolean requireAssignee) {
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+
+    UpdateSetMoreStep<BlockRecord> update =
+        ctx.update(BLOCK).set(BLOCK.STATUS, toStatus).set(BLOCK.UPDATED_TIMESTAMP, now);
+    switch (toStatus) {
+      case OPEN:
+        update = update.setNull(BLOCK.ASSIGNED_TO);
+        break;
+      case RESERVED:
+        update = update.set(BLOCK.ASSIGNED_TO, jwtData.getUserId()).set(BLOCK.LAST_RESERVED, now);
+        break;
+      case DONE:
+        update = update.set(BLOCK.LAST_COMPLETED, now);
+        break;
+      default:
+        throw new UnsupportedOperationException("BlockStatus " + toStatus + " is unhandled");
+    }
+
+    Condition condition =
+        BLOCK.ID.eq(DSL.any(blockIds.toArray(new String[0]))).and(BLOCK.STATUS.eq(fromStatus));
+    if (requireAssignee && jwtData.getPrivilegeLevel() != PrivilegeLevel.ADMIN) {
+      condition = condition.and(BLOCK.ASSIGNED_TO.eq(jwtData.getUserId()));
+    }
+
+    return update.where(condition).returning(BLOCK.ID, BLOCK.ASSIGNED_TO, BLOCK.VERSION).fetch();
   }
 
   /**
-   * Returns all blocks that are reserved by a user.
-   *
-   * @param userId the ID of the user.
-   * @param includeDone if true, returns all blocks that are "RESERVED" or "DONE", else only returns
-   *     "RESERVED" blocks
-   * @return A list of BlockRecord that are assigned to the given user.
+   * Record that the given blocks must be updated on the map. This must run in the same transaction
+   * as the status change, so that the map update is sent if and only if the change is committed.
    */
-  private List<BlockRecord> getUserReservedBlocks(int userId, boolean includeDone) {
-    if (includeDone) {
-      return db.selectFrom(BLOCK)
-          .where(BLOCK.STATUS.equal(BlockStatus.RESERVED).or(BLOCK.STATUS.equal(BlockStatus.DONE)))
-          .and(BLOCK.ASSIGNED_TO.equal(userId))
-          .fetch();
-    } else {
-      return db.selectFrom(BLOCK)
-          .where(BLOCK.STATUS.equal(BlockStatus.RESERVED))
-          .and(BLOCK.ASSIGNED_TO.equal(userId))
-          .fetch();
+  private void queueMapUpdates(DSLContext ctx, List<String> blockIds, BlockStatus status) {
+    if (blockIds.isEmpty()) {
+      return;
+    }
+
+    InsertValuesStep2<MapOutboxRecord, String, BlockStatus> insert =
+        ctx.insertInto(MAP_OUTBOX, MAP_OUTBOX.BLOCK_ID, MAP_OUTBOX.STATUS);
+    for (String blockId : blockIds) {
+      insert = insert.values(blockId, status);
     }
+    insert.execute();
   }
 }
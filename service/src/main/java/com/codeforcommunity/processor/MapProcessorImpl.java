@@ -0,0 +1,241 @@
+package com.codeforcommunity.processor;
+
+import com.codeforcommunity.api.IMapProcessor;
+import com.codeforcommunity.dataaccess.BlockChangeLog;
+import com.codeforcommunity.dataaccess.BlockStatusSnapshot;
+import com.codeforcommunity.dto.map.BlockChanges;
+import com.codeforcommunity.dto.map.BoundingBox;
+import com.codeforcommunity.dto.map.EncodedResource;
+import com.codeforcommunity.exceptions.FailedFileLoadException;
+import com.codeforcommunity.exceptions.MalformedParameterException;
+import com.codeforcommunity.geo.LineFeature;
+import com.codeforcommunity.geo.Simplifier;
+import com.codeforcommunity.geo.StrTree;
+import com.codeforcommunity.geo.TileCache;
+import com.codeforcommunity.geo.VectorTileEncoder;
+import com.codeforcommunity.logger.SLogger;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class MapProcessorImpl implements IMapProcessor {
+  private static final String PRIVATE_STREETS_PATH = "private_streets_light.geojson";
+  // The zoom levels that get a simplified copy of each layer, zooms past the last get full detail
+  private static final int[] SIMPLIFIED_ZOOM_LEVELS = {10, 12, 14, 16};
+  private static final Buffer FEATURE_COLLECTION_START =
+      Buffer.buffer("{\"type\":\"FeatureCollection\",\"features\":[");
+  private static final Buffer FEATURE_COLLECTION_END = Buffer.buffer("]}");
+  private static final String PRIVATE_STREETS_LAYER = "private_streets";
+  private static final int MAX_TILE_ZOOM = 22;
+
+  private final SLogger logger = new SLogger(MapProcessorImpl.class);
+  private final StreetLayer privateStreets;
+  private final TileCache tileCache;
+  private final BlockStatusSnapshot statusSnapshot;
+  private final BlockChangeLog changeLog;
+
+  /**
+   * Load, encode and index the map layers, so that serving them never touches the file system.
+   *
+   * @param statusSnapshot the packed status of every block.
+   * @param changeLog the most recent block status changes.
+   * @param tileCacheSize the largest number of vector tiles to keep cached.
+   */
+  public MapProcessorImpl(
+      BlockStatusSnapshot statusSnapshot, BlockChangeLog changeLog, int tileCacheSize) {
+    this.privateStreets = new StreetLayer(loadGeoJson(PRIVATE_STREETS_PATH));
+    this.tileCache = new TileCache(tileCacheSize);
+    this.statusSnapshot = statusSnapshot;
+    this.changeLog = changeLog;
+  }
+
+  @Override
+  public EncodedResource getPrivateStreets(int zoom) {
+    return privateStreets.atZoom(zoom).encoded;
+  }
+
+  @Override
+  public Buffer getPrivateStreetsInBounds(BoundingBox bounds, int zoom) {
+    return privateStreets.inBounds(bounds, zoom);
+  }
+
+  @Override
+  public EncodedResource getTile(int z, int x, int y) {
+    if (z < 0 || z > MAX_TILE_ZOOM) {
+      throw new MalformedParameterException("z");
+    }
+    int tiles = 1 << z;
+    if (x < 0 || x >= tiles) {
+      throw new MalformedParameterException("x");
+    }
+    if (y < 0 || y >= tiles) {
+      throw new MalformedParameterException("y");
+    }
+
+    return tileCache.get(z, x, y, () -> generateTile(z, x, y));
+  }
+
+  @Override
+  public EncodedResource getBlockIds() {
+    return statusSnapshot.getDictionary();
+  }
+
+  @Override
+  public EncodedResource getBlockStatuses() {
+    return statusSnapshot.getStatuses();
+  }
+
+  @Override
+  public Future<BlockChanges> getBlockChanges(String since, long waitMs) {
+    return changeLog.getChanges(since, waitMs);
+  }
+
+  private EncodedResource generateTile(int z, int x, int y) {
+    VectorTileEncoder encoder = new VectorTileEncoder(z, x, y);
+    Level level = privateStreets.atZoom(z);
+    for (int i : privateStreets.index.query(VectorTileEncoder.tileBounds(z, x, y))) {
+      if (level.coordinates[i] != null) {
+        JsonObject properties = privateStreets.lines.get(i).getJson().getJsonObject("properties");
+        encoder.addLine(PRIVATE_STREETS_LAYER, level.coordinates[i], properties);
+      }
+    }
+    return EncodedResource.of(encoder.encode(), "application/vnd.mapbox-vector-tile");
+  }
+
+  /** Read and parse the given GeoJSON file from the classpath. */
+  private JsonObject loadGeoJson(String path) {
+    try (InputStream input = MapProcessorImpl.class.getClassLoader().getResourceAsStream(path)) {
+      if (input == null) {
+        throw new IOException("Resource not found on the classpath");
+      }
+
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      byte[] chunk = new byte[8192];
+      int read;
+      while ((read = input.read(chunk)) != -1) {
+        output.write(chunk, 0, read);
+      }
+      return new JsonObject(Buffer.buffer(output.toByteArray()));
+    } catch (Exception e) {
+      logger.error("There was an error loading GeoJSON data from " + path, e);
+      throw new FailedFileLoadException(path);
+    }
+  }
+
+  /**
+   * A layer of LineString features, indexed by location and encoded at full detail and at each
+   * simplified zoom level.
+   */
+  private static class StreetLayer {
+    private final List<LineFeature> lines;
+    // Indexes into lines, so that any level's copy of a line can be looked up
+    private final StrTree<Integer> index;
+    private final Level fullDetail;
+    private final TreeMap<Integer, Level> simplified = new TreeMap<>();
+
+    private StreetLayer(JsonObject featureCollection) {
+      JsonArray features = featureCollection.getJsonArray("features");
+      this.lines = new ArrayList<>(features.size());
+      for (int i = 0; i < features.size(); i++) {
+        lines.add(new LineFeature(features.getJsonObject(i)));
+      }
+      this.index =
+          new StrTree<>(
+              IntStream.range(0, lines.size()).boxed().collect(Collectors.toList()),
+              i -> lines.get(i).getBounds());
+
+      Buffer[] encodedFeatures = new Buffer[lines.size()];
+      double[][] coordinates = new double[lines.size()][];
+      for (int i = 0; i < lines.size(); i++) {
+        encodedFeatures[i] = lines.get(i).getEncoded();
+        coordinates[i] = lines.get(i).getCoordinates();
+      }
+      this.fullDetail = new Level(encodedFeatures, coordinates);
+      for (int zoom : SIMPLIFIED_ZOOM_LEVELS) {
+        simplified.put(zoom, simplify(zoom));
+      }
+    }
+
+    /**
+     * Simplify every line to within a pixel at the given zoom, with coordinates rounded to half a
+     * pixel. Lines that shrink to a single point are left out of the level.
+     */
+    private Level simplify(int zoom) {
+      double pixelSize = Simplifier.pixelSize(zoom);
+      int decimals = (int) Math.ceil(-Math.log10(pixelSize / 2));
+
+      Buffer[] features = new Buffer[lines.size()];
+      double[][] coordinates = new double[lines.size()][];
+      for (int i = 0; i < lines.size(); i++) {
+        LineFeature line = lines.get(i);
+        double[] simplifiedLine =
+            Simplifier.quantize(Simplifier.simplify(line.getCoordinates(), pixelSize), decimals);
+        if (simplifiedLine.length >= 4) {
+          features[i] = line.encodeWith(simplifiedLine);
+          coordinates[i] = simplifiedLine;
+        }
+      }
+      return new Level(features, coordinates);
+    }
+
+    /** @return the least detailed level that is still accurate at the given zoom. */
+    private Level atZoom(int zoom) {
+      Map.Entry<Integer, Level> level = simplified.ceilingEntry(zoom);
+      return level == null ? fullDetail : level.getValue();
+    }
+
+    private Buffer inBounds(BoundingBox bounds, int zoom) {
+      Level level = atZoom(zoom);
+      List<Buffer> features = new ArrayList<>();
+      for (int i : index.query(bounds)) {
+        // The index only compares bounding boxes, so check the line itself
+        if (level.features[i] != null && lines.get(i).intersects(bounds)) {
+          features.add(level.features[i]);
+        }
+      }
+      return featureCollection(features);
+    }
+  }
+
+  /** One copy of a layer, with each feature encoded by itself and the whole layer encoded. */
+  private static class Level {
+    // Aligned with the layer's lines, null where a line is left out of this copy
+    private final Buffer[] features;
+    private final double[][] coordinates;
+    private final EncodedResource encoded;
+
+    private Level(Buffer[] features, double[][] coordinates) {
+      this.features = features;
+      this.coordinates = coordinates;
+      List<Buffer> included = new ArrayList<>();
+      for (Buffer feature : features) {
+        if (feature != null) {
+          included.add(feature);
+        }
+      }
+      this.encoded =
+          EncodedResource.of(featureCollection(included).getBytes(), "application/geo+json");
+    }
+  }
+
+  private static Buffer featureCollection(List<Buffer> features) {
+    Buffer body = Buffer.buffer().appendBuffer(FEATURE_COLLECTION_START);
+    for (int i = 0; i < features.size(); i++) {
+      if (i > 0) {
+        body.appendByte((byte) ',');
+      }
+      body.appendBuffer(features.get(i));
+    }
+    return body.appendBuffer(FEATURE_COLLECTION_END);
+  }
+}
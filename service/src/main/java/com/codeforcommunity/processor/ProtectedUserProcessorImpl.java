@@ -11,6 +11,10 @@ import com.codeforcommunity.api.IProtectedUserProcessor;
 import com.codeforcommunity.auth.JWTData;
 import com.codeforcommunity.auth.Passwords;
 import com.codeforcommunity.dataaccess.AuthDatabaseOperations;
+import com.codeforcommunity.dataaccess.Leaderboards;
+import com.codeforcommunity.dataaccess.TeamCache;
+import com.codeforcommunity.dataaccess.TeamDirectory;
+import com.codeforcommunity.dataaccess.TeamRoleCache;
 import com.codeforcommunity.dto.user.ChangeEmailRequest;
 import com.codeforcommunity.dto.user.ChangePasswordRequest;
 import com.codeforcommunity.dto.user.ChangeUsernameRequest;
@@ -33,10 +37,24 @@ public class ProtectedUserProcessorImpl implements IProtectedUserProcessor {
 
   private final DSLContext db;
   private final Emailer emailer;
-
-  public ProtectedUserProcessorImpl(DSLContext db, Emailer emailer) {
+  private final Leaderboards leaderboards;
+  private final TeamCache teamCache;
+  private final TeamDirectory teamDirectory;
+  private final TeamRoleCache teamRoles;
+
+  public ProtectedUserProcessorImpl(
+      DSLContext db,
+      Emailer emailer,
+      Leaderboards leaderboards,
+      TeamCache teamCache,
+      TeamDirectory teamDirectory,
+      TeamRoleCache teamRoles) {
     this.db = db;
     this.emailer = emailer;
+    this.leaderboards = leaderboards;
+    this.teamCache = teamCache;
+    this.teamDirectory = teamDirectory;
+    this.teamRoles = teamRoles;
   }
 
   @Override
@@ -59,6 +77,7 @@ public class ProtectedUserProcessorImpl implements IProtectedUserProcessor {
               db.selectFrom(TEAM).where(TEAM.ID.eq(userTeamRecord.getTeamId())).fetchOne();
           db.insertInto(DELETED_TEAM).set(team.intoMap());
           team.delete();
+          teamRoles.removeTeam(userTeamRecord.getTeamId());
         } else {
           db.executeDelete(userTeamRecord, USER_TEAM.USER_ID.eq(userId));
         }
@@ -70,6 +89,18 @@ public class ProtectedUserProcessorImpl implements IProtectedUserProcessor {
     db.insertInto(DELETED_USERS).set(user.intoMap()).execute();
     user.delete();
 
+    leaderboards.removeUser(userId);
+    teamRoles.removeUser(userId);
+    teamCache.invalidateUser(userId);
+    maybeUserTeamRecords.ifPresent(
+        userTeamRecords ->
+            userTeamRecords.forEach(
+                record -> {
+                  leaderboards.refreshTeam(record.getTeamId());
+                  teamDirectory.refreshTeam(record.getTeamId());
+                  teamCache.invalidate(record.getTeamId());
+                }));
+
     emailer.sendAccountDeactivatedEmail(
         user.getEmail(), AuthDatabaseOperations.getFullName(user.into(Users.class)));
   }
@@ -144,6 +175,7 @@ public class ProtectedUserProcessorImpl implements IProtectedUserProcessor {
 
       user.setUsername(changeUsernameRequest.getNewUsername());
       user.store();
+      teamCache.invalidateUser(user.getId());
     } else {
       throw new WrongPasswordException();
     }
@@ -4,11 +4,16 @@ import static org.jooq.generated.Tables.BLOCK;
 import static org.jooq.generated.Tables.DELETED_TEAM;
 import static org.jooq.generated.Tables.TEAM;
 import static org.jooq.generated.Tables.USERS;
+import static org.jooq.generated.Tables.USER_BLOCK_STATS;
 import static org.jooq.generated.Tables.USER_TEAM;
 
 import com.codeforcommunity.api.ITeamsProcessor;
 import com.codeforcommunity.auth.JWTData;
-import com.codeforcommunity.dto.blockInfo.Individual;
+import com.codeforcommunity.dataaccess.Leaderboards;
+import com.codeforcommunity.dataaccess.TeamCache;
+import com.codeforcommunity.dataaccess.TeamCache.CachedTeam;
+import com.codeforcommunity.dataaccess.TeamDirectory;
+import com.codeforcommunity.dataaccess.TeamRoleCache;
 import com.codeforcommunity.dto.team.AdminTeamSummary;
 import com.codeforcommunity.dto.team.CreateTeamRequest;
 import com.codeforcommunity.dto.team.GetAllTeamsAdminResponse;
@@ -34,16 +39,17 @@ import com.codeforcommunity.exceptions.UserAlreadyOnTeamException;
 import com.codeforcommunity.exceptions.UserDoesNotExistException;
 import com.codeforcommunity.exceptions.UserNotOnTeamException;
 import com.codeforcommunity.requester.Emailer;
-import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.jooq.DSLContext;
 import org.jooq.Field;
-import org.jooq.Record5;
+import org.jooq.Record6;
 import org.jooq.Result;
 import org.jooq.generated.tables.pojos.Team;
 import org.jooq.generated.tables.pojos.Users;
@@ -55,10 +61,24 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
 
   private final DSLContext db;
   private final Emailer emailer;
-
-  public TeamsProcessorImpl(DSLContext db, Emailer emailer) {
+  private final Leaderboards leaderboards;
+  private final TeamCache teamCache;
+  private final TeamDirectory teamDirectory;
+  private final TeamRoleCache teamRoles;
+
+  public TeamsProcessorImpl(
+      DSLContext db,
+      Emailer emailer,
+      Leaderboards leaderboards,
+      TeamCache teamCache,
+      TeamDirectory teamDirectory,
+      TeamRoleCache teamRoles) {
     this.db = db;
     this.emailer = emailer;
+    this.leaderboards = leaderboards;
+    this.teamCache = teamCache;
+    this.teamDirectory = teamDirectory;
+    this.teamRoles = teamRoles;
   }
 
   @Override
@@ -89,6 +109,9 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
         .columns(USER_TEAM.fields())
         .values(userData.getUserId(), teamRecord.getId(), TeamRole.LEADER)
         .execute();
+    teamRoles.setRole(userData.getUserId(), teamRecord.getId(), TeamRole.LEADER);
+    leaderboards.refreshTeam(teamRecord.getId());
+    teamDirectory.refreshTeam(teamRecord.getId());
 
     return getSingleTeam(userData, teamRecord.getId());
   }
@@ -104,25 +127,19 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
     }
 
     int userId = userData.getUserId();
-    Optional<UserTeamRecord> maybeUserTeam =
-        Optional.ofNullable(
-            db.selectFrom(USER_TEAM)
-                .where(USER_TEAM.TEAM_ID.eq(teamId))
-                .and(USER_TEAM.USER_ID.eq(userId))
-                .fetchOne());
-
-    if (maybeUserTeam.isPresent()) {
-      if (maybeUserTeam.get().getTeamRole() == TeamRole.PENDING) {
-        throw new ExistingTeamRequestException(userData.getUserId(), teamId);
-      } else if (maybeUserTeam.get().getTeamRole() != TeamRole.NONE) {
-        throw new UserAlreadyOnTeamException(userData.getUserId(), teamId);
-      }
+    TeamRole userTeamRole = teamRoles.getRole(userId, teamId);
+    if (userTeamRole == TeamRole.PENDING) {
+      throw new ExistingTeamRequestException(userData.getUserId(), teamId);
+    } else if (userTeamRole != TeamRole.NONE) {
+      throw new UserAlreadyOnTeamException(userData.getUserId(), teamId);
     }
 
     db.insertInto(USER_TEAM)
         .columns(USER_TEAM.TEAM_ID, USER_TEAM.USER_ID, USER_TEAM.TEAM_ROLE)
         .values(teamId, userId, TeamRole.PENDING)
         .execute();
+    teamRoles.setRole(userId, teamId, TeamRole.PENDING);
+    teamCache.invalidate(teamId);
   }
 
   @Override
@@ -131,13 +148,7 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
     // Get all applicant pojos for this team
     // Get info for each applicant
 
-    if (!db.fetchExists(
-        USER_TEAM,
-        USER_TEAM
-            .TEAM_ID
-            .eq(teamId)
-            .and(USER_TEAM.TEAM_ROLE.eq(TeamRole.LEADER))
-            .and(USER_TEAM.USER_ID.eq(userData.getUserId())))) {
+    if (teamRoles.getRole(userData.getUserId(), teamId) != TeamRole.LEADER) {
       throw new TeamLeaderOnlyRouteException(teamId);
     }
 
@@ -158,13 +169,7 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
     // Add the user to the team
     // Delete the team application row
 
-    if (!db.fetchExists(
-        USER_TEAM,
-        USER_TEAM
-            .TEAM_ID
-            .eq(teamId)
-            .and(USER_TEAM.TEAM_ROLE.eq(TeamRole.LEADER))
-            .and(USER_TEAM.USER_ID.eq(userData.getUserId())))) {
+    if (teamRoles.getRole(userData.getUserId(), teamId) != TeamRole.LEADER) {
       throw new TeamLeaderOnlyRouteException(teamId);
     }
 
@@ -184,6 +189,10 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
 
     applicantRecord.setTeamRole(TeamRole.MEMBER);
     applicantRecord.store();
+    teamRoles.setRole(applicantId, teamId, TeamRole.MEMBER);
+    leaderboards.refreshTeam(teamId);
+    teamDirectory.refreshTeam(teamId);
+    teamCache.invalidate(teamId);
   }
 
   @Override
@@ -193,13 +202,7 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
     // Delete this request from team applicants table
     // Delete the team application row
 
-    if (!db.fetchExists(
-        USER_TEAM,
-        USER_TEAM
-            .TEAM_ID
-            .eq(teamId)
-            .and(USER_TEAM.TEAM_ROLE.eq(TeamRole.LEADER))
-            .and(USER_TEAM.USER_ID.eq(userData.getUserId())))) {
+    if (teamRoles.getRole(userData.getUserId(), teamId) != TeamRole.LEADER) {
       throw new TeamLeaderOnlyRouteException(teamId);
     }
 
@@ -218,22 +221,20 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
     }
 
     applicantRecord.delete();
+    teamRoles.setRole(applicantId, teamId, TeamRole.NONE);
+    teamCache.invalidate(teamId);
   }
 
   @Override
   public void leaveTeam(JWTData userData, int teamId) {
-    UserTeamRecord userTeamRecord =
-        db.selectFrom(USER_TEAM)
-            .where(USER_TEAM.USER_ID.eq(userData.getUserId()))
-            .and(USER_TEAM.TEAM_ID.eq(teamId))
-            .fetchOne();
+    TeamRole userTeamRole = teamRoles.getRole(userData.getUserId(), teamId);
 
-    if (userTeamRecord == null) {
+    if (userTeamRole == TeamRole.NONE) {
       // Maybe just ignore?
       throw new UserNotOnTeamException(userData.getUserId(), teamId);
     }
 
-    if (userTeamRecord.getTeamRole() == TeamRole.LEADER) {
+    if (userTeamRole == TeamRole.LEADER) {
       throw new TeamLeaderExcludedRouteException(teamId);
     }
 
@@ -241,17 +242,15 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
         .where(USER_TEAM.USER_ID.eq(userData.getUserId()))
         .and(USER_TEAM.TEAM_ID.eq(teamId))
         .execute();
+    teamRoles.setRole(userData.getUserId(), teamId, TeamRole.NONE);
+    leaderboards.refreshTeam(teamId);
+    teamDirectory.refreshTeam(teamId);
+    teamCache.invalidate(teamId);
   }
 
   @Override
   public void disbandTeam(JWTData userData, int teamId) {
-    UserTeamRecord userTeamRecord =
-        db.selectFrom(USER_TEAM)
-            .where(USER_TEAM.USER_ID.eq(userData.getUserId()))
-            .and(USER_TEAM.TEAM_ID.eq(teamId))
-            .fetchOne();
-
-    if (userTeamRecord == null || userTeamRecord.getTeamRole() != TeamRole.LEADER) {
+    if (teamRoles.getRole(userData.getUserId(), teamId) != TeamRole.LEADER) {
       throw new TeamLeaderOnlyRouteException(teamId);
     }
 
@@ -261,17 +260,15 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
     db.insertInto(DELETED_TEAM).set(team.intoMap()).execute();
 
     team.delete();
+    teamRoles.removeTeam(teamId);
+    leaderboards.refreshTeam(teamId);
+    teamDirectory.refreshTeam(teamId);
+    teamCache.invalidate(teamId);
   }
 
   @Override
   public void kickFromTeam(JWTData userData, int teamId, int kickUserId) {
-    UserTeamRecord userTeamRecord =
-        db.selectFrom(USER_TEAM)
-            .where(USER_TEAM.USER_ID.eq(userData.getUserId()))
-            .and(USER_TEAM.TEAM_ID.eq(teamId))
-            .fetchOne();
-
-    if (userTeamRecord == null || userTeamRecord.getTeamRole() != TeamRole.LEADER) {
+    if (teamRoles.getRole(userData.getUserId(), teamId) != TeamRole.LEADER) {
       throw new TeamLeaderOnlyRouteException(teamId);
     }
 
@@ -279,28 +276,23 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
         .where(USER_TEAM.USER_ID.eq(kickUserId))
         .and(USER_TEAM.TEAM_ID.eq(teamId))
         .execute();
+    teamRoles.setRole(kickUserId, teamId, TeamRole.NONE);
+    leaderboards.refreshTeam(teamId);
+    teamDirectory.refreshTeam(teamId);
+    teamCache.invalidate(teamId);
   }
 
   @Override
   public void inviteToTeam(JWTData userData, InviteMembersRequest inviteMembersRequest) {
     int teamId = inviteMembersRequest.getTeamId();
-    UserTeamRecord userTeamRecord =
-        db.selectFrom(USER_TEAM)
-            .where(USER_TEAM.USER_ID.eq(userData.getUserId()))
-            .and(USER_TEAM.TEAM_ID.eq(teamId))
-            .fetchOne();
-
-    if (userTeamRecord == null || userTeamRecord.getTeamRole() != TeamRole.LEADER) {
+    if (teamRoles.getRole(userData.getUserId(), teamId) != TeamRole.LEADER) {
       throw new TeamLeaderOnlyRouteException(teamId);
     }
 
     Users inviter =
-        db.selectFrom(USERS)
-            .where(USERS.ID.eq(userTeamRecord.getUserId()))
-            .fetchOneInto(Users.class);
+        db.selectFrom(USERS).where(USERS.ID.eq(userData.getUserId())).fetchOneInto(Users.class);
 
-    Team inviterTeam =
-        db.selectFrom(TEAM).where(TEAM.ID.eq(userTeamRecord.getTeamId())).fetchOneInto(Team.class);
+    Team inviterTeam = db.selectFrom(TEAM).where(TEAM.ID.eq(teamId)).fetchOneInto(Team.class);
 
     inviteMembersRequest
         .getEmails()
@@ -311,25 +303,32 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
   }
 
   @Override
-  public GetAllTeamsResponse getAllTeams(JWTData userData) {
-    Field<TeamRole> userTeamRole =
-        db.select(USER_TEAM.TEAM_ROLE)
-            .from(USER_TEAM)
-            .where(USER_TEAM.TEAM_ID.eq(TEAM.ID))
-            .and(USER_TEAM.USER_ID.eq(userData.getUserId()))
-            .asField("userTeamRole");
+  public GetAllTeamsResponse getAllTeams(JWTData userData, String query, String after, int limit) {
+    TeamDirectory.Page page = teamDirectory.find(query, after, limit);
+    if (page.getTeams().isEmpty()) {
+      return new GetAllTeamsResponse(new ArrayList<>(), 0, null);
+    }
 
-    List<TeamSummary> teams =
-        db.select(TEAM.ID, TEAM.NAME, DSL.count().as("memberCount"), userTeamRole)
-            .from(TEAM)
-            .leftJoin(USER_TEAM)
-            .on(TEAM.ID.eq(USER_TEAM.TEAM_ID))
-            .where(
-                USER_TEAM.TEAM_ROLE.eq(TeamRole.LEADER).or(USER_TEAM.TEAM_ROLE.eq(TeamRole.MEMBER)))
-            .groupBy(TEAM.ID)
-            .orderBy(TEAM.NAME.asc())
-            .fetchInto(TeamSummary.class);
-    return new GetAllTeamsResponse(teams, teams.size());
+    // The user's role on each team on the page, from a single query
+    List<Integer> teamIds =
+        page.getTeams().stream().map(TeamDirectory.Entry::getId).collect(Collectors.toList());
+    Map<Integer, TeamRole> userTeamRoles =
+        db.select(USER_TEAM.TEAM_ID, USER_TEAM.TEAM_ROLE)
+            .from(USER_TEAM)
+            .where(USER_TEAM.USER_ID.eq(userData.getUserId()))
+            .and(USER_TEAM.TEAM_ID.in(teamIds))
+            .fetchMap(USER_TEAM.TEAM_ID, USER_TEAM.TEAM_ROLE);
+
+    List<TeamSummary> teams = new ArrayList<>(page.getTeams().size());
+    for (TeamDirectory.Entry team : page.getTeams()) {
+      teams.add(
+          new TeamSummary(
+              team.getId(),
+              team.getName(),
+              team.getMemberCount(),
+              userTeamRoles.get(team.getId())));
+    }
+    return new GetAllTeamsResponse(teams, teams.size(), page.getNextCursor());
   }
 
   @Override
@@ -362,62 +361,75 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
 
   @Override
   public TeamResponse getSingleTeam(JWTData userData, int teamId) {
+    CachedTeam team = teamCache.get(teamId, () -> loadTeam(teamId));
+    if (team == null) {
+      throw new NoSuchTeamException(teamId);
+    }
+    return toTeamResponse(userData, team);
+  }
+
+  /** @return the team with its members, or null if there is no team with the given ID. */
+  private CachedTeam loadTeam(int teamId) {
     Team teamPojo = db.selectFrom(TEAM).where(TEAM.ID.eq(teamId)).fetchOneInto(Team.class);
     if (teamPojo == null) {
-      throw new NoSuchTeamException(teamId);
+      return null;
     }
-    List<TeamMember> teamMembers = getTeamMembers(teamId);
-    TeamRole userTeamRole =
-        teamMembers.stream()
-            .filter(tm -> tm.getId() == userData.getUserId())
-            .map(TeamMember::getRole)
-            .findFirst()
-            .orElse(TeamRole.NONE);
-
-    boolean applicantsToReview =
-        userTeamRole.equals(TeamRole.LEADER)
-            && teamMembers.stream().anyMatch(tm -> tm.getRole().equals(TeamRole.PENDING));
-
-    List<TeamMember> activeMembers =
-        teamMembers.stream()
-            .filter(
-                tm -> tm.getRole().equals(TeamRole.MEMBER) || tm.getRole().equals(TeamRole.LEADER))
-            .collect(Collectors.toList());
-    int doneBlocks =
-        activeMembers.stream().map(Individual::getBlocksCompleted).reduce(0, Integer::sum);
-    int reservedBlocks =
-        activeMembers.stream().map(Individual::getBlocksReserved).reduce(0, Integer::sum);
-    return new TeamResponse(
-        teamPojo.getId(),
-        teamPojo.getName(),
-        teamPojo.getBio(),
-        teamPojo.getGoal(),
-        teamPojo.getGoalCompletionDate(),
-        doneBlocks,
-        reservedBlocks,
-        userTeamRole,
-        applicantsToReview,
-        activeMembers);
+    List<TeamMember> members =
+        getTeamMembers(Collections.singletonList(teamId))
+            .getOrDefault(teamId, Collections.emptyList());
+    return new CachedTeam(teamPojo, members);
   }
 
   @Override
   public GetUserTeamsResponse getUserTeams(JWTData userdata) {
-    List<TeamResponse> ret = new ArrayList<TeamResponse>();
-    List<UserTeamRecord> userTeamRecords =
-        db.selectFrom(USER_TEAM)
-            .where(USER_TEAM.USER_ID.eq(userdata.getUserId()))
-            .and(
-                USER_TEAM.TEAM_ROLE.eq(TeamRole.MEMBER).or(USER_TEAM.TEAM_ROLE.eq(TeamRole.LEADER)))
-            .fetch();
+    // The teams, and then the members of all of them, are each loaded in a single query
+    List<Team> teams =
+        db.selectFrom(TEAM)
+            .where(
+                TEAM.ID.in(
+                    db.select(USER_TEAM.TEAM_ID)
+                        .from(USER_TEAM)
+                        .where(USER_TEAM.USER_ID.eq(userdata.getUserId()))
+                        .and(USER_TEAM.TEAM_ROLE.in(TeamRole.MEMBER, TeamRole.LEADER))))
+            .orderBy(TEAM.ID)
+            .fetchInto(Team.class);
+    if (teams.isEmpty()) {
+      return new GetUserTeamsResponse(new ArrayList<>());
+    }
 
-    for (UserTeamRecord record : userTeamRecords) {
-      int teamid = record.getTeamId();
-      ret.add(getSingleTeam(userdata, teamid));
+    Map<Integer, List<TeamMember>> teamMembers =
+        getTeamMembers(teams.stream().map(Team::getId).collect(Collectors.toList()));
+    List<TeamResponse> ret = new ArrayList<>(teams.size());
+    for (Team team : teams) {
+      ret.add(
+          toTeamResponse(
+              userdata,
+              new CachedTeam(
+                  team, teamMembers.getOrDefault(team.getId(), Collections.emptyList()))));
     }
 
     return new GetUserTeamsResponse(ret);
   }
 
+  /** Add the fields that depend on who is asking to a team that does not. */
+  private TeamResponse toTeamResponse(JWTData userData, CachedTeam team) {
+    TeamRole userTeamRole = team.getRole(userData.getUserId());
+    boolean applicantsToReview = userTeamRole == TeamRole.LEADER && team.hasApplicants();
+
+    Team teamPojo = team.getTeam();
+    return new TeamResponse(
+        teamPojo.getId(),
+        teamPojo.getName(),
+        teamPojo.getBio(),
+        teamPojo.getGoal(),
+        teamPojo.getGoalCompletionDate(),
+        team.getBlocksCompleted(),
+        team.getBlocksReserved(),
+        userTeamRole,
+        applicantsToReview,
+        team.getActiveMembers());
+  }
+
   @Override
   public String getAllTeamsForExport(JWTData userData) {
     if (userData.getPrivilegeLevel() != PrivilegeLevel.ADMIN) {
@@ -471,36 +483,43 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
     return builder.toString();
   }
 
-  private List<TeamMember> getTeamMembers(int teamId) {
-    Result<Record5<Integer, String, BigDecimal, BigDecimal, TeamRole>> userResult =
+  /**
+   * Load the leaders, members and applicants of all of the given teams at once, with the block
+   * counts of each user read from the block stats rather than counted from the blocks.
+   *
+   * @return the members of each team that has any, keyed by team ID and ordered by username.
+   */
+  private Map<Integer, List<TeamMember>> getTeamMembers(List<Integer> teamIds) {
+    Field<Integer> completed = DSL.coalesce(USER_BLOCK_STATS.COMPLETED, 0);
+    Field<Integer> reserved = DSL.coalesce(USER_BLOCK_STATS.RESERVED, 0);
+    Result<Record6<Integer, Integer, String, Integer, Integer, TeamRole>> userResult =
         db.select(
+                USER_TEAM.TEAM_ID,
                 USERS.ID,
                 USERS.USERNAME,
-                DSL.sum(DSL.when(BLOCK.STATUS.eq(BlockStatus.DONE), 1).else_(0))
-                    .as("blocksCompleted"),
-                DSL.sum(DSL.when(BLOCK.STATUS.eq(BlockStatus.RESERVED), 1).else_(0))
-                    .as("blocksReserved"),
+                completed,
+                reserved,
                 USER_TEAM.TEAM_ROLE)
-            .from(USERS)
-            .innerJoin(USER_TEAM)
+            .from(USER_TEAM)
+            .join(USERS)
             .on(USERS.ID.eq(USER_TEAM.USER_ID))
-            .fullJoin(BLOCK)
-            .on(USER_TEAM.USER_ID.eq(BLOCK.ASSIGNED_TO))
-            .where(USER_TEAM.TEAM_ID.eq(teamId))
-            .groupBy(USERS.ID, USERS.USERNAME, USER_TEAM.TEAM_ROLE)
+            .leftJoin(USER_BLOCK_STATS)
+            .on(USER_BLOCK_STATS.USER_ID.eq(USER_TEAM.USER_ID))
+            .where(USER_TEAM.TEAM_ID.in(teamIds))
             .orderBy(USERS.USERNAME)
             .fetch();
 
-    List<TeamMember> teamMembers = new ArrayList<>();
-
-    for (Record5<Integer, String, BigDecimal, BigDecimal, TeamRole> record : userResult) {
-      teamMembers.add(
-          new TeamMember(
-              record.getValue(USERS.ID),
-              record.getValue(USERS.USERNAME),
-              record.value3().intValue(),
-              record.value4().intValue(),
-              record.getValue(USER_TEAM.TEAM_ROLE)));
+    Map<Integer, List<TeamMember>> teamMembers = new HashMap<>();
+    for (Record6<Integer, Integer, String, Integer, Integer, TeamRole> record : userResult) {
+      teamMembers
+          .computeIfAbsent(record.value1(), teamId -> new ArrayList<>())
+          .add(
+              new TeamMember(
+                  record.value2(),
+                  record.value3(),
+                  record.value4(),
+                  record.value5(),
+                  record.value6()));
     }
     return teamMembers;
   }
@@ -511,13 +530,7 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
     int newLeaderId = request.getNewLeaderId();
     int teamId = request.getTeamId();
 
-    UserTeamRecord currentLeaderTeam =
-        db.selectFrom(USER_TEAM)
-            .where(USER_TEAM.USER_ID.eq(currentLeaderId))
-            .and(USER_TEAM.TEAM_ID.eq(teamId))
-            .fetchOneInto(UserTeamRecord.class);
-
-    if (currentLeaderTeam == null || currentLeaderTeam.getTeamRole() != TeamRole.LEADER) {
+    if (teamRoles.getRole(currentLeaderId, teamId) != TeamRole.LEADER) {
       throw new TeamLeaderOnlyRouteException(currentLeaderId);
     }
 
@@ -527,13 +540,7 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
       throw new UserDoesNotExistException(request.getNewLeaderId());
     }
 
-    boolean userOnTeam =
-        db.fetchExists(
-            db.selectFrom(USER_TEAM)
-                .where(USER_TEAM.USER_ID.eq(newLeaderId))
-                .and(USER_TEAM.TEAM_ID.eq(teamId)));
-
-    if (!userOnTeam) {
+    if (teamRoles.getRole(newLeaderId, teamId) == TeamRole.NONE) {
       throw new UserNotOnTeamException(newLeaderId, request.getTeamId());
     }
 
@@ -547,5 +554,11 @@ public class TeamsProcessorImpl implements ITeamsProcessor {
         .where(USER_TEAM.USER_ID.eq(newLeaderId))
         .and(USER_TEAM.TEAM_ID.eq(request.getTeamId()))
         .execute();
+    teamRoles.setRole(currentLeaderId, teamId, TeamRole.MEMBER);
+    teamRoles.setRole(newLeaderId, teamId, TeamRole.LEADER);
+    // A pending applicant made leader now counts towards the team
+    leaderboards.refreshTeam(teamId);
+    teamDirectory.refreshTeam(teamId);
+    teamCache.invalidate(teamId);
   }
 }
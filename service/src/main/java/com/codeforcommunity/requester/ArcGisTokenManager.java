@@ -0,0 +1,210 @@
+package com.codeforcommunity.requester;
+
+import com.codeforcommunity.logger.SLogger;
+import com.codeforcommunity.metrics.Metrics;
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Provides the API token used to make privileged ArcGIS feature layer calls. The token is refreshed
+ * shortly before it expires, and only one refresh is ever in flight: callers that need a token
+ * while it is being refreshed all wait for the same request. A refresh that takes too long fails
+ * rather than leaving its callers waiting forever.
+ */
+public class ArcGisTokenManager {
+  private final SLogger logger = new SLogger(ArcGisTokenManager.class);
+  private final Vertx vertx;
+  private final WebClient client;
+  private final String tokenRoute;
+  private final String clientId;
+  private final String clientSecret;
+  private final long refreshMarginMs;
+  private final long timeoutMs;
+
+  private volatile Token token;
+  // The refresh that is currently in flight, if any
+  private final AtomicReference<Future<String>> refresh = new AtomicReference<>();
+  private long refreshTimerId = -1;
+
+  private final LongAdder refreshes = Metrics.counter("map_token.refreshes");
+  private final LongAdder failedRefreshes = Metrics.counter("map_token.failed_refreshes");
+  private final LongAdder invalidations = Metrics.counter("map_token.invalidations");
+  private final Metrics.Summary refreshLatency = Metrics.summary("map_token.refresh_ms");
+
+  /**
+   * Create a token manager and request the first token.
+   *
+   * @param refreshMarginMs how long before the token expires to refresh it.
+   * @param timeoutMs how long to wait for a token request before failing it.
+   */
+  public ArcGisTokenManager(
+      Vertx vertx,
+      WebClient client,
+      String tokenRoute,
+      String clientId,
+      String clientSecret,
+      long refreshMarginMs,
+      long timeoutMs) {
+    this.vertx = vertx;
+    this.client = client;
+    this.tokenRoute = tokenRoute;
+    this.clientId = clientId;
+    this.clientSecret = clientSecret;
+    this.refreshMarginMs = refreshMarginMs;
+    this.timeoutMs = timeoutMs;
+
+    Metrics.gauge(
+        "map_token.expires_in_ms",
+        () -> {
+          Token current = token;
+          return current == null ? 0 : Math.max(0, current.expiresAt - System.currentTimeMillis());
+        });
+
+    refresh();
+  }
+
+  /**
+   * Get a token that has not expired, requesting a new one only if there is no such token.
+   *
+   * @return a future of the token, which fails if a new token could not be requested.
+   */
+  public Future<String> getToken() {
+    Token current = token;
+    if (current != null && current.expiresAt > System.currentTimeMillis()) {
+      return Future.succeededFuture(current.value);
+    }
+    return refresh();
+  }
+
+  /**
+   * Discard the given token after ArcGIS rejected it, and get a new one. If the token was already
+   * replaced, for example by another request that was rejected at the same time, the replacement is
+   * used instead of requesting another token.
+   *
+   * @param rejectedToken the token that ArcGIS rejected.
+   * @return a future of the new token.
+   */
+  public Future<String> invalidate(String rejectedToken) {
+    Token current = token;
+    if (current != null && current.value.equals(rejectedToken)) {
+      invalidations.increment();
+      logger.info("Requesting a new ArcGIS token after an invalid token response");
+      token = null;
+    }
+    return getToken();
+  }
+
+  /**
+   * Request a new token. If a request is already in flight, no new one is made and the one in
+   * flight is returned.
+   */
+  private Future<String> refresh() {
+    Promise<String> promise = Promise.promise();
+    if (!refresh.compareAndSet(null, promise.future())) {
+      Future<String> running = refresh.get();
+      return running != null ? running : refresh();
+    }
+
+    long startNanos = System.nanoTime();
+    refreshes.increment();
+    requestToken()
+        .setHandler(
+            ar -> {
+              refreshLatency.recordSince(startNanos);
+              refresh.set(null);
+              if (ar.succeeded()) {
+                token = ar.result();
+                scheduleRefresh(ar.result());
+                promise.complete(ar.result().value);
+              } else {
+                failedRefreshes.increment();
+                logger.error("Failed to get an ArcGIS API token", ar.cause());
+                promise.fail(ar.cause());
+              }
+            });
+    return promise.future();
+  }
+
+  /**
+   * Refresh the given token shortly before it expires. Tokens that last less than twice the refresh
+   * margin are refreshed halfway through their lifetime instead.
+   */
+  private void scheduleRefresh(Token newToken) {
+    long lifetimeMs = newToken.expiresAt - System.currentTimeMillis();
+    long delayMs = Math.max(1000, lifetimeMs - Math.min(refreshMarginMs, lifetimeMs / 2));
+    synchronized (this) {
+      if (refreshTimerId != -1) {
+        vertx.cancelTimer(refreshTimerId);
+      }
+      refreshTimerId = vertx.setTimer(delayMs, timerId -> refresh());
+    }
+  }
+
+  /** Query ArcGIS for a new API token. */
+  private Future<Token> requestToken() {
+    logger.info("Making request get an ArcGIS API token");
+    MultiMap formData =
+        MultiMap.caseInsensitiveMultiMap()
+            .add("client_id", clientId)
+            .add("client_secret", clientSecret)
+            .add("grant_type", "client_credentials");
+
+    return Future.future(
+        promise ->
+            client
+                .postAbs(tokenRoute)
+                .putHeader("content-type", "multipart/form-data")
+                .timeout(timeoutMs)
+                .sendForm(
+                    formData,
+                    ar -> {
+                      if (ar.failed()) {
+                        promise.fail(ar.cause());
+                        return;
+                      }
+
+                      HttpResponse<Buffer> httpResponse = ar.result();
+                      if (httpResponse.statusCode() != 200) {
+                        promise.fail(
+                            String.format(
+                                "ArcGIS token request responded with non-200 status code [%d]: %s",
+                                httpResponse.statusCode(), httpResponse.bodyAsString()));
+                        return;
+                      }
+
+                      JsonObject responseBody = httpResponse.bodyAsJsonObject();
+                      if (!responseBody.containsKey("access_token")) {
+                        promise.fail(
+                            "ArcGIS token request responded with unrecognized response body: "
+                                + responseBody);
+                        return;
+                      }
+
+                      logger.info("Received ArcGIS token successfully");
+                      // expires_in is in seconds, ArcGIS tokens last two hours by default
+                      long expiresInMs = responseBody.getLong("expires_in", 7200L) * 1000;
+                      promise.complete(
+                          new Token(
+                              responseBody.getString("access_token"),
+                              System.currentTimeMillis() + expiresInMs));
+                    }));
+  }
+
+  private static class Token {
+    private final String value;
+    private final long expiresAt;
+
+    private Token(String value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
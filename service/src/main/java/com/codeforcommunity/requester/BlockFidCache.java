@@ -0,0 +1,91 @@
+package com.codeforcommunity.requester;
+
+import static org.jooq.generated.Tables.BLOCK_FID;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jooq.DSLContext;
+import org.jooq.InsertValuesStep2;
+import org.jooq.generated.tables.records.BlockFidRecord;
+import org.jooq.impl.DSL;
+
+/**
+ * A persistent map of block IDs to the FIDs of their features in the ArcGIS feature layer. The
+ * mapping is stored in the block_fid table and read from memory, so that block updates do not have
+ * to ask ArcGIS to translate IDs to FIDs every time.
+ *
+ * <p>The methods that write to the table block and should not be called from an event loop.
+ */
+public class BlockFidCache {
+  private static final int INSERT_BATCH_SIZE = 1000;
+
+  private final DSLContext db;
+  private volatile Map<String, Integer> blockFids;
+
+  public BlockFidCache(DSLContext db) {
+    this.db = db;
+    this.blockFids =
+        new ConcurrentHashMap<>(
+            db.selectFrom(BLOCK_FID).fetchMap(BLOCK_FID.BLOCK_ID, BLOCK_FID.FID));
+  }
+
+  /**
+   * Get the FID of the given block.
+   *
+   * @param blockId the ID of the block.
+   * @return the FID of the block's feature, or null if it is not known.
+   */
+  public Integer get(String blockId) {
+    return blockFids.get(blockId);
+  }
+
+  /** @return true if no FIDs are known. */
+  public boolean isEmpty() {
+    return blockFids.isEmpty();
+  }
+
+  /**
+   * Add the given FIDs to the cache, replacing the FIDs of any blocks that are already known.
+   *
+   * @param newBlockFids the FIDs to add keyed by block ID.
+   */
+  public void putAll(Map<String, Integer> newBlockFids) {
+    blockFids.putAll(newBlockFids);
+    db.transaction(config -> upsert(DSL.using(config), newBlockFids));
+  }
+
+  /**
+   * Replace every FID in the cache with the given FIDs.
+   *
+   * @param newBlockFids the complete set of FIDs keyed by block ID.
+   */
+  public void replaceAll(Map<String, Integer> newBlockFids) {
+    db.transaction(
+        config -> {
+          DSLContext ctx = DSL.using(config);
+          ctx.deleteFrom(BLOCK_FID).execute();
+          upsert(ctx, newBlockFids);
+        });
+    blockFids = new ConcurrentHashMap<>(newBlockFids);
+  }
+
+  private void upsert(DSLContext ctx, Map<String, Integer> newBlockFids) {
+    List<Map.Entry<String, Integer>> entries = new ArrayList<>(newBlockFids.entrySet());
+    for (int i = 0; i < entries.size(); i += INSERT_BATCH_SIZE) {
+      InsertValuesStep2<BlockFidRecord, String, Integer> insert =
+          ctx.insertInto(BLOCK_FID, BLOCK_FID.BLOCK_ID, BLOCK_FID.FID);
+      for (Map.Entry<String, Integer> entry :
+          entries.subList(i, Math.min(entries.size(), i + INSERT_BATCH_SIZE))) {
+        insert = insert.values(entry.getKey(), entry.getValue());
+      }
+
+      insert
+          .onConflict(BLOCK_FID.BLOCK_ID)
+          .doUpdate()
+          .set(BLOCK_FID.FID, DSL.field("excluded.fid", Integer.class))
+          .execute();
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package com.codeforcommunity.requester;
+
+/** A block's feature in the ArcGIS feature layer. */
+public class MapFeature {
+  private final String blockId;
+  private final Integer fid;
+  private final Integer reserved;
+
+  public MapFeature(String blockId, Integer fid, Integer reserved) {
+    this.blockId = blockId;
+    this.fid = fid;
+    this.reserved = reserved;
+  }
+
+  public String getBlockId() {
+    return blockId;
+  }
+
+  public Integer getFid() {
+    return fid;
+  }
+
+  /** @return the value of the feature's RESERVED attribute, the block status shown on the map. */
+  public Integer getReserved() {
+    return reserved;
+  }
+}
@@ -0,0 +1,23 @@
+package com.codeforcommunity.requester;
+
+import java.util.List;
+
+/** One page of the features in the ArcGIS feature layer. */
+public class MapFeaturePage {
+  private final List<MapFeature> features;
+  private final boolean hasMore;
+
+  public MapFeaturePage(List<MapFeature> features, boolean hasMore) {
+    this.features = features;
+    this.hasMore = hasMore;
+  }
+
+  public List<MapFeature> getFeatures() {
+    return features;
+  }
+
+  /** @return true if there are more features after this page. */
+  public boolean hasMore() {
+    return hasMore;
+  }
+}
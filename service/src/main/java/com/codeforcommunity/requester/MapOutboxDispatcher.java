@@ -0,0 +1,279 @@
+package com.codeforcommunity.requester;
+
+import static org.jooq.generated.Tables.MAP_OUTBOX;
+
+import com.codeforcommunity.enums.BlockStatus;
+import com.codeforcommunity.logger.SLogger;
+import com.codeforcommunity.metrics.Metrics;
+import com.codeforcommunity.propertiesLoader.PropertiesLoader;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.jooq.DSLContext;
+import org.jooq.Record2;
+import org.jooq.generated.tables.MapOutbox;
+import org.jooq.generated.tables.records.MapOutboxRecord;
+import org.jooq.impl.DSL;
+
+/**
+ * Sends the block updates recorded in the map_outbox table to ArcGIS. Block status changes write
+ * their outbox entries in the same transaction as the change itself, and an entry is only deleted
+ * once ArcGIS confirms it updated the block's feature, so an update can never be lost, even if
+ * ArcGIS is down or the server restarts before it is sent.
+ *
+ * <p>The outbox is drained in batches in the order entries were written. Before each batch is read,
+ * every entry with a newer entry for the same block is deleted, so a block's older status can never
+ * be sent after its newer one, even if the older entry is waiting to be retried. A batch that fails
+ * is retried with exponential backoff, as is any entry whose update ArcGIS rejects or whose block
+ * has no feature, and entries that keep failing are dead-lettered: they stay in the table for
+ * inspection but are no longer retried. ArcGIS reports the result of each block's update, so a
+ * single entry it rejects cannot hold back the others. Anything left in the outbox when the server
+ * starts is replayed.
+ */
+public class MapOutboxDispatcher {
+  private final SLogger logger = new SLogger(MapOutboxDispatcher.class);
+  private final Vertx vertx;
+  private final DSLContext db;
+  private final MapRequester mapRequester;
+
+  private final long pollIntervalMs;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final long baseBackoffMs;
+  private final long maxBackoffMs;
+
+  private final AtomicBoolean draining = new AtomicBoolean(false);
+  // Read from the table while draining, so that reading the metrics never blocks
+  private final AtomicLong backlog = new AtomicLong();
+  private final AtomicLong lagMs = new AtomicLong();
+  private final AtomicLong deadLettered = new AtomicLong();
+  private final LongAdder sentEntries = Metrics.counter("map_outbox.sent");
+  private final LongAdder rejectedEntries = Metrics.counter("map_outbox.rejected");
+  // The batch metrics keep the names they had when updates were batched in memory, so that they
+  // can be compared across the change
+  private final LongAdder failedBatches = Metrics.counter("map_updates.failed_flushes");
+  private final Metrics.Summary sendLatency = Metrics.summary("map_updates.flush_ms");
+  private final Metrics.Summary batchSizes = Metrics.summary("map_updates.batch_size");
+
+  public MapOutboxDispatcher(Vertx vertx, DSLContext db, MapRequester mapRequester) {
+    this(vertx, db, mapRequester, PropertiesLoader.getMapProperties());
+  }
+
+  /** Create a dispatcher with the outbox settings in the given map properties. */
+  MapOutboxDispatcher(
+      Vertx vertx, DSLContext db, MapRequester mapRequester, Properties mapProperties) {
+    this.vertx = vertx;
+    this.db = db;
+    this.mapRequester = mapRequester;
+
+    this.pollIntervalMs =
+        Long.parseLong(mapProperties.getProperty("outbox_poll_interval_ms", "1000"));
+    this.batchSize = Integer.parseInt(mapProperties.getProperty("outbox_batch_size", "500"));
+    this.maxAttempts = Integer.parseInt(mapProperties.getProperty("outbox_max_attempts", "10"));
+    this.baseBackoffMs =
+        Long.parseLong(mapProperties.getProperty("outbox_base_backoff_ms", "1000"));
+    this.maxBackoffMs =
+        Long.parseLong(mapProperties.getProperty("outbox_max_backoff_ms", "600000"));
+
+    Metrics.gauge("map_updates.queue_length", backlog::get);
+    Metrics.gauge("map_outbox.lag_ms", lagMs::get);
+    Metrics.gauge("map_outbox.dead_lettered", deadLettered::get);
+  }
+
+  /** Replay anything left in the outbox and start polling it for new entries. */
+  public void start() {
+    vertx.runOnContext(v -> drain());
+    vertx.setPeriodic(pollIntervalMs, timerId -> drain());
+  }
+
+  /**
+   * Send the next batch of due entries, and keep going while full batches are found. Only one drain
+   * runs at a time.
+   */
+  private void drain() {
+    if (!draining.compareAndSet(false, true)) {
+      return;
+    }
+
+    runBlocking(this::loadDueEntries)
+        .compose(this::sendAll)
+        .setHandler(
+            ar -> {
+              draining.set(false);
+              if (ar.failed()) {
+                logger.error("Failed to drain the map outbox", ar.cause());
+              } else if (ar.result() == batchSize) {
+                drain();
+              }
+            });
+  }
+
+  /**
+   * Delete the entries that newer entries replace, read the next batch of entries that are due to
+   * be sent, and refresh the outbox metrics.
+   */
+  private List<MapOutboxRecord> loadDueEntries() {
+    // A block's entries are written in the order its changes commit, as each change locks the
+    // block's row until it commits, so an entry with a higher id for the same block is newer
+    MapOutbox newer = MAP_OUTBOX.as("newer");
+    db.deleteFrom(MAP_OUTBOX)
+        .where(MAP_OUTBOX.DEAD_LETTERED.isFalse())
+        .andExists(
+            db.selectOne()
+                .from(newer)
+                .where(newer.BLOCK_ID.eq(MAP_OUTBOX.BLOCK_ID))
+                .and(newer.ID.gt(MAP_OUTBOX.ID)))
+        .execute();
+
+    Record2<Integer, Timestamp> pending =
+        db.select(DSL.count(), DSL.min(MAP_OUTBOX.CREATED_TIMESTAMP))
+            .from(MAP_OUTBOX)
+            .where(MAP_OUTBOX.DEAD_LETTERED.isFalse())
+            .fetchOne();
+    backlog.set(pending.value1());
+    lagMs.set(
+        pending.value2() == null ? 0 : System.currentTimeMillis() - pending.value2().getTime());
+    deadLettered.set(db.fetchCount(MAP_OUTBOX, MAP_OUTBOX.DEAD_LETTERED.isTrue()));
+
+    return db.selectFrom(MAP_OUTBOX)
+        .where(MAP_OUTBOX.DEAD_LETTERED.isFalse())
+        .and(MAP_OUTBOX.NEXT_ATTEMPT_TIMESTAMP.le(new Timestamp(System.currentTimeMillis())))
+        .orderBy(MAP_OUTBOX.ID)
+        .limit(batchSize)
+        .fetch();
+  }
+
+  /**
+   * Send the given entries as one batch. Entries that failed before are retried together with the
+   * rest, rather than one request each, so that retries after ArcGIS was down do not multiply the
+   * requests made to it. Only the entries whose features ArcGIS rejects are held back.
+   *
+   * @return a future of the number of entries that were handled.
+   */
+  private Future<Integer> sendAll(List<MapOutboxRecord> entries) {
+    if (entries.isEmpty()) {
+      return Future.succeededFuture(0);
+    }
+    return send(entries).map(entries.size());
+  }
+
+  /**
+   * Send the latest status of each block in the given entries to ArcGIS, then delete the entries
+   * whose blocks ArcGIS updated, and schedule the rest to be retried.
+   *
+   * @return a future that completes once the entries have been deleted or scheduled.
+   */
+  private Future<Void> send(List<MapOutboxRecord> entries) {
+    // Entries are ordered by id, so later entries for a block replace earlier ones
+    Map<String, BlockStatus> latestStatuses = new LinkedHashMap<>();
+    entries.forEach(entry -> latestStatuses.put(entry.getBlockId(), entry.getStatus()));
+    batchSizes.record(latestStatuses.size());
+    long startNanos = System.nanoTime();
+
+    Promise<Void> promise = Promise.promise();
+    mapRequester
+        .sendUpdates(latestStatuses)
+        .setHandler(
+            ar -> {
+              if (ar.failed()) {
+                failedBatches.increment();
+                logger.error(
+                    String.format("Failed to send %d map outbox entries", entries.size()),
+                    ar.cause());
+                runBlocking(() -> scheduleRetry(entries, String.valueOf(ar.cause().getMessage())))
+                    .setHandler(promise);
+                return;
+              }
+
+              sendLatency.recordSince(startNanos);
+              List<MapOutboxRecord> updated = new ArrayList<>();
+              List<MapOutboxRecord> rejected = new ArrayList<>();
+              for (MapOutboxRecord entry : entries) {
+                if (ar.result().contains(entry.getBlockId())) {
+                  rejected.add(entry);
+                } else {
+                  updated.add(entry);
+                }
+              }
+              sentEntries.add(updated.size());
+              rejectedEntries.add(rejected.size());
+              runBlocking(
+                      () -> {
+                        deleteEntries(updated);
+                        return scheduleRetry(rejected, "ArcGIS did not update the block's feature");
+                      })
+                  .setHandler(promise);
+            });
+    return promise.future();
+  }
+
+  private Void deleteEntries(List<MapOutboxRecord> entries) {
+    if (entries.isEmpty()) {
+      return null;
+    }
+    List<Long> ids = entries.stream().map(MapOutboxRecord::getId).collect(Collectors.toList());
+    db.deleteFrom(MAP_OUTBOX).where(MAP_OUTBOX.ID.in(ids)).execute();
+    return null;
+  }
+
+  /**
+   * Schedule each of the given entries to be retried after an exponentially increasing delay, or
+   * dead-letter it once it has used all of its attempts.
+   */
+  private Void scheduleRetry(List<MapOutboxRecord> entries, String error) {
+    // Entries that failed together have usually been attempted as many times as each other, so
+    // there is one update for each number of attempts
+    Map<Integer, List<Long>> idsByAttempts =
+        entries.stream()
+            .collect(
+                Collectors.groupingBy(
+                    MapOutboxRecord::getAttempts,
+                    Collectors.mapping(MapOutboxRecord::getId, Collectors.toList())));
+
+    long now = System.currentTimeMillis();
+    int newlyDeadLettered = 0;
+    for (Map.Entry<Integer, List<Long>> group : idsByAttempts.entrySet()) {
+      int attempts = group.getKey() + 1;
+      long backoffMs = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempts - 1, 30));
+      boolean deadLettered = attempts >= maxAttempts;
+
+      db.update(MAP_OUTBOX)
+          .set(MAP_OUTBOX.ATTEMPTS, attempts)
+          .set(MAP_OUTBOX.LAST_ERROR, error)
+          .set(MAP_OUTBOX.NEXT_ATTEMPT_TIMESTAMP, new Timestamp(now + backoffMs))
+          .set(MAP_OUTBOX.DEAD_LETTERED, deadLettered)
+          .where(MAP_OUTBOX.ID.in(group.getValue()))
+          .execute();
+      if (deadLettered) {
+        newlyDeadLettered += group.getValue().size();
+      }
+    }
+
+    if (newlyDeadLettered > 0) {
+      logger.error(
+          String.format(
+              "Dead-lettered %d map outbox entries after %d attempts",
+              newlyDeadLettered, maxAttempts));
+    }
+    return null;
+  }
+
+  /** Run the given blocking work, such as a database query, off of the event loop. */
+  private <T> Future<T> runBlocking(Supplier<T> work) {
+    return Future.future(
+        promise ->
+            vertx.<T>executeBlocking(
+                blockingPromise -> blockingPromise.complete(work.get()), false, promise));
+  }
+}
@@ -0,0 +1,257 @@
+package com.codeforcommunity.requester;
+
+import static org.jooq.generated.Tables.BLOCK;
+import static org.jooq.generated.Tables.MAP_OUTBOX;
+
+import com.codeforcommunity.dto.blocks.MapReconcileStatus;
+import com.codeforcommunity.enums.BlockStatus;
+import com.codeforcommunity.logger.SLogger;
+import com.codeforcommunity.metrics.Metrics;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.jooq.DSLContext;
+import org.jooq.exception.DataAccessException;
+
+/**
+ * Makes the ArcGIS map match the database. Rather than pushing the status of every block, the
+ * feature layer is paged through and the RESERVED attribute of each feature is compared with the
+ * block's status in the database, and only the blocks that differ are pushed. The FIDs read while
+ * paging replace the stored FIDs as well, unless the scan was clearly incomplete.
+ *
+ * <p>The differing blocks are pushed by writing them to the map outbox, rather than sent to ArcGIS
+ * directly, so that a block that changes while the reconcile runs cannot have its newer status
+ * overwritten by the older one the reconcile read. Each block's status is read again, under the
+ * block's row lock, as its outbox entry is written, and so its entry is ordered with the entries of
+ * the block's own changes.
+ *
+ * <p>A reconcile runs in the background as a single job whose progress can be polled. Only one job
+ * runs at a time.
+ */
+public class MapReconciler {
+  // A scan that finds fewer features than this share of the blocks is taken to be incomplete
+  private static final double MIN_SCANNED_SHARE = 0.5;
+
+  private final SLogger logger = new SLogger(MapReconciler.class);
+  private final Vertx vertx;
+  private final DSLContext db;
+  private final MapRequester mapRequester;
+  private final BlockFidCache blockFidCache;
+
+  // The job that is running, or the last one to finish
+  private final AtomicReference<Job> lastJob = new AtomicReference<>();
+  private final Metrics.Summary reconcileLatency = Metrics.summary("map_reconcile.duration_ms");
+
+  public MapReconciler(
+      Vertx vertx, DSLContext db, MapRequester mapRequester, BlockFidCache blockFidCache) {
+    this.vertx = vertx;
+    this.db = db;
+    this.mapRequester = mapRequester;
+    this.blockFidCache = blockFidCache;
+  }
+
+  /**
+   * Start reconciling the map against the database. If a reconcile is already running, no new one
+   * is started.
+   *
+   * @return the progress of the reconcile that was started or is already running.
+   */
+  public MapReconcileStatus start() {
+    Job job = new Job();
+    Job previous = lastJob.get();
+    if ((previous != null && previous.isRunning()) || !lastJob.compareAndSet(previous, job)) {
+      return getStatus();
+    }
+
+    logger.info("Reconciling the map against the database");
+    vertx.runOnContext(v -> run(job));
+    return job.toStatus();
+  }
+
+  /** @return the progress of the running or last reconcile, or null if there has been none. */
+  public MapReconcileStatus getStatus() {
+    Job job = lastJob.get();
+    return job == null ? null : job.toStatus();
+  }
+
+  private void run(Job job) {
+    long startNanos = System.nanoTime();
+    Map<String, MapFeature> features = new HashMap<>();
+
+    scanFeatures(job, 0, features)
+        .compose(v -> runBlocking(() -> loadBlockStatuses(job, features)))
+        .compose(
+            differing -> {
+              Map<String, Integer> blockFids = new HashMap<>();
+              features.forEach((blockId, feature) -> blockFids.put(blockId, feature.getFid()));
+              return runBlocking(() -> replaceBlockFids(job, blockFids))
+                  .compose(v -> runBlocking(() -> push(job, differing)));
+            })
+        .setHandler(
+            ar -> {
+              reconcileLatency.recordSince(startNanos);
+              if (ar.succeeded()) {
+                job.finish("SUCCEEDED", null);
+                logger.info(
+                    String.format(
+                        "Reconciled the map against the database: %d features scanned, "
+                            + "%d blocks differed, %d pushed, %d failed, %d missing from the map",
+                        job.featuresScanned.get(),
+                        job.blocksDiffering.get(),
+                        job.blocksPushed.get(),
+                        job.blocksFailed.get(),
+                        job.blocksMissingFromMap.get()));
+              } else {
+                job.finish("FAILED", String.valueOf(ar.cause().getMessage()));
+                logger.error("Failed to reconcile the map against the database", ar.cause());
+              }
+            });
+  }
+
+  /** Page through every feature of the layer, collecting each feature keyed by block ID. */
+  private Future<Void> scanFeatures(Job job, int offset, Map<String, MapFeature> features) {
+    return mapRequester
+        .getFeaturePage(offset)
+        .compose(
+            page -> {
+              page.getFeatures().forEach(feature -> features.put(feature.getBlockId(), feature));
+              job.pagesScanned.incrementAndGet();
+              job.featuresScanned.addAndGet(page.getFeatures().size());
+
+              if (page.hasMore()) {
+                return scanFeatures(job, offset + page.getFeatures().size(), features);
+              }
+              return Future.succeededFuture();
+            });
+  }
+
+  /**
+   * Compare the status of every block in the database with the scanned features.
+   *
+   * @return the status of each block whose status on the map differs, keyed by block ID.
+   */
+  private Map<String, BlockStatus> loadBlockStatuses(Job job, Map<String, MapFeature> features) {
+    Map<String, BlockStatus> blockStatuses =
+        db.select(BLOCK.ID, BLOCK.STATUS).from(BLOCK).fetchMap(BLOCK.ID, BLOCK.STATUS);
+    job.blocksInDatabase.set(blockStatuses.size());
+
+    Map<String, BlockStatus> differing = new LinkedHashMap<>();
+    blockStatuses.forEach(
+        (blockId, status) -> {
+          MapFeature feature = features.get(blockId);
+          if (feature == null) {
+            job.blocksMissingFromMap.incrementAndGet();
+          } else if (feature.getReserved() == null || feature.getReserved() != status.getVal()) {
+            differing.put(blockId, status);
+          }
+        });
+    job.blocksDiffering.set(differing.size());
+    job.state = "PUSHING";
+    return differing;
+  }
+
+  /**
+   * Replace the stored FIDs with the scanned ones, unless the scan found far fewer features than
+   * there are blocks. ArcGIS can return an empty or cut short scan without an error, and replacing
+   * the FIDs with it would delete the FIDs of every block it missed.
+   */
+  private Void replaceBlockFids(Job job, Map<String, Integer> blockFids) {
+    int blocks = job.blocksInDatabase.get();
+    if (blockFids.isEmpty() || blockFids.size() < blocks * MIN_SCANNED_SHARE) {
+      logger.error(
+          String.format(
+              "Kept the stored block FIDs, as the map scan found %d features for %d blocks",
+              blockFids.size(), blocks));
+      return null;
+    }
+    blockFidCache.replaceAll(blockFids);
+    return null;
+  }
+
+  /**
+   * Push the given blocks to the map through the outbox, in batches. Each batch reads the blocks'
+   * current statuses as it writes their entries, so a block that changed since it was compared is
+   * pushed with its new status. A batch that fails is counted and does not stop the others.
+   */
+  private Void push(Job job, Map<String, BlockStatus> differing) {
+    List<String> blockIds = new ArrayList<>(differing.keySet());
+    for (int start = 0; start < blockIds.size(); start += mapRequester.getMaxBatchSize()) {
+      List<String> batch =
+          blockIds.subList(
+              start, Math.min(blockIds.size(), start + mapRequester.getMaxBatchSize()));
+      try {
+        // Locking the blocks orders the entries with those of any change to the same blocks
+        int queued =
+            db.insertInto(MAP_OUTBOX, MAP_OUTBOX.BLOCK_ID, MAP_OUTBOX.STATUS)
+                .select(
+                    db.select(BLOCK.ID, BLOCK.STATUS)
+                        .from(BLOCK)
+                        .where(BLOCK.ID.in(batch))
+                        .orderBy(BLOCK.ID)
+                        .forUpdate())
+                .execute();
+        job.blocksPushed.addAndGet(queued);
+      } catch (DataAccessException e) {
+        job.blocksFailed.addAndGet(batch.size());
+        logger.error(String.format("Failed to push %d blocks to the map", batch.size()), e);
+      }
+    }
+    return null;
+  }
+
+  /** Run the given blocking work, such as a database query, off of the event loop. */
+  private <T> Future<T> runBlocking(Supplier<T> work) {
+    return Future.future(
+        promise ->
+            vertx.<T>executeBlocking(
+                blockingPromise -> blockingPromise.complete(work.get()), false, promise));
+  }
+
+  /** The progress of a single reconcile, updated as it runs. */
+  private static class Job {
+    private final Timestamp started = new Timestamp(System.currentTimeMillis());
+    private final AtomicInteger pagesScanned = new AtomicInteger();
+    private final AtomicInteger featuresScanned = new AtomicInteger();
+    private final AtomicInteger blocksInDatabase = new AtomicInteger();
+    private final AtomicInteger blocksDiffering = new AtomicInteger();
+    private final AtomicInteger blocksPushed = new AtomicInteger();
+    private final AtomicInteger blocksFailed = new AtomicInteger();
+    private final AtomicInteger blocksMissingFromMap = new AtomicInteger();
+    private volatile String state = "SCANNING";
+    private volatile Timestamp finished;
+    private volatile String error;
+
+    private boolean isRunning() {
+      return finished == null;
+    }
+
+    private void finish(String state, String error) {
+      this.error = error;
+      this.state = state;
+      this.finished = new Timestamp(System.currentTimeMillis());
+    }
+
+    private MapReconcileStatus toStatus() {
+      return new MapReconcileStatus(
+          state,
+          started,
+          finished,
+          pagesScanned.get(),
+          featuresScanned.get(),
+          blocksInDatabase.get(),
+          blocksDiffering.get(),
+          blocksPushed.get(),
+          blocksFailed.get(),
+          blocksMissingFromMap.get(),
+          error);
+    }
+  }
+}
@@ -1,267 +1,393 @@
 package com.codeforcommunity.requester;
 
 import com.codeforcommunity.enums.BlockStatus;
-import com.codeforcommunity.exceptions.FailedFileLoadException;
 import com.codeforcommunity.logger.SLogger;
+import com.codeforcommunity.metrics.Metrics;
 import com.codeforcommunity.propertiesLoader.PropertiesLoader;
 import io.vertx.core.Future;
 import io.vertx.core.MultiMap;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.ext.web.client.WebClient;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 public class MapRequester {
 
   private final SLogger logger = new SLogger(MapRequester.class);
+  private final Vertx vertx;
   private final WebClient client;
-  private Future<String> tokenFuture;
+  private final BlockFidCache blockFidCache;
+  private final ArcGisTokenManager tokenManager;
 
   private final String featureLayerApplyEditsRoute;
   private final String featureLayerQueryRoute;
-  private final String tokenRoute;
-  private final String clientId;
-  private final String clientSecret;
 
-  public MapRequester(Vertx vertx) {
-    client = WebClient.create(vertx);
+  // The maximum number of features to read or update with one request
+  private final int maxBatchSize;
+
+  private final LongAdder fidCacheMisses = Metrics.counter("map_updates.fid_cache_misses");
+
+  // The refresh of every block's FID that is currently running, if any
+  private final AtomicReference<Future<Void>> fidRefresh = new AtomicReference<>();
+
+  public MapRequester(Vertx vertx, BlockFidCache blockFidCache) {
+    this.vertx = vertx;
+    this.client = WebClient.create(vertx);
+    this.blockFidCache = blockFidCache;
 
     Properties mapProperties = PropertiesLoader.getMapProperties();
     this.featureLayerApplyEditsRoute =
         PropertiesLoader.loadProperty(mapProperties, "feature_layer_route") + "applyEdits";
     this.featureLayerQueryRoute =
         PropertiesLoader.loadProperty(mapProperties, "feature_layer_route") + "query";
-    this.tokenRoute = PropertiesLoader.loadProperty(mapProperties, "token_route");
-    this.clientId = PropertiesLoader.loadProperty(mapProperties, "client_id");
-    this.clientSecret = PropertiesLoader.loadProperty(mapProperties, "client_secret");
+    this.tokenManager =
+        new ArcGisTokenManager(
+            vertx,
+            client,
+            PropertiesLoader.loadProperty(mapProperties, "token_route"),
+            PropertiesLoader.loadProperty(mapProperties, "client_id"),
+            PropertiesLoader.loadProperty(mapProperties, "client_secret"),
+            Long.parseLong(mapProperties.getProperty("token_refresh_margin_ms", "300000")),
+            Long.parseLong(mapProperties.getProperty("token_timeout_ms", "10000")));
 
-    this.tokenFuture = updateToken();
+    this.maxBatchSize =
+        Integer.parseInt(mapProperties.getProperty("update_max_batch_size", "1000"));
+
+    if (blockFidCache.isEmpty()) {
+      refreshBlockFids();
+    }
   }
 
   /**
-   * Makes a request to the ArcGIS mapping service to change the status of the all of the blocks in
-   * the given list to the specified new block status.
+   * Reload the FID of every block from the feature layer, replacing the stored FIDs. If a reload is
+   * already running, no new one is started and the running one is returned.
    *
-   * @param blockIds a list of block IDs.
-   * @param updateTo The block status all blocks should be updated to.
+   * @return a future that completes once the FIDs have been reloaded.
    */
-  public void updateBlocks(List<String> blockIds, BlockStatus updateTo) {
-    updateLayers(blockIds, updateTo, this.tokenFuture);
+  public Future<Void> refreshBlockFids() {
+    Promise<Void> promise = Promise.promise();
+    if (!fidRefresh.compareAndSet(null, promise.future())) {
+      Future<Void> running = fidRefresh.get();
+      return running != null ? running : refreshBlockFids();
+    }
+
+    logger.info("Reloading the FIDs of every block from ArcGIS");
+    getAllBlockFids(0, new HashMap<>())
+        .compose(blockFids -> runBlocking(() -> blockFidCache.replaceAll(blockFids)))
+        .setHandler(
+            ar -> {
+              fidRefresh.set(null);
+              if (ar.succeeded()) {
+                logger.info("Reloaded the FIDs of every block from ArcGIS");
+                promise.complete();
+              } else {
+                logger.error("Failed to reload the FIDs of every block from ArcGIS", ar.cause());
+                promise.fail(ar.cause());
+              }
+            });
+    return promise.future();
   }
 
   /**
-   * Creates a JSONObject based off the private streets geoJSON file.
+   * Send the given block updates to ArcGIS, looking up the FIDs of every block and updating all of
+   * them with one request. FIDs are read from the cache, and only blocks missing from it are looked
+   * up in the feature layer. The number of updates should not exceed the feature layer's maximum
+   * record count.
    *
-   * @return the private street JSONObject
+   * @param batch the status to update each block to, keyed by block ID.
+   * @return a future of the IDs of the blocks that were not updated, because the feature layer has
+   *     no feature for them or rejected their update. It fails if the request itself failed.
    */
-  public JsonObject getPrivateStreets() {
-    try {
-      String privateStreetJson =
-          new String(
-              Files.readAllBytes(
-                  Paths.get("service/src/main/resources/private_streets_light.geojson")));
-      return new JsonObject(privateStreetJson);
-    } catch (Exception e) {
-      logger.error("There was an error loading private street GeoJSON data", e);
-      throw new FailedFileLoadException("service/src/main/resources/private_streets_light.geojson");
+  public Future<Set<String>> sendUpdates(Map<String, BlockStatus> batch) {
+    logger.info(String.format("Making request to update %d blocks", batch.size()));
+
+    Map<String, Integer> blockFids = new HashMap<>();
+    List<String> missingBlockIds = new ArrayList<>();
+    for (String blockId : batch.keySet()) {
+      Integer fid = blockFidCache.get(blockId);
+      if (fid == null) {
+        missingBlockIds.add(blockId);
+      } else {
+        blockFids.put(blockId, fid);
+      }
+    }
+
+    if (missingBlockIds.isEmpty()) {
+      return applyEdits(blockFids, batch);
     }
+
+    fidCacheMisses.add(missingBlockIds.size());
+    return getBlockFidsFuture(missingBlockIds)
+        .compose(
+            foundFids -> {
+              blockFids.putAll(foundFids);
+              cacheBlockFids(foundFids);
+              return applyEdits(blockFids, batch);
+            });
   }
 
-  private Future<JsonArray> getBlockFidsFuture(List<String> blockIds, BlockStatus updateTo) {
-    return this.tokenFuture.compose(
-        tokenString -> {
-          MultiMap formData =
-              MultiMap.caseInsensitiveMultiMap()
-                  .add("f", "json")
-                  .add("token", tokenString)
-                  .add(
-                      "where",
-                      "ID IN ("
-                          + (blockIds.size() > 1 ? String.join(",", blockIds) : blockIds.get(0))
-                          + ")")
-                  .add("outFields", "FID");
-
-          return Future.future(
-              promise -> {
-                client
-                    .postAbs(featureLayerQueryRoute)
-                    .putHeader("content-type", "multipart/form-data")
-                    .sendForm(
-                        formData,
-                        (asyncResult -> {
-                          if (asyncResult.succeeded()) {
-                            HttpResponse<Buffer> httpResponse = asyncResult.result();
-                            if (httpResponse.statusCode() == 200) {
-                              JsonObject responseBody = httpResponse.bodyAsJsonObject();
-                              if (responseBody.containsKey("error")
-                                  && responseBody.getJsonObject("error").getInteger("code")
-                                      == 498) {
-                                // The API token is invalid, reset it and make this call
-                                // again.
-                                logger.info(
-                                    "Remaking token request while updating blocks to "
-                                        + updateTo.name());
-                                this.tokenFuture = updateToken();
-                                updateLayers(blockIds, updateTo, this.tokenFuture)
-                                    .onSuccess((V) -> promise.complete())
-                                    .onFailure(promise::fail);
-                              } else if (responseBody.containsKey("features")) {
-                                JsonArray features = responseBody.getJsonArray("features");
-                                JsonArray updateJson = new JsonArray();
-                                for (int i = 0; i < features.size(); i++) {
-                                  JsonObject feature = features.getJsonObject(i);
-                                  JsonObject attribute = feature.getJsonObject("attributes");
-                                  Integer FID = attribute.getInteger("FID");
-                                  updateJson.add(
-                                      JsonObject.mapFrom(new MapRequest(FID.toString(), updateTo)));
-                                }
-                                promise.complete(updateJson);
-                              } else {
-                                promise.fail(
-                                    "Error fetching Block FIDs: " + responseBody.toString());
-                                logger.error(
-                                    "Failed to find features in ArcGIS Response: " + responseBody);
-                              }
-                            } else {
-                              promise.fail("Error fetching Block FIDs: " + httpResponse.toString());
-                              logger.error(
-                                  "ArcGIS API returned a non-200 status code: "
-                                      + httpResponse.toString());
-                            }
-                          } else {
-                            promise.fail("Error fetching Block FIDs");
-                            logger.error(
-                                "Async Request to ArcGIS failed: " + asyncResult.toString());
-                          }
-                        }));
-              });
-        });
+  /** Store FIDs that were missing from the cache without waiting for them to be written. */
+  private void cacheBlockFids(Map<String, Integer> blockFids) {
+    if (blockFids.isEmpty()) {
+      return;
+    }
+
+    runBlocking(() -> blockFidCache.putAll(blockFids))
+        .setHandler(
+            ar -> {
+              if (ar.failed()) {
+                logger.error("Failed to store block FIDs", ar.cause());
+              }
+            });
   }
 
-  /** Make a request to update the ArcGIS feature layer */
-  private Future<Void> updateLayers(
-      List<String> blockIds, BlockStatus updateTo, Future<String> tokenFuture) {
-    logger.info("Making request to update blocks to " + updateTo.name());
-    return tokenFuture.compose(
-        tokenString ->
-            this.getBlockFidsFuture(blockIds, updateTo)
-                .compose(
-                    updateJson -> {
-                      MultiMap formData =
-                          MultiMap.caseInsensitiveMultiMap()
-                              .add("f", "json")
-                              .add("token", tokenString)
-                              .add("updates", updateJson.encode());
-
-                      return Future.future(
-                          promise -> {
-                            client
-                                .postAbs(featureLayerApplyEditsRoute)
-                                .putHeader("content-type", "multipart/form-data")
-                                .sendForm(
-                                    formData,
-                                    (ar) -> {
-                                      if (ar.succeeded()) {
-                                        HttpResponse<Buffer> httpResponse = ar.result();
-
-                                        if (httpResponse.statusCode() == 200) {
-                                          JsonObject responseBody = httpResponse.bodyAsJsonObject();
-                                          if (responseBody.containsKey("error")
-                                              && responseBody
-                                                      .getJsonObject("error")
-                                                      .getInteger("code")
-                                                  == 498) {
-                                            // The API token is invalid, reset it and make this call
-                                            // again.
-                                            logger.info(
-                                                "Remaking token request while updating blocks to "
-                                                    + updateTo.name());
-                                            this.tokenFuture = updateToken();
-                                            updateLayers(blockIds, updateTo, this.tokenFuture)
-                                                .onSuccess((V) -> promise.complete())
-                                                .onFailure(promise::fail);
-                                          } else if (responseBody.containsKey("updateResults")) {
-                                            // TODO: NOTE - THIS DOES NOT GUARANTEE A SUCCESS CASE
-                                            logger.info(
-                                                "ArcGIS returned updated results to status: "
-                                                    + updateTo.name()
-                                                    + ". This does not guarantee a successful update. Response: "
-                                                    + responseBody.toString());
-                                            // Check successes
-                                            promise.complete();
-                                          } else {
-                                            // throw error
-                                            logger.error(
-                                                "Update street request responded with unrecognized response body: "
-                                                    + responseBody);
-                                            promise.fail(responseBody.encode());
-                                          }
-                                        } else {
-                                          logger.error(
-                                              "Update street response request responded with non-200 status code: "
-                                                  + httpResponse.statusCode());
-                                          promise.fail(httpResponse.bodyAsString());
-                                        }
-                                      } else {
-                                        logger.error(
-                                            "Error sending update street request", ar.cause());
-                                        promise.fail(ar.cause());
-                                      }
-                                    });
-                          });
-                    }));
+  /** Run the given blocking work, such as a database write, off of the event loop. */
+  private Future<Void> runBlocking(Runnable work) {
+    return Future.future(
+        promise ->
+            vertx.<Void>executeBlocking(
+                blockingPromise -> {
+                  work.run();
+                  blockingPromise.complete();
+                },
+                false,
+                promise));
   }
 
   /**
-   * Query ArcGIS to get a new API token that can be used to make privileged feature layer calls.
+   * Read one page of the features in the feature layer, ordered by FID.
+   *
+   * @param offset the number of features before the page.
+   * @return a future of the page of features.
    */
-  private Future<String> updateToken() {
-    logger.info("Making request get an ArcGIS API token");
+  public Future<MapFeaturePage> getFeaturePage(int offset) {
     MultiMap formData =
         MultiMap.caseInsensitiveMultiMap()
-            .add("client_id", clientId)
-            .add("client_secret", clientSecret)
-            .add("grant_type", "client_credentials");
+            .add("f", "json")
+            .add("where", "1=1")
+            .add("outFields", "FID,ID,RESERVED")
+            .add("orderByFields", "FID")
+            .add("resultOffset", String.valueOf(offset))
+            .add("resultRecordCount", String.valueOf(maxBatchSize));
+
+    return post(featureLayerQueryRoute, formData)
+        .compose(
+            responseBody -> {
+              if (!responseBody.containsKey("features")) {
+                return Future.failedFuture(
+                    "Failed to find features in ArcGIS Response: " + responseBody);
+              }
+
+              JsonArray features = responseBody.getJsonArray("features");
+              List<MapFeature> page = new ArrayList<>();
+              for (int i = 0; i < features.size(); i++) {
+                JsonObject attributes = features.getJsonObject(i).getJsonObject("attributes");
+                Object reserved = attributes.getValue("RESERVED");
+                page.add(
+                    new MapFeature(
+                        String.valueOf(attributes.getValue("ID")),
+                        attributes.getInteger("FID"),
+                        reserved == null ? null : Integer.valueOf(reserved.toString())));
+              }
+
+              boolean hasMore =
+                  responseBody.getBoolean("exceededTransferLimit", false) && !page.isEmpty();
+              return Future.succeededFuture(new MapFeaturePage(page, hasMore));
+            });
+  }
+
+  /** @return the maximum number of features that are read or updated with one request. */
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /**
+   * Page through every feature of the layer and collect the FID of each block, keyed by block ID.
+   */
+  private Future<Map<String, Integer>> getAllBlockFids(int offset, Map<String, Integer> blockFids) {
+    return getFeaturePage(offset)
+        .compose(
+            page -> {
+              page.getFeatures()
+                  .forEach(feature -> blockFids.put(feature.getBlockId(), feature.getFid()));
+              if (page.hasMore()) {
+                return getAllBlockFids(offset + page.getFeatures().size(), blockFids);
+              }
+              return Future.succeededFuture(blockFids);
+            });
+  }
+
+  /** Query the feature layer for the FID of each of the given blocks, keyed by block ID. */
+  private Future<Map<String, Integer>> getBlockFidsFuture(Collection<String> blockIds) {
+    MultiMap formData =
+        MultiMap.caseInsensitiveMultiMap()
+            .add("f", "json")
+            .add("where", "ID IN (" + String.join(",", blockIds) + ")")
+            .add("outFields", "FID,ID");
+
+    return post(featureLayerQueryRoute, formData)
+        .compose(
+            responseBody -> {
+              if (!responseBody.containsKey("features")) {
+                return Future.failedFuture(
+                    "Failed to find features in ArcGIS Response: " + responseBody);
+              }
+              return Future.succeededFuture(readBlockFids(responseBody.getJsonArray("features")));
+            });
+  }
+
+  /** Read the FID of each of the given features, keyed by the feature's block ID. */
+  private Map<String, Integer> readBlockFids(JsonArray features) {
+    Map<String, Integer> blockFids = new HashMap<>();
+    for (int i = 0; i < features.size(); i++) {
+      JsonObject attributes = features.getJsonObject(i).getJsonObject("attributes");
+      blockFids.put(String.valueOf(attributes.getValue("ID")), attributes.getInteger("FID"));
+    }
+    return blockFids;
+  }
+
+  /**
+   * Make a request to update the ArcGIS feature layer, and read which of the updates it applied.
+   *
+   * @return a future of the IDs of the blocks that were not updated.
+   */
+  private Future<Set<String>> applyEdits(
+      Map<String, Integer> blockFids, Map<String, BlockStatus> batch) {
+    Set<String> notUpdated = new HashSet<>();
+    JsonArray updateJson = new JsonArray();
+    batch.forEach(
+        (blockId, status) -> {
+          Integer fid = blockFids.get(blockId);
+          if (fid == null) {
+            logger.error("No ArcGIS feature found for block " + blockId);
+            notUpdated.add(blockId);
+          } else {
+            updateJson.add(JsonObject.mapFrom(new MapRequest(fid.toString(), status)));
+          }
+        });
+    if (updateJson.isEmpty()) {
+      return Future.succeededFuture(notUpdated);
+    }
+
+    MultiMap formData =
+        MultiMap.caseInsensitiveMultiMap().add("f", "json").add("updates", updateJson.encode());
+
+    return post(featureLayerApplyEditsRoute, formData)
+        .compose(
+            responseBody -> {
+              if (!responseBody.containsKey("updateResults")) {
+                return Future.failedFuture(
+                    "Update street request responded with unrecognized response body: "
+                        + responseBody);
+              }
+
+              // Each feature has its own result, and a feature without one was not updated
+              Set<Integer> updatedFids = new HashSet<>();
+              JsonArray updateResults = responseBody.getJsonArray("updateResults");
+              for (int i = 0; i < updateResults.size(); i++) {
+                JsonObject result = updateResults.getJsonObject(i);
+                if (result.getBoolean("success", false)) {
+                  updatedFids.add(result.getInteger("objectId"));
+                } else {
+                  logger.error("ArcGIS rejected a feature update: " + result.encode());
+                }
+              }
+              blockFids.forEach(
+                  (blockId, fid) -> {
+                    if (batch.containsKey(blockId) && !updatedFids.contains(fid)) {
+                      notUpdated.add(blockId);
+                    }
+                  });
+
+              logger.info(
+                  String.format(
+                      "ArcGIS updated %d of %d blocks",
+                      batch.size() - notUpdated.size(), batch.size()));
+              return Future.succeededFuture(notUpdated);
+            });
+  }
+
+  /**
+   * Post the given form to the given ArcGIS route, authenticated with the current API token. The
+   * returned future fails if the request could not be made, did not return a 200 status code, or if
+   * ArcGIS returned an error. If ArcGIS rejects the token, the request is retried once with a new
+   * token.
+   */
+  private Future<JsonObject> post(String route, MultiMap formData) {
+    return tokenManager
+        .getToken()
+        .compose(
+            tokenString ->
+                post(route, formData, tokenString)
+                    .recover(
+                        cause -> {
+                          if (!(cause instanceof InvalidTokenException)) {
+                            return Future.failedFuture(cause);
+                          }
+                          return tokenManager
+                              .invalidate(tokenString)
+                              .compose(newToken -> post(route, formData, newToken));
+                        }));
+  }
+
+  private Future<JsonObject> post(String route, MultiMap formData, String tokenString) {
+    MultiMap tokenFormData = MultiMap.caseInsensitiveMultiMap().addAll(formData);
+    tokenFormData.set("token", tokenString);
 
     return Future.future(
-        promise -> {
-          client
-              .postAbs(tokenRoute)
-              .putHeader("content-type", "multipart/form-data")
-              .sendForm(
-                  formData,
-                  ar -> {
-                    if (ar.succeeded()) {
+        promise ->
+            client
+                .postAbs(route)
+                .putHeader("content-type", "multipart/form-data")
+                .sendForm(
+                    tokenFormData,
+                    ar -> {
+                      if (ar.failed()) {
+                        promise.fail(ar.cause());
+                        return;
+                      }
+
                       HttpResponse<Buffer> httpResponse = ar.result();
+                      if (httpResponse.statusCode() != 200) {
+                        promise.fail(
+                            String.format(
+                                "ArcGIS API returned a non-200 status code [%d]: %s",
+                                httpResponse.statusCode(), httpResponse.bodyAsString()));
+                        return;
+                      }
 
-                      if (httpResponse.statusCode() == 200) {
-                        JsonObject responseBody = httpResponse.bodyAsJsonObject();
-                        if (responseBody.containsKey("access_token")) {
-                          logger.info("Received ArcGIS token successfully");
-                          promise.complete(responseBody.getString("access_token"));
+                      JsonObject responseBody = httpResponse.bodyAsJsonObject();
+                      if (responseBody.containsKey("error")) {
+                        if (responseBody.getJsonObject("error").getInteger("code") == 498) {
+                          promise.fail(new InvalidTokenException(responseBody));
                         } else {
-                          logger.error(
-                              "ArcGIS token request responded with unrecognized response body: "
-                                  + responseBody);
+                          promise.fail("ArcGIS API returned an error: " + responseBody);
                         }
-                      } else {
-                        logger.error(
-                            String.format(
-                                "ArcGIS token request responded with non-200 status code [%d]: %s",
-                                httpResponse.statusCode(), httpResponse.bodyAsString()));
+                        return;
                       }
-                    } else {
-                      logger.error("Error sending ArcGIS token request", ar.cause());
-                      promise.fail(ar.cause());
-                    }
-                  });
-        });
+
+                      promise.complete(responseBody);
+                    }));
+  }
+
+  /** ArcGIS rejected the API token a request was made with, because it expired or was revoked. */
+  private static class InvalidTokenException extends RuntimeException {
+    private InvalidTokenException(JsonObject responseBody) {
+      super("ArcGIS API rejected the token: " + responseBody);
+    }
   }
 
   private class MapRequest {
@@ -0,0 +1,116 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codeforcommunity.api.IMapProcessor;
+import com.codeforcommunity.dto.map.BlockChanges;
+import com.codeforcommunity.dto.map.BlockStatusChange;
+import com.codeforcommunity.enums.BlockStatus;
+import com.codeforcommunity.exceptions.MalformedParameterException;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BlockChangeLogTest {
+  private Vertx vertx;
+  private EventBus eventBus;
+  private BlockChangeLog changeLog;
+
+  @BeforeEach
+  void setup() {
+    vertx = mock(Vertx.class);
+    eventBus = mock(EventBus.class);
+    when(vertx.eventBus()).thenReturn(eventBus);
+    changeLog = new BlockChangeLog(vertx, 4);
+  }
+
+  private void change(String blockId, BlockStatus status) {
+    changeLog.onBlocksChanged(
+        Collections.singletonList(new BlockChange(blockId, null, status, null, null)));
+  }
+
+  private BlockChanges getChanges(String since) {
+    return changeLog.getChanges(since, 0).result();
+  }
+
+  @Test
+  void testChangesAfterCursor() {
+    BlockChanges start = getChanges(null);
+    assertTrue(start.isReset());
+
+    change("A1", BlockStatus.RESERVED);
+    change("A2", BlockStatus.RESERVED);
+    change("A1", BlockStatus.DONE);
+
+    BlockChanges changes = getChanges(start.getCursor());
+    assertFalse(changes.isReset());
+    assertFalse(changes.isMore());
+    // only the latest change of each block is returned, in the order of the latest changes
+    assertEquals(
+        Arrays.asList("A2", "A1"),
+        changes.getChanges().stream()
+            .map(BlockStatusChange::getBlockId)
+            .collect(Collectors.toList()));
+    assertEquals(BlockStatus.DONE, changes.getChanges().get(1).getStatus());
+
+    assertTrue(getChanges(changes.getCursor()).getChanges().isEmpty());
+
+    // every change is also published for the clients streaming changes
+    verify(eventBus, times(3)).publish(eq(IMapProcessor.BLOCK_CHANGES_ADDRESS), any());
+  }
+
+  @Test
+  void testOverwrittenOrForeignCursorResets() {
+    String cursor = getChanges(null).getCursor();
+    for (int i = 0; i < 5; i++) {
+      change("A" + i, BlockStatus.RESERVED);
+    }
+
+    // the log only keeps 4 changes, so the first one is lost
+    assertTrue(getChanges(cursor).isReset());
+    assertTrue(getChanges("0-0").isReset());
+    assertThrows(MalformedParameterException.class, () -> getChanges("nonsense"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testWaitingRequestCompletedByChange() {
+    Context context = mock(Context.class);
+    when(vertx.getOrCreateContext()).thenReturn(context);
+    when(vertx.setTimer(anyLong(), any())).thenReturn(1L);
+    doAnswer(
+            invocation -> {
+              ((Handler<Void>) invocation.getArgument(0)).handle(null);
+              return null;
+            })
+        .when(context)
+        .runOnContext(any());
+
+    String cursor = getChanges(null).getCursor();
+    Future<BlockChanges> waiting = changeLog.getChanges(cursor, 30000);
+    assertFalse(waiting.isComplete());
+
+    change("A1", BlockStatus.RESERVED);
+
+    assertTrue(waiting.isComplete());
+    assertEquals("A1", waiting.result().getChanges().get(0).getBlockId());
+  }
+}
@@ -0,0 +1,58 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codeforcommunity.dto.map.EncodedResource;
+import com.codeforcommunity.enums.BlockStatus;
+import io.vertx.core.json.JsonObject;
+import java.util.Collections;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BlockCountsSnapshotTest {
+  private BlockStateIndex blockStateIndex;
+
+  private int[] counts(int open, int reserved, int done) {
+    int[] counts = new int[3];
+    counts[BlockStatus.OPEN.getVal()] = open;
+    counts[BlockStatus.RESERVED.getVal()] = reserved;
+    counts[BlockStatus.DONE.getVal()] = done;
+    return counts;
+  }
+
+  @BeforeEach
+  void setup() {
+    blockStateIndex = mock(BlockStateIndex.class);
+    when(blockStateIndex.getStatusCounts()).thenReturn(counts(4, 2, 1), counts(3, 3, 1));
+  }
+
+  @Test
+  void testEncodedUntilChanged() {
+    BlockCountsSnapshot snapshot = new BlockCountsSnapshot(blockStateIndex);
+
+    EncodedResource first = snapshot.getCounts();
+    JsonObject body = new JsonObject(first.getIdentity());
+    assertEquals(1, body.getInteger("blocksCompleted"));
+    assertEquals(2, body.getInteger("blocksReserved"));
+    assertEquals(4, body.getInteger("blocksToDo"));
+
+    // nothing changed, so the same encoding is served without reading the index again
+    assertSame(first, snapshot.getCounts());
+    verify(blockStateIndex, times(1)).getStatusCounts();
+
+    snapshot.onBlocksChanged(
+        Collections.singletonList(
+            new BlockChange("a", BlockStatus.OPEN, BlockStatus.RESERVED, null, 1)));
+    EncodedResource second = snapshot.getCounts();
+    assertNotSame(first, second);
+    assertEquals(3, new JsonObject(second.getIdentity()).getInteger("blocksReserved"));
+    assertSame(second, snapshot.getCounts());
+    verify(blockStateIndex, times(2)).getStatusCounts();
+  }
+}
@@ -0,0 +1,204 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.jooq.generated.Tables.BLOCK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.codeforcommunity.JooqMock;
+import com.codeforcommunity.enums.BlockStatus;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.jooq.Record4;
+import org.jooq.generated.tables.records.BlockRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BlockStateIndexTest {
+  private JooqMock mockDb;
+  private BlockStateIndex index;
+  private List<BlockChange> published;
+
+  private Record4<String, BlockStatus, Integer, Long> block(
+      String id, BlockStatus status, Integer assignee, long version) {
+    Record4<String, BlockStatus, Integer, Long> block =
+        mockDb.getContext().newRecord(BLOCK.ID, BLOCK.STATUS, BLOCK.ASSIGNED_TO, BLOCK.VERSION);
+    block.values(id, status, assignee, version);
+    return block;
+  }
+
+  private List<Record4<String, BlockStatus, Integer, Long>> startingBlocks() {
+    return Arrays.asList(
+        block("A1", BlockStatus.OPEN, null, 0),
+        block("A2", BlockStatus.RESERVED, 7, 1),
+        block("A3", BlockStatus.DONE, 7, 2),
+        block("A4", BlockStatus.RESERVED, 8, 1),
+        block("A5", BlockStatus.OPEN, null, 0));
+  }
+
+  /** @return a block as an update returns it. */
+  private BlockRecord updated(String id, Integer assignee, long version) {
+    BlockRecord block = new BlockRecord();
+    block.setId(id);
+    block.setAssignedTo(assignee);
+    block.setVersion(version);
+    return block;
+  }
+
+  /** Create the index, loading the starting blocks. */
+  private void createIndex() {
+    createIndex(startingBlocks());
+  }
+
+  /**
+   * Create the index, loading the starting blocks, with the given blocks queued for every later
+   * read of the table. They are queued before the index is created, as a result queued after the
+   * last one was read is only reached once the last one has been read again.
+   */
+  private void createIndex(List<Record4<String, BlockStatus, Integer, Long>> laterBlocks) {
+    mockDb.addReturn("SELECT", startingBlocks());
+    mockDb.addReturn("SELECT", laterBlocks);
+    index = new BlockStateIndex(mockDb.getContext());
+    published = new ArrayList<>();
+    index.addListener(published::addAll);
+  }
+
+  @BeforeEach
+  void setup() {
+    mockDb = new JooqMock();
+  }
+
+  @Test
+  void testLoadCountsAndUserBlocks() {
+    createIndex();
+    assertEquals(5, index.size());
+    assertEquals(2, index.getStatusCount(BlockStatus.OPEN));
+    assertEquals(2, index.getStatusCount(BlockStatus.RESERVED));
+    assertEquals(1, index.getStatusCount(BlockStatus.DONE));
+
+    assertEquals(Collections.singletonList("A2"), index.getUserBlocks(7, false));
+    assertEquals(Arrays.asList("A2", "A3"), index.getUserBlocks(7, true));
+    assertEquals(Collections.emptyList(), index.getUserBlocks(9, true));
+  }
+
+  @Test
+  void testUpdatePublishesPreviousState() {
+    createIndex();
+    index.update(Arrays.asList(updated("A5", 7, 1), updated("A1", 7, 1)), BlockStatus.RESERVED);
+    index.update(Collections.singletonList(updated("A2", null, 2)), BlockStatus.OPEN);
+
+    assertEquals(1, index.getStatusCount(BlockStatus.OPEN));
+    assertEquals(3, index.getStatusCount(BlockStatus.RESERVED));
+    // a user's blocks stay in ID order however they were reserved
+    assertEquals(Arrays.asList("A1", "A3", "A5"), index.getUserBlocks(7, true));
+
+    assertEquals(3, published.size());
+    BlockChange release = published.get(2);
+    assertEquals("A2", release.getBlockId());
+    assertEquals(BlockStatus.RESERVED, release.getOldStatus());
+    assertEquals(BlockStatus.OPEN, release.getNewStatus());
+    assertEquals(Integer.valueOf(7), release.getOldAssignee());
+    assertNull(release.getNewAssignee());
+
+    // the index is updated in place, without another query
+    assertEquals(1, mockDb.timesCalled("SELECT"));
+  }
+
+  @Test
+  void testUpdateIgnoresOlderChanges() {
+    createIndex();
+    // A4 was released and then reserved again, but the release is applied last
+    index.update(Collections.singletonList(updated("A4", 9, 3)), BlockStatus.RESERVED);
+    index.update(Collections.singletonList(updated("A4", null, 2)), BlockStatus.OPEN);
+    // a change the index already has is not applied twice
+    index.update(Collections.singletonList(updated("A4", 9, 3)), BlockStatus.RESERVED);
+
+    assertEquals(BlockStatus.RESERVED, index.getStatus("A4"));
+    assertEquals(Collections.singletonList("A4"), index.getUserBlocks(9, false));
+    assertEquals(Collections.emptyList(), index.getUserBlocks(8, true));
+    assertEquals(1, published.size());
+  }
+
+  @Test
+  void testUpdateAddsNewBlock() {
+    List<Record4<String, BlockStatus, Integer, Long>> withNewBlock =
+        new ArrayList<>(startingBlocks());
+    withNewBlock.add(block("B1", BlockStatus.RESERVED, 7, 1));
+    createIndex(withNewBlock);
+
+    index.update(Collections.singletonList(updated("B1", 7, 1)), BlockStatus.RESERVED);
+
+    // the table is read again for the new block, which is published as added
+    assertEquals(6, index.size());
+    assertEquals(Arrays.asList("A2", "B1"), index.getUserBlocks(7, false));
+    assertEquals(1, published.size());
+    assertNull(published.get(0).getOldStatus());
+    assertEquals(BlockStatus.RESERVED, published.get(0).getNewStatus());
+  }
+
+  @Test
+  void testListenersCalledOutsideLock() throws InterruptedException {
+    createIndex();
+    List<BlockStatus> seen = new CopyOnWriteArrayList<>();
+    index.addListener(
+        changes -> {
+          // another thread can read the index while a listener runs
+          Thread reader = new Thread(() -> seen.add(index.getStatus("A1")));
+          reader.start();
+          try {
+            reader.join(1000);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          assertEquals(Collections.singletonList(BlockStatus.RESERVED), seen);
+        });
+
+    index.update(Collections.singletonList(updated("A1", 7, 1)), BlockStatus.RESERVED);
+    assertEquals(1, seen.size());
+  }
+
+  @Test
+  void testCheckFindsNoDrift() {
+    createIndex();
+    assertEquals(0, index.check());
+    assertEquals(0, index.check());
+    assertEquals(0, published.size());
+    assertEquals(3, mockDb.timesCalled("SELECT"));
+  }
+
+  @Test
+  void testCheckCorrectsDrift() {
+    createIndex(
+        Arrays.asList(
+            block("A1", BlockStatus.OPEN, null, 0),
+            block("A2", BlockStatus.RESERVED, 7, 1),
+            block("A3", BlockStatus.DONE, 7, 2),
+            block("A4", BlockStatus.DONE, 8, 2),
+            block("A5", BlockStatus.OPEN, null, 0)));
+
+    assertEquals(1, index.check());
+    assertEquals(1, index.getStatusCount(BlockStatus.RESERVED));
+    assertEquals(Collections.singletonList("A4"), index.getUserBlocks(8, true));
+    assertEquals(1, published.size());
+    assertEquals(BlockStatus.DONE, published.get(0).getNewStatus());
+  }
+
+  @Test
+  void testCheckRebuildsWhenBlocksAdded() {
+    createIndex(
+        Arrays.asList(
+            block("A1", BlockStatus.OPEN, null, 0),
+            block("A2", BlockStatus.RESERVED, 7, 1),
+            block("A3", BlockStatus.DONE, 7, 2),
+            block("A4", BlockStatus.RESERVED, 8, 1),
+            block("A5", BlockStatus.OPEN, null, 0),
+            block("B1", BlockStatus.OPEN, null, 0)));
+
+    assertEquals(1, index.check());
+    assertEquals(6, index.size());
+    assertEquals(BlockStatus.OPEN, index.getStatus("B1"));
+    assertNull(published.get(0).getOldStatus());
+  }
+}
@@ -0,0 +1,63 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.jooq.generated.Tables.USER_BLOCK_STATS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.codeforcommunity.JooqMock;
+import com.codeforcommunity.dto.blocks.BlockStatsDrift;
+import java.util.Arrays;
+import org.jooq.Record3;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BlockStatsTest {
+  private JooqMock mockDb;
+  private BlockStats blockStats;
+
+  private Record3<Integer, Integer, Integer> counts(int id, int completed, int reserved) {
+    Record3<Integer, Integer, Integer> counts =
+        mockDb
+            .getContext()
+            .newRecord(
+                USER_BLOCK_STATS.USER_ID, USER_BLOCK_STATS.COMPLETED, USER_BLOCK_STATS.RESERVED);
+    counts.values(id, completed, reserved);
+    return counts;
+  }
+
+  @BeforeEach
+  void setup() {
+    mockDb = new JooqMock();
+    blockStats = new BlockStats(mockDb.getContext());
+
+    // the recount and the stored counts of users, then of teams
+    mockDb.addReturn("SELECT", Arrays.asList(counts(7, 2, 1), counts(8, 1, 0)));
+    mockDb.addReturn("SELECT", Arrays.asList(counts(7, 2, 1), counts(8, 0, 0), counts(9, 0, 0)));
+    mockDb.addReturn("SELECT", Arrays.asList(counts(1, 3, 1)));
+    mockDb.addReturn("SELECT", Arrays.asList(counts(1, 3, 1), counts(2, 0, 1)));
+  }
+
+  @Test
+  void testCheckCountsDrift() {
+    BlockStatsDrift drift = blockStats.check();
+
+    // a user with no blocks may or may not have a row, but a row that is wrong is drift
+    assertEquals(1, drift.getUsersDiffering());
+    assertEquals(1, drift.getTeamsDiffering());
+    assertEquals(4, mockDb.timesCalled("SELECT"));
+    assertEquals(-1, mockDb.timesCalled("DELETE"));
+  }
+
+  @Test
+  void testRebuildReplacesCounts() {
+    mockDb.addEmptyReturn("DELETE");
+    mockDb.addEmptyReturn("INSERT");
+
+    BlockStatsDrift drift = blockStats.rebuild();
+
+    assertEquals(1, drift.getUsersDiffering());
+    assertEquals(1, drift.getTeamsDiffering());
+    // both tables are emptied and refilled from a recount
+    assertEquals(2, mockDb.timesCalled("DELETE"));
+    assertEquals(2, mockDb.timesCalled("INSERT"));
+  }
+}
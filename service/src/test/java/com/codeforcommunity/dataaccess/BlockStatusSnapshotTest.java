@@ -0,0 +1,141 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.jooq.generated.Tables.BLOCK;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.codeforcommunity.JooqMock;
+import com.codeforcommunity.dto.map.EncodedResource;
+import com.codeforcommunity.enums.BlockStatus;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jooq.Record2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BlockStatusSnapshotTest {
+  private JooqMock mockDb;
+  private Vertx vertx;
+  private BlockStatusSnapshot snapshot;
+
+  private Record2<String, BlockStatus> block(String id, BlockStatus status) {
+    Record2<String, BlockStatus> block = mockDb.getContext().newRecord(BLOCK.ID, BLOCK.STATUS);
+    block.values(id, status);
+    return block;
+  }
+
+  private List<Record2<String, BlockStatus>> startingBlocks() {
+    return Arrays.asList(
+        block("A1", BlockStatus.OPEN),
+        block("A2", BlockStatus.RESERVED),
+        block("A3", BlockStatus.DONE),
+        block("A4", BlockStatus.OPEN),
+        block("A5", BlockStatus.DONE));
+  }
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setup() {
+    // Work that would run on a worker runs straight away
+    vertx = mock(Vertx.class);
+    doAnswer(
+            invocation -> {
+              Promise<Object> promise = Promise.promise();
+              invocation.<Handler<Promise<Object>>>getArgument(0).handle(promise);
+              invocation.<Handler<AsyncResult<Object>>>getArgument(2).handle(promise.future());
+              return null;
+            })
+        .when(vertx)
+        .executeBlocking(any(), anyBoolean(), any());
+
+    mockDb = new JooqMock();
+    mockDb.addReturn("SELECT", startingBlocks());
+    snapshot = new BlockStatusSnapshot(vertx, mockDb.getContext());
+  }
+
+  @Test
+  void testStatusesPackedTwoBitsPerBlock() {
+    byte[] statuses = snapshot.getStatuses().getIdentity().getBytes();
+    JsonObject dictionary = new JsonObject(snapshot.getDictionary().getIdentity());
+
+    assertEquals(5, snapshot.size());
+    assertEquals(
+        Arrays.asList("A1", "A2", "A3", "A4", "A5"), dictionary.getJsonArray("ids").getList());
+    // a header with the dictionary version and the block count, then two bytes of statuses
+    assertEquals(8 + 2, statuses.length);
+    assertEquals(5, statuses[7]);
+    assertArrayEquals(new byte[] {0b00_10_01_00, 0b10}, Arrays.copyOfRange(statuses, 8, 10));
+  }
+
+  @Test
+  void testUpdateChangesOnlyThoseBlocks() {
+    EncodedResource before = snapshot.getStatuses();
+    assertSame(before, snapshot.getStatuses());
+
+    snapshot.onBlocksChanged(
+        Arrays.asList(
+            new BlockChange("A1", BlockStatus.OPEN, BlockStatus.RESERVED, null, 1),
+            new BlockChange("A5", BlockStatus.DONE, BlockStatus.RESERVED, null, 1)));
+
+    EncodedResource after = snapshot.getStatuses();
+    assertNotEquals(before.getEtag(), after.getEtag());
+    byte[] statuses = after.getIdentity().getBytes();
+    assertArrayEquals(new byte[] {0b00_10_01_01, 0b01}, Arrays.copyOfRange(statuses, 8, 10));
+    // the snapshot is updated in place, without another query
+    assertEquals(1, mockDb.timesCalled("SELECT"));
+  }
+
+  @Test
+  void testUpdateUnknownBlockReloads() {
+    List<Record2<String, BlockStatus>> withNewBlock = new ArrayList<>(startingBlocks());
+    withNewBlock.add(block("B1", BlockStatus.DONE));
+    mockDb = new JooqMock();
+    mockDb.addReturn("SELECT", startingBlocks());
+    mockDb.addReturn("SELECT", withNewBlock);
+    snapshot = new BlockStatusSnapshot(vertx, mockDb.getContext());
+    int version = new JsonObject(snapshot.getDictionary().getIdentity()).getInteger("version");
+
+    snapshot.onBlocksChanged(
+        Arrays.asList(
+            new BlockChange("B1", null, BlockStatus.DONE, null, null),
+            new BlockChange("A1", BlockStatus.OPEN, BlockStatus.RESERVED, null, 1)));
+
+    // the reload is handed to a worker rather than run by the listener
+    verify(vertx).executeBlocking(any(), anyBoolean(), any());
+    assertEquals(2, mockDb.timesCalled("SELECT"));
+    assertEquals(6, snapshot.size());
+    JsonObject dictionary = new JsonObject(snapshot.getDictionary().getIdentity());
+    assertNotEquals(version, dictionary.getInteger("version"));
+    byte[] statuses = snapshot.getStatuses().getIdentity().getBytes();
+    assertEquals(0b10, (statuses[8 + 5 / 4] >> (2 * (5 % 4))) & 0b11);
+  }
+
+  @Test
+  void testVersionIsDigestOfIds() {
+    JooqMock otherDb = new JooqMock();
+    otherDb.addReturn("SELECT", startingBlocks());
+    BlockStatusSnapshot other = new BlockStatusSnapshot(vertx, otherDb.getContext());
+
+    // another server, or the same one after a restart, gives the same IDs the same version
+    JsonObject dictionary = new JsonObject(snapshot.getDictionary().getIdentity());
+    JsonObject otherDictionary = new JsonObject(other.getDictionary().getIdentity());
+    assertEquals(dictionary.getInteger("version"), otherDictionary.getInteger("version"));
+    assertEquals(
+        dictionary.getInteger("version").intValue(),
+        ByteBuffer.wrap(snapshot.getStatuses().getIdentity().getBytes()).getInt());
+  }
+}
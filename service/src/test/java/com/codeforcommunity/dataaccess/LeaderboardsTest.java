@@ -0,0 +1,154 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.jooq.generated.Tables.USER_BLOCK_STATS;
+import static org.jooq.generated.Tables.USER_TEAM;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.codeforcommunity.JooqMock;
+import com.codeforcommunity.enums.BlockStatus;
+import java.util.Arrays;
+import java.util.Collections;
+import org.jooq.Record1;
+import org.jooq.Record2;
+import org.jooq.Record3;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LeaderboardsTest {
+  private JooqMock mockDb;
+  private Leaderboards leaderboards;
+
+  private Record3<Integer, Integer, Integer> stats(int userId, int completed, int reserved) {
+    return mockDb
+        .getContext()
+        .newRecord(USER_BLOCK_STATS.USER_ID, USER_BLOCK_STATS.COMPLETED, USER_BLOCK_STATS.RESERVED)
+        .values(userId, completed, reserved);
+  }
+
+  private Record2<Integer, Integer> membership(int userId, int teamId) {
+    return mockDb
+        .getContext()
+        .newRecord(USER_TEAM.USER_ID, USER_TEAM.TEAM_ID)
+        .values(userId, teamId);
+  }
+
+  private Record1<Integer> member(int userId) {
+    return mockDb.getContext().newRecord(USER_TEAM.USER_ID).values(userId);
+  }
+
+  @BeforeEach
+  void setup() {
+    mockDb = new JooqMock();
+    // the block stats of each user, then who leads or is a member of each team
+    mockDb.addReturn("SELECT", Arrays.asList(stats(1, 3, 1), stats(2, 1, 0), stats(3, 0, 2)));
+    mockDb.addReturn(
+        "SELECT", Arrays.asList(membership(1, 10), membership(2, 10), membership(3, 20)));
+  }
+
+  /**
+   * Create the leaderboards from the results queued so far. A test queues the results of its own
+   * reads first, as a result queued after the last one was read is only reached once the last one
+   * has been read again.
+   */
+  private void createLeaderboards() {
+    leaderboards = new Leaderboards(mockDb.getContext());
+  }
+
+  @Test
+  void testLoad() {
+    createLeaderboards();
+    assertEquals(3, leaderboards.getUserCount());
+    assertEquals(2, leaderboards.getTeamCount());
+    assertEquals(1, leaderboards.getUserRank(1));
+    assertEquals(3, leaderboards.getUserRank(3));
+    assertEquals(4, leaderboards.getTeam(10).getCompleted());
+    assertEquals(1, leaderboards.getTeam(10).getReserved());
+    assertEquals(2, leaderboards.getTeamRank(20));
+  }
+
+  @Test
+  void testBlockChangesCountForUsersAndTeams() {
+    createLeaderboards();
+    leaderboards.onBlocksChanged(
+        Arrays.asList(
+            // user 3 completes a block they had reserved
+            new BlockChange("a", BlockStatus.RESERVED, BlockStatus.DONE, 3, 3),
+            // user 2 reserves two blocks
+            new BlockChange("b", BlockStatus.OPEN, BlockStatus.RESERVED, null, 2),
+            new BlockChange("c", BlockStatus.OPEN, BlockStatus.RESERVED, null, 2)));
+
+    assertEquals(1, leaderboards.getUser(3).getCompleted());
+    assertEquals(1, leaderboards.getUser(3).getReserved());
+    assertEquals(2, leaderboards.getUser(2).getReserved());
+    assertEquals(3, leaderboards.getTeam(10).getReserved());
+    assertEquals(1, leaderboards.getTeam(20).getCompleted());
+
+    // user 3 gives up their last reserved block and the block they completed is reset
+    leaderboards.onBlocksChanged(
+        Arrays.asList(
+            new BlockChange("d", BlockStatus.RESERVED, BlockStatus.OPEN, 3, null),
+            new BlockChange("a", BlockStatus.DONE, BlockStatus.OPEN, 3, null)));
+
+    assertNull(leaderboards.getUser(3));
+    assertEquals(0, leaderboards.getUserRank(3));
+    assertNull(leaderboards.getTeam(20));
+    assertEquals(1, leaderboards.getTeamCount());
+  }
+
+  @Test
+  void testRefreshTeam() {
+    // the members of team 10 once user 3 joins it, then of team 20 once it is disbanded
+    mockDb.addReturn("SELECT", Arrays.asList(member(1), member(2), member(3)));
+    mockDb.addEmptyReturn("SELECT");
+    createLeaderboards();
+
+    leaderboards.refreshTeam(10);
+
+    assertEquals(4, leaderboards.getTeam(10).getCompleted());
+    assertEquals(3, leaderboards.getTeam(10).getReserved());
+
+    // and their blocks now count towards it
+    leaderboards.onBlocksChanged(
+        Collections.singletonList(
+            new BlockChange("a", BlockStatus.OPEN, BlockStatus.DONE, null, 3)));
+    assertEquals(5, leaderboards.getTeam(10).getCompleted());
+    assertEquals(1, leaderboards.getTeam(20).getCompleted());
+
+    // team 20 is disbanded
+    leaderboards.refreshTeam(20);
+    assertNull(leaderboards.getTeam(20));
+  }
+
+  @Test
+  void testReloadAppliedWhileRankingsChange() {
+    createLeaderboards();
+    Leaderboards changing = spy(leaderboards);
+    // a block is reserved every time the stats are read, so every read may have missed a change
+    doAnswer(
+            invocation -> {
+              changing.onBlocksChanged(
+                  Collections.singletonList(
+                      new BlockChange("a", BlockStatus.OPEN, BlockStatus.RESERVED, null, 2)));
+              return mockDb
+                  .getContext()
+                  .newResult(
+                      USER_BLOCK_STATS.USER_ID,
+                      USER_BLOCK_STATS.COMPLETED,
+                      USER_BLOCK_STATS.RESERVED);
+            })
+        .when(changing)
+        .fetchUserStats();
+
+    changing.reload();
+
+    // read again a bounded number of times, and then applied
+    verify(changing, times(4)).fetchUserStats();
+    assertEquals(0, changing.getUserCount());
+    assertEquals(0, changing.getTeamCount());
+  }
+}
@@ -0,0 +1,99 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RankingTest {
+
+  @Test
+  void testTiesShareRank() {
+    Ranking ranking = new Ranking();
+    ranking.set(1, 2, 0);
+    ranking.set(2, 5, 1);
+    ranking.set(3, 2, 0);
+    ranking.set(4, 2, 3);
+    ranking.set(5, 0, 0);
+
+    assertEquals(4, ranking.size());
+    assertEquals(1, ranking.getRank(2));
+    assertEquals(2, ranking.getRank(4));
+    assertEquals(3, ranking.getRank(1));
+    assertEquals(3, ranking.getRank(3));
+    // no blocks is not ranked
+    assertEquals(0, ranking.getRank(5));
+    assertNull(ranking.get(5));
+
+    // ties are listed by ID
+    List<Ranking.Entry> top = ranking.getTop(3);
+    assertEquals(3, top.size());
+    assertEquals(2, top.get(0).getId());
+    assertEquals(4, top.get(1).getId());
+    assertEquals(1, top.get(2).getId());
+  }
+
+  @Test
+  void testAddMovesEntries() {
+    Ranking ranking = new Ranking();
+    ranking.add(1, 1, 0);
+    ranking.add(2, 0, 1);
+    ranking.add(2, 1, 0);
+
+    assertEquals(1, ranking.getRank(2));
+    assertEquals(2, ranking.getRank(1));
+
+    ranking.add(2, -1, -1);
+    assertEquals(1, ranking.getRank(1));
+    assertEquals(0, ranking.getRank(2));
+    assertEquals(1, ranking.size());
+  }
+
+  @Test
+  void testMatchesSorting() {
+    Random random = new Random(42);
+    Ranking ranking = new Ranking();
+    Map<Integer, int[]> counts = new HashMap<>();
+
+    for (int i = 0; i < 5000; i++) {
+      int id = random.nextInt(200);
+      int completed = random.nextInt(6);
+      int reserved = random.nextInt(4);
+      ranking.set(id, completed, reserved);
+      counts.put(id, new int[] {completed, reserved});
+    }
+
+    List<Integer> expected = new ArrayList<>();
+    counts.forEach(
+        (id, count) -> {
+          if (count[0] != 0 || count[1] != 0) {
+            expected.add(id);
+          }
+        });
+    expected.sort(
+        Comparator.<Integer>comparingInt(id -> -counts.get(id)[0])
+            .thenComparingInt(id -> -counts.get(id)[1])
+            .thenComparingInt(id -> id));
+
+    List<Ranking.Entry> top = ranking.getTop(Integer.MAX_VALUE);
+    assertEquals(expected.size(), ranking.size());
+    assertEquals(expected.size(), top.size());
+    for (int i = 0; i < expected.size(); i++) {
+      int id = expected.get(i);
+      assertEquals(id, top.get(i).getId());
+
+      int rank = i + 1;
+      while (rank > 1 && Arrays.equals(counts.get(expected.get(rank - 2)), counts.get(id))) {
+        rank--;
+      }
+      assertEquals(rank, ranking.getRank(id));
+    }
+  }
+}
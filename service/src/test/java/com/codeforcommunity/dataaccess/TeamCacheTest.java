@@ -0,0 +1,132 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.codeforcommunity.dataaccess.TeamCache.CachedTeam;
+import com.codeforcommunity.dto.team.TeamMember;
+import com.codeforcommunity.enums.BlockStatus;
+import com.codeforcommunity.enums.TeamRole;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.jooq.generated.tables.pojos.Team;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TeamCacheTest {
+  private TeamCache cache;
+  private AtomicInteger loads;
+
+  private CachedTeam team(int teamId, TeamMember... members) {
+    Team team = new Team();
+    team.setId(teamId);
+    return new CachedTeam(team, Arrays.asList(members));
+  }
+
+  private Supplier<CachedTeam> load(CachedTeam team) {
+    return () -> {
+      loads.incrementAndGet();
+      return team;
+    };
+  }
+
+  @BeforeEach
+  void setup() {
+    cache = new TeamCache(2);
+    loads = new AtomicInteger();
+  }
+
+  @Test
+  void testTotals() {
+    CachedTeam team =
+        team(
+            5,
+            new TeamMember(1, "a", 2, 1, TeamRole.LEADER),
+            new TeamMember(2, "b", 3, 0, TeamRole.MEMBER),
+            new TeamMember(3, "c", 4, 4, TeamRole.PENDING));
+
+    assertEquals(2, team.getActiveMembers().size());
+    assertEquals(5, team.getBlocksCompleted());
+    assertEquals(1, team.getBlocksReserved());
+    assertTrue(team.hasApplicants());
+    assertEquals(TeamRole.PENDING, team.getRole(3));
+    assertEquals(TeamRole.NONE, team.getRole(4));
+  }
+
+  @Test
+  void testCachedUntilInvalidated() {
+    CachedTeam team = team(5, new TeamMember(1, "a", 0, 0, TeamRole.LEADER));
+
+    assertSame(team, cache.get(5, load(team)));
+    assertSame(team, cache.get(5, load(team)));
+    assertEquals(1, loads.get());
+
+    cache.invalidate(5);
+    assertEquals(0, cache.size());
+    cache.get(5, load(team));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void testMissingTeamNotCached() {
+    assertNull(cache.get(5, load(null)));
+    assertNull(cache.get(5, load(null)));
+    assertEquals(2, loads.get());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void testBlockChangesInvalidateTeamsOfAssignees() {
+    cache.get(5, load(team(5, new TeamMember(1, "a", 0, 0, TeamRole.LEADER))));
+    cache.get(6, load(team(6, new TeamMember(2, "b", 0, 0, TeamRole.LEADER))));
+
+    // a block is taken from user 3, who is on no cached team, and given to user 1
+    cache.onBlocksChanged(
+        Collections.singletonList(
+            new BlockChange("a", BlockStatus.RESERVED, BlockStatus.RESERVED, 3, 1)));
+
+    assertEquals(1, cache.size());
+    cache.get(6, load(null));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void testNotCachedIfInvalidatedWhileLoading() {
+    CachedTeam team = team(5, new TeamMember(1, "a", 0, 0, TeamRole.LEADER));
+
+    CachedTeam loaded =
+        cache.get(
+            5,
+            () -> {
+              // the team changes after it was read
+              cache.invalidate(5);
+              return team;
+            });
+
+    assertSame(team, loaded);
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void testEvictsLeastRecentlyUsed() {
+    cache.get(5, load(team(5, new TeamMember(1, "a", 0, 0, TeamRole.LEADER))));
+    cache.get(6, load(team(6, new TeamMember(2, "b", 0, 0, TeamRole.LEADER))));
+    cache.get(5, load(null));
+    cache.get(7, load(team(7, new TeamMember(2, "b", 0, 0, TeamRole.MEMBER))));
+
+    // team 6 was used least recently
+    assertEquals(2, cache.size());
+    assertNull(cache.get(6, load(null)));
+    assertEquals(4, loads.get());
+
+    // user 2 is only indexed under the team that is still cached
+    cache.invalidateUser(2);
+    assertEquals(1, cache.size());
+    assertNotNull(cache.get(5, load(null)));
+  }
+}
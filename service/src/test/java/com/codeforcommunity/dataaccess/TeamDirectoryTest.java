@@ -0,0 +1,124 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.jooq.generated.Tables.TEAM;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.codeforcommunity.JooqMock;
+import com.codeforcommunity.exceptions.MalformedParameterException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.jooq.Record1;
+import org.jooq.Record3;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TeamDirectoryTest {
+  private JooqMock mockDb;
+  private TeamDirectory directory;
+
+  private Record3<Integer, String, Integer> team(int teamId, String name, int memberCount) {
+    return mockDb
+        .getContext()
+        .newRecord(TEAM.ID, TEAM.NAME, DSL.count())
+        .values(teamId, name, memberCount);
+  }
+
+  private Record1<String> name(String name) {
+    return mockDb.getContext().newRecord(TEAM.NAME).values(name);
+  }
+
+  private Record1<Integer> count(int count) {
+    return mockDb.getContext().newRecord(DSL.count()).values(count);
+  }
+
+  private List<Integer> ids(TeamDirectory.Page page) {
+    return page.getTeams().stream().map(TeamDirectory.Entry::getId).collect(Collectors.toList());
+  }
+
+  @BeforeEach
+  void setup() {
+    mockDb = new JooqMock();
+    mockDb.addReturn(
+        "SELECT",
+        Arrays.asList(
+            team(1, "Beta", 2), team(2, "alpha", 1), team(3, "Gamma", 4), team(4, "beta", 3)));
+  }
+
+  /**
+   * Create the directory from the results queued so far. A test queues the results of its own reads
+   * first, as a result queued after the last one was read is only reached once the last one has
+   * been read again.
+   */
+  private void createDirectory() {
+    directory = new TeamDirectory(mockDb.getContext());
+  }
+
+  @Test
+  void testBrowsePages() {
+    createDirectory();
+    TeamDirectory.Page first = directory.find(null, null, 2);
+    assertEquals(Arrays.asList(2, 1), ids(first));
+    assertEquals("Beta", first.getTeams().get(1).getName());
+    assertEquals(2, first.getTeams().get(1).getMemberCount());
+    assertNotNull(first.getNextCursor());
+
+    TeamDirectory.Page second = directory.find(null, first.getNextCursor(), 2);
+    assertEquals(Arrays.asList(4, 3), ids(second));
+    assertNull(second.getNextCursor());
+  }
+
+  @Test
+  void testSearch() {
+    createDirectory();
+    // short searches match the start of names
+    assertEquals(Arrays.asList(1, 4), ids(directory.find("B", null, 10)));
+    assertEquals(Arrays.asList(), ids(directory.find("et", null, 10)));
+
+    // longer ones match anywhere in them
+    assertEquals(Arrays.asList(3), ids(directory.find("AMM", null, 10)));
+    assertEquals(Arrays.asList(), ids(directory.find("xyz", null, 10)));
+
+    TeamDirectory.Page first = directory.find(" eta ", null, 1);
+    assertEquals(Arrays.asList(1), ids(first));
+    TeamDirectory.Page second = directory.find("eta", first.getNextCursor(), 1);
+    assertEquals(Arrays.asList(4), ids(second));
+    assertNull(second.getNextCursor());
+  }
+
+  @Test
+  void testRefreshTeam() {
+    // the name and member count of team 5 once it is created, then no name for team 1
+    mockDb.addReturn("SELECT", name("Alphabet"));
+    mockDb.addReturn("SELECT", count(1));
+    mockDb.addEmptyReturn("SELECT");
+    createDirectory();
+    String cursor = directory.find(null, null, 2).getNextCursor();
+
+    // team 5 is created
+    directory.refreshTeam(5);
+    assertEquals(5, directory.size());
+    assertEquals(Arrays.asList(2, 5), ids(directory.find("al", null, 10)));
+    assertEquals(Arrays.asList(5, 1, 4), ids(directory.find("bet", null, 10)));
+
+    // team 1, the last on the first page, is disbanded
+    directory.refreshTeam(1);
+    assertEquals(4, directory.size());
+    assertEquals(Arrays.asList(5, 4), ids(directory.find("bet", null, 10)));
+
+    // the second page still starts after it
+    assertEquals(Arrays.asList(4, 3), ids(directory.find(null, cursor, 10)));
+  }
+
+  @Test
+  void testMalformedCursor() {
+    createDirectory();
+    assertThrows(MalformedParameterException.class, () -> directory.find(null, "not a cursor", 10));
+    // "abc", which does not name a team
+    assertThrows(MalformedParameterException.class, () -> directory.find(null, "YWJj", 10));
+  }
+}
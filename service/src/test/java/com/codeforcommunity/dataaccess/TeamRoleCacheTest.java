@@ -0,0 +1,88 @@
+package com.codeforcommunity.dataaccess;
+
+import static org.jooq.generated.Tables.USER_TEAM;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.codeforcommunity.JooqMock;
+import com.codeforcommunity.enums.TeamRole;
+import org.jooq.Record1;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TeamRoleCacheTest {
+  private JooqMock mockDb;
+  private TeamRoleCache cache;
+
+  private Record1<TeamRole> role(TeamRole role) {
+    return mockDb.getContext().newRecord(USER_TEAM.TEAM_ROLE).values(role);
+  }
+
+  @BeforeEach
+  void setup() {
+    mockDb = new JooqMock();
+    cache = new TeamRoleCache(mockDb.getContext(), 3);
+  }
+
+  @Test
+  void testLoadedOnce() {
+    mockDb.addReturn("SELECT", role(TeamRole.LEADER));
+
+    assertEquals(TeamRole.LEADER, cache.getRole(1, 5));
+    assertEquals(TeamRole.LEADER, cache.getRole(1, 5));
+    assertEquals(1, mockDb.timesCalled("SELECT"));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  void testNotOnTeamCached() {
+    mockDb.addEmptyReturn("SELECT");
+
+    assertEquals(TeamRole.NONE, cache.getRole(1, 5));
+    assertEquals(TeamRole.NONE, cache.getRole(1, 5));
+    assertEquals(1, mockDb.timesCalled("SELECT"));
+  }
+
+  @Test
+  void testWriteThrough() {
+    mockDb.addEmptyReturn("SELECT");
+
+    cache.setRole(1, 5, TeamRole.PENDING);
+    assertEquals(TeamRole.PENDING, cache.getRole(1, 5));
+    cache.setRole(1, 5, TeamRole.MEMBER);
+    assertEquals(TeamRole.MEMBER, cache.getRole(1, 5));
+    assertEquals(0, mockDb.timesCalled("SELECT"));
+  }
+
+  @Test
+  void testRemoveTeamAndUser() {
+    cache.setRole(1, 5, TeamRole.LEADER);
+    cache.setRole(2, 5, TeamRole.MEMBER);
+    cache.setRole(1, 6, TeamRole.MEMBER);
+
+    cache.removeTeam(5);
+    assertEquals(1, cache.size());
+
+    cache.setRole(2, 6, TeamRole.LEADER);
+    cache.removeUser(1);
+    assertEquals(1, cache.size());
+
+    mockDb.addEmptyReturn("SELECT");
+    assertEquals(TeamRole.LEADER, cache.getRole(2, 6));
+    assertEquals(TeamRole.NONE, cache.getRole(1, 6));
+    assertEquals(1, mockDb.timesCalled("SELECT"));
+  }
+
+  @Test
+  void testBounded() {
+    for (int userId = 1; userId <= 5; userId++) {
+      cache.setRole(userId, 5, TeamRole.MEMBER);
+    }
+    assertEquals(3, cache.size());
+
+    mockDb.addEmptyReturn("SELECT");
+    for (int teamId = 6; teamId <= 10; teamId++) {
+      cache.getRole(1, teamId);
+    }
+    assertEquals(3, cache.size());
+  }
+}
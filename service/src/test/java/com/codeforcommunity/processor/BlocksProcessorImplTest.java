@@ -0,0 +1,170 @@
+package com.codeforcommunity.processor;
+
+import static org.jooq.generated.Tables.BLOCK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codeforcommunity.JooqMock;
+import com.codeforcommunity.auth.JWTData;
+import com.codeforcommunity.dataaccess.BlockStateIndex;
+import com.codeforcommunity.dataaccess.BlockStats;
+import com.codeforcommunity.dto.blocks.BlockResponse;
+import com.codeforcommunity.enums.BlockStatus;
+import com.codeforcommunity.enums.PrivilegeLevel;
+import com.codeforcommunity.exceptions.AdminOnlyRouteException;
+import com.codeforcommunity.requester.MapReconciler;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.jooq.Record3;
+import org.jooq.generated.tables.records.BlockRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class BlocksProcessorImplTest {
+  private JooqMock mockDb;
+  private MapReconciler mapReconciler;
+  private BlockStateIndex blockStateIndex;
+  private BlockStats blockStats;
+  private BlocksProcessorImpl processor;
+
+  @BeforeEach
+  void setup() {
+    mockDb = new JooqMock();
+    // the outbox rows queued for the map
+    mockDb.addEmptyReturn("INSERT");
+    mapReconciler = mock(MapReconciler.class);
+    blockStateIndex = mock(BlockStateIndex.class);
+    blockStats = mock(BlockStats.class);
+    processor =
+        new BlocksProcessorImpl(mockDb.getContext(), mapReconciler, blockStateIndex, blockStats);
+  }
+
+  /** @return a block as an update returns it, at its first version. */
+  private Record3<String, Integer, Long> blockWithAssignee(String id, Integer assignee) {
+    return mockDb
+        .getContext()
+        .newRecord(BLOCK.ID, BLOCK.ASSIGNED_TO, BLOCK.VERSION)
+        .values(id, assignee, 1L);
+  }
+
+  private Record3<String, Integer, Long> blockWithId(String id) {
+    return blockWithAssignee(id, null);
+  }
+
+  @Test
+  void testReserveBlocksPartialSuccess() {
+    mockDb.addReturn(
+        "UPDATE", Arrays.asList(blockWithAssignee("A1", 1), blockWithAssignee("A3", 1)));
+    JWTData user = new JWTData(1, PrivilegeLevel.STANDARD);
+
+    BlockResponse response = processor.reserveBlocks(user, Arrays.asList("A1", "A2", "A3", "A4"));
+
+    // the status change is a single update
+    assertEquals(1, mockDb.timesCalled("UPDATE"));
+    assertEquals(-1, mockDb.timesCalled("SELECT"));
+
+    assertEquals(Arrays.asList("A1", "A3"), response.getSuccesses());
+    assertEquals(Arrays.asList("A2", "A4"), response.getFailures());
+
+    // the map updates are queued in the outbox, one row per block
+    assertEquals(1, mockDb.timesCalled("INSERT"));
+    Object[] outboxBindings = mockDb.getSqlBindings().get("INSERT").get(0);
+    assertEquals(
+        Arrays.asList("A1", BlockStatus.RESERVED.getVal(), "A3", BlockStatus.RESERVED.getVal()),
+        Arrays.asList(outboxBindings));
+
+    // only the blocks that changed are updated in the index, with their new assignee and version
+    ArgumentCaptor<List<BlockRecord>> updated = ArgumentCaptor.forClass(List.class);
+    verify(blockStateIndex).update(updated.capture(), eq(BlockStatus.RESERVED));
+    assertEquals(2, updated.getValue().size());
+    BlockRecord first = updated.getValue().get(0);
+    assertEquals("A1", first.getId());
+    assertEquals(Integer.valueOf(1), first.getAssignedTo());
+    assertEquals(Long.valueOf(1), first.getVersion());
+  }
+
+  @Test
+  void testReserveBlocksNoneAvailable() {
+    mockDb.addEmptyReturn("UPDATE");
+    JWTData user = new JWTData(1, PrivilegeLevel.STANDARD);
+
+    BlockResponse response = processor.reserveBlocks(user, Arrays.asList("A1", "A2"));
+
+    assertEquals(Collections.emptyList(), response.getSuccesses());
+    assertEquals(Arrays.asList("A1", "A2"), response.getFailures());
+    // nothing changed, so there is nothing to queue for the map
+    assertEquals(0, mockDb.timesCalled("INSERT"));
+  }
+
+  @Test
+  void testFinishBlocksRestrictedToAssignee() {
+    mockDb.addReturn("UPDATE", blockWithId("A1"));
+    JWTData user = new JWTData(7, PrivilegeLevel.STANDARD);
+
+    BlockResponse response = processor.finishBlocks(user, Arrays.asList("A1", "A2"));
+
+    assertEquals(Collections.singletonList("A1"), response.getSuccesses());
+    assertEquals(Collections.singletonList("A2"), response.getFailures());
+
+    // the last condition of the update is on the assigned user
+    List<Object[]> bindings = mockDb.getSqlBindings().get("UPDATE");
+    Object[] updateBindings = bindings.get(0);
+    assertEquals(7, updateBindings[updateBindings.length - 1]);
+    assertEquals(1, mockDb.timesCalled("INSERT"));
+  }
+
+  @Test
+  void testReleaseBlocksAdminNotRestrictedToAssignee() {
+    mockDb.addReturn("UPDATE", blockWithId("A1"));
+    JWTData standard = new JWTData(7, PrivilegeLevel.STANDARD);
+    JWTData admin = new JWTData(7, PrivilegeLevel.ADMIN);
+
+    processor.releaseBlocks(standard, Collections.singletonList("A1"));
+    processor.releaseBlocks(admin, Collections.singletonList("A1"));
+
+    // an admin's update has no assigned user condition
+    List<Object[]> bindings = mockDb.getSqlBindings().get("UPDATE");
+    assertEquals(bindings.get(0).length - 1, bindings.get(1).length);
+  }
+
+  @Test
+  void testGetUserReservedBlocksReadsIndex() {
+    when(blockStateIndex.getUserBlocks(7, true)).thenReturn(Arrays.asList("A1", "A2"));
+
+    List<String> blocks =
+        processor.getUserReservedBlocks(new JWTData(7, PrivilegeLevel.STANDARD), true);
+
+    assertEquals(Arrays.asList("A1", "A2"), blocks);
+    assertEquals(-1, mockDb.timesCalled("SELECT"));
+  }
+
+  @Test
+  void testSetMapToDatabaseStartsReconcile() {
+    JWTData standard = new JWTData(1, PrivilegeLevel.STANDARD);
+    assertThrows(AdminOnlyRouteException.class, () -> processor.setMapToDatabase(standard));
+    verify(mapReconciler, never()).start();
+
+    processor.setMapToDatabase(new JWTData(1, PrivilegeLevel.ADMIN));
+    verify(mapReconciler).start();
+    // the reconcile runs in the background, so nothing is pushed from the request
+    assertEquals(-1, mockDb.timesCalled("SELECT"));
+  }
+
+  @Test
+  void testRebuildBlockStatsAdminOnly() {
+    JWTData standard = new JWTData(1, PrivilegeLevel.STANDARD);
+    assertThrows(AdminOnlyRouteException.class, () -> processor.rebuildBlockStats(standard));
+    assertThrows(AdminOnlyRouteException.class, () -> processor.checkBlockStats(standard));
+    verify(blockStats, never()).rebuild();
+
+    processor.rebuildBlockStats(new JWTData(1, PrivilegeLevel.ADMIN));
+    verify(blockStats).rebuild();
+  }
+}
@@ -0,0 +1,140 @@
+package com.codeforcommunity.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.codeforcommunity.dataaccess.BlockChangeLog;
+import com.codeforcommunity.dataaccess.BlockStatusSnapshot;
+import com.codeforcommunity.dto.map.BoundingBox;
+import com.codeforcommunity.dto.map.EncodedResource;
+import com.codeforcommunity.exceptions.MalformedParameterException;
+import com.codeforcommunity.geo.LineFeature;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MapProcessorImplTest {
+  // Deeper than any simplified level, so the layer is served at full detail
+  private static final int FULL_DETAIL_ZOOM = 22;
+  private static final int TILE_CACHE_SIZE = 16;
+
+  private BlockStatusSnapshot statusSnapshot;
+  private MapProcessorImpl processor;
+
+  @BeforeEach
+  void setup() {
+    statusSnapshot = mock(BlockStatusSnapshot.class);
+    processor = new MapProcessorImpl(statusSnapshot, mock(BlockChangeLog.class), TILE_CACHE_SIZE);
+  }
+
+  @Test
+  void testPrivateStreetsEncodedOnce() throws IOException {
+    EncodedResource privateStreets = processor.getPrivateStreets(FULL_DETAIL_ZOOM);
+    assertSame(privateStreets, processor.getPrivateStreets(FULL_DETAIL_ZOOM));
+    assertEquals("application/geo+json", privateStreets.getContentType());
+
+    JsonObject layer = new JsonObject(privateStreets.getIdentity());
+    assertEquals("FeatureCollection", layer.getString("type"));
+    assertTrue(privateStreets.getGzip().length() < privateStreets.getIdentity().length());
+
+    // both encodings hold the same content
+    ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+    try (GZIPInputStream input =
+        new GZIPInputStream(new ByteArrayInputStream(privateStreets.getGzip().getBytes()))) {
+      byte[] chunk = new byte[8192];
+      int read;
+      while ((read = input.read(chunk)) != -1) {
+        decoded.write(chunk, 0, read);
+      }
+    }
+    assertEquals(privateStreets.getIdentity(), Buffer.buffer(decoded.toByteArray()));
+  }
+
+  @Test
+  void testEtagDependsOnContent() {
+    EncodedResource first = EncodedResource.of("{\"a\":1}".getBytes(), "application/json");
+    EncodedResource same = EncodedResource.of("{\"a\":1}".getBytes(), "application/json");
+    EncodedResource changed = EncodedResource.of("{\"a\":2}".getBytes(), "application/json");
+
+    assertEquals(first.getEtag(), same.getEtag());
+    assertTrue(!first.getEtag().equals(changed.getEtag()));
+  }
+
+  @Test
+  void testPrivateStreetsInBoundsMatchesFullScan() {
+    Buffer layer = processor.getPrivateStreets(FULL_DETAIL_ZOOM).getIdentity();
+    JsonArray allFeatures = new JsonObject(layer).getJsonArray("features");
+    BoundingBox bounds = new BoundingBox(-71.12, 42.30, -71.10, 42.32);
+
+    long expected =
+        allFeatures.stream()
+            .filter(feature -> new LineFeature((JsonObject) feature).intersects(bounds))
+            .count();
+
+    JsonObject response =
+        new JsonObject(processor.getPrivateStreetsInBounds(bounds, FULL_DETAIL_ZOOM));
+    assertEquals("FeatureCollection", response.getString("type"));
+    assertEquals(expected, response.getJsonArray("features").size());
+    assertTrue(expected > 0 && expected < allFeatures.size());
+  }
+
+  @Test
+  void testPrivateStreetsOutsideBoundsIsEmpty() {
+    BoundingBox bounds = new BoundingBox(0, 0, 1, 1);
+    JsonObject response =
+        new JsonObject(processor.getPrivateStreetsInBounds(bounds, FULL_DETAIL_ZOOM));
+    assertEquals(0, response.getJsonArray("features").size());
+  }
+
+  @Test
+  void testSimplifiedZoomLevels() {
+    int fullDetail = countPoints(processor.getPrivateStreets(FULL_DETAIL_ZOOM).getIdentity());
+    int street = countPoints(processor.getPrivateStreets(16).getIdentity());
+    int citywide = countPoints(processor.getPrivateStreets(10).getIdentity());
+
+    assertTrue(street <= fullDetail);
+    assertTrue(citywide < street);
+    // zooms between levels get the next more detailed level, zooms past the last get full detail
+    assertSame(processor.getPrivateStreets(11), processor.getPrivateStreets(12));
+    assertSame(processor.getPrivateStreets(3), processor.getPrivateStreets(10));
+    assertSame(processor.getPrivateStreets(17), processor.getPrivateStreets(FULL_DETAIL_ZOOM));
+  }
+
+  private int countPoints(Buffer layer) {
+    JsonArray features = new JsonObject(layer).getJsonArray("features");
+    int points = 0;
+    for (int i = 0; i < features.size(); i++) {
+      points +=
+          features.getJsonObject(i).getJsonObject("geometry").getJsonArray("coordinates").size();
+    }
+    return points;
+  }
+
+  @Test
+  void testTilesAreGeneratedOnceAndCached() {
+    // the zoom 14 tile around the first private street
+    EncodedResource tile = processor.getTile(14, 4955, 6063);
+    assertEquals("application/vnd.mapbox-vector-tile", tile.getContentType());
+    assertTrue(tile.getIdentity().length() > 0);
+    assertSame(tile, processor.getTile(14, 4955, 6063));
+
+    // a tile in the middle of the ocean has no streets
+    assertEquals(0, processor.getTile(14, 0, 0).getIdentity().length());
+  }
+
+  @Test
+  void testTileOutOfRange() {
+    assertThrows(MalformedParameterException.class, () -> processor.getTile(23, 0, 0));
+    assertThrows(MalformedParameterException.class, () -> processor.getTile(2, 4, 0));
+    assertThrows(MalformedParameterException.class, () -> processor.getTile(2, 0, -1));
+  }
+}
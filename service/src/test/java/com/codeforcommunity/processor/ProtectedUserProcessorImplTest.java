@@ -4,10 +4,15 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 import com.codeforcommunity.JooqMock;
 import com.codeforcommunity.auth.JWTData;
 import com.codeforcommunity.auth.Passwords;
+import com.codeforcommunity.dataaccess.Leaderboards;
+import com.codeforcommunity.dataaccess.TeamCache;
+import com.codeforcommunity.dataaccess.TeamDirectory;
+import com.codeforcommunity.dataaccess.TeamRoleCache;
 import com.codeforcommunity.dto.user.ChangePasswordRequest;
 import com.codeforcommunity.enums.PrivilegeLevel;
 import com.codeforcommunity.enums.TeamRole;
@@ -29,13 +34,23 @@ class ProtectedUserProcessorImplTest {
   private ProtectedUserProcessorImpl processor;
 
   private Emailer emailer;
+  private Leaderboards leaderboards;
+  private TeamCache teamCache;
+  private TeamDirectory teamDirectory;
+  private TeamRoleCache teamRoles;
 
   /** Method to setup mockDb and processor. */
   @BeforeEach
   void setup() {
     this.mockDb = new JooqMock();
     emailer = mock(Emailer.class);
-    this.processor = new ProtectedUserProcessorImpl(mockDb.getContext(), emailer);
+    leaderboards = mock(Leaderboards.class);
+    teamCache = mock(TeamCache.class);
+    teamDirectory = mock(TeamDirectory.class);
+    teamRoles = mock(TeamRoleCache.class);
+    this.processor =
+        new ProtectedUserProcessorImpl(
+            mockDb.getContext(), emailer, leaderboards, teamCache, teamDirectory, teamRoles);
   }
 
   // successfully deletes user when user is a member
@@ -61,6 +76,13 @@ class ProtectedUserProcessorImplTest {
     assertEquals(1, mockDb.getSqlBindings().get("DELETE").get(2)[0]);
     // user_id from user_team
     assertEquals(1, mockDb.getSqlBindings().get("SELECT").get(0)[0]);
+    // the user is taken off the leaderboards, along with their counts for their team
+    verify(leaderboards).removeUser(1);
+    verify(leaderboards).refreshTeam(5);
+    verify(teamCache).invalidateUser(1);
+    verify(teamCache).invalidate(5);
+    verify(teamDirectory).refreshTeam(5);
+    verify(teamRoles).removeUser(1);
   }
 
   // successfully deletes user when user is a leader
@@ -93,6 +115,9 @@ class ProtectedUserProcessorImplTest {
     assertEquals(5, mockDb.getSqlBindings().get("DELETE").get(1)[0]);
     // user_id from user_team
     assertEquals(1, mockDb.getSqlBindings().get("SELECT").get(0)[0]);
+    // the team they led is dropped along with their roles
+    verify(teamRoles).removeTeam(5);
+    verify(teamRoles).removeUser(1);
   }
 
   // attempts to delete user when there are no users
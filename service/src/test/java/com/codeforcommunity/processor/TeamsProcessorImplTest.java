@@ -4,16 +4,26 @@ import static io.vertx.ext.web.client.predicate.ResponsePredicateResult.success;
 import static org.jooq.generated.Tables.USERS;
 import static org.jooq.generated.tables.Block.BLOCK;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.codeforcommunity.JooqMock;
 import com.codeforcommunity.auth.JWTData;
 import com.codeforcommunity.auth.Passwords;
+import com.codeforcommunity.dataaccess.BlockChange;
+import com.codeforcommunity.dataaccess.Leaderboards;
+import com.codeforcommunity.dataaccess.TeamCache;
+import com.codeforcommunity.dataaccess.TeamDirectory;
+import com.codeforcommunity.dataaccess.TeamRoleCache;
 import com.codeforcommunity.dto.team.CreateTeamRequest;
 import com.codeforcommunity.dto.team.GetAllTeamsResponse;
 import com.codeforcommunity.dto.team.GetUserTeamsResponse;
@@ -38,12 +48,11 @@ import com.codeforcommunity.requester.Emailer;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import org.jooq.Record;
 import org.jooq.Record10;
 import org.jooq.Record2;
-import org.jooq.Record4;
-import org.jooq.Record5;
+import org.jooq.Record6;
 import org.jooq.generated.Tables;
 import org.jooq.generated.tables.pojos.Team;
 import org.jooq.generated.tables.pojos.Users;
@@ -63,13 +72,24 @@ class TeamsProcessorImplTest {
 
   private JWTData jwtData;
   private Emailer emailer;
+  private Leaderboards leaderboards;
+  private TeamCache teamCache;
+  private TeamDirectory teamDirectory;
+  private TeamRoleCache teamRoles;
 
   /** Method to setup mockDb and processor. */
   @BeforeEach
   void setup() {
     mockDb = new JooqMock();
     emailer = mock(Emailer.class);
-    processor = new TeamsProcessorImpl(mockDb.getContext(), emailer);
+    leaderboards = mock(Leaderboards.class);
+    teamCache = new TeamCache(100);
+    teamDirectory = mock(TeamDirectory.class);
+    teamRoles = mock(TeamRoleCache.class);
+    when(teamRoles.getRole(anyInt(), anyInt())).thenReturn(TeamRole.NONE);
+    processor =
+        new TeamsProcessorImpl(
+            mockDb.getContext(), emailer, leaderboards, teamCache, teamDirectory, teamRoles);
   }
 
   void createUser() {
@@ -98,6 +118,24 @@ class TeamsProcessorImplTest {
     mockDb.addReturn("SELECT", myTeam);
   }
 
+  void givenRole(int userId, int teamId, TeamRole role) {
+    when(teamRoles.getRole(userId, teamId)).thenReturn(role);
+  }
+
+  private Record6<Integer, Integer, String, Integer, Integer, TeamRole> teamMember(
+      int teamId, int userId, String username, int completed, int reserved, TeamRole role) {
+    return mockDb
+        .getContext()
+        .newRecord(
+            Tables.USER_TEAM.TEAM_ID,
+            Tables.USERS.ID,
+            Tables.USERS.USERNAME,
+            Tables.USER_BLOCK_STATS.COMPLETED,
+            Tables.USER_BLOCK_STATS.RESERVED,
+            Tables.USER_TEAM.TEAM_ROLE)
+        .values(teamId, userId, username, completed, reserved, role);
+  }
+
   // successfully create a team
   @Test
   void testCreateTeam1() {
@@ -113,25 +151,14 @@ class TeamsProcessorImplTest {
     CreateTeamRequest teamRequest =
         new CreateTeamRequest("teamName", "teamBio", 2, timestamp, emailList);
 
-    Record5<Integer, String, BigDecimal, BigDecimal, TeamRole> myUserRecord5 =
-        mockDb
-            .getContext()
-            .newRecord(
-                Tables.USERS.ID,
-                Tables.USERS.USERNAME,
-                DSL.sum(DSL.when(BLOCK.STATUS.eq(BlockStatus.DONE), 1).else_(0))
-                    .as("blocksCompleted"),
-                DSL.sum(DSL.when(BLOCK.STATUS.eq(BlockStatus.RESERVED), 1).else_(0))
-                    .as("blocksReserved"),
-                Tables.USER_TEAM.TEAM_ROLE);
-    myUserRecord5.values(1, "kiminusername", new BigDecimal(1), new BigDecimal(1), TeamRole.LEADER);
-    mockDb.addReturn("SELECT", myUserRecord5);
+    mockDb.addReturn("SELECT", teamMember(3, 1, "kiminusername", 1, 1, TeamRole.LEADER));
 
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
     processor.createTeam(jwtData, teamRequest);
 
     assertEquals(3, mockDb.timesCalled("SELECT"));
     assertEquals(2, mockDb.timesCalled("INSERT"));
+    verify(teamRoles).setRole(1, 3, TeamRole.LEADER);
 
     ArgumentCaptor<String> stringArgs = ArgumentCaptor.forClass(String.class);
     ArgumentCaptor<Users> usersArgs = ArgumentCaptor.forClass(Users.class);
@@ -178,9 +205,13 @@ class TeamsProcessorImplTest {
   // successfully leaves team
   @Test
   void testLeaveTeam1() {
-    createUser();
+    givenRole(1, 5, TeamRole.MEMBER);
+    mockDb.addEmptyReturn("DELETE");
+
+    jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
     processor.leaveTeam(jwtData, 5);
-    assertEquals(1, mockDb.timesCalled("SELECT"));
+    assertEquals(1, mockDb.timesCalled("DELETE"));
+    verify(teamRoles).setRole(1, 5, TeamRole.NONE);
   }
 
   // UserNotOnTeamException for user not being in the team
@@ -199,12 +230,7 @@ class TeamsProcessorImplTest {
   // TeamLeaderExcludedRouteException for the user being the team leader
   @Test
   void testLeaveTeam3() {
-    UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.LEADER);
-    userTeamRecord.setTeamId(5);
-    userTeamRecord.setUserId(1);
-    mockDb.addReturn("SELECT", userTeamRecord);
-    createUser();
+    givenRole(2, 5, TeamRole.LEADER);
 
     jwtData = new JWTData(2, PrivilegeLevel.STANDARD);
     try {
@@ -226,12 +252,7 @@ class TeamsProcessorImplTest {
     Timestamp timestamp = new Timestamp(System.currentTimeMillis());
     myTeam.setGoalCompletionDate(timestamp);
 
-    UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.LEADER);
-    userTeamRecord.setTeamId(5);
-    userTeamRecord.setUserId(1);
-    mockDb.addReturn("SELECT", userTeamRecord);
-    createUser();
+    givenRole(1, 5, TeamRole.LEADER);
     mockDb.addReturn("SELECT", myTeam);
     mockDb.addReturn("DELETE", myTeam);
 
@@ -239,6 +260,7 @@ class TeamsProcessorImplTest {
     processor.disbandTeam(jwtData, 5);
     assertEquals(2, mockDb.timesCalled("DELETE"));
     assertEquals(1, mockDb.timesCalled("SELECT"));
+    verify(teamRoles).removeTeam(5);
   }
 
   // TeamLeaderOnlyRouteException for user not being a leader
@@ -265,16 +287,16 @@ class TeamsProcessorImplTest {
 
   @Test
   void testKickFromTeam1() {
-    UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.LEADER);
-    userTeamRecord.setTeamId(5);
-    userTeamRecord.setUserId(1);
-    mockDb.addReturn("SELECT", userTeamRecord);
+    givenRole(1, 5, TeamRole.LEADER);
+    mockDb.addEmptyReturn("DELETE");
 
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
-    processor.kickFromTeam(jwtData, 5, 1);
+    processor.kickFromTeam(jwtData, 5, 2);
 
-    assertEquals(1, mockDb.timesCalled("SELECT"));
+    assertEquals(1, mockDb.timesCalled("DELETE"));
+    verify(teamRoles).setRole(2, 5, TeamRole.NONE);
+    verify(leaderboards).refreshTeam(5);
+    verify(teamDirectory).refreshTeam(5);
   }
 
   // TeamLeaderOnlyRouteException
@@ -306,19 +328,16 @@ class TeamsProcessorImplTest {
 
   @Test
   void testInviteToTeam1() {
-    UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.LEADER);
-    userTeamRecord.setTeamId(5);
-    userTeamRecord.setUserId(1);
-    mockDb.addReturn("SELECT", userTeamRecord);
+    givenRole(1, 5, TeamRole.LEADER);
     createUser();
+    team1();
 
     List<String> emailList = Arrays.asList("ex1@example.com", "ex2@example.com", "ex3@example.com");
     InviteMembersRequest imr = new InviteMembersRequest(emailList, 5);
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
     processor.inviteToTeam(jwtData, imr);
 
-    assertEquals(3, mockDb.timesCalled("SELECT"));
+    assertEquals(2, mockDb.timesCalled("SELECT"));
     verify(emailer, times(3))
         .sendInviteEmail(anyString(), anyString(), any(Users.class), any(Team.class));
   }
@@ -354,90 +373,88 @@ class TeamsProcessorImplTest {
     }
   }
 
+  private Record2<Integer, TeamRole> userTeamRole(int teamId, TeamRole role) {
+    return mockDb
+        .getContext()
+        .newRecord(Tables.USER_TEAM.TEAM_ID, Tables.USER_TEAM.TEAM_ROLE)
+        .values(teamId, role);
+  }
+
   // Returns 1 team
   @Test
   void testGetAllTeams1() {
-    Record4<Integer, String, Integer, TeamRole> myTeam =
-        mockDb
-            .getContext()
-            .newRecord(
-                Tables.TEAM.ID,
-                Tables.TEAM.NAME,
-                DSL.count().as("memberCount"),
-                Tables.USER_TEAM.TEAM_ROLE);
-    myTeam.values(5, "kiminTeam", 1, TeamRole.LEADER);
-    mockDb.addReturn("SELECT", myTeam);
+    when(teamDirectory.find(null, null, 50))
+        .thenReturn(
+            new TeamDirectory.Page(
+                Collections.singletonList(new TeamDirectory.Entry(5, "kiminTeam", 1)), null));
+    mockDb.addReturn("SELECT", userTeamRole(5, TeamRole.LEADER));
 
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
-    GetAllTeamsResponse allTeamsResponse = processor.getAllTeams(jwtData);
+    GetAllTeamsResponse allTeamsResponse = processor.getAllTeams(jwtData, null, null, 50);
 
     assertEquals(allTeamsResponse.getRowCount(), 1);
+    assertNull(allTeamsResponse.getNextCursor());
 
-    //    List<TeamSummary> tsList = Arrays.asList(ts);
     assertEquals(5, allTeamsResponse.getTeams().get(0).getId());
     assertEquals(1, allTeamsResponse.getTeams().get(0).getMemberCount());
     assertEquals("kiminTeam", allTeamsResponse.getTeams().get(0).getName());
     assertEquals(TeamRole.LEADER, allTeamsResponse.getTeams().get(0).getUserTeamRole());
+    assertEquals(1, mockDb.timesCalled("SELECT"));
   }
 
-  // Returns 3 teams
+  // Returns a page of 3 teams, with the user's role on each
   @Test
   void testGetAllTeams2() {
-    Record4<Integer, String, Integer, TeamRole> myTeam =
-        mockDb
-            .getContext()
-            .newRecord(
-                Tables.TEAM.ID,
-                Tables.TEAM.NAME,
-                DSL.count().as("memberCount"),
-                Tables.USER_TEAM.TEAM_ROLE);
-    myTeam.values(5, "kiminTeam", 1, TeamRole.LEADER);
-
-    Record4<Integer, String, Integer, TeamRole> myTeam2 =
-        mockDb
-            .getContext()
-            .newRecord(
-                Tables.TEAM.ID,
-                Tables.TEAM.NAME,
-                DSL.count().as("memberCount"),
-                Tables.USER_TEAM.TEAM_ROLE);
-    myTeam2.values(3, "connerTeam", 6, TeamRole.MEMBER);
-
-    Record4<Integer, String, Integer, TeamRole> myTeam3 =
-        mockDb
-            .getContext()
-            .newRecord(
-                Tables.TEAM.ID,
-                Tables.TEAM.NAME,
-                DSL.count().as("memberCount"),
-                Tables.USER_TEAM.TEAM_ROLE);
-    myTeam3.values(7, "jackTeam", 4, TeamRole.LEADER);
+    when(teamDirectory.find("team", "cursor", 3))
+        .thenReturn(
+            new TeamDirectory.Page(
+                Arrays.asList(
+                    new TeamDirectory.Entry(3, "connerTeam", 6),
+                    new TeamDirectory.Entry(7, "jackTeam", 4),
+                    new TeamDirectory.Entry(5, "kiminTeam", 1)),
+                "next"));
+    mockDb.addReturn(
+        "SELECT",
+        Arrays.asList(userTeamRole(3, TeamRole.MEMBER), userTeamRole(7, TeamRole.LEADER)));
 
-    jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
-    List<Record> records = Arrays.asList(myTeam, myTeam2, myTeam3);
-    mockDb.addReturn("SELECT", records);
     GetAllTeamsResponse allTeamsResponse =
-        processor.getAllTeams(new JWTData(1, PrivilegeLevel.STANDARD));
+        processor.getAllTeams(new JWTData(1, PrivilegeLevel.STANDARD), "team", "cursor", 3);
 
     assertEquals(3, allTeamsResponse.getRowCount());
+    assertEquals("next", allTeamsResponse.getNextCursor());
 
     // team1
-    assertEquals(5, allTeamsResponse.getTeams().get(0).getId());
-    assertEquals(1, allTeamsResponse.getTeams().get(0).getMemberCount());
-    assertEquals("kiminTeam", allTeamsResponse.getTeams().get(0).getName());
-    assertEquals(TeamRole.LEADER, allTeamsResponse.getTeams().get(0).getUserTeamRole());
+    assertEquals(3, allTeamsResponse.getTeams().get(0).getId());
+    assertEquals(6, allTeamsResponse.getTeams().get(0).getMemberCount());
+    assertEquals("connerTeam", allTeamsResponse.getTeams().get(0).getName());
+    assertEquals(TeamRole.MEMBER, allTeamsResponse.getTeams().get(0).getUserTeamRole());
 
     // team2
-    assertEquals(3, allTeamsResponse.getTeams().get(1).getId());
-    assertEquals(6, allTeamsResponse.getTeams().get(1).getMemberCount());
-    assertEquals("connerTeam", allTeamsResponse.getTeams().get(1).getName());
-    assertEquals(TeamRole.MEMBER, allTeamsResponse.getTeams().get(1).getUserTeamRole());
+    assertEquals(7, allTeamsResponse.getTeams().get(1).getId());
+    assertEquals(4, allTeamsResponse.getTeams().get(1).getMemberCount());
+    assertEquals("jackTeam", allTeamsResponse.getTeams().get(1).getName());
+    assertEquals(TeamRole.LEADER, allTeamsResponse.getTeams().get(1).getUserTeamRole());
 
     // team3
-    assertEquals(7, allTeamsResponse.getTeams().get(2).getId());
-    assertEquals(4, allTeamsResponse.getTeams().get(2).getMemberCount());
-    assertEquals("jackTeam", allTeamsResponse.getTeams().get(2).getName());
-    assertEquals(TeamRole.LEADER, allTeamsResponse.getTeams().get(2).getUserTeamRole());
+    assertEquals(5, allTeamsResponse.getTeams().get(2).getId());
+    assertEquals(1, allTeamsResponse.getTeams().get(2).getMemberCount());
+    assertEquals("kiminTeam", allTeamsResponse.getTeams().get(2).getName());
+    assertEquals(TeamRole.NONE, allTeamsResponse.getTeams().get(2).getUserTeamRole());
+  }
+
+  // No teams match, so the database is not queried
+  @Test
+  void testGetAllTeams3() {
+    when(teamDirectory.find("zzz", null, 50))
+        .thenReturn(new TeamDirectory.Page(Collections.emptyList(), null));
+    mockDb.addEmptyReturn("SELECT");
+
+    GetAllTeamsResponse allTeamsResponse =
+        processor.getAllTeams(new JWTData(1, PrivilegeLevel.STANDARD), "zzz", null, 50);
+
+    assertEquals(0, allTeamsResponse.getRowCount());
+    assertTrue(allTeamsResponse.getTeams().isEmpty());
+    assertEquals(0, mockDb.timesCalled("SELECT"));
   }
 
   // successfully return a single team
@@ -453,19 +470,7 @@ class TeamsProcessorImplTest {
     mockDb.addReturn("SELECT", myTeam);
 
     // calls in getTeamMembers()
-    Record5<Integer, String, BigDecimal, BigDecimal, TeamRole> myUserRecord5 =
-        mockDb
-            .getContext()
-            .newRecord(
-                Tables.USERS.ID,
-                Tables.USERS.USERNAME,
-                DSL.sum(DSL.when(BLOCK.STATUS.eq(BlockStatus.DONE), 1).else_(0))
-                    .as("blocksCompleted"),
-                DSL.sum(DSL.when(BLOCK.STATUS.eq(BlockStatus.RESERVED), 1).else_(0))
-                    .as("blocksReserved"),
-                Tables.USER_TEAM.TEAM_ROLE);
-    myUserRecord5.values(1, "kiminUsername", new BigDecimal(1), new BigDecimal(1), TeamRole.LEADER);
-    mockDb.addReturn("SELECT", myUserRecord5);
+    mockDb.addReturn("SELECT", teamMember(5, 1, "kiminUsername", 1, 1, TeamRole.LEADER));
 
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
     TeamResponse teamResponse = processor.getSingleTeam(jwtData, 5);
@@ -497,14 +502,51 @@ class TeamsProcessorImplTest {
     }
   }
 
+  // a cached team is shown to each user with their own role, until one of its members changes
   @Test
-  void testGetUserTeams1() {
-    UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.LEADER);
-    userTeamRecord.setTeamId(5);
-    userTeamRecord.setUserId(1);
-    mockDb.addReturn("SELECT", userTeamRecord);
+  void testGetSingleTeam3() {
+    // the team and its members, once when it is first shown and again once it is loaded again
+    for (int load = 0; load < 2; load++) {
+      team1();
+      mockDb.addReturn(
+          "SELECT",
+          Arrays.asList(
+              teamMember(5, 1, "a", 2, 1, TeamRole.LEADER),
+              teamMember(5, 2, "b", 3, 0, TeamRole.MEMBER),
+              teamMember(5, 3, "c", 4, 4, TeamRole.PENDING)));
+    }
+
+    TeamResponse leaderView = processor.getSingleTeam(new JWTData(1, PrivilegeLevel.STANDARD), 5);
+    assertEquals(TeamRole.LEADER, leaderView.getUserTeamRole());
+    assertTrue(leaderView.isApplicantsToReview());
+    assertEquals(2, leaderView.getMembers().size());
+    assertEquals(5, leaderView.getBlocksCompleted());
+    assertEquals(1, leaderView.getBlocksReserved());
+    assertEquals(2, mockDb.timesCalled("SELECT"));
 
+    TeamResponse memberView = processor.getSingleTeam(new JWTData(2, PrivilegeLevel.STANDARD), 5);
+    assertEquals(TeamRole.MEMBER, memberView.getUserTeamRole());
+    assertFalse(memberView.isApplicantsToReview());
+    assertEquals(5, memberView.getBlocksCompleted());
+
+    TeamResponse applicantView =
+        processor.getSingleTeam(new JWTData(3, PrivilegeLevel.STANDARD), 5);
+    assertEquals(TeamRole.PENDING, applicantView.getUserTeamRole());
+
+    TeamResponse otherView = processor.getSingleTeam(new JWTData(4, PrivilegeLevel.STANDARD), 5);
+    assertEquals(TeamRole.NONE, otherView.getUserTeamRole());
+    assertEquals(2, mockDb.timesCalled("SELECT"));
+
+    // a member's block changes, so the team is loaded again
+    teamCache.onBlocksChanged(
+        Collections.singletonList(
+            new BlockChange("a", BlockStatus.RESERVED, BlockStatus.DONE, 2, 2)));
+    processor.getSingleTeam(new JWTData(1, PrivilegeLevel.STANDARD), 5);
+    assertEquals(4, mockDb.timesCalled("SELECT"));
+  }
+
+  @Test
+  void testGetUserTeams1() {
     TeamRecord myTeam = mockDb.getContext().newRecord(Tables.TEAM);
     myTeam.setId(5);
     myTeam.setName("teamKimin");
@@ -514,19 +556,8 @@ class TeamsProcessorImplTest {
     myTeam.setGoalCompletionDate(timestamp);
     mockDb.addReturn("SELECT", myTeam);
 
-    Record5<Integer, String, BigDecimal, BigDecimal, TeamRole> myUserRecord5 =
-        mockDb
-            .getContext()
-            .newRecord(
-                Tables.USERS.ID,
-                Tables.USERS.USERNAME,
-                DSL.sum(DSL.when(BLOCK.STATUS.eq(BlockStatus.DONE), 1).else_(0))
-                    .as("blocksCompleted"),
-                DSL.sum(DSL.when(BLOCK.STATUS.eq(BlockStatus.RESERVED), 1).else_(0))
-                    .as("blocksReserved"),
-                Tables.USER_TEAM.TEAM_ROLE);
-    myUserRecord5.values(1, "kiminUsername", new BigDecimal(1), new BigDecimal(1), TeamRole.LEADER);
-    mockDb.addReturn("SELECT", myUserRecord5);
+    mockDb.addReturn(
+        "SELECT", Arrays.asList(teamMember(5, 1, "kiminUsername", 1, 1, TeamRole.LEADER)));
 
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
     GetUserTeamsResponse userTeamsResponse = processor.getUserTeams(jwtData);
@@ -550,26 +581,85 @@ class TeamsProcessorImplTest {
         "kiminUsername", userTeamsResponse.getTeams().get(0).getMembers().get(0).getUsername());
   }
 
+  // the teams and their members are loaded in two queries, however many teams there are
+  @Test
+  void testGetUserTeams2() {
+    TeamRecord team5 = mockDb.getContext().newRecord(Tables.TEAM);
+    team5.setId(5);
+    team5.setName("team5");
+    team5.setGoal(10);
+    TeamRecord team7 = mockDb.getContext().newRecord(Tables.TEAM);
+    team7.setId(7);
+    team7.setName("team7");
+    team7.setGoal(20);
+    mockDb.addReturn("SELECT", Arrays.asList(team5, team7));
+
+    mockDb.addReturn(
+        "SELECT",
+        Arrays.asList(
+            teamMember(7, 2, "a", 3, 0, TeamRole.LEADER),
+            teamMember(5, 1, "b", 1, 2, TeamRole.LEADER),
+            teamMember(7, 1, "b", 1, 2, TeamRole.MEMBER),
+            teamMember(5, 3, "c", 4, 4, TeamRole.PENDING),
+            teamMember(7, 4, "d", 2, 1, TeamRole.MEMBER)));
+
+    jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
+    GetUserTeamsResponse userTeamsResponse = processor.getUserTeams(jwtData);
+
+    assertEquals(2, mockDb.timesCalled("SELECT"));
+    // the members are loaded for every team at once, with no join on the blocks
+    String membersQuery = mockDb.getSqlStrings().get("SELECT").get(1);
+    assertFalse(membersQuery.contains("\"block\""));
+    assertEquals(5, mockDb.getSqlBindings().get("SELECT").get(1)[2]);
+    assertEquals(7, mockDb.getSqlBindings().get("SELECT").get(1)[3]);
+
+    TeamResponse first = userTeamsResponse.getTeams().get(0);
+    assertEquals(5, first.getId());
+    assertEquals(TeamRole.LEADER, first.getUserTeamRole());
+    assertTrue(first.isApplicantsToReview());
+    assertEquals(1, first.getMembers().size());
+    assertEquals(1, first.getBlocksCompleted());
+
+    TeamResponse second = userTeamsResponse.getTeams().get(1);
+    assertEquals(7, second.getId());
+    assertEquals(TeamRole.MEMBER, second.getUserTeamRole());
+    assertEquals(3, second.getMembers().size());
+    assertEquals(6, second.getBlocksCompleted());
+    assertEquals(3, second.getBlocksReserved());
+  }
+
   @Test
   void testTransferOwnership1() {
-    UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.LEADER);
-    userTeamRecord.setTeamId(5);
-    userTeamRecord.setUserId(1);
-    mockDb.addReturn("SELECT", userTeamRecord);
-
-    userTeamRecord.setTeamRole(TeamRole.MEMBER);
-    mockDb.addReturn("UPDATE", userTeamRecord);
-    userTeamRecord.setTeamRole(TeamRole.LEADER);
-    mockDb.addReturn("UPDATE", userTeamRecord);
+    givenRole(1, 5, TeamRole.LEADER);
+    givenRole(2, 5, TeamRole.MEMBER);
+    createUser();
+    mockDb.addEmptyReturn("UPDATE");
 
     TransferOwnershipRequest tor = new TransferOwnershipRequest(5, 2);
 
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
     processor.transferOwnership(jwtData, tor);
-    // 3 from fetchExist calls
-    assertEquals(3, mockDb.timesCalled("SELECT"));
+    // 1 from the fetchExists call for the new leader
+    assertEquals(1, mockDb.timesCalled("SELECT"));
     assertEquals(2, mockDb.timesCalled("UPDATE"));
+    verify(teamRoles).setRole(1, 5, TeamRole.MEMBER);
+    verify(teamRoles).setRole(2, 5, TeamRole.LEADER);
+  }
+
+  @Test
+  void testTransferOwnershipToApplicant() {
+    givenRole(1, 5, TeamRole.LEADER);
+    givenRole(2, 5, TeamRole.PENDING);
+    createUser();
+    mockDb.addEmptyReturn("UPDATE");
+
+    processor.transferOwnership(
+        new JWTData(1, PrivilegeLevel.STANDARD), new TransferOwnershipRequest(5, 2));
+
+    // the applicant now counts towards the team
+    verify(teamRoles).setRole(2, 5, TeamRole.LEADER);
+    verify(leaderboards).refreshTeam(5);
+    verify(teamDirectory).refreshTeam(5);
   }
 
   // TeamLeaderOnlyRouteException where currentLeaderTeam == null
@@ -591,14 +681,8 @@ class TeamsProcessorImplTest {
   // TeamLeaderOnlyRouteException where currentLeaderTeam.getTeamRole() != TeamRole.LEADER
   @Test
   void testTransferOwnership3() {
-    UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.MEMBER);
-    userTeamRecord.setTeamId(5);
-    userTeamRecord.setUserId(2);
-    mockDb.addReturn("SELECT", userTeamRecord);
-
-    createUser();
-    team1();
+    givenRole(1, 5, TeamRole.MEMBER);
+    givenRole(2, 5, TeamRole.LEADER);
     TransferOwnershipRequest tor = new TransferOwnershipRequest(5, 2);
 
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
@@ -613,16 +697,9 @@ class TeamsProcessorImplTest {
   // UserDoesNotExistException
   @Test
   void testTransferOwnership4() {
-    UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.LEADER);
-    userTeamRecord.setTeamId(5);
-    userTeamRecord.setUserId(1);
-    mockDb.addReturn("SELECT", userTeamRecord);
-
+    givenRole(1, 8, TeamRole.LEADER);
     mockDb.addEmptyReturn("SELECT");
-    jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
 
-    team1();
     TransferOwnershipRequest tor = new TransferOwnershipRequest(8, 10);
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
 
@@ -637,14 +714,8 @@ class TeamsProcessorImplTest {
   // UserNotOnTeamException
   @Test
   void testTransferOwnership5() {
-    UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.LEADER);
-    userTeamRecord.setTeamId(9);
-    userTeamRecord.setUserId(18);
-    mockDb.addReturn("SELECT", userTeamRecord);
-
+    givenRole(1, 9, TeamRole.LEADER);
     createUser();
-    mockDb.addEmptyReturn("SELECT");
 
     TransferOwnershipRequest tor = new TransferOwnershipRequest(9, 7);
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
@@ -664,13 +735,14 @@ class TeamsProcessorImplTest {
     userTeamRecord.setTeamRole(TeamRole.PENDING);
     userTeamRecord.setTeamId(5);
     userTeamRecord.setUserId(3);
-    mockDb.addReturn("SELECT", userTeamRecord);
+    givenRole(1, 5, TeamRole.LEADER);
     mockDb.addReturn("SELECT", userTeamRecord);
 
-    jwtData = new JWTData(3, PrivilegeLevel.STANDARD);
+    jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
     processor.approveTeamRequest(jwtData, 5, 3);
 
-    assertEquals(2, mockDb.timesCalled("SELECT"));
+    assertEquals(1, mockDb.timesCalled("SELECT"));
+    verify(teamRoles).setRole(3, 5, TeamRole.MEMBER);
   }
 
   // TeamLeaderOnlyRouteException
@@ -688,11 +760,7 @@ class TeamsProcessorImplTest {
   // NoSuchTeamRequestException
   @Test
   void testApproveTeamRequest3() {
-    UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.LEADER);
-    userTeamRecord.setTeamId(5);
-    userTeamRecord.setUserId(3);
-    mockDb.addReturn("SELECT", userTeamRecord);
+    givenRole(8, 1, TeamRole.LEADER);
     mockDb.addEmptyReturn("SELECT");
     jwtData = new JWTData(8, PrivilegeLevel.STANDARD);
     try {
@@ -707,9 +775,10 @@ class TeamsProcessorImplTest {
   @Test
   void testApproveTeamRequest4() {
     UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.LEADER);
-    userTeamRecord.setTeamId(5);
-    userTeamRecord.setUserId(8);
+    userTeamRecord.setTeamRole(TeamRole.MEMBER);
+    userTeamRecord.setTeamId(9);
+    userTeamRecord.setUserId(2);
+    givenRole(1, 9, TeamRole.LEADER);
     mockDb.addReturn("SELECT", userTeamRecord);
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
     try {
@@ -726,15 +795,16 @@ class TeamsProcessorImplTest {
     userTeamRecord.setTeamRole(TeamRole.PENDING);
     userTeamRecord.setTeamId(5);
     userTeamRecord.setUserId(3);
-    mockDb.addReturn("SELECT", userTeamRecord);
+    givenRole(1, 5, TeamRole.LEADER);
     mockDb.addReturn("SELECT", userTeamRecord);
     mockDb.addEmptyReturn("DELETE");
 
-    jwtData = new JWTData(3, PrivilegeLevel.STANDARD);
+    jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
     processor.rejectTeamRequest(jwtData, 5, 3);
 
-    assertEquals(2, mockDb.timesCalled("SELECT"));
+    assertEquals(1, mockDb.timesCalled("SELECT"));
     assertEquals(1, mockDb.timesCalled("DELETE"));
+    verify(teamRoles).setRole(3, 5, TeamRole.NONE);
   }
 
   // TeamLeaderOnlyRouteException
@@ -752,11 +822,7 @@ class TeamsProcessorImplTest {
   // NoSuchTeamRequestException
   @Test
   void testRejectTeamRequest3() {
-    UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.LEADER);
-    userTeamRecord.setTeamId(5);
-    userTeamRecord.setUserId(3);
-    mockDb.addReturn("SELECT", userTeamRecord);
+    givenRole(8, 1, TeamRole.LEADER);
     mockDb.addEmptyReturn("SELECT");
     jwtData = new JWTData(8, PrivilegeLevel.STANDARD);
     try {
@@ -771,9 +837,10 @@ class TeamsProcessorImplTest {
   @Test
   void testRejectTeamRequest4() {
     UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.LEADER);
-    userTeamRecord.setTeamId(5);
-    userTeamRecord.setUserId(8);
+    userTeamRecord.setTeamRole(TeamRole.MEMBER);
+    userTeamRecord.setTeamId(9);
+    userTeamRecord.setUserId(2);
+    givenRole(1, 9, TeamRole.LEADER);
     mockDb.addReturn("SELECT", userTeamRecord);
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
     try {
@@ -787,14 +854,14 @@ class TeamsProcessorImplTest {
   @Test
   void testApplyForTeam1() {
     team1();
-    mockDb.addEmptyReturn("SELECT");
     mockDb.addEmptyReturn("INSERT");
 
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
     processor.applyForTeam(jwtData, 5);
 
-    assertEquals(2, mockDb.timesCalled("SELECT"));
+    assertEquals(1, mockDb.timesCalled("SELECT"));
     assertEquals(1, mockDb.timesCalled("INSERT"));
+    verify(teamRoles).setRole(1, 5, TeamRole.PENDING);
   }
 
   // NoSuchTeamException
@@ -812,11 +879,8 @@ class TeamsProcessorImplTest {
   // UserAlreadyOnTeamException
   @Test
   void testApplyForTeam3() {
-    UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.LEADER);
-    userTeamRecord.setTeamId(5);
-    userTeamRecord.setUserId(1);
-    mockDb.addReturn("SELECT", userTeamRecord);
+    team1();
+    givenRole(1, 5, TeamRole.LEADER);
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
     try {
       processor.applyForTeam(jwtData, 5);
@@ -829,11 +893,8 @@ class TeamsProcessorImplTest {
   // ExistingTeamRequestException
   @Test
   void testApplyForTeam4() {
-    UserTeamRecord userTeamRecord = mockDb.getContext().newRecord(Tables.USER_TEAM);
-    userTeamRecord.setTeamRole(TeamRole.PENDING);
-    userTeamRecord.setTeamId(5);
-    userTeamRecord.setUserId(1);
-    mockDb.addReturn("SELECT", userTeamRecord);
+    team1();
+    givenRole(1, 5, TeamRole.PENDING);
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
     try {
       processor.applyForTeam(jwtData, 5);
@@ -848,6 +909,7 @@ class TeamsProcessorImplTest {
     Record2<Integer, String> myTeam =
         mockDb.getContext().newRecord(Tables.USER_TEAM.USER_ID, Tables.USERS.USERNAME);
     myTeam.values(1, "kiminUsername");
+    givenRole(1, 5, TeamRole.LEADER);
     mockDb.addReturn("SELECT", myTeam);
 
     jwtData = new JWTData(1, PrivilegeLevel.STANDARD);
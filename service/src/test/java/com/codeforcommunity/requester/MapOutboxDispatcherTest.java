@@ -0,0 +1,236 @@
+package com.codeforcommunity.requester;
+
+import static org.jooq.generated.Tables.MAP_OUTBOX;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codeforcommunity.JooqMock;
+import com.codeforcommunity.enums.BlockStatus;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.jooq.Record1;
+import org.jooq.Record2;
+import org.jooq.generated.tables.records.MapOutboxRecord;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class MapOutboxDispatcherTest {
+  private static final long BASE_BACKOFF_MS = 1000;
+  private static final long MAX_BACKOFF_MS = 5000;
+  private static final int MAX_ATTEMPTS = 4;
+
+  private JooqMock mockDb;
+  private Vertx vertx;
+  private MapRequester mapRequester;
+  private MapOutboxDispatcher dispatcher;
+  private Handler<Long> poll;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setup() {
+    mockDb = new JooqMock();
+    mockDb.addEmptyReturn("DELETE");
+    mockDb.addEmptyReturn("UPDATE");
+
+    // Work that would run on the event loop or a worker runs straight away
+    vertx = mock(Vertx.class);
+    doAnswer(
+            invocation -> {
+              invocation.<Handler<Void>>getArgument(0).handle(null);
+              return null;
+            })
+        .when(vertx)
+        .runOnContext(any());
+    doAnswer(
+            invocation -> {
+              Promise<Object> promise = Promise.promise();
+              invocation.<Handler<Promise<Object>>>getArgument(0).handle(promise);
+              invocation.<Handler<AsyncResult<Object>>>getArgument(2).handle(promise.future());
+              return null;
+            })
+        .when(vertx)
+        .executeBlocking(any(), anyBoolean(), any());
+
+    mapRequester = mock(MapRequester.class);
+
+    Properties mapProperties = new Properties();
+    mapProperties.setProperty("outbox_poll_interval_ms", "1000");
+    mapProperties.setProperty("outbox_batch_size", "500");
+    mapProperties.setProperty("outbox_max_attempts", String.valueOf(MAX_ATTEMPTS));
+    mapProperties.setProperty("outbox_base_backoff_ms", String.valueOf(BASE_BACKOFF_MS));
+    mapProperties.setProperty("outbox_max_backoff_ms", String.valueOf(MAX_BACKOFF_MS));
+    dispatcher = new MapOutboxDispatcher(vertx, mockDb.getContext(), mapRequester, mapProperties);
+  }
+
+  private MapOutboxRecord entry(long id, String blockId, BlockStatus status, int attempts) {
+    MapOutboxRecord entry = mockDb.getContext().newRecord(MAP_OUTBOX);
+    Timestamp created = new Timestamp(System.currentTimeMillis() - 60000);
+    entry.setId(id);
+    entry.setBlockId(blockId);
+    entry.setStatus(status);
+    entry.setCreatedTimestamp(created);
+    entry.setAttempts(attempts);
+    entry.setNextAttemptTimestamp(created);
+    entry.setDeadLettered(false);
+    return entry;
+  }
+
+  /**
+   * Queue the reads of one drain: the backlog, the number of dead-lettered entries, then the due
+   * entries. Every drain a test runs is queued before the first one starts, as a result queued
+   * after the last one was read is only reached once the last one has been read again.
+   */
+  private void queueDrain(MapOutboxRecord... due) {
+    Record2<Integer, Timestamp> backlog =
+        mockDb
+            .getContext()
+            .newRecord(DSL.count(), DSL.min(MAP_OUTBOX.CREATED_TIMESTAMP))
+            .values(due.length, new Timestamp(System.currentTimeMillis() - 60000));
+    Record1<Integer> deadLettered = mockDb.getContext().newRecord(DSL.count()).values(0);
+    mockDb.addReturn("SELECT", backlog);
+    mockDb.addReturn("SELECT", deadLettered);
+    mockDb.addReturn("SELECT", Arrays.asList(due));
+  }
+
+  /** Start the dispatcher, which drains the outbox once straight away. */
+  @SuppressWarnings("unchecked")
+  private void start() {
+    ArgumentCaptor<Handler<Long>> timer = ArgumentCaptor.forClass(Handler.class);
+    when(vertx.setPeriodic(anyLong(), timer.capture())).thenReturn(1L);
+    dispatcher.start();
+    poll = timer.getValue();
+  }
+
+  private Map<String, BlockStatus> statuses(Object... blockStatuses) {
+    Map<String, BlockStatus> statuses = new HashMap<>();
+    for (int i = 0; i < blockStatuses.length; i += 2) {
+      statuses.put((String) blockStatuses[i], (BlockStatus) blockStatuses[i + 1]);
+    }
+    return statuses;
+  }
+
+  @Test
+  void testReplayAtStartup() {
+    // entries left in the outbox by the last run, one of which had failed before
+    queueDrain(entry(1, "A1", BlockStatus.RESERVED, 0), entry(2, "A2", BlockStatus.DONE, 2));
+    when(mapRequester.sendUpdates(any()))
+        .thenReturn(Future.succeededFuture(Collections.emptySet()));
+
+    start();
+
+    // they are sent without waiting for the first poll, together
+    verify(mapRequester).sendUpdates(statuses("A1", BlockStatus.RESERVED, "A2", BlockStatus.DONE));
+    verify(vertx).setPeriodic(eq(1000L), any());
+  }
+
+  @Test
+  void testDeleteAfterSuccess() {
+    queueDrain(entry(1, "A1", BlockStatus.RESERVED, 0), entry(2, "A2", BlockStatus.DONE, 0));
+    when(mapRequester.sendUpdates(any()))
+        .thenReturn(Future.succeededFuture(Collections.emptySet()));
+
+    start();
+
+    // the superseded entries, then the sent ones
+    assertEquals(2, mockDb.timesCalled("DELETE"));
+    assertEquals(
+        Arrays.asList(1L, 2L), Arrays.asList(mockDb.getSqlBindings().get("DELETE").get(1)));
+    assertEquals(0, mockDb.timesCalled("UPDATE"));
+  }
+
+  @Test
+  void testRejectedEntriesRetried() {
+    queueDrain(entry(1, "A1", BlockStatus.RESERVED, 0), entry(2, "A2", BlockStatus.DONE, 0));
+    when(mapRequester.sendUpdates(any()))
+        .thenReturn(Future.succeededFuture(Collections.singleton("A2")));
+
+    start();
+
+    // only the entry ArcGIS updated is deleted, and the rejected one backs off
+    assertEquals(
+        Collections.singletonList(1L), Arrays.asList(mockDb.getSqlBindings().get("DELETE").get(1)));
+    assertEquals(1, mockDb.timesCalled("UPDATE"));
+    Object[] retry = mockDb.getSqlBindings().get("UPDATE").get(0);
+    assertEquals(1, retry[0]);
+    assertEquals(2L, retry[4]);
+  }
+
+  @Test
+  void testSupersedeEntryInBackoff() {
+    // A1 failed before and is waiting to be retried when it is changed again
+    queueDrain(entry(1, "A1", BlockStatus.RESERVED, 3), entry(5, "A1", BlockStatus.DONE, 0));
+    when(mapRequester.sendUpdates(any()))
+        .thenReturn(Future.succeededFuture(Collections.emptySet()));
+
+    start();
+
+    // entries with a newer entry for their block are deleted whether or not they are due
+    String supersede = mockDb.getSqlStrings().get("DELETE").get(0);
+    assertTrue(supersede.contains("exists"));
+    assertTrue(supersede.contains("\"newer\".\"id\" > \"map_outbox\".\"id\""));
+    assertFalse(supersede.contains("next_attempt_timestamp"));
+
+    // and if the newer entry is written as the batch is read, only the newer status is sent
+    verify(mapRequester).sendUpdates(statuses("A1", BlockStatus.DONE));
+  }
+
+  @Test
+  void testBackoffAndDeadLetter() {
+    queueDrain(entry(1, "A1", BlockStatus.RESERVED, 0));
+    queueDrain(entry(1, "A1", BlockStatus.RESERVED, 2));
+    queueDrain(entry(1, "A1", BlockStatus.RESERVED, MAX_ATTEMPTS - 1));
+    when(mapRequester.sendUpdates(any())).thenReturn(Future.failedFuture("ArcGIS is down"));
+
+    long before = System.currentTimeMillis();
+    start();
+    poll.handle(1L);
+    poll.handle(1L);
+    long after = System.currentTimeMillis();
+
+    verify(mapRequester, times(3)).sendUpdates(any());
+    List<Object[]> retries = mockDb.getSqlBindings().get("UPDATE");
+    assertEquals(3, retries.size());
+
+    // the backoff doubles with each attempt, up to the maximum
+    assertRetry(retries.get(0), 1, BASE_BACKOFF_MS, false, before, after);
+    assertRetry(retries.get(1), 3, BASE_BACKOFF_MS * 4, false, before, after);
+    // and the entry is dead-lettered once it has used all of its attempts
+    assertRetry(retries.get(2), MAX_ATTEMPTS, MAX_BACKOFF_MS, true, before, after);
+    assertEquals("ArcGIS is down", retries.get(2)[1]);
+  }
+
+  private void assertRetry(
+      Object[] retry,
+      int attempts,
+      long backoffMs,
+      boolean deadLettered,
+      long beforeMs,
+      long afterMs) {
+    assertEquals(attempts, retry[0]);
+    long nextAttempt = ((Timestamp) retry[2]).getTime();
+    assertTrue(nextAttempt >= beforeMs + backoffMs && nextAttempt <= afterMs + backoffMs);
+    assertEquals(deadLettered, retry[3]);
+  }
+}